@@ -3,13 +3,15 @@ package service.com.service.userservice;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
 @SpringBootApplication
 @EnableCaching
 @EnableTransactionManagement
+@EnableScheduling
 public class UserServiceApplication {
-
+    
     public static void main(String[] args) {
         SpringApplication.run(UserServiceApplication.class, args);
     }
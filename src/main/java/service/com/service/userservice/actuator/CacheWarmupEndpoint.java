@@ -0,0 +1,30 @@
+package service.com.service.userservice.actuator;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+import service.com.service.userservice.dto.CacheWarmupStatus;
+import service.com.service.userservice.service.CacheWarmupService;
+
+import java.util.List;
+
+// Progress and throughput of permission cache warm-ups: /actuator/cachewarmup and /actuator/cachewarmup/{tenant}/{domain}
+@Component
+@Endpoint(id = "cachewarmup")
+@RequiredArgsConstructor
+public class CacheWarmupEndpoint {
+    
+    private final CacheWarmupService cacheWarmupService;
+    
+    @ReadOperation
+    public List<CacheWarmupStatus> warmups() {
+        return cacheWarmupService.getAllWarmupStatuses();
+    }
+    
+    @ReadOperation
+    public CacheWarmupStatus warmup(@Selector String tenantId, @Selector String resourceDomain) {
+        return cacheWarmupService.getWarmupStatus(tenantId, resourceDomain);
+    }
+}
@@ -0,0 +1,149 @@
+package service.com.service.userservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+// Versioned key namespaces. Every cache key embeds the generation of its global, tenant and domain scope
+// (perm:{tenant}:{domain}:{global}.{tenant}.{domain}:...), so flushing a scope is a single INCR: keys of the
+// old generation are never read again and either expire through their TTL or are removed by CacheKeyJanitor.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheGenerations {
+    
+    private static final String GENERATION_KEY_PREFIX = "gen:";
+    // Value of a counter that was never incremented
+    private static final String NO_GENERATION = "0";
+    
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    
+    // Bounds how long a node may keep using a generation if it misses the invalidation broadcast
+    @Value("${app.cache.generations.local-ttl:5}")
+    private long localTtlSeconds;
+    
+    private Cache<String, String> generations;
+    
+    public enum Kind {
+        PERMISSIONS("perm"),
+        SESSIONS("session"),
+        BLACKLIST("blacklist");
+        
+        private final String keyPrefix;
+        
+        Kind(String keyPrefix) {
+            this.keyPrefix = keyPrefix;
+        }
+        
+        public String keyPrefix() {
+            return keyPrefix;
+        }
+    }
+    
+    @PostConstruct
+    void init() {
+        generations = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+            .build();
+    }
+    
+    // {kind}:{tenant}:{domain}:{generation}:
+    public String keyPrefix(Kind kind, String tenantId, String resourceDomain) {
+        return kind.keyPrefix + ":" + tenantId + ":" + resourceDomain + ":" + generation(kind, tenantId, resourceDomain) + ":";
+    }
+    
+    // {kind}:{generation}: for kinds that are not scoped to a tenant
+    public String keyPrefix(Kind kind) {
+        return kind.keyPrefix + ":" + generation(kind, null, null) + ":";
+    }
+    
+    // Throws when the counters cannot be read: falling back to generation 0 would make keys written before
+    // a flush reachable again, so callers must treat the failure as an outage (the blacklist fails closed)
+    public String generation(Kind kind, String tenantId, String resourceDomain) {
+        return currentGeneration(kind, tenantId, resourceDomain);
+    }
+    
+    // Pass null for tenantId and/or resourceDomain to flush the wider scope
+    public void bump(Kind kind, String tenantId, String resourceDomain) {
+        Long generation = stringRedisTemplate.opsForValue().increment(counterKey(kind, tenantId, resourceDomain));
+        invalidateLocal();
+        log.info("Bumped {} cache generation for tenant {} and domain {} to {}", kind, tenantId, resourceDomain, generation);
+    }
+    
+    public void invalidateLocal() {
+        generations.invalidateAll();
+    }
+    
+    // True only when the key was written under a generation that has since been bumped. Keys that do not
+    // carry a parsable generation predate versioned keys and are unreachable as well. Throws like generation().
+    public boolean isStale(Kind kind, String key) {
+        String[] parts = key.split(":", kind == Kind.BLACKLIST ? 3 : 5);
+        if (kind == Kind.BLACKLIST) {
+            return parts.length < 3 || isOlder(parts[1], currentGeneration(kind, null, null));
+        }
+        return parts.length < 5 || isOlder(parts[3], currentGeneration(kind, parts[1], parts[2]));
+    }
+    
+    // Failed loads are not cached, so the next call retries
+    private String currentGeneration(Kind kind, String tenantId, String resourceDomain) {
+        return generations.get(counterKey(kind, tenantId, resourceDomain), key -> load(kind, tenantId, resourceDomain));
+    }
+    
+    private String load(Kind kind, String tenantId, String resourceDomain) {
+        List<String> counterKeys = tenantId == null
+            ? List.of(counterKey(kind, null, null))
+            : List.of(counterKey(kind, null, null), counterKey(kind, tenantId, null), counterKey(kind, tenantId, resourceDomain));
+        try {
+            List<String> values = stringRedisTemplate.opsForValue().multiGet(counterKeys);
+            StringBuilder generation = new StringBuilder();
+            for (int i = 0; i < counterKeys.size(); i++) {
+                String value = values != null && i < values.size() ? values.get(i) : null;
+                generation.append(i > 0 ? "." : "").append(value != null ? value : NO_GENERATION);
+            }
+            return generation.toString();
+        } catch (RuntimeException e) {
+            log.error("Error loading {} cache generation for tenant {} and domain {}: {}", kind, tenantId, resourceDomain, e.getMessage());
+            throw e;
+        }
+    }
+    
+    // Counters only ever grow, so a key is stale iff one of its components is behind the current one.
+    // A node with an outdated local view therefore never reports fresh keys as stale.
+    private static boolean isOlder(String keyGeneration, String currentGeneration) {
+        String[] keyParts = keyGeneration.split("\\.");
+        String[] currentParts = currentGeneration.split("\\.");
+        if (keyParts.length != currentParts.length) {
+            return true;
+        }
+        try {
+            for (int i = 0; i < keyParts.length; i++) {
+                if (Long.parseLong(keyParts[i]) < Long.parseLong(currentParts[i])) {
+                    return true;
+                }
+            }
+            return false;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+    
+    private static String counterKey(Kind kind, String tenantId, String resourceDomain) {
+        StringBuilder key = new StringBuilder(GENERATION_KEY_PREFIX).append(kind.keyPrefix);
+        if (tenantId != null) {
+            key.append(':').append(tenantId);
+            if (resourceDomain != null) {
+                key.append(':').append(resourceDomain);
+            }
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,37 @@
+package service.com.service.userservice.cache;
+
+import java.util.List;
+
+// Broadcast over Redis pub/sub so that every node drops the matching local entries.
+// For ROLE, value is the tenant/domain key prefix and roleName the role whose permission set changed.
+// For KEYS, keys lists the user entries dropped by a bulk change.
+public record CacheInvalidationMessage(Scope scope, String value, String roleName, List<String> keys) {
+    
+    public enum Scope {
+        KEY,
+        KEYS,
+        PREFIX,
+        ROLE,
+        ALL
+    }
+    
+    public static CacheInvalidationMessage key(String key) {
+        return new CacheInvalidationMessage(Scope.KEY, key, null, null);
+    }
+    
+    public static CacheInvalidationMessage keys(List<String> keys) {
+        return new CacheInvalidationMessage(Scope.KEYS, null, null, keys);
+    }
+    
+    public static CacheInvalidationMessage prefix(String keyPrefix) {
+        return new CacheInvalidationMessage(Scope.PREFIX, keyPrefix, null, null);
+    }
+    
+    public static CacheInvalidationMessage role(String keyPrefix, String roleName) {
+        return new CacheInvalidationMessage(Scope.ROLE, keyPrefix, roleName, null);
+    }
+    
+    public static CacheInvalidationMessage all() {
+        return new CacheInvalidationMessage(Scope.ALL, null, null, null);
+    }
+}
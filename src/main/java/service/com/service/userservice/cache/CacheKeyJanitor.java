@@ -0,0 +1,139 @@
+package service.com.service.userservice.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+// Background removal of keys left behind by generation bumps. Uses cursor-based SCAN and UNLINK in small
+// batches with a pause after every batch, and caps the keys examined per run, so it never blocks the shared Redis.
+// The SCAN cursor is kept in Redis, so each run continues where the previous one stopped, and a lock makes
+// only one node sweep at a time.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CacheKeyJanitor {
+    
+    private static final String LOCK_KEY = "janitor:lock";
+    private static final String CURSOR_KEY_PREFIX = "janitor:cursor:";
+    private static final String START_CURSOR = "0";
+    
+    // One SCAN step per call so the cursor can be resumed later: returns {next cursor, keys}
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SCAN_SCRIPT = new DefaultRedisScript<>(
+        "return redis.call('scan', ARGV[1], 'match', ARGV[2], 'count', ARGV[3])",
+        List.class);
+    
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+        Long.class);
+    
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    private final CacheGenerations cacheGenerations;
+    
+    @Value("${app.cache.cleanup.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.cache.cleanup.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${app.cache.cleanup.max-keys-per-run:50000}")
+    private long maxKeysPerRun;
+    
+    @Value("${app.cache.cleanup.batch-pause-ms:50}")
+    private long batchPauseMillis;
+    
+    // Outlives a full run so that a second node cannot start while the first is still sweeping
+    @Value("${app.cache.cleanup.lock-ttl-ms:600000}")
+    private long lockTtlMillis;
+    
+    @Scheduled(initialDelayString = "${app.cache.cleanup.initial-delay-ms:60000}",
+               fixedDelayString = "${app.cache.cleanup.interval-ms:300000}")
+    public void cleanup() {
+        if (!enabled) {
+            return;
+        }
+        
+        String token = UUID.randomUUID().toString();
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY, token, Duration.ofMillis(lockTtlMillis));
+            if (acquired == null || !acquired) {
+                log.debug("Cache key cleanup is running on another node, skipping");
+                return;
+            }
+        } catch (Exception e) {
+            log.error("Error acquiring cache key cleanup lock: {}", e.getMessage());
+            return;
+        }
+        
+        try {
+            for (CacheGenerations.Kind kind : CacheGenerations.Kind.values()) {
+                try {
+                    sweep(kind);
+                } catch (Exception e) {
+                    log.error("Error cleaning up stale {} cache keys: {}", kind, e.getMessage());
+                }
+            }
+        } finally {
+            try {
+                stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(LOCK_KEY), token);
+            } catch (Exception e) {
+                log.error("Error releasing cache key cleanup lock: {}", e.getMessage());
+            }
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    long sweep(CacheGenerations.Kind kind) {
+        String cursorKey = CURSOR_KEY_PREFIX + kind.keyPrefix();
+        String storedCursor = stringRedisTemplate.opsForValue().get(cursorKey);
+        String cursor = storedCursor != null ? storedCursor : START_CURSOR;
+        
+        long scanned = 0;
+        long removed = 0;
+        do {
+            List<Object> step = stringRedisTemplate.execute(SCAN_SCRIPT, List.of(),
+                cursor, kind.keyPrefix() + ":*", String.valueOf(batchSize));
+            cursor = (String) step.get(0);
+            List<String> keys = (List<String>) step.get(1);
+            scanned += keys.size();
+            
+            List<String> stale = keys.stream()
+                .filter(key -> cacheGenerations.isStale(kind, key))
+                .toList();
+            removed += unlink(stale);
+            // Saved after every step so a run that fails midway still resumes from here
+            stringRedisTemplate.opsForValue().set(cursorKey, cursor);
+            pause();
+        } while (!START_CURSOR.equals(cursor) && scanned < maxKeysPerRun && !Thread.currentThread().isInterrupted());
+        
+        if (removed > 0) {
+            log.info("Removed {} stale {} cache keys ({} scanned)", removed, kind, scanned);
+        }
+        return removed;
+    }
+    
+    private long unlink(List<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Long unlinked = stringRedisTemplate.unlink(keys);
+        return unlinked != null ? unlinked : 0;
+    }
+    
+    private void pause() {
+        try {
+            Thread.sleep(batchPauseMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
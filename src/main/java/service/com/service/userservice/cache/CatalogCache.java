@@ -0,0 +1,72 @@
+package service.com.service.userservice.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import service.com.service.userservice.entity.Permission;
+import service.com.service.userservice.entity.Role;
+
+import java.nio.charset.StandardCharsets;
+
+// Role and permission rows, role permission sets and catalog query results live in the node-local Hibernate
+// second-level cache (regions in hibernate-cache.conf). Writes through this node evict its own regions; other nodes
+// drop theirs when the change is broadcast after commit. Writes made outside the service age out with the region TTL.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogCache implements MessageListener {
+    
+    public static final String CHANNEL = "cache:catalog:invalidate";
+    public static final String QUERY_REGION = "catalog-queries";
+    
+    private static final String ROLE_PERMISSIONS_COLLECTION = Role.class.getName() + ".permissions";
+    
+    private final EntityManagerFactory entityManagerFactory;
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    
+    // Broadcasts a catalog change of the tenant/domain once the surrounding transaction commits
+    public void catalogChanged(String tenantId, String resourceDomain) {
+        String scope = tenantId + ":" + resourceDomain;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(scope);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                publish(scope);
+            }
+        });
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        evictLocal();
+        log.debug("Evicted catalog regions after change in {}", new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+    
+    // Regions are keyed by id, not tenant, so a change anywhere drops the whole catalog; it is small and rarely written
+    public void evictLocal() {
+        Cache cache = entityManagerFactory.getCache().unwrap(Cache.class);
+        cache.evictEntityData(Role.class);
+        cache.evictEntityData(Permission.class);
+        cache.evictCollectionData(ROLE_PERMISSIONS_COLLECTION);
+        cache.evictQueryRegion(QUERY_REGION);
+    }
+    
+    private void publish(String scope) {
+        try {
+            stringRedisTemplate.convertAndSend(CHANNEL, scope);
+        } catch (Exception e) {
+            // Other nodes fall back to the region TTL
+            log.error("Error publishing catalog change for {}: {}", scope, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package service.com.service.userservice.cache;
+
+import java.util.UUID;
+
+// Redis representation of a user's grants: role ids and direct permission ids as bitsets,
+// written by PermissionEntryCodec. Tenant and domain are already part of the key; role permissions
+// are cached per role and merged in when the entry is restored. The ids are only valid in the
+// dictionary epoch they were interned in.
+public record CompactPermissionsEntry(
+    UUID userId,
+    String username,
+    byte[] rolesBitset,
+    byte[] directPermissionsBitset,
+    EntryFreshness freshness,
+    long permissionsVersion,
+    long dictionaryEpoch
+) {
+    
+    public static CompactPermissionsEntry of(EffectivePermissions permissions) {
+        return new CompactPermissionsEntry(
+            permissions.getUserId(),
+            permissions.getUsername(),
+            permissions.getRoleIds().toByteArray(),
+            permissions.getDirectPermissionIds().toByteArray(),
+            permissions.getFreshness(),
+            permissions.getPermissionsVersion(),
+            permissions.getRoleNamespace().epoch()
+        );
+    }
+}
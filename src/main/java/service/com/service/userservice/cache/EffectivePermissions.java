@@ -0,0 +1,80 @@
+package service.com.service.userservice.cache;
+
+import lombok.Getter;
+import service.com.service.userservice.dto.UserPermissionsDto;
+import service.com.service.userservice.utils.PermissionMatcher;
+
+import java.util.BitSet;
+import java.util.UUID;
+
+// Compact, immutable form of a user's effective permissions used for checks.
+// UserPermissionsDto remains the API representation and is rebuilt on demand via toDto().
+@Getter
+public class EffectivePermissions {
+    
+    private final UUID userId;
+    private final String username;
+    private final String tenantId;
+    private final String resourceDomain;
+    private final BitSet roleIds;
+    private final BitSet directPermissionIds;
+    
+    // Direct grants plus everything granted through roles
+    private final BitSet permissionIds;
+    
+    private final PermissionDictionary.Namespace roleNamespace;
+    private final PermissionDictionary.Namespace permissionNamespace;
+    
+    // Compiled from the user's wildcard grants; null when the user only has exact grants
+    private final PermissionMatcher wildcardMatcher;
+    
+    private final EntryFreshness freshness;
+    
+    // The user's permissions version when the grants were read; the ETag of responses built from this entry
+    private final long permissionsVersion;
+    
+    EffectivePermissions(UUID userId, String username, String tenantId, String resourceDomain,
+                         BitSet roleIds, BitSet directPermissionIds, BitSet permissionIds,
+                         PermissionDictionary.Namespace roleNamespace,
+                         PermissionDictionary.Namespace permissionNamespace,
+                         PermissionMatcher wildcardMatcher,
+                         EntryFreshness freshness, long permissionsVersion) {
+        this.userId = userId;
+        this.username = username;
+        this.tenantId = tenantId;
+        this.resourceDomain = resourceDomain;
+        this.roleIds = roleIds;
+        this.directPermissionIds = directPermissionIds;
+        this.permissionIds = permissionIds;
+        this.roleNamespace = roleNamespace;
+        this.permissionNamespace = permissionNamespace;
+        this.wildcardMatcher = wildcardMatcher;
+        this.freshness = freshness;
+        this.permissionsVersion = permissionsVersion;
+    }
+    
+    public boolean hasPermission(String permission) {
+        int id = permissionNamespace.lookup(permission);
+        if (id >= 0 && permissionIds.get(id)) {
+            return true;
+        }
+        return wildcardMatcher != null && wildcardMatcher.matches(permission);
+    }
+    
+    public boolean hasRole(String role) {
+        int id = roleNamespace.lookup(role);
+        return id >= 0 && roleIds.get(id);
+    }
+    
+    public UserPermissionsDto toDto() {
+        return UserPermissionsDto.builder()
+            .userId(userId)
+            .username(username)
+            .tenantId(tenantId)
+            .resourceDomain(resourceDomain)
+            .permissions(permissionNamespace.decode(permissionIds))
+            .roles(roleNamespace.decode(roleIds))
+            .permissionsVersion(permissionsVersion)
+            .build();
+    }
+}
@@ -0,0 +1,10 @@
+package service.com.service.userservice.cache;
+
+// When a cached entry was computed, when it is due for recomputation (its soft expiry; Redis keeps it longer
+// so it can be served stale), and how long computing it took, which scales probabilistic early refresh.
+public record EntryFreshness(
+    long cachedAt,
+    long expiresAt,
+    long computeMillis
+) {
+}
@@ -0,0 +1,157 @@
+package service.com.service.userservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process L1 for assembled user entries and role permission sets, sitting in front of the Redis-backed cache.
+// A role change does not scan the cache: it bumps a local generation of that role, every entry remembers the
+// generations of its roles when it was put, and an entry is dropped on read once one of them has moved on.
+// Generations are drawn from one sequence and kept in a bounded cache, so a counter that was evicted reads as
+// missing and never matches an entry again.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LocalPermissionCache {
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.cache.permissions.local.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${app.cache.permissions.local.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${app.cache.permissions.local.ttl:60}")
+    private long ttlSeconds;
+    
+    private static final String ROLE_KEY_INFIX = "role:";
+    
+    private final AtomicLong generationSequence = new AtomicLong();
+    
+    private Cache<String, Entry> cache;
+    private Cache<String, BitSet> roleCache;
+    // Role key -> generation; outlives the entries that recorded it, since reading them keeps it alive
+    private Cache<String, Long> roleGenerations;
+    
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        roleCache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+            .recordStats()
+            .build();
+        roleGenerations = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterAccess(Duration.ofSeconds(ttlSeconds * 2))
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "permissions.local");
+        CaffeineCacheMetrics.monitor(meterRegistry, roleCache, "permissions.local.roles");
+        log.info("Local permission cache initialized (enabled: {}, max size: {}, ttl: {}s)", enabled, maxSize, ttlSeconds);
+    }
+    
+    public EffectivePermissions get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        for (int i = 0; i < entry.roleKeys().length; i++) {
+            Long generation = roleGenerations.getIfPresent(entry.roleKeys()[i]);
+            if (generation == null || generation != entry.roleGenerations()[i]) {
+                cache.asMap().remove(key, entry);
+                return null;
+            }
+        }
+        return entry.permissions();
+    }
+    
+    // Keys are the tenant/domain key prefix followed by the user id
+    public void put(String key, EffectivePermissions permissions) {
+        if (!enabled) {
+            return;
+        }
+        String keyPrefix = key.substring(0, key.lastIndexOf(':') + 1);
+        List<String> roles = permissions.getRoleNamespace().decode(permissions.getRoleIds());
+        String[] roleKeys = new String[roles.size()];
+        long[] generations = new long[roles.size()];
+        for (int i = 0; i < roleKeys.length; i++) {
+            roleKeys[i] = roleKey(keyPrefix, roles.get(i));
+            generations[i] = roleGenerations.get(roleKeys[i], roleKey -> generationSequence.incrementAndGet());
+        }
+        cache.put(key, new Entry(permissions, roleKeys, generations));
+    }
+    
+    // Role sets live under the tenant/domain key prefix so that prefix invalidation covers them too
+    public static String roleKey(String keyPrefix, String roleName) {
+        return keyPrefix + ROLE_KEY_INFIX + roleName;
+    }
+    
+    public BitSet getRole(String roleKey) {
+        return enabled ? roleCache.getIfPresent(roleKey) : null;
+    }
+    
+    public void putRole(String roleKey, BitSet permissionIds) {
+        if (enabled) {
+            roleCache.put(roleKey, permissionIds);
+        }
+    }
+    
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+    
+    public void invalidateAll(Iterable<String> keys) {
+        cache.invalidateAll(keys);
+    }
+    
+    // Drops every entry whose key starts with the given prefix (tenant or tenant + domain)
+    public void invalidateByPrefix(String keyPrefix) {
+        cache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+        roleCache.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+        roleGenerations.asMap().keySet().removeIf(key -> key.startsWith(keyPrefix));
+    }
+    
+    // Drops the role set and, lazily on their next read, the assembled entries of users holding that role
+    public void invalidateRole(String keyPrefix, String roleName) {
+        String roleKey = roleKey(keyPrefix, roleName);
+        roleGenerations.put(roleKey, generationSequence.incrementAndGet());
+        roleCache.invalidate(roleKey);
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+        roleCache.invalidateAll();
+        roleGenerations.invalidateAll();
+    }
+    
+    public long size() {
+        return cache.estimatedSize();
+    }
+    
+    public CacheStats stats() {
+        return cache.stats();
+    }
+    
+    private record Entry(EffectivePermissions permissions, String[] roleKeys, long[] roleGenerations) {
+    }
+}
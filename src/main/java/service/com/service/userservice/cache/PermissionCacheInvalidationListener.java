@@ -0,0 +1,53 @@
+package service.com.service.userservice.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionCacheInvalidationListener implements MessageListener {
+    
+    public static final String CHANNEL = "cache:permissions:invalidate";
+    
+    private final LocalPermissionCache localPermissionCache;
+    private final CacheGenerations cacheGenerations;
+    private final ObjectMapper objectMapper;
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            apply(objectMapper.readValue(body, CacheInvalidationMessage.class));
+        } catch (Exception e) {
+            // Unknown payload: drop everything rather than risk serving revoked permissions
+            log.error("Error handling cache invalidation message, clearing local cache: {}", e.getMessage());
+            localPermissionCache.invalidateAll();
+            cacheGenerations.invalidateLocal();
+        }
+    }
+    
+    public void apply(CacheInvalidationMessage message) {
+        switch (message.scope()) {
+            case KEY -> localPermissionCache.invalidate(message.value());
+            case KEYS -> localPermissionCache.invalidateAll(message.keys());
+            case PREFIX -> {
+                // Prefix and full flushes come with a generation bump that this node has to pick up right away
+                localPermissionCache.invalidateByPrefix(message.value());
+                cacheGenerations.invalidateLocal();
+            }
+            case ROLE -> localPermissionCache.invalidateRole(message.value(), message.roleName());
+            case ALL -> {
+                localPermissionCache.invalidateAll();
+                cacheGenerations.invalidateLocal();
+            }
+        }
+        log.debug("Applied cache invalidation {} {} {}", message.scope(), message.value(), message.roleName());
+    }
+}
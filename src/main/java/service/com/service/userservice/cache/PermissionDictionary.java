@@ -0,0 +1,333 @@
+package service.com.service.userservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import service.com.service.userservice.utils.PermissionMatcher;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Interns permission strings and role names to dense int ids per tenant/domain.
+// Ids are allocated in Redis so that bitsets written by one node decode identically on every other node.
+// Every tenant/domain dictionary has an epoch, created with SET NX together with its id sequences. Ids only
+// mean something within their epoch: the epoch is part of the dictionary keys, of the cache key prefix and of
+// every encoded entry, and allocation refuses to run once the epoch or its sequence is gone. If Redis loses
+// the dictionary, the next allocation starts a new epoch instead of handing out ids other nodes already use.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionDictionary {
+    
+    private static final String DICTIONARY_KEY_PREFIX = "permdict:";
+    
+    // KEYS: epoch, then the sequences of the candidate epoch; ARGV: candidate epoch. Returns the current epoch
+    private static final RedisScript<String> EPOCH_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('set', KEYS[1], ARGV[1], 'nx') then " +
+        "for i = 2, #KEYS do redis.call('set', KEYS[i], 0) end " +
+        "end " +
+        "return redis.call('get', KEYS[1])",
+        String.class);
+    
+    // KEYS: epoch, sequence, names, ids; ARGV: expected epoch, name. Returns the id, or nil when the epoch is no
+    // longer current. A missing sequence would restart at 0 and reuse ids, so it retires the epoch instead
+    private static final RedisScript<String> ALLOCATE_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) ~= ARGV[1] then return false end " +
+        "local id = redis.call('hget', KEYS[3], ARGV[2]) " +
+        "if id then return id end " +
+        "if redis.call('exists', KEYS[2]) == 0 then redis.call('del', KEYS[1]) return false end " +
+        "id = tostring(redis.call('incr', KEYS[2]) - 1) " +
+        "redis.call('hset', KEYS[3], ARGV[2], id) " +
+        "redis.call('hset', KEYS[4], id, ARGV[2]) " +
+        "return id",
+        String.class);
+    
+    private final RedisTemplate<String, String> stringRedisTemplate;
+    
+    // Dictionary key -> the role and permission namespaces of the epoch this node currently uses
+    private final ConcurrentMap<String, Dictionary> dictionaries = new ConcurrentHashMap<>();
+    
+    // Same bound as the cache generations: how long a node may keep using an epoch another node has replaced
+    @Value("${app.cache.generations.local-ttl:5}")
+    private long localTtlSeconds = 5;
+    
+    private Cache<String, Long> epochs;
+    
+    public enum Kind {
+        PERMISSION,
+        ROLE
+    }
+    
+    @PostConstruct
+    void init() {
+        epochs = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+            .build();
+    }
+    
+    // Part of the permission cache key prefix, so entries of a previous epoch are never read again
+    public long epoch(String tenantId, String resourceDomain) {
+        return dictionary(tenantId, resourceDomain).epoch();
+    }
+    
+    public Namespace namespace(String tenantId, String resourceDomain, Kind kind) {
+        Dictionary dictionary = dictionary(tenantId, resourceDomain);
+        return kind == Kind.ROLE ? dictionary.roles() : dictionary.permissions();
+    }
+    
+    private Dictionary dictionary(String tenantId, String resourceDomain) {
+        String dictionaryKey = DICTIONARY_KEY_PREFIX + tenantId + ":" + resourceDomain;
+        long epoch = epochs.get(dictionaryKey, key -> loadEpoch(key, 0));
+        Dictionary current = dictionaries.get(dictionaryKey);
+        if (current != null && current.epoch() == epoch) {
+            return current;
+        }
+        return dictionaries.compute(dictionaryKey, (key, existing) -> {
+            if (existing != null && existing.epoch() == epoch) {
+                return existing;
+            }
+            if (existing != null) {
+                log.warn("Permission dictionary {} moved from epoch {} to {}, dropping local ids", key, existing.epoch(), epoch);
+            }
+            return new Dictionary(epoch, new Namespace(key, epoch, Kind.ROLE), new Namespace(key, epoch, Kind.PERMISSION));
+        });
+    }
+    
+    // Candidates grow past the epoch being replaced, so a new epoch never equals the one it replaces
+    private Long loadEpoch(String dictionaryKey, long replaced) {
+        long candidate = Math.max(System.currentTimeMillis(), replaced + 1);
+        String epoch = stringRedisTemplate.execute(EPOCH_SCRIPT,
+            List.of(epochKey(dictionaryKey), namespaceKey(dictionaryKey, candidate, Kind.ROLE) + ":seq",
+                namespaceKey(dictionaryKey, candidate, Kind.PERMISSION) + ":seq"),
+            String.valueOf(candidate));
+        if (epoch == null) {
+            throw new IllegalStateException("Could not read permission dictionary epoch of " + dictionaryKey);
+        }
+        return Long.parseLong(epoch);
+    }
+    
+    // Called once this node finds its epoch retired: the old dictionary keys are dropped and a new epoch is
+    // created (or adopted, if another node got there first)
+    private void renew(String dictionaryKey, long staleEpoch) {
+        epochs.asMap().remove(dictionaryKey, staleEpoch);
+        long epoch = epochs.get(dictionaryKey, key -> loadEpoch(key, staleEpoch));
+        if (epoch != staleEpoch) {
+            List<String> staleKeys = new ArrayList<>();
+            for (Kind kind : Kind.values()) {
+                String key = namespaceKey(dictionaryKey, staleEpoch, kind);
+                staleKeys.addAll(List.of(key + ":seq", key + ":names", key + ":ids"));
+            }
+            stringRedisTemplate.unlink(staleKeys);
+        }
+    }
+    
+    private static String epochKey(String dictionaryKey) {
+        return dictionaryKey + ":epoch";
+    }
+    
+    // {dictionary key}:{epoch}:{kind}
+    private static String namespaceKey(String dictionaryKey, long epoch, Kind kind) {
+        return dictionaryKey + ":" + Long.toString(epoch, 36) + ":" + kind.name().toLowerCase();
+    }
+    
+    // Effective permissions = direct grants plus the permission set of every role the user holds
+    public EffectivePermissions compile(UserGrants grants, String tenantId, String resourceDomain,
+                                        Map<String, BitSet> rolePermissions, EntryFreshness freshness) {
+        Namespace roleNamespace = namespace(tenantId, resourceDomain, Kind.ROLE);
+        Namespace permissionNamespace = namespace(tenantId, resourceDomain, Kind.PERMISSION);
+        
+        BitSet roleIds = roleNamespace.encode(grants.roles());
+        BitSet directPermissionIds = permissionNamespace.encode(grants.directPermissions());
+        return assemble(grants.userId(), grants.username(), tenantId, resourceDomain, roleIds, directPermissionIds,
+            rolePermissions, roleNamespace, permissionNamespace, freshness, grants.permissionsVersion());
+    }
+    
+    public EffectivePermissions restore(CompactPermissionsEntry entry, String tenantId, String resourceDomain, Map<String, BitSet> rolePermissions) {
+        Namespace roleNamespace = namespace(tenantId, resourceDomain, Kind.ROLE);
+        Namespace permissionNamespace = namespace(tenantId, resourceDomain, Kind.PERMISSION);
+        if (entry.dictionaryEpoch() != roleNamespace.epoch()) {
+            throw new StaleDictionaryException("Permission entry of user " + entry.userId() + " was written in dictionary epoch "
+                + entry.dictionaryEpoch() + ", current is " + roleNamespace.epoch());
+        }
+        
+        BitSet roleIds = BitSet.valueOf(entry.rolesBitset());
+        BitSet directPermissionIds = BitSet.valueOf(entry.directPermissionsBitset());
+        roleNamespace.ensureKnown(roleIds);
+        permissionNamespace.ensureKnown(directPermissionIds);
+        
+        return assemble(entry.userId(), entry.username(), tenantId, resourceDomain, roleIds, directPermissionIds,
+            rolePermissions, roleNamespace, permissionNamespace, entry.freshness(), entry.permissionsVersion());
+    }
+    
+    private EffectivePermissions assemble(UUID userId, String username, String tenantId, String resourceDomain,
+                                          BitSet roleIds, BitSet directPermissionIds, Map<String, BitSet> rolePermissions,
+                                          Namespace roleNamespace, Namespace permissionNamespace, EntryFreshness freshness,
+                                          long permissionsVersion) {
+        BitSet permissionIds = (BitSet) directPermissionIds.clone();
+        for (String role : roleNamespace.decode(roleIds)) {
+            BitSet granted = rolePermissions.get(role);
+            if (granted != null) {
+                permissionIds.or(granted);
+            }
+        }
+        
+        return new EffectivePermissions(userId, username, tenantId, resourceDomain,
+            roleIds, directPermissionIds, permissionIds, roleNamespace, permissionNamespace,
+            PermissionMatcher.compile(permissionNamespace.patterns(permissionIds)), freshness, permissionsVersion);
+    }
+    
+    private record Dictionary(long epoch, Namespace roles, Namespace permissions) {
+    }
+    
+    // The dictionary changed epoch while ids of the old one were being used; callers retry or treat it as a miss
+    public static class StaleDictionaryException extends IllegalStateException {
+        
+        public StaleDictionaryException(String message) {
+            super(message);
+        }
+    }
+    
+    public final class Namespace {
+        
+        private final String dictionaryKey;
+        private final long epoch;
+        private final String key;
+        private final ConcurrentMap<String, Integer> idsByName = new ConcurrentHashMap<>();
+        private final ConcurrentMap<Integer, String> namesById = new ConcurrentHashMap<>();
+        private final Set<Integer> patternIds = ConcurrentHashMap.newKeySet();
+        // Not synchronized: allocation waits on Redis, which would pin a virtual thread to its carrier
+        private final ReentrantLock lock = new ReentrantLock();
+        
+        private Namespace(String dictionaryKey, long epoch, Kind kind) {
+            this.dictionaryKey = dictionaryKey;
+            this.epoch = epoch;
+            this.key = namespaceKey(dictionaryKey, epoch, kind);
+        }
+        
+        public long epoch() {
+            return epoch;
+        }
+        
+        // Local-only lookup: never allocates, returns -1 for names this node has not seen
+        public int lookup(String name) {
+            Integer id = idsByName.get(name);
+            return id != null ? id : -1;
+        }
+        
+        public String name(int id) {
+            return namesById.get(id);
+        }
+        
+        public int intern(String name) {
+            Integer id = idsByName.get(name);
+            return id != null ? id : allocate(name);
+        }
+        
+        public BitSet encode(Collection<String> names) {
+            BitSet ids = new BitSet();
+            if (names != null) {
+                names.forEach(name -> ids.set(intern(name)));
+            }
+            return ids;
+        }
+        
+        public List<String> decode(BitSet ids) {
+            List<String> names = new ArrayList<>(ids.cardinality());
+            ids.stream().forEach(id -> {
+                String name = namesById.get(id);
+                if (name != null) {
+                    names.add(name);
+                }
+            });
+            return names;
+        }
+        
+        // Wildcard grants among the given ids; usually a handful at most, so only those are decoded
+        public List<String> patterns(BitSet ids) {
+            List<String> patterns = new ArrayList<>();
+            for (Integer id : patternIds) {
+                if (ids.get(id)) {
+                    patterns.add(namesById.get(id));
+                }
+            }
+            return patterns;
+        }
+        
+        // Ids that are still unknown after a reload may come from a dictionary that has since been reset
+        public void ensureKnown(BitSet ids) {
+            if (!isKnown(ids)) {
+                reload();
+                if (!isKnown(ids) && !String.valueOf(epoch).equals(stringRedisTemplate.opsForValue().get(epochKey(dictionaryKey)))) {
+                    renew(dictionaryKey, epoch);
+                    throw new StaleDictionaryException("Permission dictionary epoch " + epoch + " of " + dictionaryKey + " was retired");
+                }
+            }
+        }
+        
+        private boolean isKnown(BitSet ids) {
+            return ids.stream().allMatch(namesById::containsKey);
+        }
+        
+        private int allocate(String name) {
+            lock.lock();
+            try {
+                Integer known = idsByName.get(name);
+                if (known != null) {
+                    return known;
+                }
+                
+                String id = stringRedisTemplate.execute(ALLOCATE_SCRIPT,
+                    List.of(epochKey(dictionaryKey), key + ":seq", key + ":names", key + ":ids"), String.valueOf(epoch), name);
+                if (id == null) {
+                    log.warn("Permission dictionary epoch {} of {} was retired, starting a new one", epoch, dictionaryKey);
+                    renew(dictionaryKey, epoch);
+                    throw new StaleDictionaryException("Permission dictionary epoch " + epoch + " of " + dictionaryKey + " was retired");
+                }
+                
+                register(name, Integer.parseInt(id));
+                log.debug("Interned {} as {} in {}", name, id, key);
+                return Integer.parseInt(id);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void reload() {
+            lock.lock();
+            try {
+                HashOperations<String, String, String> hashOps = stringRedisTemplate.opsForHash();
+                Map<String, String> entries = hashOps.entries(key + ":ids");
+                entries.forEach((id, name) -> register(name, Integer.parseInt(id)));
+                log.debug("Reloaded {} dictionary entries for {}", entries.size(), key);
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        private void register(String name, int id) {
+            namesById.put(id, name);
+            idsByName.put(name, id);
+            if (PermissionMatcher.isPattern(name)) {
+                patternIds.add(id);
+            }
+        }
+    }
+}
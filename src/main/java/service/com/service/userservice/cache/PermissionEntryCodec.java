@@ -0,0 +1,242 @@
+package service.com.service.userservice.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.UUID;
+
+// Binary format for cached permission entries:
+//   [version:1][flags:1] then, if FLAG_LZ4 is set, [raw length:varint] followed by the LZ4 block of the payload
+//   payload = [user id:16][cached at:8][soft ttl ms:varint][compute ms:varint][permissions version:varint]
+//             [dictionary epoch:varint][username:varint length + UTF-8][roles: id set][permissions: id set]
+//   id set  = [SET_BITSET][varint length + BitSet bytes] or [SET_DELTAS][varint count + varint gaps], whichever is smaller
+// Role permission sets are stored as [version:1][dictionary epoch:varint][id set].
+// Entries with an unknown version are rejected and treated as cache misses by the caller.
+// Version 2: the permissions id set holds direct grants only; role permissions are cached per role.
+// Version 3: adds the entry's freshness (when it was computed, its soft expiry, how long computing it took).
+// Version 4: adds the user's permissions version the entry was built from.
+// Version 5: adds the dictionary epoch the ids belong to; role sets of another epoch are rejected.
+@Component
+@Slf4j
+public class PermissionEntryCodec {
+    
+    public static final byte VERSION = 5;
+    
+    private static final byte FLAG_LZ4 = 0x01;
+    private static final byte SET_BITSET = 0;
+    private static final byte SET_DELTAS = 1;
+    private static final int HEADER_SIZE = 2;
+    
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+    
+    @Value("${app.cache.permissions.codec.lz4.enabled:true}")
+    private boolean lz4Enabled = true;
+    
+    @Value("${app.cache.permissions.codec.lz4.threshold:512}")
+    private int lz4Threshold = 512;
+    
+    public byte[] encode(CompactPermissionsEntry entry) {
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(64);
+        writeLong(payload, entry.userId().getMostSignificantBits());
+        writeLong(payload, entry.userId().getLeastSignificantBits());
+        writeLong(payload, entry.freshness().cachedAt());
+        writeVarLong(payload, entry.freshness().expiresAt() - entry.freshness().cachedAt());
+        writeVarLong(payload, entry.freshness().computeMillis());
+        writeVarLong(payload, entry.permissionsVersion());
+        writeVarLong(payload, entry.dictionaryEpoch());
+        writeBytes(payload, entry.username() != null ? entry.username().getBytes(StandardCharsets.UTF_8) : new byte[0]);
+        writeIdSet(payload, entry.rolesBitset());
+        writeIdSet(payload, entry.directPermissionsBitset());
+        byte[] raw = payload.toByteArray();
+        
+        if (lz4Enabled && raw.length >= lz4Threshold) {
+            byte[] compressed = new byte[COMPRESSOR.maxCompressedLength(raw.length)];
+            int compressedLength = COMPRESSOR.compress(raw, 0, raw.length, compressed, 0);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_SIZE + 5 + compressedLength);
+            out.write(VERSION);
+            out.write(FLAG_LZ4);
+            writeVarInt(out, raw.length);
+            out.write(compressed, 0, compressedLength);
+            if (out.size() < HEADER_SIZE + raw.length) {
+                return out.toByteArray();
+            }
+        }
+        
+        byte[] encoded = new byte[HEADER_SIZE + raw.length];
+        encoded[0] = VERSION;
+        encoded[1] = 0;
+        System.arraycopy(raw, 0, encoded, HEADER_SIZE, raw.length);
+        return encoded;
+    }
+    
+    public CompactPermissionsEntry decode(byte[] encoded) {
+        if (encoded == null || encoded.length < HEADER_SIZE) {
+            throw new IllegalArgumentException("Permission entry is truncated");
+        }
+        if (encoded[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported permission entry version: " + encoded[0]);
+        }
+        
+        ByteBuffer buffer = ByteBuffer.wrap(encoded, HEADER_SIZE, encoded.length - HEADER_SIZE);
+        if ((encoded[1] & FLAG_LZ4) != 0) {
+            int rawLength = readVarInt(buffer);
+            byte[] raw = new byte[rawLength];
+            DECOMPRESSOR.decompress(encoded, buffer.position(), raw, 0, rawLength);
+            buffer = ByteBuffer.wrap(raw);
+        }
+        
+        UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+        long cachedAt = buffer.getLong();
+        EntryFreshness freshness = new EntryFreshness(cachedAt, cachedAt + readVarLong(buffer), readVarLong(buffer));
+        long permissionsVersion = readVarLong(buffer);
+        long dictionaryEpoch = readVarLong(buffer);
+        String username = new String(readBytes(buffer), StandardCharsets.UTF_8);
+        byte[] roles = readIdSet(buffer);
+        byte[] permissions = readIdSet(buffer);
+        return new CompactPermissionsEntry(userId, username, roles, permissions, freshness, permissionsVersion, dictionaryEpoch);
+    }
+    
+    public byte[] encodeIdSet(BitSet ids, long dictionaryEpoch) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16);
+        out.write(VERSION);
+        writeVarLong(out, dictionaryEpoch);
+        writeIdSet(out, ids.toByteArray());
+        return out.toByteArray();
+    }
+    
+    public BitSet decodeIdSet(byte[] encoded, long dictionaryEpoch) {
+        if (encoded == null || encoded.length < 2) {
+            throw new IllegalArgumentException("Id set is truncated");
+        }
+        if (encoded[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported id set version: " + encoded[0]);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(encoded, 1, encoded.length - 1);
+        long epoch = readVarLong(buffer);
+        if (epoch != dictionaryEpoch) {
+            throw new IllegalArgumentException("Id set belongs to dictionary epoch " + epoch + ", expected " + dictionaryEpoch);
+        }
+        return BitSet.valueOf(readIdSet(buffer));
+    }
+    
+    private static void writeIdSet(ByteArrayOutputStream out, byte[] bitsetBytes) {
+        BitSet ids = BitSet.valueOf(bitsetBytes);
+        if (ids.cardinality() >= bitsetBytes.length) {
+            // Every gap costs at least a byte, so a set this dense is never smaller as gaps
+            out.write(SET_BITSET);
+            writeBytes(out, bitsetBytes);
+            return;
+        }
+        
+        ByteArrayOutputStream deltas = new ByteArrayOutputStream();
+        writeVarInt(deltas, ids.cardinality());
+        int previous = -1;
+        for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+            writeVarInt(deltas, id - previous);
+            previous = id;
+        }
+        
+        // Sparse sets (few grants out of a large dictionary) are smaller as gaps than as a bitset
+        if (deltas.size() < varIntSize(bitsetBytes.length) + bitsetBytes.length) {
+            out.write(SET_DELTAS);
+            out.write(deltas.toByteArray(), 0, deltas.size());
+        } else {
+            out.write(SET_BITSET);
+            writeBytes(out, bitsetBytes);
+        }
+    }
+    
+    private static byte[] readIdSet(ByteBuffer buffer) {
+        byte type = buffer.get();
+        if (type == SET_BITSET) {
+            return readBytes(buffer);
+        }
+        if (type != SET_DELTAS) {
+            throw new IllegalArgumentException("Unknown id set encoding: " + type);
+        }
+        
+        BitSet ids = new BitSet();
+        int count = readVarInt(buffer);
+        int id = -1;
+        for (int i = 0; i < count; i++) {
+            id += readVarInt(buffer);
+            ids.set(id);
+        }
+        return ids.toByteArray();
+    }
+    
+    private static void writeBytes(ByteArrayOutputStream out, byte[] bytes) {
+        writeVarInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+    
+    private static byte[] readBytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[readVarInt(buffer)];
+        buffer.get(bytes);
+        return bytes;
+    }
+    
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+    
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in permission entry");
+    }
+    
+    private static void writeVarInt(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+    
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in permission entry");
+    }
+    
+    private static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,99 @@
+package service.com.service.userservice.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Decides how a cached permission entry may be used:
+//   FRESH          serve it
+//   REFRESH_AHEAD  serve it and reload in the background (XFetch: the closer to expiry and the slower the load,
+//                  the likelier an early refresh, so a hot entry is rebuilt by roughly one caller before it expires)
+//   STALE          past its soft expiry but within the tenant's staleness bound; reload, serve it if the load fails
+//   EXPIRED        reload, nothing to fall back to
+// TTLs are jittered so that entries written together (warm-up, bulk loads) do not expire together.
+@Component
+public class PermissionRefreshPolicy {
+    
+    public enum State {
+        FRESH,
+        REFRESH_AHEAD,
+        STALE,
+        EXPIRED
+    }
+    
+    // -ln(r) for r in (0, 1] never exceeds ~37, so entries further than this many deltas from expiry skip the random draw
+    private static final double MAX_EARLY_REFRESH_FACTOR = 40.0;
+    
+    @Value("${app.cache.permissions.ttl:3600}")
+    private long ttlSeconds = 3600;
+    
+    @Value("${app.cache.permissions.ttl-jitter:0.1}")
+    private double ttlJitter = 0.1;
+    
+    @Value("${app.cache.permissions.refresh-ahead.enabled:true}")
+    private boolean refreshAheadEnabled = true;
+    
+    @Value("${app.cache.permissions.refresh-ahead.beta:1.0}")
+    private double beta = 1.0;
+    
+    @Value("${app.cache.permissions.stale.max-seconds:300}")
+    private long maxStaleSeconds = 300;
+    
+    // e.g. app.cache.permissions.stale.tenants={'tenant-a': 0, 'tenant-b': 900}
+    @Value("#{${app.cache.permissions.stale.tenants:{:}}}")
+    private Map<String, Long> tenantMaxStaleSeconds = Map.of();
+    
+    @Value("${app.cache.permissions.stale.load-timeout-ms:1000}")
+    private long loadTimeoutMillis = 1000;
+    
+    public EntryFreshness stamp(long computeMillis) {
+        long now = System.currentTimeMillis();
+        return new EntryFreshness(now, now + jitteredTtlMillis(), computeMillis);
+    }
+    
+    public State state(EntryFreshness freshness, String tenantId) {
+        if (freshness == null) {
+            return State.FRESH;
+        }
+        
+        long remaining = freshness.expiresAt() - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return -remaining <= maxStaleMillis(tenantId) ? State.STALE : State.EXPIRED;
+        }
+        
+        if (refreshAheadEnabled) {
+            double window = Math.max(freshness.computeMillis(), 1) * beta;
+            if (remaining < window * MAX_EARLY_REFRESH_FACTOR
+                && window * -Math.log(1.0 - ThreadLocalRandom.current().nextDouble()) >= remaining) {
+                return State.REFRESH_AHEAD;
+            }
+        }
+        return State.FRESH;
+    }
+    
+    // Redis keeps an entry past its soft expiry for as long as the tenant accepts stale values
+    public long storeTtlMillis(EntryFreshness freshness, String tenantId) {
+        return Math.max(freshness.expiresAt() - System.currentTimeMillis(), 1) + maxStaleMillis(tenantId);
+    }
+    
+    // Role sets have no freshness of their own but must outlive the user entries that reference them
+    public long roleSetTtlMillis(String tenantId) {
+        return jitteredTtlMillis() + maxStaleMillis(tenantId);
+    }
+    
+    public long maxStaleMillis(String tenantId) {
+        Long seconds = tenantMaxStaleSeconds.get(tenantId);
+        return (seconds != null ? seconds : maxStaleSeconds) * 1000;
+    }
+    
+    public long loadTimeoutMillis() {
+        return loadTimeoutMillis;
+    }
+    
+    private long jitteredTtlMillis() {
+        long ttlMillis = ttlSeconds * 1000;
+        return ttlMillis - (long) (ttlMillis * ttlJitter * ThreadLocalRandom.current().nextDouble());
+    }
+}
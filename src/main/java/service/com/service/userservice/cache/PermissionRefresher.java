@@ -0,0 +1,143 @@
+package service.com.service.userservice.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.transaction.TransactionException;
+import org.springframework.stereotype.Component;
+import service.com.service.userservice.utils.WorkerThreads;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+// Runs permission reloads off the request thread on a small bounded pool. At most one reload per key is queued
+// or running; callers that need the result wait for it up to a timeout and otherwise fall back to the stale value.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionRefresher {
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.cache.permissions.refresh-ahead.threads:2}")
+    private int threads;
+    
+    @Value("${app.cache.permissions.refresh-ahead.queue-size:1000}")
+    private int queueSize;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    private final ConcurrentMap<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    
+    private ThreadPoolExecutor executor;
+    private Counter refreshesScheduled;
+    private Counter refreshFailures;
+    private Counter staleServed;
+    
+    @PostConstruct
+    void init() {
+        // Reloads wait on Postgres and Redis; the pool bounds them either way, virtual threads only free the carriers
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize),
+            WorkerThreads.blocking("permission-refresh", virtualThreads));
+        refreshesScheduled = meterRegistry.counter("permissions.cache.refresh", "result", "scheduled");
+        refreshFailures = meterRegistry.counter("permissions.cache.refresh", "result", "failed");
+        staleServed = meterRegistry.counter("permissions.cache.stale.served");
+        meterRegistry.gauge("permissions.cache.refresh.in.flight", inFlight, ConcurrentMap::size);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    // Fire-and-forget early refresh; skipped if a reload for the key is already running, dropped if the queue is full
+    public void refreshAsync(String key, Supplier<?> loader) {
+        if (inFlight.containsKey(key)) {
+            return;
+        }
+        CompletableFuture<Object> refresh = submit(key, loader);
+        if (refresh != null) {
+            refreshesScheduled.increment();
+            refresh.exceptionally(e -> {
+                refreshFailures.increment();
+                log.warn("Background permission refresh for {} failed: {}", key, e.getMessage());
+                return null;
+            });
+        }
+    }
+    
+    // Reload for an entry past its soft expiry. Infrastructure failures and timeouts serve the stale value; a timed
+    // out load keeps running and refills the cache when it completes. Anything else (e.g. the user is gone) propagates.
+    @SuppressWarnings("unchecked")
+    public <T> T reloadOrServeStale(String key, Supplier<T> loader, T stale, long timeoutMillis) {
+        CompletableFuture<Object> reload = submit(key, loader);
+        if (reload == null) {
+            return serveStale(key, stale, "refresh queue full");
+        }
+        
+        try {
+            return (T) reload.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return serveStale(key, stale, "reload exceeded " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return serveStale(key, stale, "interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataAccessException || cause instanceof TransactionException) {
+                refreshFailures.increment();
+                return serveStale(key, stale, cause.getMessage());
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+    
+    // Joins the reload already in flight for the key or starts one; null if the pool is saturated
+    private CompletableFuture<Object> submit(String key, Supplier<?> loader) {
+        CompletableFuture<Object> reload = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, reload);
+        if (existing != null) {
+            return existing;
+        }
+        
+        try {
+            executor.execute(() -> {
+                try {
+                    reload.complete(loader.get());
+                } catch (Throwable e) {
+                    reload.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, reload);
+                }
+            });
+            return reload;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, reload);
+            log.debug("Permission refresh queue full, dropping reload for {}", key);
+            return null;
+        }
+    }
+    
+    private <T> T serveStale(String key, T stale, String reason) {
+        staleServed.increment();
+        log.warn("Serving stale permissions for {}: {}", key, reason);
+        return stale;
+    }
+}
@@ -0,0 +1,18 @@
+package service.com.service.userservice.cache;
+
+import java.util.List;
+import java.util.UUID;
+
+// What is stored per user: role names and direct grants only. Permissions inherited through roles
+// come from the separately cached role sets, so a role change never touches user entries.
+// loadMillis is how long the database load took; it feeds the entry's early-refresh window.
+// permissionsVersion is the user's permissions version read together with the grants.
+public record UserGrants(
+    UUID userId,
+    String username,
+    List<String> roles,
+    List<String> directPermissions,
+    long permissionsVersion,
+    long loadMillis
+) {
+}
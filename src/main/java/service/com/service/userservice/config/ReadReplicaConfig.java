@@ -0,0 +1,92 @@
+package service.com.service.userservice.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import service.com.service.userservice.datasource.ReadReplicaRoutingDataSource;
+import service.com.service.userservice.datasource.ReplicaReadAspect;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Replaces Boot's single pool with a primary pool plus one pool per replica when app.datasource.replicas.enabled is set.
+// Every pool reports hikaricp.* metrics tagged with its pool name (primary, replica-0, ...).
+@Configuration
+@ConditionalOnProperty(name = "app.datasource.replicas.enabled", havingValue = "true")
+@Slf4j
+public class ReadReplicaConfig {
+    
+    @Value("${app.datasource.replicas.urls}")
+    private List<String> replicaUrls;
+    
+    @Value("${app.datasource.replicas.username:${spring.datasource.username}}")
+    private String replicaUsername;
+    
+    @Value("${app.datasource.replicas.password:${spring.datasource.password}}")
+    private String replicaPassword;
+    
+    @Value("${app.datasource.replicas.pool-size:10}")
+    private int replicaPoolSize;
+    
+    @Value("${app.datasource.replicas.sticky-window-ms:5000}")
+    private long stickyWindowMillis;
+    
+    @Value("${spring.datasource.hikari.maximum-pool-size:10}")
+    private int primaryPoolSize;
+    
+    // Initialised by the container (afterPropertiesSet resolves the target pools) and closed with it
+    @Bean(destroyMethod = "close")
+    public ReadReplicaRoutingDataSource routingDataSource(DataSourceProperties properties, MeterRegistry meterRegistry) {
+        String driver = properties.determineDriverClassName();
+        HikariDataSource primary = pool(ReadReplicaRoutingDataSource.PRIMARY, properties.determineUrl(),
+            properties.determineUsername(), properties.determinePassword(), driver, primaryPoolSize, false, meterRegistry);
+        
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (!url.isBlank()) {
+                replicas.add(pool("replica-" + replicas.size(), url.trim(), replicaUsername, replicaPassword, driver,
+                    replicaPoolSize, true, meterRegistry));
+            }
+        }
+        
+        log.info("Routing @ReplicaRead read-only transactions to {} replica(s), sticky window {} ms", replicas.size(), stickyWindowMillis);
+        return new ReadReplicaRoutingDataSource(primary, replicas, Duration.ofMillis(stickyWindowMillis), meterRegistry);
+    }
+    
+    @Bean
+    public ReplicaReadAspect replicaReadAspect() {
+        return new ReplicaReadAspect();
+    }
+    
+    // Connections are fetched lazily so that the routing sees the transaction's read-only flag
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+    
+    private static HikariDataSource pool(String name, String url, String username, String password, String driver,
+                                         int maximumPoolSize, boolean readOnly, MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setDriverClassName(driver);
+        config.setMaximumPoolSize(maximumPoolSize);
+        config.setReadOnly(readOnly);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+}
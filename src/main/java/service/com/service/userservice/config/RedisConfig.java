@@ -7,9 +7,14 @@ import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import service.com.service.userservice.cache.CatalogCache;
+import service.com.service.userservice.cache.PermissionCacheInvalidationListener;
 
 @Configuration
 public class RedisConfig {
@@ -64,4 +69,32 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+    
+    @Bean
+    public RedisTemplate<String, byte[]> binaryRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        
+        // Values are already encoded by the caller (see PermissionEntryCodec) and stored as-is
+        template.setKeySerializer(new StringRedisSerializer());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        
+        template.afterPropertiesSet();
+        return template;
+    }
+    
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       PermissionCacheInvalidationListener invalidationListener,
+                                                                       CatalogCache catalogCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        
+        // Local permission caches on every node are invalidated through this channel
+        container.addMessageListener(invalidationListener, new ChannelTopic(PermissionCacheInvalidationListener.CHANNEL));
+        
+        // Hibernate second-level cache regions of the role/permission catalog
+        container.addMessageListener(catalogCache, new ChannelTopic(CatalogCache.CHANNEL));
+        return container;
+    }
 }
@@ -1,16 +1,31 @@
 package service.com.service.userservice.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import service.com.service.userservice.dto.*;
+import service.com.service.userservice.repository.projection.UserVersionView;
+import service.com.service.userservice.service.CacheWarmupService;
+import service.com.service.userservice.service.UserImportService;
 import service.com.service.userservice.service.UserService;
+import service.com.service.userservice.utils.VersionTag;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @RestController
 @RequestMapping("/api/v1/users")
@@ -18,7 +33,12 @@ import java.util.UUID;
 @Slf4j
 public class UserController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    
     private final UserService userService;
+    private final CacheWarmupService cacheWarmupService;
+    private final UserImportService userImportService;
+    private final ObjectMapper objectMapper;
     
     @PostMapping
     public ResponseEntity<UserDto> createUser(
@@ -33,16 +53,41 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
     }
     
+    // Body is a JSON array of CreateUserRequest objects, NDJSON (one per line) or CSV with a header row
+    @PostMapping(value = "/import",
+                 consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<UserImportResult> importUsers(
+            InputStream body,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Importing users for tenant: {} and domain: {}", tenantId, resourceDomain);
+        
+        UserImportResult result = userImportService.importUsers(body, MediaType.parseMediaType(contentType), tenantId, resourceDomain);
+        return ResponseEntity.ok(result);
+    }
+    
     @GetMapping("/{userId}")
     public ResponseEntity<UserDto> getUserById(
             @PathVariable UUID userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @RequestHeader("X-Tenant-ID") String tenantId,
             @RequestHeader("X-Domain-ID") String resourceDomain) {
         
         log.debug("Getting user with ID: {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
+        // A poller that already has the current version is answered from the version and last-login columns alone
+        if (ifNoneMatch != null) {
+            UserVersionView version = userService.getUserVersion(userId, tenantId, resourceDomain);
+            String etag = VersionTag.of(version.version(), version.lastLoginAt());
+            if (VersionTag.matches(ifNoneMatch, etag)) {
+                return notModified(etag);
+            }
+        }
+        
         UserDto user = userService.getUserById(userId, tenantId, resourceDomain);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok().eTag(VersionTag.of(user.getVersion(), user.getLastLoginAt())).body(user);
     }
     
     @GetMapping("/username/{username}")
@@ -54,20 +99,21 @@ public class UserController {
         log.debug("Getting user with username: {} for tenant: {} and domain: {}", username, tenantId, resourceDomain);
         
         UserDto user = userService.getUserByUsername(username, tenantId, resourceDomain);
-        return ResponseEntity.ok(user);
+        return ResponseEntity.ok().eTag(VersionTag.of(user.getVersion(), user.getLastLoginAt())).body(user);
     }
     
     @PutMapping("/{userId}")
     public ResponseEntity<UserDto> updateUser(
             @PathVariable UUID userId,
             @Valid @RequestBody UpdateUserRequest request,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
             @RequestHeader("X-Tenant-ID") String tenantId,
             @RequestHeader("X-Domain-ID") String resourceDomain) {
         
         log.info("Updating user with ID: {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
-        UserDto updatedUser = userService.updateUser(userId, request, tenantId, resourceDomain);
-        return ResponseEntity.ok(updatedUser);
+        UserDto updatedUser = userService.updateUser(userId, request, VersionTag.expectedVersion(ifMatch), tenantId, resourceDomain);
+        return ResponseEntity.ok().eTag(VersionTag.of(updatedUser.getVersion(), updatedUser.getLastLoginAt())).body(updatedUser);
     }
     
     @DeleteMapping("/{userId}")
@@ -82,29 +128,69 @@ public class UserController {
         return ResponseEntity.noContent().build();
     }
     
+    // The body stays a plain array of users; the cursor of the next page, if any, is in the X-Next-Cursor and Link headers
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers(
+    public ResponseEntity<List<UserDto>> getUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.debug("Getting users for tenant: {} and domain: {}", tenantId, resourceDomain);
+        
+        UserPageResponse page = userService.getUsersPage(cursor, limit, tenantId, resourceDomain);
+        if (page.getNextCursor() == null) {
+            return ResponseEntity.ok(page.getUsers());
+        }
+        
+        String next = ServletUriComponentsBuilder.fromCurrentRequest()
+            .replaceQueryParam("cursor", page.getNextCursor())
+            .build()
+            .toUriString();
+        return ResponseEntity.ok()
+            .header(NEXT_CURSOR_HEADER, page.getNextCursor())
+            .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+            .body(page.getUsers());
+    }
+    
+    // Accept: application/x-ndjson streams the whole tenant/domain instead of a page
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsers(
             @RequestHeader("X-Tenant-ID") String tenantId,
             @RequestHeader("X-Domain-ID") String resourceDomain) {
         
-        log.debug("Getting all users for tenant: {} and domain: {}", tenantId, resourceDomain);
+        log.debug("Streaming users for tenant: {} and domain: {}", tenantId, resourceDomain);
         
-        List<UserDto> users = userService.getAllUsers(tenantId, resourceDomain);
-        return ResponseEntity.ok(users);
+        return ndjson(consumer -> userService.exportUsers(tenantId, resourceDomain, consumer));
     }
     
     @GetMapping("/search")
     public ResponseEntity<List<UserDto>> searchUsers(
             @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer offset,
             @RequestHeader("X-Tenant-ID") String tenantId,
             @RequestHeader("X-Domain-ID") String resourceDomain) {
         
         log.debug("Searching users with term: {} for tenant: {} and domain: {}", q, tenantId, resourceDomain);
         
-        List<UserDto> users = userService.searchUsers(q, tenantId, resourceDomain);
+        List<UserDto> users = userService.searchUsers(q, limit, offset, tenantId, resourceDomain);
         return ResponseEntity.ok(users);
     }
     
+    @GetMapping(value = "/search", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSearchUsers(
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Integer offset,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.debug("Streaming search with term: {} for tenant: {} and domain: {}", q, tenantId, resourceDomain);
+        
+        return ndjson(consumer -> userService.searchUsers(q, limit, offset, tenantId, resourceDomain, consumer));
+    }
+    
     @PostMapping("/{userId}/activate")
     public ResponseEntity<Void> activateUser(
             @PathVariable UUID userId,
@@ -144,13 +230,20 @@ public class UserController {
     @GetMapping("/{userId}/permissions")
     public ResponseEntity<UserPermissionsDto> getUserPermissions(
             @PathVariable UUID userId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @RequestHeader("X-Tenant-ID") String tenantId,
             @RequestHeader("X-Domain-ID") String resourceDomain) {
         
         log.debug("Getting permissions for user with ID: {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
-        UserPermissionsDto permissions = userService.getCachedUserPermissions(userId, tenantId, resourceDomain);
-        return ResponseEntity.ok(permissions);
+        long version = userService.getPermissionsVersion(userId, tenantId, resourceDomain);
+        if (VersionTag.matches(ifNoneMatch, VersionTag.of(version))) {
+            return notModified(VersionTag.of(version));
+        }
+        
+        // Tagged with the version the (possibly cached) body was built from, never the one just read
+        UserPermissionsDto permissions = userService.getCachedUserPermissions(userId, version, tenantId, resourceDomain);
+        return ResponseEntity.ok().eTag(VersionTag.of(permissions.getPermissionsVersion())).body(permissions);
     }
     
     @PostMapping("/{userId}/permissions/cache")
@@ -177,6 +270,39 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
     
+    @DeleteMapping("/roles/{roleName}/permissions/cache")
+    public ResponseEntity<Void> evictRolePermissionsCache(
+            @PathVariable String roleName,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Evicting permissions cache for role: {} for tenant: {} and domain: {}", roleName, tenantId, resourceDomain);
+        
+        userService.evictRolePermissionsCache(roleName, tenantId, resourceDomain);
+        return ResponseEntity.ok().build();
+    }
+    
+    @PostMapping("/permissions/cache/warmup")
+    public ResponseEntity<CacheWarmupStatus> startPermissionsCacheWarmup(
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Starting permissions cache warm-up for tenant: {} and domain: {}", tenantId, resourceDomain);
+        
+        CacheWarmupStatus status = cacheWarmupService.startWarmup(tenantId, resourceDomain);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(status);
+    }
+    
+    @GetMapping("/permissions/cache/warmup")
+    public ResponseEntity<CacheWarmupStatus> getPermissionsCacheWarmupStatus(
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        CacheWarmupStatus status = cacheWarmupService.getWarmupStatus(tenantId, resourceDomain);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+    
+    // Not tagged: the body carries role and permission details (names, descriptions, flags) whose edits move no user version
     @GetMapping("/{userId}/roles")
     public ResponseEntity<List<RoleDto>> getUserRoles(
             @PathVariable UUID userId,
@@ -241,6 +367,86 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
     
+    @PostMapping("/roles/bulk-assign")
+    public ResponseEntity<BulkAssignmentResponse> assignRoles(
+            @Valid @RequestBody BulkRoleAssignmentRequest request,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Assigning {} roles to {} users for tenant: {} and domain: {}",
+                request.getRoleIds().size(), request.getUserIds().size(), tenantId, resourceDomain);
+        
+        int changed = userService.assignRoles(request.getUserIds(), request.getRoleIds(), tenantId, resourceDomain);
+        return ResponseEntity.ok(new BulkAssignmentResponse(changed));
+    }
+    
+    @PostMapping("/roles/bulk-remove")
+    public ResponseEntity<BulkAssignmentResponse> removeRoles(
+            @Valid @RequestBody BulkRoleAssignmentRequest request,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Removing {} roles from {} users for tenant: {} and domain: {}",
+                request.getRoleIds().size(), request.getUserIds().size(), tenantId, resourceDomain);
+        
+        int changed = userService.removeRoles(request.getUserIds(), request.getRoleIds(), tenantId, resourceDomain);
+        return ResponseEntity.ok(new BulkAssignmentResponse(changed));
+    }
+    
+    @PostMapping("/permissions/bulk-assign")
+    public ResponseEntity<BulkAssignmentResponse> assignPermissions(
+            @Valid @RequestBody BulkPermissionAssignmentRequest request,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Assigning {} permissions to {} users for tenant: {} and domain: {}",
+                request.getPermissionIds().size(), request.getUserIds().size(), tenantId, resourceDomain);
+        
+        int changed = userService.assignPermissions(request.getUserIds(), request.getPermissionIds(), tenantId, resourceDomain);
+        return ResponseEntity.ok(new BulkAssignmentResponse(changed));
+    }
+    
+    @PostMapping("/permissions/bulk-remove")
+    public ResponseEntity<BulkAssignmentResponse> removePermissions(
+            @Valid @RequestBody BulkPermissionAssignmentRequest request,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Removing {} permissions from {} users for tenant: {} and domain: {}",
+                request.getPermissionIds().size(), request.getUserIds().size(), tenantId, resourceDomain);
+        
+        int changed = userService.removePermissions(request.getUserIds(), request.getPermissionIds(), tenantId, resourceDomain);
+        return ResponseEntity.ok(new BulkAssignmentResponse(changed));
+    }
+    
+    @PostMapping("/roles/{roleId}/permissions/bulk-assign")
+    public ResponseEntity<BulkAssignmentResponse> assignRolePermissions(
+            @PathVariable UUID roleId,
+            @Valid @RequestBody RolePermissionsRequest request,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Assigning {} permissions to role {} for tenant: {} and domain: {}",
+                request.getPermissionIds().size(), roleId, tenantId, resourceDomain);
+        
+        int changed = userService.assignRolePermissions(roleId, request.getPermissionIds(), tenantId, resourceDomain);
+        return ResponseEntity.ok(new BulkAssignmentResponse(changed));
+    }
+    
+    @PostMapping("/roles/{roleId}/permissions/bulk-remove")
+    public ResponseEntity<BulkAssignmentResponse> removeRolePermissions(
+            @PathVariable UUID roleId,
+            @Valid @RequestBody RolePermissionsRequest request,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.info("Removing {} permissions from role {} for tenant: {} and domain: {}",
+                request.getPermissionIds().size(), roleId, tenantId, resourceDomain);
+        
+        int changed = userService.removeRolePermissions(roleId, request.getPermissionIds(), tenantId, resourceDomain);
+        return ResponseEntity.ok(new BulkAssignmentResponse(changed));
+    }
+    
     @GetMapping("/{userId}/permissions/check")
     public ResponseEntity<Boolean> checkPermission(
             @PathVariable UUID userId,
@@ -254,6 +460,18 @@ public class UserController {
         return ResponseEntity.ok(hasPermission);
     }
     
+    @PostMapping("/permissions/check-batch")
+    public ResponseEntity<BatchPermissionCheckResponse> checkPermissionsBatch(
+            @Valid @RequestBody BatchPermissionCheckRequest request,
+            @RequestHeader("X-Tenant-ID") String tenantId,
+            @RequestHeader("X-Domain-ID") String resourceDomain) {
+        
+        log.debug("Checking {} permissions in batch for tenant: {} and domain: {}", request.getChecks().size(), tenantId, resourceDomain);
+        
+        List<PermissionCheckResult> results = userService.checkPermissions(request.getChecks(), tenantId, resourceDomain);
+        return ResponseEntity.ok(BatchPermissionCheckResponse.builder().results(results).build());
+    }
+    
     @GetMapping("/{userId}/roles/check")
     public ResponseEntity<Boolean> checkRole(
             @PathVariable UUID userId,
@@ -290,4 +508,33 @@ public class UserController {
         boolean isAvailable = userService.isEmailAvailable(email, tenantId, resourceDomain);
         return ResponseEntity.ok(isAvailable);
     }
+    
+    // One JSON document per line, written as rows come off the database cursor. The first line is flushed at once for
+    // an early first byte; after that the container sends whenever its response buffer fills, and a slow client blocks
+    // the writer (and with it the cursor) instead of letting rows pile up in memory
+    private ResponseEntity<StreamingResponseBody> ndjson(Consumer<Consumer<UserDto>> source) {
+        ObjectWriter writer = objectMapper.writerFor(UserDto.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> source.accept(new Consumer<>() {
+            private boolean flushed;
+            
+            @Override
+            public void accept(UserDto user) {
+                try {
+                    writer.writeValue(out, user);
+                    out.write('\n');
+                    if (!flushed) {
+                        out.flush();
+                        flushed = true;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
 }
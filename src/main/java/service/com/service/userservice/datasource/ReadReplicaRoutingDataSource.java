@@ -0,0 +1,172 @@
+package service.com.service.userservice.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import service.com.service.userservice.utils.TenantContext;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Sends connections of read-only transactions that run inside a @ReplicaRead method to the replicas (round robin)
+// and everything else to the primary. Once a read-write transaction commits, replica reads of the same tenant/domain
+// stay on the primary for the sticky window of this node. Reads that must see the latest write (permissions,
+// versions, background loads without a tenant) therefore never opt in. A replica that cannot hand out a connection
+// is skipped in favour of the primary.
+// Must sit behind a LazyConnectionDataSourceProxy: the read-only flag is only known once the transaction has begun.
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+    
+    public static final String PRIMARY = "primary";
+    private static final String REPLICA_PREFIX = "replica-";
+    private static final ThreadLocal<Boolean> REPLICA_READS = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final Cache<String, Boolean> recentWrites;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+    private final Counter stickyRoutes;
+    private final Counter replicaFallbacks;
+    
+    public ReadReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, Duration stickyWindow,
+                                        MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.recentWrites = Caffeine.newBuilder()
+            .expireAfterWrite(stickyWindow)
+            .maximumSize(100_000)
+            .build();
+        
+        primaryRoutes = meterRegistry.counter("datasource.routing", "route", PRIMARY);
+        replicaRoutes = meterRegistry.counter("datasource.routing", "route", "replica");
+        stickyRoutes = meterRegistry.counter("datasource.routing", "route", "sticky");
+        replicaFallbacks = meterRegistry.counter("datasource.routing.fallback");
+    }
+    
+    // Called by the container once the bean is constructed; resolves the pools the routing keys refer to
+    @Override
+    public void afterPropertiesSet() {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            targets.put(REPLICA_PREFIX + i, replicas.get(i));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        super.afterPropertiesSet();
+    }
+    
+    // Returns the previous state for exitReplicaReads, so that nested @ReplicaRead calls restore it correctly
+    static boolean enterReplicaReads() {
+        boolean previous = REPLICA_READS.get();
+        REPLICA_READS.set(Boolean.TRUE);
+        return previous;
+    }
+    
+    static void exitReplicaReads(boolean previous) {
+        if (previous) {
+            REPLICA_READS.set(Boolean.TRUE);
+        } else {
+            REPLICA_READS.remove();
+        }
+    }
+    
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly() || replicas.isEmpty() || !REPLICA_READS.get()) {
+            trackWrite();
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        
+        String scope = currentScope();
+        if (scope != null && recentWrites.getIfPresent(scope) != null) {
+            stickyRoutes.increment();
+            return PRIMARY;
+        }
+        replicaRoutes.increment();
+        return REPLICA_PREFIX + Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        Object route = determineCurrentLookupKey();
+        try {
+            return target(route).getConnection();
+        } catch (SQLException e) {
+            if (PRIMARY.equals(route)) {
+                throw e;
+            }
+            replicaFallbacks.increment();
+            log.warn("Replica {} unavailable, reading from primary: {}", route, e.getMessage());
+            return primary.getConnection();
+        }
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Object route = determineCurrentLookupKey();
+        try {
+            return target(route).getConnection(username, password);
+        } catch (SQLException e) {
+            if (PRIMARY.equals(route)) {
+                throw e;
+            }
+            replicaFallbacks.increment();
+            log.warn("Replica {} unavailable, reading from primary: {}", route, e.getMessage());
+            return primary.getConnection(username, password);
+        }
+    }
+    
+    @Override
+    public void close() {
+        for (Map.Entry<Object, DataSource> target : getResolvedDataSources().entrySet()) {
+            if (target.getValue() instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    log.warn("Error closing data source {}: {}", target.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private DataSource target(Object route) {
+        return getResolvedDataSources().get(route);
+    }
+    
+    // Starts the sticky window of the writing tenant/domain when its transaction commits
+    private void trackWrite() {
+        String scope = currentScope();
+        if (scope == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recentWrites.put(scope, Boolean.TRUE);
+            }
+        });
+    }
+    
+    private static String currentScope() {
+        String tenantId = TenantContext.getTenantId();
+        return tenantId != null ? tenantId + ":" + TenantContext.getDomainId() : null;
+    }
+}
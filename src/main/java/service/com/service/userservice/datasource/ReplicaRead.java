@@ -0,0 +1,15 @@
+package service.com.service.userservice.datasource;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Opts the read-only transactions of a method into replica routing. Everything else, including permission and
+// version reads and background work, stays on the primary, so only reads that tolerate replication lag opt in.
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReplicaRead {
+}
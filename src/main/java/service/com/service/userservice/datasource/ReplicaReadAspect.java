@@ -0,0 +1,24 @@
+package service.com.service.userservice.datasource;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+// Marks the calling thread for replica reads while a @ReplicaRead method runs. Ordered ahead of the transaction
+// interceptor so the mark is in place before the transaction's first connection is fetched.
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReplicaReadAspect {
+    
+    @Around("@annotation(service.com.service.userservice.datasource.ReplicaRead)")
+    public Object replicaRead(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReadReplicaRoutingDataSource.enterReplicaReads();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReadReplicaRoutingDataSource.exitReplicaReads(previous);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package service.com.service.userservice.diagnostics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+// Reports carrier-thread pinning in virtual-thread mode. A virtual thread that blocks inside a synchronized block or
+// a native frame keeps its carrier, and there is only one carrier per core, so a few pinned JDBC or Redis calls
+// stall every request. An in-process JFR stream receives jdk.VirtualThreadPinned events above the threshold, times
+// them under threads.virtual.pinned tagged with the first frame outside the JDK, and logs the stack of each new site.
+@Component
+@ConditionalOnProperty(name = "spring.threads.virtual.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class VirtualThreadPinningMonitor {
+    
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    
+    // Bounds the site tag; pinning sites are code locations, so more than this points at a bug in the grouping
+    private static final int MAX_SITES = 100;
+    
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.threads.pinning.threshold-ms:20}")
+    private long thresholdMillis = 20;
+    
+    private final Set<String> sites = ConcurrentHashMap.newKeySet();
+    
+    private RecordingStream stream;
+    
+    @PostConstruct
+    void init() {
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(Duration.ofMillis(thresholdMillis)).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+        log.info("Virtual thread pinning monitor started (threshold: {} ms)", thresholdMillis);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        stream.close();
+    }
+    
+    private void onPinned(RecordedEvent event) {
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        List<RecordedFrame> frames = stackTrace != null ? stackTrace.getFrames() : List.of();
+        String site = site(frames);
+        if (!sites.contains(site) && sites.size() >= MAX_SITES) {
+            site = "other";
+        }
+        meterRegistry.timer("threads.virtual.pinned", "site", site).record(event.getDuration());
+        
+        if (sites.add(site)) {
+            log.warn("Virtual thread {} pinned its carrier for {} ms at {}; later pinning here is only counted:\n\t{}",
+                threadName(event.getThread()), event.getDuration().toMillis(), site,
+                frames.stream().map(VirtualThreadPinningMonitor::format).collect(Collectors.joining("\n\t")));
+        }
+    }
+    
+    // The JDK frames on top (Object.wait, Thread.sleep, the socket read) are the same everywhere; the caller is not
+    private static String site(List<RecordedFrame> frames) {
+        for (RecordedFrame frame : frames) {
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) {
+                return type + "." + frame.getMethod().getName();
+            }
+        }
+        return "unknown";
+    }
+    
+    // Tomcat's request threads are named; bare Thread.ofVirtual() threads are not
+    private static String threadName(RecordedThread thread) {
+        if (thread == null) {
+            return "?";
+        }
+        String name = thread.getJavaName();
+        return name != null && !name.isEmpty() ? name : "#" + thread.getJavaThreadId();
+    }
+    
+    private static String format(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName() + ":" + frame.getLineNumber();
+    }
+}
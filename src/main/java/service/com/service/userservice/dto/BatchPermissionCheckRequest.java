@@ -0,0 +1,22 @@
+package service.com.service.userservice.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPermissionCheckRequest {
+    
+    @NotEmpty(message = "At least one check is required")
+    @Size(max = 1000, message = "At most 1000 checks are allowed per batch")
+    private List<@Valid PermissionCheckRequest> checks;
+}
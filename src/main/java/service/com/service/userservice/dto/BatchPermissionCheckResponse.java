@@ -0,0 +1,18 @@
+package service.com.service.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPermissionCheckResponse {
+    
+    // Same order as the requested checks
+    private List<PermissionCheckResult> results;
+}
@@ -0,0 +1,16 @@
+package service.com.service.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkAssignmentResponse {
+    
+    // Grants actually added or removed; pairs that were already in the requested state are not counted
+    private int changedRows;
+}
@@ -0,0 +1,26 @@
+package service.com.service.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkRoleAssignmentRequest {
+    
+    @NotEmpty(message = "At least one user is required")
+    @Size(max = 10000, message = "At most 10000 users are allowed per request")
+    private List<UUID> userIds;
+    
+    @NotEmpty(message = "At least one role is required")
+    @Size(max = 100, message = "At most 100 roles are allowed per request")
+    private List<UUID> roleIds;
+}
@@ -0,0 +1,38 @@
+package service.com.service.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheWarmupStatus {
+    
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+    
+    private String tenantId;
+    private String resourceDomain;
+    private State state;
+    
+    // Active users at the time the job started
+    private long totalUsers;
+    private long warmedUsers;
+    private long completedBatches;
+    private long failedBatches;
+    
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private long elapsedMillis;
+    private double usersPerSecond;
+    private String error;
+}
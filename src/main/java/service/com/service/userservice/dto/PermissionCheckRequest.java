@@ -0,0 +1,31 @@
+package service.com.service.userservice.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionCheckRequest {
+    
+    @NotNull(message = "User ID is required")
+    private UUID userId;
+    
+    private String permission;
+    
+    private String role;
+    
+    @JsonIgnore
+    @AssertTrue(message = "Exactly one of permission or role must be provided")
+    public boolean isPermissionOrRole() {
+        return (permission != null) != (role != null);
+    }
+}
@@ -0,0 +1,20 @@
+package service.com.service.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionCheckResult {
+    
+    private UUID userId;
+    private String permission;
+    private String role;
+    private boolean granted;
+}
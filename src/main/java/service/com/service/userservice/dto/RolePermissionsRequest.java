@@ -0,0 +1,22 @@
+package service.com.service.userservice.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RolePermissionsRequest {
+    
+    @NotEmpty(message = "At least one permission is required")
+    @Size(max = 1000, message = "At most 1000 permissions are allowed per request")
+    private List<UUID> permissionIds;
+}
@@ -29,6 +29,7 @@ public class UserDto {
     private LocalDateTime updatedAt;
     private String createdBy;
     private String updatedBy;
+    private Long version;
     private List<RoleDto> roles;
     private List<PermissionDto> permissions;
     
@@ -0,0 +1,36 @@
+package service.com.service.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserImportResult {
+    
+    private String tenantId;
+    private String resourceDomain;
+    private long totalRows;
+    private long importedRows;
+    private long failedRows;
+    private long elapsedMillis;
+    private double rowsPerSecond;
+    
+    // Capped at app.users.import.max-reported-errors; failedRows always has the full count
+    private List<UserImportError> errors;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class UserImportError {
+        // 1-based position of the user in the upload
+        private long row;
+        private String username;
+        private String message;
+    }
+}
@@ -0,0 +1,22 @@
+package service.com.service.userservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserPageResponse {
+    
+    private List<UserDto> users;
+    private int size;
+    private boolean hasMore;
+    
+    // Opaque token for the next page; null on the last page
+    private String nextCursor;
+}
@@ -1,12 +1,19 @@
 package service.com.service.userservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import service.com.service.userservice.utils.PermissionMatcher;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Data
 @Builder
@@ -21,13 +28,42 @@ public class UserPermissionsDto {
     private List<String> permissions;
     private List<String> roles;
     
-    // Helper method to check if user has permission
+    // Version of the grants this was built from; sent as the ETag, not in the body
+    @JsonIgnore
+    private Long permissionsVersion;
+    
+    // Wildcard grants compiled on the first check; recompiled only if the permissions list is replaced
+    @Getter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final transient AtomicReference<CompiledGrants> compiledGrants = new AtomicReference<>();
+    
+    // Helper method to check if user has permission (exact grant or wildcard/hierarchical pattern)
     public boolean hasPermission(String permission) {
-        return permissions != null && permissions.contains(permission);
+        if (permissions == null) {
+            return false;
+        }
+        if (permissions.contains(permission)) {
+            return true;
+        }
+        PermissionMatcher matcher = matcher();
+        return matcher != null && matcher.matches(permission);
     }
     
     // Helper method to check if user has role
     public boolean hasRole(String role) {
         return roles != null && roles.contains(role);
     }
+    
+    private PermissionMatcher matcher() {
+        CompiledGrants compiled = compiledGrants.get();
+        if (compiled == null || compiled.grants() != permissions) {
+            compiled = new CompiledGrants(permissions, PermissionMatcher.compile(permissions));
+            compiledGrants.set(compiled);
+        }
+        return compiled.matcher();
+    }
+    
+    private record CompiledGrants(List<String> grants, PermissionMatcher matcher) {
+    }
 }
@@ -4,7 +4,13 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -15,6 +21,8 @@ import java.util.UUID;
 
 @Entity
 @Table(name = "roles")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog-roles")
 @Data
 @Builder
 @NoArgsConstructor
@@ -55,18 +63,27 @@ public class Role {
     @Column(name = "updated_by")
     private String updatedBy;
     
+    // Bumped by a set-based update whenever the role's permissions change; added to each holder's own counter
+    @Column(name = "permissions_version", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long permissionsVersion;
+    
     // Many-to-Many relationship with User
     @ManyToMany(mappedBy = "roles", fetch = FetchType.LAZY)
     @Builder.Default
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<User> users = new HashSet<>();
     
-    // Many-to-Many relationship with Permission
+    // Many-to-Many relationship with Permission; cached as permission ids, the rows come from the permission region
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
         name = "role_permissions",
         joinColumns = @JoinColumn(name = "role_id"),
         inverseJoinColumns = @JoinColumn(name = "permission_id")
     )
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog-role-permissions")
+    @BatchSize(size = 50)
     @Builder.Default
     private Set<Permission> permissions = new HashSet<>();
     
@@ -5,7 +5,9 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.OptimisticLock;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -54,7 +56,9 @@ public class User {
     @Builder.Default
     private Boolean isEmailVerified = false;
     
-    @Column(name = "last_login_at")
+    // Written only by the last-login buffer, without a version bump; never through the entity, so saving a
+    // stale instance cannot move it back
+    @Column(name = "last_login_at", insertable = false, updatable = false)
     private LocalDateTime lastLoginAt;
     
     @CreationTimestamp
@@ -71,6 +75,17 @@ public class User {
     @Column(name = "updated_by")
     private String updatedBy;
     
+    // Optimistic lock; with lastLoginAt, the ETag of the user resource
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+    
+    // Bumped by set-based updates whenever the user's own grants change; plus the counters of its roles, the user's
+    // effective permissions version. Never written through the entity, so a stale instance cannot move it back
+    @Column(name = "permissions_version", nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long permissionsVersion;
+    
     // Many-to-Many relationship with Role
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(
@@ -78,6 +93,7 @@ public class User {
         joinColumns = @JoinColumn(name = "user_id"),
         inverseJoinColumns = @JoinColumn(name = "role_id")
     )
+    @OptimisticLock(excluded = true)
     @Builder.Default
     private Set<Role> roles = new HashSet<>();
     
@@ -88,6 +104,7 @@ public class User {
         joinColumns = @JoinColumn(name = "user_id"),
         inverseJoinColumns = @JoinColumn(name = "permission_id")
     )
+    @OptimisticLock(excluded = true)
     @Builder.Default
     private Set<Permission> permissions = new HashSet<>();
     
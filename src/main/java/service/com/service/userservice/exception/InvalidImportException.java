@@ -0,0 +1,11 @@
+package service.com.service.userservice.exception;
+
+public class InvalidImportException extends RuntimeException {
+    public InvalidImportException(String message) {
+        super(message);
+    }
+    
+    public InvalidImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
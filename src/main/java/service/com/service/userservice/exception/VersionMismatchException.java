@@ -0,0 +1,7 @@
+package service.com.service.userservice.exception;
+
+public class VersionMismatchException extends RuntimeException {
+    public VersionMismatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,40 @@
+package service.com.service.userservice.mapper;
+
+import org.mapstruct.BeanMapping;
+import org.mapstruct.Mapper;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import service.com.service.userservice.dto.PermissionDto;
+import service.com.service.userservice.dto.RoleDto;
+import service.com.service.userservice.dto.UserDto;
+import service.com.service.userservice.entity.Permission;
+import service.com.service.userservice.entity.Role;
+import service.com.service.userservice.entity.User;
+
+import java.util.List;
+
+// Entity -> DTO copies generated at compile time as plain getter/builder calls. Any property left unmapped on either
+// side fails the build, so a new entity or DTO field has to be mapped or ignored here explicitly. Derived getters
+// are recomputed by the DTOs, and associations are never copied: they are lazy, and the service assembles them.
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING,
+        unmappedTargetPolicy = ReportingPolicy.ERROR,
+        unmappedSourcePolicy = ReportingPolicy.ERROR)
+public interface DtoMapper {
+    
+    @BeanMapping(ignoreUnmappedSourceProperties = {"passwordHash", "permissionsVersion", "fullName", "roles", "permissions"})
+    @Mapping(target = "roles", ignore = true)
+    @Mapping(target = "permissions", ignore = true)
+    UserDto toDto(User user);
+    
+    @BeanMapping(ignoreUnmappedSourceProperties = {"permissionsVersion", "users", "permissions"})
+    @Mapping(target = "permissions", ignore = true)
+    RoleDto toDto(Role role);
+    
+    @BeanMapping(ignoreUnmappedSourceProperties = {"fullPermission", "users", "roles"})
+    PermissionDto toDto(Permission permission);
+    
+    List<RoleDto> toRoleDtos(Iterable<Role> roles);
+    
+    List<PermissionDto> toPermissionDtos(Iterable<Permission> permissions);
+}
@@ -1,14 +1,22 @@
 package service.com.service.userservice.repository;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import service.com.service.userservice.cache.CatalogCache;
 import service.com.service.userservice.entity.Permission;
+import service.com.service.userservice.utils.PermissionMatcher;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
 
 @Repository
 public interface PermissionRepository extends JpaRepository<Permission, UUID> {
@@ -30,6 +38,7 @@ public interface PermissionRepository extends JpaRepository<Permission, UUID> {
     Optional<Permission> findByIdAndTenantId(UUID id, String tenantId);
     
     // Find permission by ID within tenant and domain
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = CatalogCache.QUERY_REGION)})
     Optional<Permission> findByIdAndTenantIdAndResourceDomain(UUID id, String tenantId, String resourceDomain);
     
     // Find all permissions within tenant
@@ -126,4 +135,42 @@ public interface PermissionRepository extends JpaRepository<Permission, UUID> {
     List<Permission> searchPermissionsByDomain(@Param("tenantId") String tenantId, 
                                               @Param("resourceDomain") String resourceDomain, 
                                               @Param("searchTerm") String searchTerm);
+    
+    // Find active permissions whose resource and action match LIKE patterns within domain
+    @Query("SELECT p FROM Permission p WHERE p.tenantId = :tenantId AND p.resourceDomain = :resourceDomain AND " +
+           "p.resource LIKE :resourcePattern ESCAPE '\\' AND p.action LIKE :actionPattern ESCAPE '\\' AND p.isActive = true")
+    List<Permission> findByResourceLikeAndActionLikeAndDomain(@Param("resourcePattern") String resourcePattern,
+                                                             @Param("actionPattern") String actionPattern,
+                                                             @Param("tenantId") String tenantId,
+                                                             @Param("resourceDomain") String resourceDomain);
+    
+    // Find all catalog permissions covered by a permission or wildcard pattern (orders:*, *:read, billing.*:read) within domain
+    default List<Permission> findPermissionsMatchingPattern(String pattern, String tenantId, String resourceDomain) {
+        if (!PermissionMatcher.isValidPattern(pattern)) {
+            return List.of();
+        }
+        
+        int separator = pattern.indexOf(':');
+        String resource = pattern.substring(0, separator).trim();
+        String action = pattern.substring(separator + 1).trim();
+        if (!PermissionMatcher.isPattern(pattern)) {
+            return findByResourceAndActionAndTenantIdAndResourceDomain(resource, action, tenantId, resourceDomain)
+                .map(List::of)
+                .orElse(List.of());
+        }
+        
+        // LIKE narrows the candidates on the database side; the matcher then enforces segment boundaries
+        PermissionMatcher matcher = PermissionMatcher.compile(List.of(pattern));
+        return findByResourceLikeAndActionLikeAndDomain(toLikePattern(resource), toLikePattern(action), tenantId, resourceDomain)
+            .stream()
+            .filter(permission -> matcher.matches(permission.getFullPermission()))
+            .collect(Collectors.toList());
+    }
+    
+    private static String toLikePattern(String pattern) {
+        return pattern.replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_")
+            .replace(PermissionMatcher.WILDCARD, "%");
+    }
 }
@@ -1,15 +1,25 @@
 package service.com.service.userservice.repository;
 
+import jakarta.persistence.QueryHint;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import service.com.service.userservice.cache.CatalogCache;
 import service.com.service.userservice.entity.Role;
+import service.com.service.userservice.repository.projection.RolePermissionView;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
 @Repository
 public interface RoleRepository extends JpaRepository<Role, UUID> {
     
@@ -23,6 +33,7 @@ public interface RoleRepository extends JpaRepository<Role, UUID> {
     Optional<Role> findByIdAndTenantId(UUID id, String tenantId);
     
     // Find role by ID within tenant and domain
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = CatalogCache.QUERY_REGION)})
     Optional<Role> findByIdAndTenantIdAndResourceDomain(UUID id, String tenantId, String resourceDomain);
     
     // Find all roles within tenant
@@ -63,6 +74,14 @@ public interface RoleRepository extends JpaRepository<Role, UUID> {
                                                   @Param("tenantId") String tenantId, 
                                                   @Param("resourceDomain") String resourceDomain);
     
+    // Get active permission strings for a set of roles by name within domain
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_CACHE_REGION, value = CatalogCache.QUERY_REGION)})
+    @Query("SELECT r.name AS roleName, CONCAT(p.resource, ':', p.action) AS permission FROM Role r JOIN r.permissions p " +
+           "WHERE r.name IN :roleNames AND r.tenantId = :tenantId AND r.resourceDomain = :resourceDomain AND p.isActive = true")
+    List<RolePermissionView> findPermissionsByRoleNamesAndDomain(@Param("roleNames") Collection<String> roleNames,
+                                                                 @Param("tenantId") String tenantId,
+                                                                 @Param("resourceDomain") String resourceDomain);
+    
     // Search roles by name within tenant
     @Query("SELECT r FROM Role r WHERE r.tenantId = :tenantId AND " +
            "(LOWER(r.name) LIKE LOWER(CONCAT('%', :searchTerm, '%')) OR " +
@@ -76,4 +95,34 @@ public interface RoleRepository extends JpaRepository<Role, UUID> {
     List<Role> searchRolesByDomain(@Param("tenantId") String tenantId, 
                                   @Param("resourceDomain") String resourceDomain, 
                                   @Param("searchTerm") String searchTerm);
+    
+    // Add every given permission of the domain to the role, keeping permissions it already has
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "role_permissions"))
+    @Query(value = "INSERT INTO role_permissions (role_id, permission_id) " +
+                   "SELECT r.id, p.id FROM roles r " +
+                   "JOIN permissions p ON p.tenant_id = r.tenant_id AND p.resource_domain = r.resource_domain " +
+                   "WHERE r.id = :roleId AND p.id IN (:permissionIds) " +
+                   "AND r.tenant_id = :tenantId AND r.resource_domain = :resourceDomain " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertRolePermissions(@Param("roleId") UUID roleId, @Param("permissionIds") Collection<UUID> permissionIds,
+                              @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
+    // Remove every given permission from the role within domain
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "role_permissions"))
+    @Query(value = "DELETE FROM role_permissions " +
+                   "WHERE role_id IN (SELECT r.id FROM roles r WHERE r.id = :roleId " +
+                   "AND r.tenant_id = :tenantId AND r.resource_domain = :resourceDomain) " +
+                   "AND permission_id IN (:permissionIds)", nativeQuery = true)
+    int deleteRolePermissions(@Param("roleId") UUID roleId, @Param("permissionIds") Collection<UUID> permissionIds,
+                              @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
+    // Bump the permissions version of the role within domain; its holders' effective versions move with it
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "roles"))
+    @Query(value = "UPDATE roles SET permissions_version = permissions_version + 1 " +
+                   "WHERE name = :roleName AND tenant_id = :tenantId AND resource_domain = :resourceDomain", nativeQuery = true)
+    int incrementPermissionsVersion(@Param("roleName") String roleName,
+                                    @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
 }
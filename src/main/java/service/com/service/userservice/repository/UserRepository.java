@@ -1,17 +1,31 @@
 package service.com.service.userservice.repository;
 
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import service.com.service.userservice.entity.User;
+import service.com.service.userservice.repository.projection.TenantDomainView;
+import service.com.service.userservice.repository.projection.UserGrantView;
+import service.com.service.userservice.repository.projection.UserVersionView;
+import service.com.service.userservice.repository.projection.UserView;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, UUID> {
+public interface UserRepository extends JpaRepository<User, UUID>, UserSearchRepository {
     
     // Find user by username within tenant
     Optional<User> findByUsernameAndTenantId(String username, String tenantId);
@@ -37,12 +51,45 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     // Find all users within tenant and domain
     List<User> findByTenantIdAndResourceDomain(String tenantId, String resourceDomain);
     
+    // Get the DTO columns of a user by ID within tenant and domain
+    @Query(UserView.SELECT + "FROM User u " +
+           "WHERE u.id = :id AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain")
+    Optional<UserView> findViewByIdAndDomain(@Param("id") UUID id, @Param("tenantId") String tenantId,
+                                             @Param("resourceDomain") String resourceDomain);
+    
+    // Get the row version and last login of a user within tenant and domain
+    @Query("SELECT new service.com.service.userservice.repository.projection.UserVersionView(u.version, u.lastLoginAt) FROM User u " +
+           "WHERE u.id = :id AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain")
+    Optional<UserVersionView> findVersionByIdAndDomain(@Param("id") UUID id, @Param("tenantId") String tenantId,
+                                            @Param("resourceDomain") String resourceDomain);
+    
+    // Get the effective permissions version of a user within tenant and domain: its own counter plus those of its roles
+    @Query("SELECT u.permissionsVersion + COALESCE(SUM(r.permissionsVersion), 0) FROM User u LEFT JOIN u.roles r " +
+           "WHERE u.id = :id AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain " +
+           "GROUP BY u.id, u.permissionsVersion")
+    Optional<Long> findPermissionsVersionByIdAndDomain(@Param("id") UUID id, @Param("tenantId") String tenantId,
+                                                       @Param("resourceDomain") String resourceDomain);
+    
+    // Get the DTO columns of a user by username within tenant and domain
+    @Query(UserView.SELECT + "FROM User u " +
+           "WHERE u.username = :username AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain")
+    Optional<UserView> findViewByUsernameAndDomain(@Param("username") String username, @Param("tenantId") String tenantId,
+                                                   @Param("resourceDomain") String resourceDomain);
+    
+    // Get the DTO columns of every user within tenant and domain
+    @Query(UserView.SELECT + "FROM User u " +
+           "WHERE u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain")
+    List<UserView> findViewsByDomain(@Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
     // Find active users within tenant
     List<User> findByTenantIdAndIsActive(String tenantId, Boolean isActive);
     
     // Find active users within tenant and domain
     List<User> findByTenantIdAndResourceDomainAndIsActive(String tenantId, String resourceDomain, Boolean isActive);
     
+    // Count active users within tenant and domain
+    long countByTenantIdAndResourceDomainAndIsActive(String tenantId, String resourceDomain, Boolean isActive);
+    
     // Check if username exists in tenant
     boolean existsByUsernameAndTenantId(String username, String tenantId);
     
@@ -55,26 +102,31 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     // Check if email exists in tenant and domain
     boolean existsByEmailAndTenantIdAndResourceDomain(String email, String tenantId, String resourceDomain);
     
-    // Get user with roles and permissions
+    // Get which of the given usernames already exist within tenant
+    @Query("SELECT u.username FROM User u WHERE u.tenantId = :tenantId AND u.username IN :usernames")
+    List<String> findExistingUsernames(@Param("tenantId") String tenantId, @Param("usernames") Collection<String> usernames);
+    
+    // Get which of the given emails already exist within tenant
+    @Query("SELECT u.email FROM User u WHERE u.tenantId = :tenantId AND u.email IN :emails")
+    List<String> findExistingEmails(@Param("tenantId") String tenantId, @Param("emails") Collection<String> emails);
+    
+    // Get user with roles and permissions; role permissions load from the second-level cache
     @Query("SELECT DISTINCT u FROM User u " +
            "LEFT JOIN FETCH u.roles r " +
-           "LEFT JOIN FETCH r.permissions " +
            "LEFT JOIN FETCH u.permissions " +
            "WHERE u.id = :userId AND u.tenantId = :tenantId")
     Optional<User> findUserWithRolesAndPermissions(@Param("userId") UUID userId, @Param("tenantId") String tenantId);
     
-    // Get user with roles and permissions by username
+    // Get user with roles and permissions by username; role permissions load from the second-level cache
     @Query("SELECT DISTINCT u FROM User u " +
            "LEFT JOIN FETCH u.roles r " +
-           "LEFT JOIN FETCH r.permissions " +
            "LEFT JOIN FETCH u.permissions " +
            "WHERE u.username = :username AND u.tenantId = :tenantId")
     Optional<User> findUserWithRolesAndPermissionsByUsername(@Param("username") String username, @Param("tenantId") String tenantId);
     
-    // Get user with roles and permissions within domain
+    // Get user with roles and permissions within domain; role permissions load from the second-level cache
     @Query("SELECT DISTINCT u FROM User u " +
            "LEFT JOIN FETCH u.roles r " +
-           "LEFT JOIN FETCH r.permissions " +
            "LEFT JOIN FETCH u.permissions " +
            "WHERE u.id = :userId AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain")
     Optional<User> findUserWithRolesAndPermissionsByDomain(@Param("userId") UUID userId, 
@@ -98,4 +150,151 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     List<User> searchUsersByDomain(@Param("tenantId") String tenantId, 
                                   @Param("resourceDomain") String resourceDomain, 
                                   @Param("searchTerm") String searchTerm);
+    
+    // Get usernames, role names and active direct permission strings for a set of users within domain
+    @Query("SELECT u.id AS userId, 'USER' AS grantType, u.username AS grantName, " +
+           "u.permissionsVersion AS permissionsVersion FROM User u " +
+           "WHERE u.id IN :userIds AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain " +
+           "UNION ALL " +
+           "SELECT u.id AS userId, 'ROLE' AS grantType, r.name AS grantName, " +
+           "r.permissionsVersion AS permissionsVersion FROM User u JOIN u.roles r " +
+           "WHERE u.id IN :userIds AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain " +
+           "UNION ALL " +
+           "SELECT u.id AS userId, 'PERMISSION' AS grantType, CONCAT(p.resource, ':', p.action) AS grantName, " +
+           "u.permissionsVersion AS permissionsVersion " +
+           "FROM User u JOIN u.permissions p " +
+           "WHERE u.id IN :userIds AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain AND p.isActive = true")
+    List<UserGrantView> findDirectGrantsByUserIdsAndDomain(@Param("userIds") Collection<UUID> userIds,
+                                                          @Param("tenantId") String tenantId,
+                                                          @Param("resourceDomain") String resourceDomain);
+    
+    // Get username, role names and distinct active permission strings (direct and through roles) of a user within domain
+    @Query("SELECT u.id AS userId, 'USER' AS grantType, u.username AS grantName, " +
+           "u.permissionsVersion AS permissionsVersion FROM User u " +
+           "WHERE u.id = :userId AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain " +
+           "UNION " +
+           "SELECT u.id AS userId, 'ROLE' AS grantType, r.name AS grantName, " +
+           "r.permissionsVersion AS permissionsVersion FROM User u JOIN u.roles r " +
+           "WHERE u.id = :userId AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain " +
+           "UNION " +
+           "SELECT u.id AS userId, 'PERMISSION' AS grantType, CONCAT(p.resource, ':', p.action) AS grantName, " +
+           "u.permissionsVersion AS permissionsVersion " +
+           "FROM User u JOIN u.roles r JOIN r.permissions p " +
+           "WHERE u.id = :userId AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain AND p.isActive = true " +
+           "UNION " +
+           "SELECT u.id AS userId, 'PERMISSION' AS grantType, CONCAT(p.resource, ':', p.action) AS grantName, " +
+           "u.permissionsVersion AS permissionsVersion " +
+           "FROM User u JOIN u.permissions p " +
+           "WHERE u.id = :userId AND u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain AND p.isActive = true")
+    List<UserGrantView> findEffectiveGrantsByUserIdAndDomain(@Param("userId") UUID userId,
+                                                            @Param("tenantId") String tenantId,
+                                                            @Param("resourceDomain") String resourceDomain);
+    
+    // First page of active user ids within domain in id order
+    @Query("SELECT u.id FROM User u " +
+           "WHERE u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain AND u.isActive = true " +
+           "ORDER BY u.id")
+    List<UUID> findFirstActiveUserIdsByDomain(@Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain,
+                                              Pageable pageable);
+    
+    // Page of active user ids that follows the given id; each page is its own short query
+    @Query("SELECT u.id FROM User u " +
+           "WHERE u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain AND u.isActive = true AND u.id > :id " +
+           "ORDER BY u.id")
+    List<UUID> findActiveUserIdsAfterByDomain(@Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain,
+                                              @Param("id") UUID id, Pageable pageable);
+    
+    // Find the first page of users in keyset order (createdAt, id)
+    @Query(UserView.SELECT + "FROM User u " +
+           "WHERE u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain " +
+           "ORDER BY u.createdAt, u.id")
+    List<UserView> findFirstPageByDomain(@Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain,
+                                     Pageable pageable);
+    
+    // Find the page of users that follows the given (createdAt, id) key; the leading createdAt bound lets the
+    // (tenant_id, resource_domain, created_at, id) index seek straight to the key instead of skipping rows
+    @Query(UserView.SELECT + "FROM User u " +
+           "WHERE u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain " +
+           "AND u.createdAt >= :createdAt AND (u.createdAt > :createdAt OR u.id > :id) " +
+           "ORDER BY u.createdAt, u.id")
+    List<UserView> findPageAfterByDomain(@Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain,
+                                     @Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id,
+                                     Pageable pageable);
+    
+    // Stream every user of a tenant/domain in keyset order through a forward-only cursor
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query(UserView.SELECT + "FROM User u " +
+           "WHERE u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain " +
+           "ORDER BY u.createdAt, u.id")
+    Stream<UserView> streamByDomain(@Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
+    // Get every tenant and domain that has active users
+    @Query("SELECT DISTINCT u.tenantId AS tenantId, u.resourceDomain AS resourceDomain FROM User u WHERE u.isActive = true")
+    List<TenantDomainView> findTenantDomainsWithActiveUsers();
+    
+    // Grant every given role to every given user within domain; ids outside the tenant/domain are ignored and
+    // grants that already exist are kept
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_roles"))
+    @Query(value = "INSERT INTO user_roles (user_id, role_id) " +
+                   "SELECT u.id, r.id FROM users u " +
+                   "JOIN roles r ON r.tenant_id = u.tenant_id AND r.resource_domain = u.resource_domain " +
+                   "WHERE u.id IN (:userIds) AND r.id IN (:roleIds) " +
+                   "AND u.tenant_id = :tenantId AND u.resource_domain = :resourceDomain " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertUserRoles(@Param("userIds") Collection<UUID> userIds, @Param("roleIds") Collection<UUID> roleIds,
+                        @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
+    // Revoke every given role from every given user within domain
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_roles"))
+    @Query(value = "DELETE FROM user_roles " +
+                   "WHERE user_id IN (SELECT u.id FROM users u WHERE u.id IN (:userIds) " +
+                   "AND u.tenant_id = :tenantId AND u.resource_domain = :resourceDomain) " +
+                   "AND role_id IN (SELECT r.id FROM roles r WHERE r.id IN (:roleIds) " +
+                   "AND r.tenant_id = :tenantId AND r.resource_domain = :resourceDomain)", nativeQuery = true)
+    int deleteUserRoles(@Param("userIds") Collection<UUID> userIds, @Param("roleIds") Collection<UUID> roleIds,
+                        @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
+    // Grant every given permission directly to every given user within domain, keeping existing grants
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_permissions"))
+    @Query(value = "INSERT INTO user_permissions (user_id, permission_id) " +
+                   "SELECT u.id, p.id FROM users u " +
+                   "JOIN permissions p ON p.tenant_id = u.tenant_id AND p.resource_domain = u.resource_domain " +
+                   "WHERE u.id IN (:userIds) AND p.id IN (:permissionIds) " +
+                   "AND u.tenant_id = :tenantId AND u.resource_domain = :resourceDomain " +
+                   "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertUserPermissions(@Param("userIds") Collection<UUID> userIds, @Param("permissionIds") Collection<UUID> permissionIds,
+                              @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
+    // Revoke every given direct permission from every given user within domain
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_permissions"))
+    @Query(value = "DELETE FROM user_permissions " +
+                   "WHERE user_id IN (SELECT u.id FROM users u WHERE u.id IN (:userIds) " +
+                   "AND u.tenant_id = :tenantId AND u.resource_domain = :resourceDomain) " +
+                   "AND permission_id IN (SELECT p.id FROM permissions p WHERE p.id IN (:permissionIds) " +
+                   "AND p.tenant_id = :tenantId AND p.resource_domain = :resourceDomain)", nativeQuery = true)
+    int deleteUserPermissions(@Param("userIds") Collection<UUID> userIds, @Param("permissionIds") Collection<UUID> permissionIds,
+                              @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
+    // Bump the permissions version of every given user within domain
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "users"))
+    @Query(value = "UPDATE users SET permissions_version = permissions_version + 1 " +
+                   "WHERE id IN (:userIds) AND tenant_id = :tenantId AND resource_domain = :resourceDomain", nativeQuery = true)
+    int incrementPermissionsVersions(@Param("userIds") Collection<UUID> userIds,
+                                     @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
+    
+    // Bump the permissions version of every given user within domain past the counters of the given roles it holds;
+    // run before the roles are taken away, so the effective version still moves forward once theirs no longer count
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "users"))
+    @Query(value = "UPDATE users u SET permissions_version = u.permissions_version + 1 + " +
+                   "COALESCE((SELECT SUM(r.permissions_version) FROM user_roles ur JOIN roles r ON r.id = ur.role_id " +
+                   "WHERE ur.user_id = u.id AND ur.role_id IN (:roleIds)), 0) " +
+                   "WHERE u.id IN (:userIds) AND u.tenant_id = :tenantId AND u.resource_domain = :resourceDomain", nativeQuery = true)
+    int incrementPermissionsVersionsPastRoles(@Param("userIds") Collection<UUID> userIds, @Param("roleIds") Collection<UUID> roleIds,
+                                              @Param("tenantId") String tenantId, @Param("resourceDomain") String resourceDomain);
 }
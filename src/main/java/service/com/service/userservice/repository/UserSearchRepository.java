@@ -0,0 +1,16 @@
+package service.com.service.userservice.repository;
+
+import service.com.service.userservice.repository.projection.UserView;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface UserSearchRepository {
+    
+    // Search users by substring or fuzzy match on username, email and name within tenant and domain,
+    // best matches first; selects only the UserDto columns
+    List<UserView> searchRankedByDomain(String tenantId, String resourceDomain, String searchTerm, int limit, int offset);
+    
+    // The same search read through a forward-only cursor; the stream must be closed
+    Stream<UserView> streamRankedByDomain(String tenantId, String resourceDomain, String searchTerm, int limit, int offset);
+}
@@ -0,0 +1,150 @@
+package service.com.service.userservice.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.query.NativeQuery;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import service.com.service.userservice.repository.projection.UserView;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+// Postgres: trigram search served by the GIN index from V4. The WHERE clause repeats the indexed expression verbatim
+// so that the planner matches it; LIKE covers plain substrings and <% catches typos, ranked by word similarity.
+// Other databases (H2 in tests): the same contract over LOWER(...) LIKE, ranked exact username, then prefix, then the rest.
+@Slf4j
+public class UserSearchRepositoryImpl implements UserSearchRepository {
+    
+    private static final String SEARCH_DOCUMENT =
+        "lower(u.username || ' ' || u.email || ' ' || coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, ''))";
+    
+    private static final String TRIGRAM_SEARCH =
+        "SELECT " + UserView.COLUMNS + " FROM users u " +
+        "WHERE u.tenant_id = :tenantId AND u.resource_domain = :resourceDomain " +
+        "AND (" + SEARCH_DOCUMENT + " LIKE :pattern OR :term <% " + SEARCH_DOCUMENT + ") " +
+        "ORDER BY (lower(u.username) = :term) DESC, word_similarity(:term, " + SEARCH_DOCUMENT + ") DESC, u.username, u.id";
+    
+    private static final String SUBSTRING_SEARCH =
+        UserView.SELECT + "FROM User u WHERE u.tenantId = :tenantId AND u.resourceDomain = :resourceDomain AND " +
+        "(LOWER(u.firstName) LIKE :pattern ESCAPE '\\' OR LOWER(u.lastName) LIKE :pattern ESCAPE '\\' OR " +
+        "LOWER(u.username) LIKE :pattern ESCAPE '\\' OR LOWER(u.email) LIKE :pattern ESCAPE '\\') " +
+        "ORDER BY CASE WHEN LOWER(u.username) = :term THEN 0 WHEN LOWER(u.username) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END, " +
+        "u.username, u.id";
+    
+    private static final int STREAM_FETCH_SIZE = 100;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    private final DataSource dataSource;
+    private final MeterRegistry meterRegistry;
+    
+    private volatile Boolean trigram;
+    
+    public UserSearchRepositoryImpl(DataSource dataSource, MeterRegistry meterRegistry) {
+        this.dataSource = dataSource;
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @Override
+    public List<UserView> searchRankedByDomain(String tenantId, String resourceDomain, String searchTerm, int limit, int offset) {
+        return search(tenantId, resourceDomain, searchTerm, limit, offset, TypedQuery::getResultList);
+    }
+    
+    @Override
+    public Stream<UserView> streamRankedByDomain(String tenantId, String resourceDomain, String searchTerm, int limit, int offset) {
+        // Timed until the query has run and the cursor is open; reading the rows is up to the caller
+        return search(tenantId, resourceDomain, searchTerm, limit, offset, query -> query
+            .setHint(HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+            .getResultStream());
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <R> R search(String tenantId, String resourceDomain, String searchTerm, int limit, int offset,
+                         Function<TypedQuery<UserView>, R> execute) {
+        String term = searchTerm.trim().toLowerCase(Locale.ROOT);
+        String escaped = escapeLike(term);
+        boolean useTrigram = useTrigram();
+        
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            if (useTrigram) {
+                NativeQuery<UserView> query = userViews(entityManager.createNativeQuery(TRIGRAM_SEARCH).unwrap(NativeQuery.class));
+                return execute.apply(query
+                    .setParameter("tenantId", tenantId)
+                    .setParameter("resourceDomain", resourceDomain)
+                    .setParameter("term", term)
+                    .setParameter("pattern", "%" + escaped + "%")
+                    .setFirstResult(offset)
+                    .setMaxResults(limit));
+            }
+            return execute.apply(entityManager.createQuery(SUBSTRING_SEARCH, UserView.class)
+                .setParameter("tenantId", tenantId)
+                .setParameter("resourceDomain", resourceDomain)
+                .setParameter("term", term)
+                .setParameter("pattern", "%" + escaped + "%")
+                .setParameter("prefix", escaped + "%")
+                .setFirstResult(offset)
+                .setMaxResults(limit));
+        } finally {
+            sample.stop(meterRegistry.timer("users.search", "strategy", useTrigram ? "trigram" : "substring"));
+        }
+    }
+    
+    // Reads the UserView.COLUMNS select list of a native query into UserView records
+    private static NativeQuery<UserView> userViews(NativeQuery<Object[]> query) {
+        return query
+            .addScalar("id", UUID.class)
+            .addScalar("tenant_id", String.class)
+            .addScalar("resource_domain", String.class)
+            .addScalar("username", String.class)
+            .addScalar("email", String.class)
+            .addScalar("first_name", String.class)
+            .addScalar("last_name", String.class)
+            .addScalar("is_active", Boolean.class)
+            .addScalar("is_email_verified", Boolean.class)
+            .addScalar("last_login_at", LocalDateTime.class)
+            .addScalar("created_at", LocalDateTime.class)
+            .addScalar("updated_at", LocalDateTime.class)
+            .addScalar("created_by", String.class)
+            .addScalar("updated_by", String.class)
+            .addScalar("version", Long.class)
+            .setTupleTransformer((row, aliases) -> new UserView((UUID) row[0], (String) row[1], (String) row[2],
+                (String) row[3], (String) row[4], (String) row[5], (String) row[6], (Boolean) row[7], (Boolean) row[8],
+                (LocalDateTime) row[9], (LocalDateTime) row[10], (LocalDateTime) row[11], (String) row[12], (String) row[13],
+                (Long) row[14]));
+    }
+    
+    // Decided from the connected database rather than the configured dialect, which test profiles leave set to Postgres
+    private boolean useTrigram() {
+        if (trigram == null) {
+            try {
+                String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+                trigram = "PostgreSQL".equals(product);
+            } catch (MetaDataAccessException e) {
+                log.warn("Could not detect database product, falling back to substring search", e);
+                trigram = false;
+            }
+            log.info("User search uses {} matching", trigram ? "trigram" : "substring");
+        }
+        return trigram;
+    }
+    
+    // The term is matched literally: LIKE wildcards typed by the user are escaped
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
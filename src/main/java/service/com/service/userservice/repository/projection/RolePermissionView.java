@@ -0,0 +1,8 @@
+package service.com.service.userservice.repository.projection;
+
+// One row per (role, permission string) pair, used to build cached role permission sets
+public interface RolePermissionView {
+    
+    String getRoleName();
+    String getPermission();
+}
@@ -0,0 +1,7 @@
+package service.com.service.userservice.repository.projection;
+
+public interface TenantDomainView {
+    
+    String getTenantId();
+    String getResourceDomain();
+}
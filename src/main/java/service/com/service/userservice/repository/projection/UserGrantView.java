@@ -0,0 +1,18 @@
+package service.com.service.userservice.repository.projection;
+
+import java.util.UUID;
+
+// Flat row of a user's grants: one row for the username, one per role name and one per directly granted permission string.
+// Every row also carries a permissions version read in the same statement as the grants: the role's own on role rows,
+// the user's on the others; the user's effective version is the user row's plus those of its role rows.
+public interface UserGrantView {
+    
+    String TYPE_USER = "USER";
+    String TYPE_ROLE = "ROLE";
+    String TYPE_PERMISSION = "PERMISSION";
+    
+    UUID getUserId();
+    String getGrantType();
+    String getGrantName();
+    Long getPermissionsVersion();
+}
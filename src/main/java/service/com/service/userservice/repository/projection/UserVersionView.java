@@ -0,0 +1,8 @@
+package service.com.service.userservice.repository.projection;
+
+import java.time.LocalDateTime;
+
+// What the ETag of a user resource is built from: the row version, and the last login, which the
+// last-login buffer writes without bumping the version
+public record UserVersionView(Long version, LocalDateTime lastLoginAt) {
+}
@@ -0,0 +1,55 @@
+package service.com.service.userservice.repository.projection;
+
+import service.com.service.userservice.dto.UserDto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// The columns a UserDto is built from, selected straight into this record: no entity, no persistence-context snapshot
+// and no password hash. Roles and permissions are not part of UserDto responses and are left null.
+public record UserView(UUID id,
+                       String tenantId,
+                       String resourceDomain,
+                       String username,
+                       String email,
+                       String firstName,
+                       String lastName,
+                       Boolean isActive,
+                       Boolean isEmailVerified,
+                       LocalDateTime lastLoginAt,
+                       LocalDateTime createdAt,
+                       LocalDateTime updatedAt,
+                       String createdBy,
+                       String updatedBy,
+                       Long version) {
+    
+    // JPQL select list matching the constructor, for queries over "User u"
+    public static final String SELECT = "SELECT new service.com.service.userservice.repository.projection.UserView(" +
+        "u.id, u.tenantId, u.resourceDomain, u.username, u.email, u.firstName, u.lastName, u.isActive, " +
+        "u.isEmailVerified, u.lastLoginAt, u.createdAt, u.updatedAt, u.createdBy, u.updatedBy, u.version) ";
+    
+    // The same columns in SQL, in constructor order
+    public static final String COLUMNS = "u.id, u.tenant_id, u.resource_domain, u.username, u.email, u.first_name, " +
+        "u.last_name, u.is_active, u.is_email_verified, u.last_login_at, u.created_at, u.updated_at, u.created_by, u.updated_by, " +
+        "u.version";
+    
+    public UserDto toDto() {
+        return UserDto.builder()
+            .id(id)
+            .tenantId(tenantId)
+            .resourceDomain(resourceDomain)
+            .username(username)
+            .email(email)
+            .firstName(firstName)
+            .lastName(lastName)
+            .isActive(isActive)
+            .isEmailVerified(isEmailVerified)
+            .lastLoginAt(lastLoginAt)
+            .createdAt(createdAt)
+            .updatedAt(updatedAt)
+            .createdBy(createdBy)
+            .updatedBy(updatedBy)
+            .version(version)
+            .build();
+    }
+}
@@ -0,0 +1,215 @@
+package service.com.service.userservice.rpc;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import service.com.service.userservice.dto.PermissionCheckRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+// Wire format of the permission check RPC served by PermissionRpcServer. Every message travels as a frame:
+//   frame    = [payload length:varint][payload]
+//   request  = [request id:varint][tenant id:string][resource domain:string][check count:varint] check*
+//   check    = [kind:1][user id:16][permission or role name:string], kind 0 for a permission and 1 for a role
+//   response = [request id:varint][status:1] followed by [check count:varint][granted: ceil(count / 8) bytes, check i
+//              is bit i % 8 of byte i / 8] when the status is OK, or by [message:string] when it is not
+//   string   = [varint length + UTF-8]
+// Varints are unsigned LEB128 as in protobuf. The request id is picked by the client and echoed in the response.
+@Component
+public class PermissionCheckCodec {
+    
+    public static final byte KIND_PERMISSION = 0;
+    public static final byte KIND_ROLE = 1;
+    
+    @Value("${app.rpc.permissions.max-checks:1000}")
+    private int maxChecks = 1000;
+    
+    public byte[] encodeRequest(PermissionCheckFrame frame) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 + frame.checks().size() * 32);
+        writeVarLong(out, frame.requestId());
+        writeString(out, frame.tenantId());
+        writeString(out, frame.resourceDomain());
+        writeVarLong(out, frame.checks().size());
+        for (PermissionCheckRequest check : frame.checks()) {
+            boolean role = check.getRole() != null;
+            out.write(role ? KIND_ROLE : KIND_PERMISSION);
+            writeLong(out, check.getUserId().getMostSignificantBits());
+            writeLong(out, check.getUserId().getLeastSignificantBits());
+            writeString(out, role ? check.getRole() : check.getPermission());
+        }
+        return out.toByteArray();
+    }
+    
+    public PermissionCheckFrame decodeRequest(byte[] payload) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            long requestId = readVarLong(buffer);
+            String tenantId = readName(buffer, "tenant id");
+            String resourceDomain = readName(buffer, "resource domain");
+            long count = readVarLong(buffer);
+            if (count < 1 || count > maxChecks) {
+                throw new IllegalArgumentException("A frame must carry between 1 and " + maxChecks + " checks, got " + count);
+            }
+            
+            List<PermissionCheckRequest> checks = new ArrayList<>((int) count);
+            for (int i = 0; i < count; i++) {
+                byte kind = buffer.get();
+                if (kind != KIND_PERMISSION && kind != KIND_ROLE) {
+                    throw new IllegalArgumentException("Unknown kind " + kind + " of check " + i);
+                }
+                UUID userId = new UUID(buffer.getLong(), buffer.getLong());
+                String name = readName(buffer, "name of check " + i);
+                checks.add(kind == KIND_ROLE
+                    ? PermissionCheckRequest.builder().userId(userId).role(name).build()
+                    : PermissionCheckRequest.builder().userId(userId).permission(name).build());
+            }
+            if (buffer.hasRemaining()) {
+                throw new IllegalArgumentException(buffer.remaining() + " bytes left after the last check");
+            }
+            return new PermissionCheckFrame(requestId, tenantId, resourceDomain, checks);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Request frame is truncated");
+        }
+    }
+    
+    public byte[] encodeResponse(PermissionResultFrame frame) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(16 + frame.count() / 8);
+        writeVarLong(out, frame.requestId());
+        out.write(frame.status().code());
+        if (frame.status() == PermissionResultFrame.Status.OK) {
+            writeVarLong(out, frame.count());
+            // BitSet drops trailing zero bytes; the bitmap always has one bit per check
+            byte[] granted = Arrays.copyOf(frame.granted().toByteArray(), (frame.count() + 7) / 8);
+            out.write(granted, 0, granted.length);
+        } else {
+            writeString(out, frame.message() != null ? frame.message() : "");
+        }
+        return out.toByteArray();
+    }
+    
+    public PermissionResultFrame decodeResponse(byte[] payload) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(payload);
+            long requestId = readVarLong(buffer);
+            PermissionResultFrame.Status status = PermissionResultFrame.Status.of(buffer.get());
+            if (status != PermissionResultFrame.Status.OK) {
+                return PermissionResultFrame.failed(requestId, status, readString(buffer));
+            }
+            long count = readVarLong(buffer);
+            if (count < 0 || (count + 7) / 8 > buffer.remaining()) {
+                throw new IllegalArgumentException("Bitmap of " + count + " checks does not fit the " + buffer.remaining() + " bytes left");
+            }
+            byte[] granted = new byte[(int) ((count + 7) / 8)];
+            buffer.get(granted);
+            return PermissionResultFrame.ok(requestId, (int) count, BitSet.valueOf(granted));
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Response frame is truncated");
+        }
+    }
+    
+    // Best effort, for answering a frame that does not decode; 0 when not even the id is readable
+    public long requestId(byte[] payload) {
+        try {
+            return readVarLong(ByteBuffer.wrap(payload));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+    
+    // Null when the stream ends cleanly between frames; a frame over maxFrameBytes is not read at all
+    public static byte[] readFrame(InputStream in, int maxFrameBytes) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        long length = first & 0x7F;
+        for (int shift = 7, b = first; (b & 0x80) != 0; shift += 7) {
+            if (shift > 28) {
+                throw new IllegalArgumentException("Malformed frame length");
+            }
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("Stream ended inside a frame length");
+            }
+            length |= (long) (b & 0x7F) << shift;
+        }
+        if (length > maxFrameBytes) {
+            throw new IllegalArgumentException("Frame of " + length + " bytes exceeds the limit of " + maxFrameBytes);
+        }
+        
+        byte[] payload = in.readNBytes((int) length);
+        if (payload.length < length) {
+            throw new EOFException("Stream ended inside a frame");
+        }
+        return payload;
+    }
+    
+    public static void writeFrame(OutputStream out, byte[] payload) throws IOException {
+        ByteArrayOutputStream length = new ByteArrayOutputStream(5);
+        writeVarLong(length, payload.length);
+        length.writeTo(out);
+        out.write(payload);
+    }
+    
+    private static String readName(ByteBuffer buffer, String field) {
+        String name = readString(buffer);
+        if (name.isEmpty()) {
+            throw new IllegalArgumentException("Empty " + field);
+        }
+        return name;
+    }
+    
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+    
+    private static String readString(ByteBuffer buffer) {
+        // A ten-byte varint can decode to a negative length
+        long length = readVarLong(buffer);
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("String of " + length + " bytes does not fit the " + buffer.remaining() + " bytes left");
+        }
+        byte[] bytes = new byte[(int) length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static void writeLong(ByteArrayOutputStream out, long value) {
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            out.write((int) (value >>> shift));
+        }
+    }
+    
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
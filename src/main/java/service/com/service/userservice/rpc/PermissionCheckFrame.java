@@ -0,0 +1,9 @@
+package service.com.service.userservice.rpc;
+
+import service.com.service.userservice.dto.PermissionCheckRequest;
+
+import java.util.List;
+
+// One request frame: any number of permission and role checks of one tenant/domain, answered together
+public record PermissionCheckFrame(long requestId, String tenantId, String resourceDomain, List<PermissionCheckRequest> checks) {
+}
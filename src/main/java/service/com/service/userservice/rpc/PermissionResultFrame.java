@@ -0,0 +1,46 @@
+package service.com.service.userservice.rpc;
+
+import java.util.BitSet;
+
+// The answer to one request frame: bit i of granted is set when check i is granted. Frames that fail carry a message
+// instead, and none of their checks count as granted.
+public record PermissionResultFrame(long requestId, Status status, int count, BitSet granted, String message) {
+    
+    public enum Status {
+        OK(0),
+        INVALID_REQUEST(1),
+        UNAVAILABLE(2),
+        INTERNAL_ERROR(3);
+        
+        private final int code;
+        
+        Status(int code) {
+            this.code = code;
+        }
+        
+        public int code() {
+            return code;
+        }
+        
+        public static Status of(int code) {
+            for (Status status : values()) {
+                if (status.code == code) {
+                    return status;
+                }
+            }
+            throw new IllegalArgumentException("Unknown status: " + code);
+        }
+    }
+    
+    public static PermissionResultFrame ok(long requestId, int count, BitSet granted) {
+        return new PermissionResultFrame(requestId, Status.OK, count, granted, null);
+    }
+    
+    public static PermissionResultFrame failed(long requestId, Status status, String message) {
+        return new PermissionResultFrame(requestId, status, 0, new BitSet(), message);
+    }
+    
+    public boolean isGranted(int check) {
+        return status == Status.OK && granted.get(check);
+    }
+}
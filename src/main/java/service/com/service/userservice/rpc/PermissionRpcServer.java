@@ -0,0 +1,214 @@
+package service.com.service.userservice.rpc;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionException;
+import service.com.service.userservice.dto.PermissionCheckResult;
+import service.com.service.userservice.service.UserService;
+import service.com.service.userservice.utils.TenantContext;
+import service.com.service.userservice.utils.WorkerThreads;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Permission and role checks over persistent TCP connections in the binary format of PermissionCheckCodec, for
+// services that check on every request of their own. A frame carries any number of checks of one tenant/domain and
+// is answered by the same UserService.checkPermissions as the REST batch endpoint. Clients may pipeline frames;
+// responses come back in request order and are flushed once no further request is buffered. A frame that does not
+// decode gets an INVALID_REQUEST answer and the connection stays open; an oversized frame closes it.
+@Component
+@ConditionalOnProperty(name = "app.rpc.permissions.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class PermissionRpcServer {
+    
+    private final UserService userService;
+    private final PermissionCheckCodec codec;
+    private final MeterRegistry meterRegistry;
+    
+    // 0 binds an ephemeral port
+    @Value("${app.rpc.permissions.port:9090}")
+    private int port = 9090;
+    
+    @Value("${app.rpc.permissions.max-connections:1000}")
+    private int maxConnections = 1000;
+    
+    @Value("${app.rpc.permissions.max-frame-bytes:1048576}")
+    private int maxFrameBytes = 1048576;
+    
+    // 0 keeps idle connections open
+    @Value("${app.rpc.permissions.idle-timeout-ms:600000}")
+    private int idleTimeoutMillis = 600000;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    
+    private ServerSocket serverSocket;
+    private Semaphore connectionSlots;
+    private ExecutorService connectionExecutor;
+    private Counter rejectedConnections;
+    private DistributionSummary checksPerFrame;
+    
+    @PostConstruct
+    void init() throws IOException {
+        serverSocket = new ServerSocket(port);
+        connectionSlots = new Semaphore(maxConnections);
+        // One thread per connection, blocked in a socket read between frames
+        connectionExecutor = Executors.newThreadPerTaskExecutor(WorkerThreads.blocking("permission-rpc", virtualThreads));
+        rejectedConnections = meterRegistry.counter("permissions.rpc.connections.rejected");
+        checksPerFrame = meterRegistry.summary("permissions.rpc.checks");
+        meterRegistry.gauge("permissions.rpc.connections", connections, Set::size);
+        
+        WorkerThreads.platform("permission-rpc-acceptor").newThread(this::accept).start();
+        log.info("Permission RPC listening on port {} (max connections: {})", getPort(), maxConnections);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        closeQuietly(serverSocket);
+        connections.forEach(PermissionRpcServer::closeQuietly);
+        connectionExecutor.shutdownNow();
+    }
+    
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (!connectionSlots.tryAcquire()) {
+                    rejectedConnections.increment();
+                    closeQuietly(socket);
+                    continue;
+                }
+                connections.add(socket);
+                try {
+                    connectionExecutor.execute(() -> serve(socket));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    connections.remove(socket);
+                    closeQuietly(socket);
+                }
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.warn("Error accepting permission RPC connection: {}", e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(idleTimeoutMillis);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            while (true) {
+                byte[] payload;
+                try {
+                    payload = PermissionCheckCodec.readFrame(in, maxFrameBytes);
+                } catch (IllegalArgumentException e) {
+                    // The stream cannot be resynchronised past a frame that is not read
+                    respond(out, PermissionResultFrame.failed(0, PermissionResultFrame.Status.INVALID_REQUEST, e.getMessage()));
+                    out.flush();
+                    return;
+                }
+                if (payload == null) {
+                    return;
+                }
+                
+                respond(out, handle(payload));
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (SocketTimeoutException e) {
+            log.debug("Closing idle permission RPC connection from {}", socket.getRemoteSocketAddress());
+        } catch (IOException e) {
+            log.debug("Permission RPC connection from {} closed: {}", socket.getRemoteSocketAddress(), e.getMessage());
+        } finally {
+            connections.remove(socket);
+            connectionSlots.release();
+        }
+    }
+    
+    private PermissionResultFrame handle(byte[] payload) {
+        long start = System.nanoTime();
+        PermissionResultFrame result = check(payload);
+        meterRegistry.timer("permissions.rpc.frames", "status", result.status().name())
+            .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+    
+    private PermissionResultFrame check(byte[] payload) {
+        PermissionCheckFrame frame;
+        try {
+            frame = codec.decodeRequest(payload);
+        } catch (IllegalArgumentException e) {
+            return PermissionResultFrame.failed(codec.requestId(payload), PermissionResultFrame.Status.INVALID_REQUEST, e.getMessage());
+        }
+        
+        // Same context as the REST path, so that replica routing keeps read-your-writes for the tenant
+        TenantContext.setTenantId(frame.tenantId());
+        TenantContext.setDomainId(frame.resourceDomain());
+        try {
+            List<PermissionCheckResult> results = userService.checkPermissions(frame.checks(), frame.tenantId(), frame.resourceDomain());
+            BitSet granted = new BitSet(results.size());
+            for (int i = 0; i < results.size(); i++) {
+                if (results.get(i).isGranted()) {
+                    granted.set(i);
+                }
+            }
+            checksPerFrame.record(results.size());
+            return PermissionResultFrame.ok(frame.requestId(), results.size(), granted);
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Permission RPC checks for tenant {} failed: {}", frame.tenantId(), e.getMessage());
+            return PermissionResultFrame.failed(frame.requestId(), PermissionResultFrame.Status.UNAVAILABLE, e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Permission RPC checks for tenant {} failed", frame.tenantId(), e);
+            return PermissionResultFrame.failed(frame.requestId(), PermissionResultFrame.Status.INTERNAL_ERROR, "Permission check failed");
+        } finally {
+            TenantContext.clear();
+        }
+    }
+    
+    private void respond(OutputStream out, PermissionResultFrame result) throws IOException {
+        PermissionCheckCodec.writeFrame(out, codec.encodeResponse(result));
+    }
+    
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Already closed or the peer is gone
+        }
+    }
+}
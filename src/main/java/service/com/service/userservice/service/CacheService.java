@@ -1,18 +1,41 @@
 package service.com.service.userservice.service;
 
+import service.com.service.userservice.cache.EffectivePermissions;
+import service.com.service.userservice.cache.UserGrants;
 import service.com.service.userservice.dto.UserPermissionsDto;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 public interface CacheService {
     
-    // Permission caching
-    void cacheUserPermissions(UUID userId, String tenantId, String resourceDomain, UserPermissionsDto permissions);
+    // Permission caching; roleLoader is called with the role names whose permission sets are not cached yet
+    EffectivePermissions cacheUserGrants(UserGrants grants, String tenantId, String resourceDomain,
+                                         Function<Collection<String>, Map<String, List<String>>> roleLoader);
+    Map<UUID, EffectivePermissions> cacheUserGrants(Collection<UserGrants> grants, String tenantId, String resourceDomain,
+                                                    Function<Collection<String>, Map<String, List<String>>> roleLoader);
+    // Bulk warm-up: writes Redis only, so that the local cache keeps serving live traffic
+    int preloadUserGrants(Collection<UserGrants> grants, String tenantId, String resourceDomain,
+                          Function<Collection<String>, Map<String, List<String>>> roleLoader);
     UserPermissionsDto getCachedUserPermissions(UUID userId, String tenantId, String resourceDomain);
+    EffectivePermissions getEffectivePermissions(UUID userId, String tenantId, String resourceDomain);
+    Map<UUID, EffectivePermissions> getEffectivePermissions(Collection<UUID> userIds, String tenantId, String resourceDomain);
+    // Evictions requested inside a transaction run after it commits
     void evictUserPermissionsCache(UUID userId, String tenantId, String resourceDomain);
+    // Bulk changes: one Redis DEL and one invalidation message per batch of users
+    void evictUserPermissionsCache(Collection<UUID> userIds, String tenantId, String resourceDomain);
+    void evictRolePermissionsCache(String roleName, String tenantId, String resourceDomain);
     void evictAllUserPermissionsCache(String tenantId);
     
+    // Cluster-wide permission load locks
+    boolean tryAcquirePermissionsLoadLock(UUID userId, String tenantId, String resourceDomain, String token, long ttlMillis);
+    void releasePermissionsLoadLock(UUID userId, String tenantId, String resourceDomain, String token);
+    // Claims the startup warm-up of a tenant/domain for this node; left to expire so restarts within the TTL skip it
+    boolean tryClaimStartupWarmup(String tenantId, String resourceDomain, long ttlMillis);
+    
     // JWT blacklisting
     void blacklistJWT(String jti, long expiration);
     boolean isJWTBlacklisted(String jti);
@@ -0,0 +1,14 @@
+package service.com.service.userservice.service;
+
+import service.com.service.userservice.dto.CacheWarmupStatus;
+
+import java.util.List;
+
+public interface CacheWarmupService {
+    
+    // Starts warming the permission cache for all active users of the tenant and domain; a job already
+    // queued or running for the same tenant and domain is returned instead of starting another one
+    CacheWarmupStatus startWarmup(String tenantId, String resourceDomain);
+    CacheWarmupStatus getWarmupStatus(String tenantId, String resourceDomain);
+    List<CacheWarmupStatus> getAllWarmupStatuses();
+}
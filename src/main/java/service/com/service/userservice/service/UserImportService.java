@@ -0,0 +1,13 @@
+package service.com.service.userservice.service;
+
+import org.springframework.http.MediaType;
+import service.com.service.userservice.dto.UserImportResult;
+
+import java.io.InputStream;
+
+public interface UserImportService {
+    
+    // Imports the users of a JSON array, NDJSON or CSV upload into the tenant and domain; rows failing validation or
+    // uniqueness are reported and skipped, the others are inserted in batches
+    UserImportResult importUsers(InputStream input, MediaType contentType, String tenantId, String resourceDomain);
+}
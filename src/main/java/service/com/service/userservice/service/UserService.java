@@ -2,20 +2,29 @@ package service.com.service.userservice.service;
 
 import service.com.service.userservice.dto.*;
 import service.com.service.userservice.entity.User;
+import service.com.service.userservice.repository.projection.UserVersionView;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 public interface UserService {
     
     // User CRUD operations
     UserDto createUser(CreateUserRequest request, String tenantId, String resourceDomain);
-    UserDto updateUser(UUID userId, UpdateUserRequest request, String tenantId, String resourceDomain);
+    UserDto updateUser(UUID userId, UpdateUserRequest request, Long expectedVersion, String tenantId, String resourceDomain);
     void deleteUser(UUID userId, String tenantId, String resourceDomain);
     UserDto getUserById(UUID userId, String tenantId, String resourceDomain);
     UserDto getUserByUsername(String username, String tenantId, String resourceDomain);
-    List<UserDto> getAllUsers(String tenantId, String resourceDomain);
-    List<UserDto> searchUsers(String searchTerm, String tenantId, String resourceDomain);
+    UserPageResponse getUsersPage(String cursor, Integer limit, String tenantId, String resourceDomain);
+    long exportUsers(String tenantId, String resourceDomain, Consumer<UserDto> consumer);
+    List<UserDto> searchUsers(String searchTerm, Integer limit, Integer offset, String tenantId, String resourceDomain);
+    long searchUsers(String searchTerm, Integer limit, Integer offset, String tenantId, String resourceDomain, Consumer<UserDto> consumer);
+    
+    // Versions for conditional requests, read without loading the user
+    UserVersionView getUserVersion(UUID userId, String tenantId, String resourceDomain);
+    long getPermissionsVersion(UUID userId, String tenantId, String resourceDomain);
     
     // User authentication
     UserDto authenticateUser(String username, String password, String tenantId, String resourceDomain);
@@ -35,18 +44,32 @@ public interface UserService {
     void assignPermission(UUID userId, UUID permissionId, String tenantId, String resourceDomain);
     void removePermission(UUID userId, UUID permissionId, String tenantId, String resourceDomain);
     List<PermissionDto> getUserPermissions(UUID userId, String tenantId, String resourceDomain);
+    
+    // Bulk grants: set-based writes over every user x role/permission pair, then one batched cache eviction;
+    // return the number of grants added or removed
+    int assignRoles(Collection<UUID> userIds, Collection<UUID> roleIds, String tenantId, String resourceDomain);
+    int removeRoles(Collection<UUID> userIds, Collection<UUID> roleIds, String tenantId, String resourceDomain);
+    int assignPermissions(Collection<UUID> userIds, Collection<UUID> permissionIds, String tenantId, String resourceDomain);
+    int removePermissions(Collection<UUID> userIds, Collection<UUID> permissionIds, String tenantId, String resourceDomain);
+    int assignRolePermissions(UUID roleId, Collection<UUID> permissionIds, String tenantId, String resourceDomain);
+    int removeRolePermissions(UUID roleId, Collection<UUID> permissionIds, String tenantId, String resourceDomain);
     UserPermissionsDto getUserPermissionsWithRoles(UUID userId, String tenantId, String resourceDomain);
     
     // Permission caching
     void cacheUserPermissions(UUID userId, String tenantId, String resourceDomain);
+    int preloadUserPermissions(List<UUID> userIds, String tenantId, String resourceDomain);
     UserPermissionsDto getCachedUserPermissions(UUID userId, String tenantId, String resourceDomain);
+    // Reloads a cached entry built before minVersion; the result carries the version it was built from
+    UserPermissionsDto getCachedUserPermissions(UUID userId, long minVersion, String tenantId, String resourceDomain);
     void evictUserPermissionsCache(UUID userId, String tenantId, String resourceDomain);
+    void evictRolePermissionsCache(String roleName, String tenantId, String resourceDomain);
     
     // Validation methods
     boolean isUsernameAvailable(String username, String tenantId, String resourceDomain);
     boolean isEmailAvailable(String email, String tenantId, String resourceDomain);
     boolean hasPermission(UUID userId, String permission, String tenantId, String resourceDomain);
     boolean hasRole(UUID userId, String roleName, String tenantId, String resourceDomain);
+    List<PermissionCheckResult> checkPermissions(List<PermissionCheckRequest> checks, String tenantId, String resourceDomain);
     
     // Utility methods
     User getUserEntity(UUID userId, String tenantId, String resourceDomain);
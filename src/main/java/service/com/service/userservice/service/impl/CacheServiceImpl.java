@@ -1,17 +1,36 @@
 package service.com.service.userservice.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import service.com.service.userservice.cache.CacheGenerations;
+import service.com.service.userservice.cache.CacheInvalidationMessage;
+import service.com.service.userservice.cache.CompactPermissionsEntry;
+import service.com.service.userservice.cache.EffectivePermissions;
+import service.com.service.userservice.cache.EntryFreshness;
+import service.com.service.userservice.cache.LocalPermissionCache;
+import service.com.service.userservice.cache.PermissionDictionary;
+import service.com.service.userservice.cache.PermissionCacheInvalidationListener;
+import service.com.service.userservice.cache.PermissionEntryCodec;
+import service.com.service.userservice.cache.PermissionRefreshPolicy;
+import service.com.service.userservice.cache.UserGrants;
 import service.com.service.userservice.dto.UserPermissionsDto;
 import service.com.service.userservice.service.CacheService;
 
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 @Service
 @RequiredArgsConstructor
@@ -21,41 +40,124 @@ public class CacheServiceImpl implements CacheService {
     private final RedisTemplate<String, Object> redisTemplate;
     private final RedisTemplate<String, String> stringRedisTemplate;
     private final ObjectMapper objectMapper;
-    
-    @Value("${app.cache.permissions.ttl:3600}")
-    private long permissionsCacheTtl;
+    private final LocalPermissionCache localPermissionCache;
+    private final PermissionCacheInvalidationListener invalidationListener;
+    private final PermissionDictionary permissionDictionary;
+    private final RedisTemplate<String, byte[]> binaryRedisTemplate;
+    private final PermissionEntryCodec permissionEntryCodec;
+    private final CacheGenerations cacheGenerations;
+    private final PermissionRefreshPolicy refreshPolicy;
     
     @Value("${app.cache.blacklist.ttl:86400}")
     private long blacklistCacheTtl;
     
     private static final String PERMISSIONS_KEY_PREFIX = "perm:";
-    private static final String BLACKLIST_KEY_PREFIX = "blacklist:";
-    private static final String SESSION_KEY_PREFIX = "session:";
+    private static final String LOAD_LOCK_KEY_PREFIX = "permlock:";
+    private static final String WARMUP_CLAIM_KEY_PREFIX = "warmup:claim:";
+    
+    // Keys per DEL and per invalidation message when evicting many users at once
+    private static final int EVICT_BATCH_SIZE = 1000;
+    
+    // Deletes the lock only if it is still held by the caller's token
+    private static final RedisScript<Long> RELEASE_LOCK_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+        Long.class);
     
     @Override
-    public void cacheUserPermissions(UUID userId, String tenantId, String resourceDomain, UserPermissionsDto permissions) {
-        String key = buildPermissionsKey(userId, tenantId, resourceDomain);
-        
+    public EffectivePermissions cacheUserGrants(UserGrants grants, String tenantId, String resourceDomain,
+                                                Function<Collection<String>, Map<String, List<String>>> roleLoader) {
+        return cacheUserGrants(List.of(grants), tenantId, resourceDomain, roleLoader).get(grants.userId());
+    }
+    
+    @Override
+    public Map<UUID, EffectivePermissions> cacheUserGrants(Collection<UserGrants> grants, String tenantId, String resourceDomain,
+                                                           Function<Collection<String>, Map<String, List<String>>> roleLoader) {
+        return writeUserGrants(grants, tenantId, resourceDomain, roleLoader, true);
+    }
+    
+    @Override
+    public int preloadUserGrants(Collection<UserGrants> grants, String tenantId, String resourceDomain,
+                                 Function<Collection<String>, Map<String, List<String>>> roleLoader) {
+        return writeUserGrants(grants, tenantId, resourceDomain, roleLoader, false).size();
+    }
+    
+    private Map<UUID, EffectivePermissions> writeUserGrants(Collection<UserGrants> grants, String tenantId, String resourceDomain,
+                                                            Function<Collection<String>, Map<String, List<String>>> roleLoader,
+                                                            boolean populateLocal) {
         try {
-            String jsonValue = objectMapper.writeValueAsString(permissions);
-            redisTemplate.opsForValue().set(key, jsonValue, permissionsCacheTtl, TimeUnit.SECONDS);
-            log.debug("Cached permissions for user {} in tenant {} and domain {}", userId, tenantId, resourceDomain);
-        } catch (JsonProcessingException e) {
-            log.error("Error caching permissions for user {}: {}", userId, e.getMessage());
+            return compileAndWrite(grants, tenantId, resourceDomain, roleLoader, populateLocal);
+        } catch (PermissionDictionary.StaleDictionaryException e) {
+            // The dictionary started a new epoch halfway through; compile everything again against the new one
+            log.warn("Recompiling permissions for {} users in tenant {} and domain {}: {}", grants.size(), tenantId, resourceDomain, e.getMessage());
+            return compileAndWrite(grants, tenantId, resourceDomain, roleLoader, populateLocal);
         }
     }
     
+    private Map<UUID, EffectivePermissions> compileAndWrite(Collection<UserGrants> grants, String tenantId, String resourceDomain,
+                                                            Function<Collection<String>, Map<String, List<String>>> roleLoader,
+                                                            boolean populateLocal) {
+        long started = System.nanoTime();
+        long epoch = permissionDictionary.epoch(tenantId, resourceDomain);
+        Set<String> roleNames = new HashSet<>();
+        grants.forEach(userGrants -> roleNames.addAll(userGrants.roles()));
+        Map<String, BitSet> rolePermissions = getRolePermissions(roleNames, tenantId, resourceDomain);
+        
+        Set<String> uncachedRoles = new HashSet<>(roleNames);
+        uncachedRoles.removeAll(rolePermissions.keySet());
+        if (!uncachedRoles.isEmpty()) {
+            rolePermissions.putAll(cacheRolePermissions(roleLoader.apply(uncachedRoles), uncachedRoles, tenantId, resourceDomain));
+        }
+        
+        // The entry's compute time covers the user query and any role sets that had to be loaded for it
+        long roleLoadMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        Map<UUID, EffectivePermissions> compiled = new HashMap<>();
+        Map<String, byte[]> values = new HashMap<>();
+        Map<String, Long> ttls = new HashMap<>();
+        for (UserGrants userGrants : grants) {
+            String key = buildPermissionsKey(userGrants.userId(), tenantId, resourceDomain);
+            EntryFreshness freshness = refreshPolicy.stamp(userGrants.loadMillis() + roleLoadMillis);
+            EffectivePermissions effectivePermissions = permissionDictionary.compile(userGrants, tenantId, resourceDomain, rolePermissions, freshness);
+            compiled.put(userGrants.userId(), effectivePermissions);
+            values.put(key, permissionEntryCodec.encode(CompactPermissionsEntry.of(effectivePermissions)));
+            ttls.put(key, refreshPolicy.storeTtlMillis(freshness, tenantId));
+            if (populateLocal) {
+                localPermissionCache.put(key, effectivePermissions);
+            }
+        }
+        
+        if (permissionDictionary.epoch(tenantId, resourceDomain) != epoch) {
+            throw new PermissionDictionary.StaleDictionaryException("Permission dictionary epoch " + epoch + " was replaced");
+        }
+        writePipelined(values, ttls::get);
+        log.debug("Cached permissions for {} users ({} role sets loaded) in tenant {} and domain {}",
+            compiled.size(), uncachedRoles.size(), tenantId, resourceDomain);
+        return compiled;
+    }
+    
     @Override
     public UserPermissionsDto getCachedUserPermissions(UUID userId, String tenantId, String resourceDomain) {
+        EffectivePermissions permissions = getEffectivePermissions(userId, tenantId, resourceDomain);
+        return permissions != null ? permissions.toDto() : null;
+    }
+    
+    @Override
+    public EffectivePermissions getEffectivePermissions(UUID userId, String tenantId, String resourceDomain) {
         String key = buildPermissionsKey(userId, tenantId, resourceDomain);
         
+        EffectivePermissions localPermissions = localPermissionCache.get(key);
+        if (localPermissions != null) {
+            return localPermissions;
+        }
+        
         try {
-            Object cachedValue = redisTemplate.opsForValue().get(key);
-            if (cachedValue != null) {
-                String jsonValue = cachedValue.toString();
-                UserPermissionsDto permissions = objectMapper.readValue(jsonValue, UserPermissionsDto.class);
-                log.debug("Retrieved cached permissions for user {} in tenant {} and domain {}", userId, tenantId, resourceDomain);
-                return permissions;
+            byte[] cachedValue = binaryRedisTemplate.opsForValue().get(key);
+            CompactPermissionsEntry entry = cachedValue != null ? decodeOrNull(cachedValue, key) : null;
+            if (entry != null) {
+                EffectivePermissions permissions = restore(Map.of(key, entry), tenantId, resourceDomain).get(key);
+                if (permissions != null) {
+                    log.debug("Retrieved cached permissions for user {} in tenant {} and domain {}", userId, tenantId, resourceDomain);
+                    return permissions;
+                }
             }
         } catch (Exception e) {
             log.error("Error retrieving cached permissions for user {}: {}", userId, e.getMessage());
@@ -64,26 +166,136 @@ public class CacheServiceImpl implements CacheService {
         return null;
     }
     
+    @Override
+    public Map<UUID, EffectivePermissions> getEffectivePermissions(Collection<UUID> userIds, String tenantId, String resourceDomain) {
+        Map<UUID, EffectivePermissions> found = new HashMap<>();
+        List<UUID> remoteIds = new ArrayList<>();
+        List<String> remoteKeys = new ArrayList<>();
+        
+        for (UUID userId : userIds) {
+            String key = buildPermissionsKey(userId, tenantId, resourceDomain);
+            EffectivePermissions localPermissions = localPermissionCache.get(key);
+            if (localPermissions != null) {
+                found.put(userId, localPermissions);
+            } else {
+                remoteIds.add(userId);
+                remoteKeys.add(key);
+            }
+        }
+        
+        if (remoteKeys.isEmpty()) {
+            return found;
+        }
+        
+        try {
+            // One MGET for everything the local cache could not answer, one more for the role sets they reference
+            List<byte[]> values = binaryRedisTemplate.opsForValue().multiGet(remoteKeys);
+            Map<String, CompactPermissionsEntry> entries = new HashMap<>();
+            for (int i = 0; values != null && i < values.size(); i++) {
+                CompactPermissionsEntry entry = values.get(i) != null ? decodeOrNull(values.get(i), remoteKeys.get(i)) : null;
+                if (entry != null) {
+                    entries.put(remoteKeys.get(i), entry);
+                }
+            }
+            
+            Map<String, EffectivePermissions> restored = restore(entries, tenantId, resourceDomain);
+            for (int i = 0; i < remoteKeys.size(); i++) {
+                EffectivePermissions permissions = restored.get(remoteKeys.get(i));
+                if (permissions != null) {
+                    found.put(remoteIds.get(i), permissions);
+                }
+            }
+            log.debug("Retrieved {} of {} cached permissions from Redis for tenant {} and domain {}",
+                found.size(), userIds.size(), tenantId, resourceDomain);
+        } catch (Exception e) {
+            log.error("Error retrieving cached permissions for {} users: {}", remoteKeys.size(), e.getMessage());
+        }
+        
+        return found;
+    }
+    
     @Override
     public void evictUserPermissionsCache(UUID userId, String tenantId, String resourceDomain) {
-        String key = buildPermissionsKey(userId, tenantId, resourceDomain);
-        redisTemplate.delete(key);
-        log.debug("Evicted permissions cache for user {} in tenant {} and domain {}", userId, tenantId, resourceDomain);
+        afterCommit(() -> {
+            String key = buildPermissionsKey(userId, tenantId, resourceDomain);
+            redisTemplate.delete(key);
+            publishInvalidation(CacheInvalidationMessage.key(key));
+            log.debug("Evicted permissions cache for user {} in tenant {} and domain {}", userId, tenantId, resourceDomain);
+        });
+    }
+    
+    @Override
+    public void evictUserPermissionsCache(Collection<UUID> userIds, String tenantId, String resourceDomain) {
+        List<UUID> distinctIds = userIds.stream().distinct().toList();
+        afterCommit(() -> {
+            List<String> keys = distinctIds.stream()
+                .map(userId -> buildPermissionsKey(userId, tenantId, resourceDomain))
+                .toList();
+            for (int from = 0; from < keys.size(); from += EVICT_BATCH_SIZE) {
+                List<String> batch = keys.subList(from, Math.min(from + EVICT_BATCH_SIZE, keys.size()));
+                redisTemplate.delete(batch);
+                publishInvalidation(CacheInvalidationMessage.keys(List.copyOf(batch)));
+            }
+            log.debug("Evicted permissions cache for {} users in tenant {} and domain {}", keys.size(), tenantId, resourceDomain);
+        });
+    }
+    
+    @Override
+    public void evictRolePermissionsCache(String roleName, String tenantId, String resourceDomain) {
+        afterCommit(() -> {
+            String keyPrefix = buildPermissionsKeyPrefix(tenantId, resourceDomain);
+            redisTemplate.delete(LocalPermissionCache.roleKey(keyPrefix, roleName));
+            publishInvalidation(CacheInvalidationMessage.role(keyPrefix, roleName));
+            log.debug("Evicted permissions cache for role {} in tenant {} and domain {}", roleName, tenantId, resourceDomain);
+        });
     }
     
     @Override
     public void evictAllUserPermissionsCache(String tenantId) {
-        String pattern = PERMISSIONS_KEY_PREFIX + tenantId + ":*";
-        Set<String> keys = redisTemplate.keys(pattern);
-        if (keys != null && !keys.isEmpty()) {
-            redisTemplate.delete(keys);
-            log.info("Evicted all permissions cache for tenant {}", tenantId);
+        cacheGenerations.bump(CacheGenerations.Kind.PERMISSIONS, tenantId, null);
+        publishInvalidation(CacheInvalidationMessage.prefix(PERMISSIONS_KEY_PREFIX + tenantId + ":"));
+        log.info("Evicted all permissions cache for tenant {}", tenantId);
+    }
+    
+    @Override
+    public boolean tryAcquirePermissionsLoadLock(UUID userId, String tenantId, String resourceDomain, String token, long ttlMillis) {
+        String key = buildLoadLockKey(userId, tenantId, resourceDomain);
+        try {
+            Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(key, token, Duration.ofMillis(ttlMillis));
+            return acquired != null && acquired;
+        } catch (Exception e) {
+            // Without Redis there is nothing to coordinate with; let the caller load
+            log.error("Error acquiring permissions load lock for user {}: {}", userId, e.getMessage());
+            return true;
+        }
+    }
+    
+    @Override
+    public void releasePermissionsLoadLock(UUID userId, String tenantId, String resourceDomain, String token) {
+        String key = buildLoadLockKey(userId, tenantId, resourceDomain);
+        try {
+            stringRedisTemplate.execute(RELEASE_LOCK_SCRIPT, List.of(key), token);
+        } catch (Exception e) {
+            log.error("Error releasing permissions load lock for user {}: {}", userId, e.getMessage());
+        }
+    }
+    
+    @Override
+    public boolean tryClaimStartupWarmup(String tenantId, String resourceDomain, long ttlMillis) {
+        String key = WARMUP_CLAIM_KEY_PREFIX + tenantId + ":" + resourceDomain;
+        try {
+            Boolean claimed = stringRedisTemplate.opsForValue().setIfAbsent(key, UUID.randomUUID().toString(), Duration.ofMillis(ttlMillis));
+            return claimed != null && claimed;
+        } catch (Exception e) {
+            // Warming would need Redis too, so without it there is nothing worth doing
+            log.error("Error claiming startup warm-up for tenant {} and domain {}: {}", tenantId, resourceDomain, e.getMessage());
+            return false;
         }
     }
     
     @Override
     public void blacklistJWT(String jti, long expiration) {
-        String key = BLACKLIST_KEY_PREFIX + jti;
+        String key = buildBlacklistKey(jti);
         long ttl = Math.max(expiration - System.currentTimeMillis(), 0) / 1000;
         
         if (ttl > 0) {
@@ -94,9 +306,14 @@ public class CacheServiceImpl implements CacheService {
     
     @Override
     public boolean isJWTBlacklisted(String jti) {
-        String key = BLACKLIST_KEY_PREFIX + jti;
-        Boolean exists = stringRedisTemplate.hasKey(key);
-        return exists != null && exists;
+        try {
+            Boolean exists = stringRedisTemplate.hasKey(buildBlacklistKey(jti));
+            return exists != null && exists;
+        } catch (Exception e) {
+            // Fail closed: a token that cannot be checked is treated as revoked
+            log.error("Error checking blacklist for JWT {}, treating it as blacklisted: {}", jti, e.getMessage());
+            return true;
+        }
     }
     
     @Override
@@ -149,12 +366,14 @@ public class CacheServiceImpl implements CacheService {
     @Override
     public void evictAllUserSessions(UUID userId, String tenantId, String resourceDomain) {
         String key = buildSessionKey(userId, tenantId, resourceDomain);
-        String sessionPattern = SESSION_KEY_PREFIX + tenantId + ":" + resourceDomain + ":" + userId + ":*";
         
-        // Remove all individual sessions
-        Set<String> sessionKeys = redisTemplate.keys(sessionPattern);
-        if (sessionKeys != null && !sessionKeys.isEmpty()) {
-            redisTemplate.delete(sessionKeys);
+        // Remove all individual sessions; the user's session set already names every one of them
+        Set<Object> sessions = redisTemplate.opsForSet().members(key);
+        if (sessions != null && !sessions.isEmpty()) {
+            List<String> sessionKeys = sessions.stream()
+                .map(sessionId -> key + ":" + sessionId)
+                .collect(ArrayList::new, ArrayList::add, ArrayList::addAll);
+            stringRedisTemplate.delete(sessionKeys);
         }
         
         // Remove session set
@@ -181,24 +400,12 @@ public class CacheServiceImpl implements CacheService {
     public void clearAllCache() {
         log.warn("Clearing all cache - this operation should be used carefully");
         
-        // Clear permissions cache
-        Set<String> permissionKeys = redisTemplate.keys(PERMISSIONS_KEY_PREFIX + "*");
-        if (permissionKeys != null && !permissionKeys.isEmpty()) {
-            redisTemplate.delete(permissionKeys);
-        }
-        
-        // Clear blacklist cache
-        Set<String> blacklistKeys = redisTemplate.keys(BLACKLIST_KEY_PREFIX + "*");
-        if (blacklistKeys != null && !blacklistKeys.isEmpty()) {
-            redisTemplate.delete(blacklistKeys);
-        }
-        
-        // Clear session cache
-        Set<String> sessionKeys = redisTemplate.keys(SESSION_KEY_PREFIX + "*");
-        if (sessionKeys != null && !sessionKeys.isEmpty()) {
-            redisTemplate.delete(sessionKeys);
-        }
+        // Each flush is a single INCR; entries of the previous generations are no longer read
+        cacheGenerations.bump(CacheGenerations.Kind.PERMISSIONS, null, null);
+        cacheGenerations.bump(CacheGenerations.Kind.BLACKLIST, null, null);
+        cacheGenerations.bump(CacheGenerations.Kind.SESSIONS, null, null);
         
+        publishInvalidation(CacheInvalidationMessage.all());
         log.info("All cache cleared");
     }
     
@@ -206,20 +413,10 @@ public class CacheServiceImpl implements CacheService {
     public void clearTenantCache(String tenantId) {
         log.info("Clearing cache for tenant {}", tenantId);
         
-        // Clear permissions cache for tenant
-        String permissionPattern = PERMISSIONS_KEY_PREFIX + tenantId + ":*";
-        Set<String> permissionKeys = redisTemplate.keys(permissionPattern);
-        if (permissionKeys != null && !permissionKeys.isEmpty()) {
-            redisTemplate.delete(permissionKeys);
-        }
-        
-        // Clear session cache for tenant
-        String sessionPattern = SESSION_KEY_PREFIX + tenantId + ":*";
-        Set<String> sessionKeys = redisTemplate.keys(sessionPattern);
-        if (sessionKeys != null && !sessionKeys.isEmpty()) {
-            redisTemplate.delete(sessionKeys);
-        }
+        cacheGenerations.bump(CacheGenerations.Kind.PERMISSIONS, tenantId, null);
+        cacheGenerations.bump(CacheGenerations.Kind.SESSIONS, tenantId, null);
         
+        publishInvalidation(CacheInvalidationMessage.prefix(PERMISSIONS_KEY_PREFIX + tenantId + ":"));
         log.info("Cache cleared for tenant {}", tenantId);
     }
     
@@ -227,33 +424,185 @@ public class CacheServiceImpl implements CacheService {
     public void clearDomainCache(String tenantId, String resourceDomain) {
         log.info("Clearing cache for tenant {} and domain {}", tenantId, resourceDomain);
         
-        // Clear permissions cache for tenant and domain
-        String permissionPattern = PERMISSIONS_KEY_PREFIX + tenantId + ":" + resourceDomain + ":*";
-        Set<String> permissionKeys = redisTemplate.keys(permissionPattern);
-        if (permissionKeys != null && !permissionKeys.isEmpty()) {
-            redisTemplate.delete(permissionKeys);
+        cacheGenerations.bump(CacheGenerations.Kind.PERMISSIONS, tenantId, resourceDomain);
+        cacheGenerations.bump(CacheGenerations.Kind.SESSIONS, tenantId, resourceDomain);
+        
+        publishInvalidation(CacheInvalidationMessage.prefix(PERMISSIONS_KEY_PREFIX + tenantId + ":" + resourceDomain + ":"));
+        log.info("Cache cleared for tenant {} and domain {}", tenantId, resourceDomain);
+    }
+    
+    // Helper methods
+    private void publishInvalidation(CacheInvalidationMessage message) {
+        // Apply locally right away so this node never serves the evicted entry, then fan out to the other nodes
+        invalidationListener.apply(message);
+        try {
+            stringRedisTemplate.convertAndSend(PermissionCacheInvalidationListener.CHANNEL,
+                objectMapper.writeValueAsString(message));
+        } catch (Exception e) {
+            log.error("Error publishing cache invalidation {}: {}", message, e.getMessage());
+        }
+    }
+    
+    // Evicting before the commit would let a concurrent load cache the rows that are being replaced
+    private static void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
         }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+    
+    // Restores user entries together with the role sets they reference; users whose role sets are
+    // not all cached are left out so that the caller reloads them
+    private Map<String, EffectivePermissions> restore(Map<String, CompactPermissionsEntry> entries, String tenantId, String resourceDomain) {
+        PermissionDictionary.Namespace roleNamespace = permissionDictionary.namespace(tenantId, resourceDomain, PermissionDictionary.Kind.ROLE);
+        Map<String, List<String>> rolesByKey = new HashMap<>();
+        Set<String> roleNames = new HashSet<>();
+        entries.forEach((key, entry) -> {
+            // Ids of another dictionary epoch would decode to the wrong names
+            if (entry.dictionaryEpoch() != roleNamespace.epoch()) {
+                return;
+            }
+            BitSet roleIds = BitSet.valueOf(entry.rolesBitset());
+            roleNamespace.ensureKnown(roleIds);
+            List<String> roles = roleNamespace.decode(roleIds);
+            rolesByKey.put(key, roles);
+            roleNames.addAll(roles);
+        });
         
-        // Clear session cache for tenant and domain
-        String sessionPattern = SESSION_KEY_PREFIX + tenantId + ":" + resourceDomain + ":*";
-        Set<String> sessionKeys = redisTemplate.keys(sessionPattern);
-        if (sessionKeys != null && !sessionKeys.isEmpty()) {
-            redisTemplate.delete(sessionKeys);
+        Map<String, BitSet> rolePermissions = getRolePermissions(roleNames, tenantId, resourceDomain);
+        Map<String, EffectivePermissions> restored = new HashMap<>();
+        rolesByKey.forEach((key, roles) -> {
+            if (rolePermissions.keySet().containsAll(roles)) {
+                EffectivePermissions permissions = permissionDictionary.restore(entries.get(key), tenantId, resourceDomain, rolePermissions);
+                localPermissionCache.put(key, permissions);
+                restored.put(key, permissions);
+            }
+        });
+        return restored;
+    }
+    
+    private Map<String, BitSet> getRolePermissions(Collection<String> roleNames, String tenantId, String resourceDomain) {
+        String keyPrefix = buildPermissionsKeyPrefix(tenantId, resourceDomain);
+        Map<String, BitSet> found = new HashMap<>();
+        List<String> remoteRoles = new ArrayList<>();
+        List<String> remoteKeys = new ArrayList<>();
+        
+        for (String roleName : roleNames) {
+            String roleKey = LocalPermissionCache.roleKey(keyPrefix, roleName);
+            BitSet localPermissions = localPermissionCache.getRole(roleKey);
+            if (localPermissions != null) {
+                found.put(roleName, localPermissions);
+            } else {
+                remoteRoles.add(roleName);
+                remoteKeys.add(roleKey);
+            }
         }
         
-        log.info("Cache cleared for tenant {} and domain {}", tenantId, resourceDomain);
+        if (remoteKeys.isEmpty()) {
+            return found;
+        }
+        
+        try {
+            PermissionDictionary.Namespace permissionNamespace = permissionDictionary.namespace(tenantId, resourceDomain, PermissionDictionary.Kind.PERMISSION);
+            List<byte[]> values = binaryRedisTemplate.opsForValue().multiGet(remoteKeys);
+            for (int i = 0; values != null && i < values.size(); i++) {
+                if (values.get(i) == null) {
+                    continue;
+                }
+                try {
+                    BitSet permissionIds = permissionEntryCodec.decodeIdSet(values.get(i), permissionNamespace.epoch());
+                    permissionNamespace.ensureKnown(permissionIds);
+                    localPermissionCache.putRole(remoteKeys.get(i), permissionIds);
+                    found.put(remoteRoles.get(i), permissionIds);
+                } catch (RuntimeException e) {
+                    log.warn("Ignoring undecodable role permissions entry {}: {}", remoteKeys.get(i), e.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error retrieving cached permissions for {} roles: {}", remoteKeys.size(), e.getMessage());
+        }
+        
+        return found;
+    }
+    
+    // Roles the loader did not return (no permissions, or unknown in this domain) are cached as empty sets
+    private Map<String, BitSet> cacheRolePermissions(Map<String, List<String>> loaded, Collection<String> roleNames,
+                                                     String tenantId, String resourceDomain) {
+        PermissionDictionary.Namespace permissionNamespace = permissionDictionary.namespace(tenantId, resourceDomain, PermissionDictionary.Kind.PERMISSION);
+        String keyPrefix = buildPermissionsKeyPrefix(tenantId, resourceDomain);
+        Map<String, BitSet> rolePermissions = new HashMap<>();
+        Map<String, byte[]> values = new HashMap<>();
+        
+        for (String roleName : roleNames) {
+            String roleKey = LocalPermissionCache.roleKey(keyPrefix, roleName);
+            BitSet permissionIds = permissionNamespace.encode(loaded.getOrDefault(roleName, List.of()));
+            rolePermissions.put(roleName, permissionIds);
+            values.put(roleKey, permissionEntryCodec.encodeIdSet(permissionIds, permissionNamespace.epoch()));
+            localPermissionCache.putRole(roleKey, permissionIds);
+        }
+        
+        writePipelined(values, roleKey -> refreshPolicy.roleSetTtlMillis(tenantId));
+        return rolePermissions;
+    }
+    
+    // Pipelined SET ... PX so that a whole batch costs a single round trip
+    private void writePipelined(Map<String, byte[]> values, ToLongFunction<String> ttlMillis) {
+        if (values.isEmpty()) {
+            return;
+        }
+        try {
+            binaryRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    values.forEach((key, value) -> operations.opsForValue().set(key, value, ttlMillis.applyAsLong(key), TimeUnit.MILLISECONDS));
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            log.error("Error caching {} permission entries: {}", values.size(), e.getMessage());
+        }
+    }
+    
+    // {generation prefix}{dictionary epoch}: entries are only readable within the epoch their ids were interned in
+    private String buildPermissionsKeyPrefix(String tenantId, String resourceDomain) {
+        return cacheGenerations.keyPrefix(CacheGenerations.Kind.PERMISSIONS, tenantId, resourceDomain)
+            + Long.toString(permissionDictionary.epoch(tenantId, resourceDomain), 36) + ":";
     }
     
-    // Helper methods
     private String buildPermissionsKey(UUID userId, String tenantId, String resourceDomain) {
-        return PERMISSIONS_KEY_PREFIX + tenantId + ":" + resourceDomain + ":" + userId;
+        return buildPermissionsKeyPrefix(tenantId, resourceDomain) + userId;
+    }
+    
+    // A single undecodable entry (older format, corruption) is a miss for that user only, not for the whole batch
+    private CompactPermissionsEntry decodeOrNull(byte[] value, String key) {
+        try {
+            return permissionEntryCodec.decode(value);
+        } catch (RuntimeException e) {
+            log.warn("Ignoring undecodable permissions entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+    
+    private String buildLoadLockKey(UUID userId, String tenantId, String resourceDomain) {
+        return LOAD_LOCK_KEY_PREFIX + tenantId + ":" + resourceDomain + ":" + userId;
     }
     
     private String buildSessionKey(UUID userId, String tenantId, String resourceDomain) {
-        return SESSION_KEY_PREFIX + tenantId + ":" + resourceDomain + ":" + userId;
+        return cacheGenerations.keyPrefix(CacheGenerations.Kind.SESSIONS, tenantId, resourceDomain) + userId;
     }
     
     private String buildSessionKey(UUID userId, String sessionId, String tenantId, String resourceDomain) {
-        return SESSION_KEY_PREFIX + tenantId + ":" + resourceDomain + ":" + userId + ":" + sessionId;
+        return buildSessionKey(userId, tenantId, resourceDomain) + ":" + sessionId;
+    }
+    
+    private String buildBlacklistKey(String jti) {
+        return cacheGenerations.keyPrefix(CacheGenerations.Kind.BLACKLIST) + jti;
     }
 }
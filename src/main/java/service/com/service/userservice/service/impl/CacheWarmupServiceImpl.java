@@ -0,0 +1,289 @@
+package service.com.service.userservice.service.impl;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import service.com.service.userservice.dto.CacheWarmupStatus;
+import service.com.service.userservice.repository.UserRepository;
+import service.com.service.userservice.service.CacheService;
+import service.com.service.userservice.service.CacheWarmupService;
+import service.com.service.userservice.service.UserService;
+import service.com.service.userservice.utils.WorkerThreads;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Bulk permission cache warm-up: pages through the ids of active users in id order, loads their grants a batch at a
+// time with one set-based query per batch and writes each batch to Redis in a single pipeline. Every page is a short
+// query of its own, so no connection is held while pacing or waiting for workers. Batches run on a small worker
+// pool; the number of batches in flight and the users written per second are both bounded.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheWarmupServiceImpl implements CacheWarmupService {
+    
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final CacheService cacheService;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.cache.warmup.on-startup:true}")
+    private boolean warmupOnStartup;
+    
+    // tenant:domain pairs; empty means every tenant and domain with active users
+    @Value("${app.cache.warmup.targets:}")
+    private List<String> startupTargets;
+    
+    // Only the first node to start within this window warms a given tenant/domain
+    @Value("${app.cache.warmup.startup-claim-ttl-ms:900000}")
+    private long startupClaimTtlMillis;
+    
+    @Value("${app.cache.warmup.batch-size:500}")
+    private int batchSize;
+    
+    @Value("${app.cache.warmup.concurrency:2}")
+    private int concurrency;
+    
+    // 0 disables the rate budget
+    @Value("${app.cache.warmup.max-users-per-second:2000}")
+    private int maxUsersPerSecond;
+    
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+    
+    private final ConcurrentMap<String, WarmupJob> jobs = new ConcurrentHashMap<>();
+    
+    // Jobs run one at a time; their batches share the worker pool, whose size still bounds the load on Postgres and
+    // Redis when the workers are virtual threads
+    private ExecutorService jobExecutor;
+    private ExecutorService batchExecutor;
+    private Timer batchTimer;
+    
+    @PostConstruct
+    void init() {
+        jobExecutor = Executors.newSingleThreadExecutor(WorkerThreads.blocking("permission-warmup", virtualThreads));
+        batchExecutor = Executors.newFixedThreadPool(concurrency, WorkerThreads.blocking("permission-warmup-batch", virtualThreads));
+        batchTimer = meterRegistry.timer("permissions.warmup.batch");
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        jobExecutor.shutdownNow();
+        batchExecutor.shutdownNow();
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmupOnStartup() {
+        if (!warmupOnStartup) {
+            return;
+        }
+        
+        try {
+            List<String[]> targets = startupTargets.stream()
+                .filter(target -> !target.isBlank())
+                .map(target -> target.trim().split(":", 2))
+                .collect(Collectors.toCollection(ArrayList::new));
+            if (targets.isEmpty()) {
+                userRepository.findTenantDomainsWithActiveUsers()
+                    .forEach(target -> targets.add(new String[] {target.getTenantId(), target.getResourceDomain()}));
+            }
+            
+            log.info("Scheduling permission cache warm-up for {} tenant/domain pairs", targets.size());
+            for (String[] target : targets) {
+                if (cacheService.tryClaimStartupWarmup(target[0], target[1], startupClaimTtlMillis)) {
+                    startWarmup(target[0], target[1]);
+                } else {
+                    log.info("Skipping startup warm-up for tenant {} and domain {}: already claimed by another node", target[0], target[1]);
+                }
+            }
+        } catch (Exception e) {
+            log.error("Could not schedule permission cache warm-up: {}", e.getMessage());
+        }
+    }
+    
+    @Override
+    public CacheWarmupStatus startWarmup(String tenantId, String resourceDomain) {
+        WarmupJob job = new WarmupJob(tenantId, resourceDomain);
+        WarmupJob current = jobs.compute(jobKey(tenantId, resourceDomain),
+            (key, existing) -> existing != null && existing.isActive() ? existing : job);
+        
+        if (current == job) {
+            log.info("Queued permission cache warm-up for tenant {} and domain {}", tenantId, resourceDomain);
+            jobExecutor.execute(() -> run(job));
+        }
+        return current.toStatus();
+    }
+    
+    @Override
+    public CacheWarmupStatus getWarmupStatus(String tenantId, String resourceDomain) {
+        WarmupJob job = jobs.get(jobKey(tenantId, resourceDomain));
+        return job != null ? job.toStatus() : null;
+    }
+    
+    @Override
+    public List<CacheWarmupStatus> getAllWarmupStatuses() {
+        return jobs.values().stream()
+            .map(WarmupJob::toStatus)
+            .sorted(Comparator.comparing(CacheWarmupStatus::getTenantId).thenComparing(CacheWarmupStatus::getResourceDomain))
+            .collect(Collectors.toList());
+    }
+    
+    private void run(WarmupJob job) {
+        // Bounds queued plus running batches so that paging never runs far ahead of the workers
+        int maxInFlight = concurrency * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        
+        try {
+            job.start(userRepository.countByTenantIdAndResourceDomainAndIsActive(job.tenantId, job.resourceDomain, true));
+            
+            PageRequest page = PageRequest.ofSize(batchSize);
+            List<UUID> batch = userRepository.findFirstActiveUserIdsByDomain(job.tenantId, job.resourceDomain, page);
+            while (!batch.isEmpty()) {
+                submit(job, batch, inFlight);
+                if (batch.size() < batchSize) {
+                    break;
+                }
+                batch = userRepository.findActiveUserIdsAfterByDomain(job.tenantId, job.resourceDomain, batch.get(batch.size() - 1), page);
+            }
+            
+            inFlight.acquire(maxInFlight);
+            job.finish(null);
+            log.info("Permission cache warm-up for tenant {} and domain {} finished: {} users in {} ms ({} failed batches)",
+                job.tenantId, job.resourceDomain, job.warmedUsers.get(), job.elapsedMillis(), job.failedBatches.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.finish("interrupted");
+        } catch (RuntimeException e) {
+            log.error("Permission cache warm-up for tenant {} and domain {} failed: {}", job.tenantId, job.resourceDomain, e.getMessage());
+            job.finish(e.getMessage());
+        }
+    }
+    
+    private void submit(WarmupJob job, List<UUID> batch, Semaphore inFlight) {
+        try {
+            pace(job, batch.size());
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Warm-up interrupted", e);
+        }
+        
+        batchExecutor.execute(() -> {
+            try {
+                int warmed = batchTimer.record(() -> userService.preloadUserPermissions(batch, job.tenantId, job.resourceDomain));
+                job.warmedUsers.addAndGet(warmed);
+                job.completedBatches.incrementAndGet();
+                meterRegistry.counter("permissions.warmup.users", "tenant", job.tenantId).increment(warmed);
+            } catch (RuntimeException e) {
+                job.failedBatches.incrementAndGet();
+                log.warn("Permission cache warm-up batch of {} users for tenant {} failed: {}", batch.size(), job.tenantId, e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+    
+    // Rate budget: the n-th user may not be submitted before n / maxUsersPerSecond seconds into the job
+    private void pace(WarmupJob job, int batchUsers) throws InterruptedException {
+        long submitted = job.submittedUsers.getAndAdd(batchUsers);
+        if (maxUsersPerSecond <= 0) {
+            return;
+        }
+        long dueNanos = job.startedNanos + TimeUnit.SECONDS.toNanos(submitted) / maxUsersPerSecond;
+        long waitNanos = dueNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+    
+    private static String jobKey(String tenantId, String resourceDomain) {
+        return tenantId + ":" + resourceDomain;
+    }
+    
+    private static final class WarmupJob {
+        
+        private final String tenantId;
+        private final String resourceDomain;
+        private final AtomicLong submittedUsers = new AtomicLong();
+        private final AtomicLong warmedUsers = new AtomicLong();
+        private final AtomicLong completedBatches = new AtomicLong();
+        private final AtomicLong failedBatches = new AtomicLong();
+        
+        private volatile CacheWarmupStatus.State state = CacheWarmupStatus.State.QUEUED;
+        private volatile long totalUsers;
+        private volatile long startedNanos;
+        private volatile long finishedNanos;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile String error;
+        
+        private WarmupJob(String tenantId, String resourceDomain) {
+            this.tenantId = tenantId;
+            this.resourceDomain = resourceDomain;
+        }
+        
+        private boolean isActive() {
+            return state == CacheWarmupStatus.State.QUEUED || state == CacheWarmupStatus.State.RUNNING;
+        }
+        
+        private void start(long totalUsers) {
+            this.totalUsers = totalUsers;
+            startedNanos = System.nanoTime();
+            startedAt = LocalDateTime.now();
+            state = CacheWarmupStatus.State.RUNNING;
+        }
+        
+        private void finish(String error) {
+            this.error = error;
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            state = error == null ? CacheWarmupStatus.State.COMPLETED : CacheWarmupStatus.State.FAILED;
+        }
+        
+        private long elapsedMillis() {
+            if (startedAt == null) {
+                return 0;
+            }
+            long end = finishedAt != null ? finishedNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - startedNanos);
+        }
+        
+        private CacheWarmupStatus toStatus() {
+            long elapsedMillis = elapsedMillis();
+            long warmed = warmedUsers.get();
+            return CacheWarmupStatus.builder()
+                .tenantId(tenantId)
+                .resourceDomain(resourceDomain)
+                .state(state)
+                .totalUsers(totalUsers)
+                .warmedUsers(warmed)
+                .completedBatches(completedBatches.get())
+                .failedBatches(failedBatches.get())
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .elapsedMillis(elapsedMillis)
+                .usersPerSecond(elapsedMillis > 0 ? warmed * 1000.0 / elapsedMillis : 0)
+                .error(error)
+                .build();
+        }
+    }
+}
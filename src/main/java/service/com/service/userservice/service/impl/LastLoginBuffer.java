@@ -0,0 +1,222 @@
+package service.com.service.userservice.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind buffer for last-login timestamps. A login only updates an in-memory map, striped by user id so that
+// concurrent logins rarely share a lock; repeated logins of one user coalesce into the newest timestamp. A scheduled
+// flush writes the buffer with one UPDATE ... FROM (VALUES ...) per tenant and batch, and the buffer is drained on
+// shutdown. Rows only move forward in time, so flushes from several nodes can interleave safely. Failed batches are
+// retried up to max-attempts flushes, and the buffer holds at most max-pending users; anything beyond is dropped
+// and counted under users.last-login.dropped.
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LastLoginBuffer {
+    
+    // The version (and ETag) is left alone, so that a login does not invalidate every cached copy of the user
+    private static final String UPDATE_SQL_PREFIX =
+        "UPDATE users u SET last_login_at = v.last_login_at FROM (VALUES ";
+    private static final String VALUES_ROW = "(CAST(? AS uuid), CAST(? AS timestamp))";
+    private static final String UPDATE_SQL_SUFFIX = ") AS v(id, last_login_at) " +
+        "WHERE u.id = v.id AND u.tenant_id = ? AND (u.last_login_at IS NULL OR u.last_login_at < v.last_login_at)";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.users.last-login.max-batch-size:500}")
+    private int maxBatchSize = 500;
+    
+    @Value("${app.users.last-login.stripes:16}")
+    private int stripeCount = 16;
+    
+    @Value("${app.users.last-login.max-attempts:5}")
+    private int maxAttempts = 5;
+    
+    @Value("${app.users.last-login.max-pending:100000}")
+    private int maxPending = 100000;
+    
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicInteger pending = new AtomicInteger();
+    
+    private Stripe[] stripes;
+    private Timer flushLag;
+    private DistributionSummary flushBatchSize;
+    private Counter flushFailures;
+    private Counter droppedRetries;
+    private Counter droppedFull;
+    
+    @PostConstruct
+    void init() {
+        // Power of two so that a stripe is picked with a mask
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        flushLag = meterRegistry.timer("users.last-login.flush.lag");
+        flushBatchSize = meterRegistry.summary("users.last-login.flush.batch");
+        flushFailures = meterRegistry.counter("users.last-login.flush.failures");
+        droppedRetries = meterRegistry.counter("users.last-login.dropped", "reason", "retries");
+        droppedFull = meterRegistry.counter("users.last-login.dropped", "reason", "full");
+        meterRegistry.gauge("users.last-login.pending", pending);
+        log.info("Last-login buffer initialized (stripes: {}, max batch size: {})", count, maxBatchSize);
+    }
+    
+    public void record(UUID userId, String tenantId, LocalDateTime loginAt) {
+        merge(userId, new Pending(tenantId, loginAt, System.nanoTime(), 0));
+    }
+    
+    @Scheduled(initialDelayString = "${app.users.last-login.flush-interval-ms:1000}",
+               fixedDelayString = "${app.users.last-login.flush-interval-ms:1000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<String, List<Map.Entry<UUID, Pending>>> byTenant = drain();
+            if (byTenant.isEmpty()) {
+                return;
+            }
+            
+            long oldest = Long.MAX_VALUE;
+            for (List<Map.Entry<UUID, Pending>> entries : byTenant.values()) {
+                for (Map.Entry<UUID, Pending> entry : entries) {
+                    oldest = Math.min(oldest, entry.getValue().bufferedAt());
+                }
+            }
+            byTenant.forEach(this::write);
+            flushLag.record(System.nanoTime() - oldest, TimeUnit.NANOSECONDS);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        flush();
+        if (pending.get() > 0) {
+            log.warn("Dropping {} buffered last-login updates that could not be written on shutdown", pending.get());
+        }
+    }
+    
+    int pending() {
+        return pending.get();
+    }
+    
+    private void write(String tenantId, List<Map.Entry<UUID, Pending>> entries) {
+        for (int from = 0; from < entries.size(); from += maxBatchSize) {
+            List<Map.Entry<UUID, Pending>> batch = entries.subList(from, Math.min(from + maxBatchSize, entries.size()));
+            try {
+                jdbcTemplate.update(updateSql(batch.size()), ps -> {
+                    int index = 1;
+                    for (Map.Entry<UUID, Pending> entry : batch) {
+                        ps.setObject(index++, entry.getKey());
+                        ps.setTimestamp(index++, Timestamp.valueOf(entry.getValue().loginAt()));
+                    }
+                    ps.setString(index, tenantId);
+                });
+                flushBatchSize.record(batch.size());
+            } catch (DataAccessException e) {
+                // Kept for the next flush until max-attempts; a newer login recorded meanwhile still wins
+                flushFailures.increment();
+                log.error("Error writing {} last-login updates for tenant {}: {}", batch.size(), tenantId, e.getMessage());
+                for (Map.Entry<UUID, Pending> entry : batch) {
+                    Pending failed = entry.getValue();
+                    if (failed.attempts() + 1 >= maxAttempts) {
+                        droppedRetries.increment();
+                    } else {
+                        merge(entry.getKey(), new Pending(tenantId, failed.loginAt(), failed.bufferedAt(), failed.attempts() + 1));
+                    }
+                }
+            }
+        }
+    }
+    
+    // Swaps every stripe's map for an empty one and groups the taken entries by tenant
+    private Map<String, List<Map.Entry<UUID, Pending>>> drain() {
+        Map<String, List<Map.Entry<UUID, Pending>>> byTenant = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            Map<UUID, Pending> taken;
+            stripe.lock.lock();
+            try {
+                if (stripe.entries.isEmpty()) {
+                    continue;
+                }
+                taken = stripe.entries;
+                stripe.entries = new HashMap<>();
+                pending.addAndGet(-taken.size());
+            } finally {
+                stripe.lock.unlock();
+            }
+            taken.entrySet().forEach(entry ->
+                byTenant.computeIfAbsent(entry.getValue().tenantId(), tenant -> new ArrayList<>()).add(entry));
+        }
+        return byTenant;
+    }
+    
+    // Keeps the newest login of a user, the time its oldest unwritten login was buffered and its failed flushes
+    private void merge(UUID userId, Pending update) {
+        Stripe stripe = stripes[(userId.hashCode() ^ (userId.hashCode() >>> 16)) & (stripes.length - 1)];
+        stripe.lock.lock();
+        try {
+            Pending existing = stripe.entries.get(userId);
+            if (existing == null) {
+                // Checked without the other stripes' locks, so the bound may be overshot by a few entries
+                if (pending.get() >= maxPending) {
+                    droppedFull.increment();
+                    return;
+                }
+                stripe.entries.put(userId, update);
+                pending.incrementAndGet();
+            } else {
+                LocalDateTime loginAt = update.loginAt().isAfter(existing.loginAt()) ? update.loginAt() : existing.loginAt();
+                long bufferedAt = Math.min(existing.bufferedAt(), update.bufferedAt());
+                int attempts = Math.max(existing.attempts(), update.attempts());
+                stripe.entries.put(userId, new Pending(update.tenantId(), loginAt, bufferedAt, attempts));
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+    
+    private static String updateSql(int rows) {
+        StringBuilder sql = new StringBuilder(UPDATE_SQL_PREFIX.length() + rows * (VALUES_ROW.length() + 2) + UPDATE_SQL_SUFFIX.length());
+        sql.append(UPDATE_SQL_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append(VALUES_ROW);
+        }
+        return sql.append(UPDATE_SQL_SUFFIX).toString();
+    }
+    
+    private record Pending(String tenantId, LocalDateTime loginAt, long bufferedAt, int attempts) {
+    }
+    
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<UUID, Pending> entries = new HashMap<>();
+    }
+}
@@ -0,0 +1,290 @@
+package service.com.service.userservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.com.service.userservice.dto.CreateUserRequest;
+import service.com.service.userservice.dto.UserImportResult;
+import service.com.service.userservice.exception.InvalidImportException;
+import service.com.service.userservice.repository.UserRepository;
+import service.com.service.userservice.service.UserImportService;
+import service.com.service.userservice.utils.UserImportReader;
+import service.com.service.userservice.utils.WorkerThreads;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Bulk user import: rows are parsed and validated as they stream in and collected into chunks. Per chunk, usernames
+// and emails are checked for duplicates within the chunk and against the database with one query each, passwords
+// are hashed on a bounded worker pool and the users are written with a single JDBC batch insert. Earlier chunks are
+// committed by then, so the database check also catches duplicates across chunks without keeping every username
+// of the upload in memory; the unique constraints cover whatever slips past both.
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserImportServiceImpl implements UserImportService {
+    
+    private static final String INSERT_USER_SQL =
+        "INSERT INTO users (id, tenant_id, resource_domain, username, email, password_hash, first_name, last_name, " +
+        "is_active, is_email_verified, created_at, updated_at, created_by) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, FALSE, ?, ?, ?)";
+    
+    private static final String CREATED_BY = "import";
+    
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final PasswordEncoder passwordEncoder;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    
+    @Value("${app.users.import.batch-size:1000}")
+    private int batchSize = 1000;
+    
+    // 0 sizes the hashing pool to the available cores
+    @Value("${app.users.import.hash-threads:0}")
+    private int hashThreads;
+    
+    @Value("${app.users.import.max-reported-errors:1000}")
+    private int maxReportedErrors = 1000;
+    
+    // Shared by all imports; each import has at most one chunk of hashes queued
+    private ExecutorService hashExecutor;
+    private Timer chunkTimer;
+    
+    @PostConstruct
+    void init() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        // BCrypt is CPU-bound, so the pool stays on platform threads even in virtual-thread mode
+        hashExecutor = Executors.newFixedThreadPool(threads, WorkerThreads.platform("user-import-hash"));
+        chunkTimer = meterRegistry.timer("users.import.chunk");
+        log.info("User import initialized (batch size: {}, hash threads: {})", batchSize, threads);
+    }
+    
+    @PreDestroy
+    void shutdown() {
+        hashExecutor.shutdownNow();
+    }
+    
+    @Override
+    public UserImportResult importUsers(InputStream input, MediaType contentType, String tenantId, String resourceDomain) {
+        log.info("Importing users ({}) for tenant: {} and domain: {}", contentType, tenantId, resourceDomain);
+        
+        ImportRun run = new ImportRun(tenantId, resourceDomain);
+        try (UserImportReader reader = UserImportReader.open(contentType, input, objectMapper)) {
+            List<PendingUser> chunk = new ArrayList<>(batchSize);
+            for (UserImportReader.Row row = reader.next(); row != null; row = reader.next()) {
+                run.totalRows++;
+                String error = row.error() != null ? row.error() : validate(row.request());
+                if (error != null) {
+                    run.fail(row.number(), row.request() != null ? row.request().getUsername() : null, error);
+                    continue;
+                }
+                
+                chunk.add(new PendingUser(row.number(), row.request()));
+                if (chunk.size() == batchSize) {
+                    importChunk(chunk, run);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, run);
+            }
+        } catch (IOException e) {
+            throw new InvalidImportException("Could not read import: " + e.getMessage(), e);
+        }
+        
+        UserImportResult result = run.toResult();
+        meterRegistry.counter("users.import.rows", "outcome", "imported").increment(result.getImportedRows());
+        meterRegistry.counter("users.import.rows", "outcome", "failed").increment(result.getFailedRows());
+        log.info("Imported {} of {} users for tenant {} and domain {} in {} ms ({} rows/s)",
+            result.getImportedRows(), result.getTotalRows(), tenantId, resourceDomain,
+            result.getElapsedMillis(), Math.round(result.getRowsPerSecond()));
+        return result;
+    }
+    
+    private String validate(CreateUserRequest request) {
+        Set<ConstraintViolation<CreateUserRequest>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+            .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining("; "));
+    }
+    
+    private void importChunk(List<PendingUser> chunk, ImportRun run) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        
+        // Usernames and emails are unique per tenant, whatever the domain
+        Set<String> takenUsernames = new HashSet<>(userRepository.findExistingUsernames(run.tenantId,
+            chunk.stream().map(user -> user.request.getUsername()).toList()));
+        Set<String> takenEmails = new HashSet<>(userRepository.findExistingEmails(run.tenantId,
+            chunk.stream().map(user -> user.request.getEmail()).toList()));
+        
+        Set<String> chunkUsernames = new HashSet<>();
+        Set<String> chunkEmails = new HashSet<>();
+        List<PendingUser> accepted = new ArrayList<>(chunk.size());
+        for (PendingUser user : chunk) {
+            String username = user.request.getUsername();
+            String email = user.request.getEmail();
+            if (!chunkUsernames.add(username)) {
+                run.fail(user.row, username, "Duplicate username in upload: " + username);
+            } else if (!chunkEmails.add(email)) {
+                run.fail(user.row, username, "Duplicate email in upload: " + email);
+            } else if (takenUsernames.contains(username)) {
+                run.fail(user.row, username, "Username already exists: " + username);
+            } else if (takenEmails.contains(email)) {
+                run.fail(user.row, username, "Email already exists: " + email);
+            } else {
+                accepted.add(user);
+            }
+        }
+        
+        insert(hashPasswords(accepted, run), run);
+        sample.stop(chunkTimer);
+    }
+    
+    // Returns the users whose password was hashed; the others are reported as failed rows
+    private List<PendingUser> hashPasswords(List<PendingUser> users, ImportRun run) {
+        List<CompletableFuture<Void>> hashes = users.stream()
+            .map(user -> CompletableFuture.runAsync(
+                () -> user.passwordHash = passwordEncoder.encode(user.request.getPassword()), hashExecutor))
+            .toList();
+        
+        List<PendingUser> hashed = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            PendingUser user = users.get(i);
+            try {
+                hashes.get(i).join();
+                hashed.add(user);
+            } catch (CompletionException | CancellationException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.warn("Could not hash password for import row {} of tenant {}: {}", user.row, run.tenantId, cause.toString());
+                run.fail(user.row, user.request.getUsername(), "Could not hash password: " + cause.getMessage());
+            }
+        }
+        return hashed;
+    }
+    
+    private void insert(List<PendingUser> users, ImportRun run) {
+        if (users.isEmpty()) {
+            return;
+        }
+        
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(INSERT_USER_SQL, users, users.size(), (ps, user) -> bind(ps, user, run, now)));
+            run.importedRows += users.size();
+        } catch (DuplicateKeyException e) {
+            // A concurrent write took a username or email after the check; insert one by one to find the rows affected
+            log.warn("Batch insert of {} users for tenant {} hit a unique constraint, retrying row by row", users.size(), run.tenantId);
+            for (PendingUser user : users) {
+                try {
+                    jdbcTemplate.update(INSERT_USER_SQL, ps -> bind(ps, user, run, now));
+                    run.importedRows++;
+                } catch (DuplicateKeyException rowError) {
+                    run.fail(user.row, user.request.getUsername(), "Username or email already exists");
+                }
+            }
+        }
+    }
+    
+    private static void bind(PreparedStatement ps, PendingUser user, ImportRun run, Timestamp now) throws SQLException {
+        CreateUserRequest request = user.request;
+        ps.setObject(1, UUID.randomUUID());
+        ps.setString(2, run.tenantId);
+        ps.setString(3, run.resourceDomain);
+        ps.setString(4, request.getUsername());
+        ps.setString(5, request.getEmail());
+        ps.setString(6, user.passwordHash);
+        ps.setString(7, request.getFirstName());
+        ps.setString(8, request.getLastName());
+        ps.setBoolean(9, request.getIsActive() == null || request.getIsActive());
+        ps.setTimestamp(10, now);
+        ps.setTimestamp(11, now);
+        ps.setString(12, CREATED_BY);
+    }
+    
+    private static final class PendingUser {
+        
+        private final long row;
+        private final CreateUserRequest request;
+        private volatile String passwordHash;
+        
+        private PendingUser(long row, CreateUserRequest request) {
+            this.row = row;
+            this.request = request;
+        }
+    }
+    
+    private final class ImportRun {
+        
+        private final String tenantId;
+        private final String resourceDomain;
+        private final long startedNanos = System.nanoTime();
+        private final List<UserImportResult.UserImportError> errors = new ArrayList<>();
+        private long totalRows;
+        private long importedRows;
+        private long failedRows;
+        
+        private ImportRun(String tenantId, String resourceDomain) {
+            this.tenantId = tenantId;
+            this.resourceDomain = resourceDomain;
+        }
+        
+        private void fail(long row, String username, String message) {
+            failedRows++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new UserImportResult.UserImportError(row, username, message));
+            }
+        }
+        
+        private UserImportResult toResult() {
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+            return UserImportResult.builder()
+                .tenantId(tenantId)
+                .resourceDomain(resourceDomain)
+                .totalRows(totalRows)
+                .importedRows(importedRows)
+                .failedRows(failedRows)
+                .elapsedMillis(elapsedMillis)
+                .rowsPerSecond(elapsedMillis > 0 ? totalRows * 1000.0 / elapsedMillis : 0)
+                .errors(errors)
+                .build();
+        }
+    }
+}
@@ -2,27 +2,53 @@ package service.com.service.userservice.service.impl;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import service.com.service.userservice.cache.CatalogCache;
+import service.com.service.userservice.cache.EffectivePermissions;
+import service.com.service.userservice.cache.PermissionRefreshPolicy;
+import service.com.service.userservice.cache.PermissionRefresher;
+import service.com.service.userservice.cache.UserGrants;
+import service.com.service.userservice.datasource.ReplicaRead;
 import service.com.service.userservice.dto.*;
 import service.com.service.userservice.entity.User;
 import service.com.service.userservice.entity.Role;
 import service.com.service.userservice.entity.Permission;
 import service.com.service.userservice.exception.UserNotFoundException;
 import service.com.service.userservice.exception.UserAlreadyExistsException;
+import service.com.service.userservice.exception.VersionMismatchException;
 import service.com.service.userservice.exception.InvalidCredentialsException;
+import service.com.service.userservice.mapper.DtoMapper;
 import service.com.service.userservice.repository.UserRepository;
 import service.com.service.userservice.repository.RoleRepository;
 import service.com.service.userservice.repository.PermissionRepository;
+import service.com.service.userservice.repository.projection.RolePermissionView;
+import service.com.service.userservice.repository.projection.UserGrantView;
+import service.com.service.userservice.repository.projection.UserVersionView;
+import service.com.service.userservice.repository.projection.UserView;
 import service.com.service.userservice.service.UserService;
 import service.com.service.userservice.service.CacheService;
+import service.com.service.userservice.utils.SingleFlight;
+import service.com.service.userservice.utils.UserCursor;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -34,8 +60,42 @@ public class UserServiceImpl implements UserService {
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
     private final CacheService cacheService;
-    private final ModelMapper modelMapper;
+    private final CatalogCache catalogCache;
+    private final LastLoginBuffer lastLoginBuffer;
+    private final DtoMapper dtoMapper;
     private final PasswordEncoder passwordEncoder;
+    private final PermissionRefreshPolicy refreshPolicy;
+    private final PermissionRefresher permissionRefresher;
+    
+    // Concurrent misses for the same user share one database load on this node
+    private final SingleFlight<String, EffectivePermissions> permissionLoads = new SingleFlight<>();
+    
+    @Value("${app.users.page.default-size:50}")
+    private int defaultPageSize = 50;
+    
+    @Value("${app.users.page.max-size:500}")
+    private int maxPageSize = 500;
+    
+    @Value("${app.users.search.default-limit:20}")
+    private int defaultSearchLimit = 20;
+    
+    @Value("${app.users.search.max-limit:100}")
+    private int maxSearchLimit = 100;
+    
+    @Value("${app.users.search.max-offset:1000}")
+    private int maxSearchOffset = 1000;
+    
+    @Value("${app.cache.permissions.load-lock.enabled:false}")
+    private boolean permissionsLoadLockEnabled;
+    
+    @Value("${app.cache.permissions.load-lock.ttl-ms:2000}")
+    private long permissionsLoadLockTtlMillis;
+    
+    @Value("${app.cache.permissions.load-lock.wait-ms:500}")
+    private long permissionsLoadLockWaitMillis;
+    
+    @Value("${app.cache.permissions.load-lock.poll-ms:25}")
+    private long permissionsLoadLockPollMillis;
     
     @Override
     public UserDto createUser(CreateUserRequest request, String tenantId, String resourceDomain) {
@@ -71,15 +131,21 @@ public class UserServiceImpl implements UserService {
         User savedUser = userRepository.save(user);
         
         log.info("User created successfully with ID: {}", savedUser.getId());
-        return modelMapper.map(savedUser, UserDto.class);
+        return dtoMapper.toDto(savedUser);
     }
     
     @Override
-    public UserDto updateUser(UUID userId, UpdateUserRequest request, String tenantId, String resourceDomain) {
+    public UserDto updateUser(UUID userId, UpdateUserRequest request, Long expectedVersion, String tenantId, String resourceDomain) {
         log.info("Updating user with ID: {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
         User user = getUserEntity(userId, tenantId, resourceDomain);
         
+        // The client edited an older version; applying its change would overwrite one it has not seen
+        if (expectedVersion != null && !expectedVersion.equals(user.getVersion())) {
+            throw new VersionMismatchException("User " + userId + " is at version " + user.getVersion() +
+                ", not " + expectedVersion);
+        }
+        
         // Update fields if provided
         if (request.getEmail() != null) {
             // Check if email already exists for another user
@@ -112,13 +178,14 @@ public class UserServiceImpl implements UserService {
         
         user.setUpdatedBy("system");
         
-        User updatedUser = userRepository.save(user);
+        // Flushed here so that the returned DTO carries the incremented version; a concurrent update fails the flush
+        User updatedUser = userRepository.saveAndFlush(user);
         
         // Evict permissions cache
         cacheService.evictUserPermissionsCache(userId, tenantId, resourceDomain);
         
         log.info("User updated successfully with ID: {}", userId);
-        return modelMapper.map(updatedUser, UserDto.class);
+        return dtoMapper.toDto(updatedUser);
     }
     
     @Override
@@ -140,8 +207,9 @@ public class UserServiceImpl implements UserService {
     public UserDto getUserById(UUID userId, String tenantId, String resourceDomain) {
         log.debug("Getting user with ID: {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
-        User user = getUserEntity(userId, tenantId, resourceDomain);
-        return modelMapper.map(user, UserDto.class);
+        return userRepository.findViewByIdAndDomain(userId, tenantId, resourceDomain)
+            .map(UserView::toDto)
+            .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + userId));
     }
     
     @Override
@@ -149,34 +217,114 @@ public class UserServiceImpl implements UserService {
     public UserDto getUserByUsername(String username, String tenantId, String resourceDomain) {
         log.debug("Getting user with username: {} for tenant: {} and domain: {}", username, tenantId, resourceDomain);
         
-        User user = userRepository.findByUsernameAndTenantIdAndResourceDomain(username, tenantId, resourceDomain)
+        return userRepository.findViewByUsernameAndDomain(username, tenantId, resourceDomain)
+            .map(UserView::toDto)
             .orElseThrow(() -> new UserNotFoundException("User not found with username: " + username));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public UserVersionView getUserVersion(UUID userId, String tenantId, String resourceDomain) {
+        return userRepository.findVersionByIdAndDomain(userId, tenantId, resourceDomain)
+            .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + userId));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public long getPermissionsVersion(UUID userId, String tenantId, String resourceDomain) {
+        return userRepository.findPermissionsVersionByIdAndDomain(userId, tenantId, resourceDomain)
+            .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + userId));
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    @ReplicaRead
+    public UserPageResponse getUsersPage(String cursor, Integer limit, String tenantId, String resourceDomain) {
+        int size = limit != null ? Math.max(1, Math.min(limit, maxPageSize)) : defaultPageSize;
+        log.debug("Getting page of {} users for tenant: {} and domain: {}", size, tenantId, resourceDomain);
+        
+        // One extra row tells whether another page follows without a count query
+        PageRequest pageRequest = PageRequest.ofSize(size + 1);
+        List<UserView> users;
+        if (cursor == null || cursor.isBlank()) {
+            users = userRepository.findFirstPageByDomain(tenantId, resourceDomain, pageRequest);
+        } else {
+            UserCursor after = UserCursor.decode(cursor);
+            users = userRepository.findPageAfterByDomain(tenantId, resourceDomain, after.createdAt(), after.id(), pageRequest);
+        }
         
-        return modelMapper.map(user, UserDto.class);
+        boolean hasMore = users.size() > size;
+        List<UserView> page = hasMore ? users.subList(0, size) : users;
+        UserView last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return UserPageResponse.builder()
+            .users(page.stream()
+                .map(UserView::toDto)
+                .collect(Collectors.toList()))
+            .size(page.size())
+            .hasMore(hasMore)
+            .nextCursor(hasMore ? new UserCursor(last.createdAt(), last.id()).encode() : null)
+            .build();
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<UserDto> getAllUsers(String tenantId, String resourceDomain) {
-        log.debug("Getting all users for tenant: {} and domain: {}", tenantId, resourceDomain);
+    @ReplicaRead
+    public long exportUsers(String tenantId, String resourceDomain, Consumer<UserDto> consumer) {
+        log.info("Exporting users for tenant: {} and domain: {}", tenantId, resourceDomain);
+        
+        long exported = 0;
+        // Rows are read as projections, so nothing accumulates in the persistence context however large the tenant is
+        try (Stream<UserView> users = userRepository.streamByDomain(tenantId, resourceDomain)) {
+            Iterator<UserView> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next().toDto());
+                exported++;
+            }
+        }
         
-        List<User> users = userRepository.findByTenantIdAndResourceDomain(tenantId, resourceDomain);
-        return users.stream()
-            .map(user -> modelMapper.map(user, UserDto.class))
-            .collect(Collectors.toList());
+        log.info("Exported {} users for tenant: {} and domain: {}", exported, tenantId, resourceDomain);
+        return exported;
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<UserDto> searchUsers(String searchTerm, String tenantId, String resourceDomain) {
+    @ReplicaRead
+    public List<UserDto> searchUsers(String searchTerm, Integer limit, Integer offset, String tenantId, String resourceDomain) {
         log.debug("Searching users with term: {} for tenant: {} and domain: {}", searchTerm, tenantId, resourceDomain);
         
-        List<User> users = userRepository.searchUsersByDomain(tenantId, resourceDomain, searchTerm);
-        return users.stream()
-            .map(user -> modelMapper.map(user, UserDto.class))
+        if (searchTerm == null || searchTerm.isBlank()) {
+            return List.of();
+        }
+        
+        return userRepository.searchRankedByDomain(tenantId, resourceDomain, searchTerm, searchLimit(limit), searchOffset(offset))
+            .stream()
+            .map(UserView::toDto)
             .collect(Collectors.toList());
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    @ReplicaRead
+    public long searchUsers(String searchTerm, Integer limit, Integer offset, String tenantId, String resourceDomain,
+                            Consumer<UserDto> consumer) {
+        log.debug("Streaming search with term: {} for tenant: {} and domain: {}", searchTerm, tenantId, resourceDomain);
+        
+        if (searchTerm == null || searchTerm.isBlank()) {
+            return 0;
+        }
+        
+        long found = 0;
+        try (Stream<UserView> users = userRepository.streamRankedByDomain(tenantId, resourceDomain, searchTerm,
+                searchLimit(limit), searchOffset(offset))) {
+            Iterator<UserView> iterator = users.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next().toDto());
+                found++;
+            }
+        }
+        return found;
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public UserDto authenticateUser(String username, String password, String tenantId, String resourceDomain) {
@@ -193,18 +341,16 @@ public class UserServiceImpl implements UserService {
             throw new InvalidCredentialsException("User account is inactive");
         }
         
-        return modelMapper.map(user, UserDto.class);
+        return dtoMapper.toDto(user);
     }
     
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public void updateLastLogin(UUID userId, String tenantId) {
         log.debug("Updating last login for user ID: {} in tenant: {}", userId, tenantId);
         
-        User user = userRepository.findByIdAndTenantId(userId, tenantId)
-            .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + userId));
-        
-        user.setLastLoginAt(LocalDateTime.now());
-        userRepository.save(user);
+        // Written behind in batches; unknown ids are skipped by the batched update
+        lastLoginBuffer.record(userId, tenantId, LocalDateTime.now());
     }
     
     @Override
@@ -250,6 +396,7 @@ public class UserServiceImpl implements UserService {
         
         user.addRole(role);
         userRepository.save(user);
+        userRepository.incrementPermissionsVersions(List.of(userId), tenantId, resourceDomain);
         
         // Evict permissions cache
         cacheService.evictUserPermissionsCache(userId, tenantId, resourceDomain);
@@ -263,6 +410,7 @@ public class UserServiceImpl implements UserService {
         Role role = roleRepository.findByIdAndTenantIdAndResourceDomain(roleId, tenantId, resourceDomain)
             .orElseThrow(() -> new RuntimeException("Role not found with ID: " + roleId));
         
+        userRepository.incrementPermissionsVersionsPastRoles(List.of(userId), List.of(roleId), tenantId, resourceDomain);
         user.removeRole(role);
         userRepository.save(user);
         
@@ -278,9 +426,7 @@ public class UserServiceImpl implements UserService {
         User user = userRepository.findUserWithRolesAndPermissionsByDomain(userId, tenantId, resourceDomain)
             .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + userId));
         
-        return user.getRoles().stream()
-            .map(role -> modelMapper.map(role, RoleDto.class))
-            .collect(Collectors.toList());
+        return dtoMapper.toRoleDtos(user.getRoles());
     }
     
     @Override
@@ -293,6 +439,7 @@ public class UserServiceImpl implements UserService {
         
         user.addPermission(permission);
         userRepository.save(user);
+        userRepository.incrementPermissionsVersions(List.of(userId), tenantId, resourceDomain);
         
         // Evict permissions cache
         cacheService.evictUserPermissionsCache(userId, tenantId, resourceDomain);
@@ -308,20 +455,99 @@ public class UserServiceImpl implements UserService {
         
         user.removePermission(permission);
         userRepository.save(user);
+        userRepository.incrementPermissionsVersions(List.of(userId), tenantId, resourceDomain);
         
         // Evict permissions cache
         cacheService.evictUserPermissionsCache(userId, tenantId, resourceDomain);
     }
     
+    @Override
+    public int assignRoles(Collection<UUID> userIds, Collection<UUID> roleIds, String tenantId, String resourceDomain) {
+        log.info("Assigning {} roles to {} users for tenant: {} and domain: {}", roleIds.size(), userIds.size(), tenantId, resourceDomain);
+        
+        int assigned = userRepository.insertUserRoles(userIds, roleIds, tenantId, resourceDomain);
+        userRepository.incrementPermissionsVersions(userIds, tenantId, resourceDomain);
+        cacheService.evictUserPermissionsCache(userIds, tenantId, resourceDomain);
+        
+        log.info("Assigned {} user roles", assigned);
+        return assigned;
+    }
+    
+    @Override
+    public int removeRoles(Collection<UUID> userIds, Collection<UUID> roleIds, String tenantId, String resourceDomain) {
+        log.info("Removing {} roles from {} users for tenant: {} and domain: {}", roleIds.size(), userIds.size(), tenantId, resourceDomain);
+        
+        userRepository.incrementPermissionsVersionsPastRoles(userIds, roleIds, tenantId, resourceDomain);
+        int removed = userRepository.deleteUserRoles(userIds, roleIds, tenantId, resourceDomain);
+        cacheService.evictUserPermissionsCache(userIds, tenantId, resourceDomain);
+        
+        log.info("Removed {} user roles", removed);
+        return removed;
+    }
+    
+    @Override
+    public int assignPermissions(Collection<UUID> userIds, Collection<UUID> permissionIds, String tenantId, String resourceDomain) {
+        log.info("Assigning {} permissions to {} users for tenant: {} and domain: {}",
+                permissionIds.size(), userIds.size(), tenantId, resourceDomain);
+        
+        int assigned = userRepository.insertUserPermissions(userIds, permissionIds, tenantId, resourceDomain);
+        userRepository.incrementPermissionsVersions(userIds, tenantId, resourceDomain);
+        cacheService.evictUserPermissionsCache(userIds, tenantId, resourceDomain);
+        
+        log.info("Assigned {} user permissions", assigned);
+        return assigned;
+    }
+    
+    @Override
+    public int removePermissions(Collection<UUID> userIds, Collection<UUID> permissionIds, String tenantId, String resourceDomain) {
+        log.info("Removing {} permissions from {} users for tenant: {} and domain: {}",
+                permissionIds.size(), userIds.size(), tenantId, resourceDomain);
+        
+        int removed = userRepository.deleteUserPermissions(userIds, permissionIds, tenantId, resourceDomain);
+        userRepository.incrementPermissionsVersions(userIds, tenantId, resourceDomain);
+        cacheService.evictUserPermissionsCache(userIds, tenantId, resourceDomain);
+        
+        log.info("Removed {} user permissions", removed);
+        return removed;
+    }
+    
+    @Override
+    public int assignRolePermissions(UUID roleId, Collection<UUID> permissionIds, String tenantId, String resourceDomain) {
+        log.info("Assigning {} permissions to role {} for tenant: {} and domain: {}", permissionIds.size(), roleId, tenantId, resourceDomain);
+        
+        Role role = roleRepository.findByIdAndTenantIdAndResourceDomain(roleId, tenantId, resourceDomain)
+            .orElseThrow(() -> new RuntimeException("Role not found with ID: " + roleId));
+        
+        int assigned = roleRepository.insertRolePermissions(roleId, permissionIds, tenantId, resourceDomain);
+        roleRepository.incrementPermissionsVersion(role.getName(), tenantId, resourceDomain);
+        
+        // Users pick up the change through the role's permission set; other nodes drop their cached catalog
+        cacheService.evictRolePermissionsCache(role.getName(), tenantId, resourceDomain);
+        catalogCache.catalogChanged(tenantId, resourceDomain);
+        return assigned;
+    }
+    
+    @Override
+    public int removeRolePermissions(UUID roleId, Collection<UUID> permissionIds, String tenantId, String resourceDomain) {
+        log.info("Removing {} permissions from role {} for tenant: {} and domain: {}", permissionIds.size(), roleId, tenantId, resourceDomain);
+        
+        Role role = roleRepository.findByIdAndTenantIdAndResourceDomain(roleId, tenantId, resourceDomain)
+            .orElseThrow(() -> new RuntimeException("Role not found with ID: " + roleId));
+        
+        int removed = roleRepository.deleteRolePermissions(roleId, permissionIds, tenantId, resourceDomain);
+        roleRepository.incrementPermissionsVersion(role.getName(), tenantId, resourceDomain);
+        cacheService.evictRolePermissionsCache(role.getName(), tenantId, resourceDomain);
+        catalogCache.catalogChanged(tenantId, resourceDomain);
+        return removed;
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public List<PermissionDto> getUserPermissions(UUID userId, String tenantId, String resourceDomain) {
         log.debug("Getting permissions for user {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
         List<Permission> permissions = permissionRepository.findAllPermissionsByUserIdAndDomain(userId, tenantId, resourceDomain);
-        return permissions.stream()
-            .map(permission -> modelMapper.map(permission, PermissionDto.class))
-            .collect(Collectors.toList());
+        return dtoMapper.toPermissionDtos(permissions);
     }
     
     @Override
@@ -329,15 +555,24 @@ public class UserServiceImpl implements UserService {
     public UserPermissionsDto getUserPermissionsWithRoles(UUID userId, String tenantId, String resourceDomain) {
         log.debug("Getting permissions with roles for user {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
-        User user = userRepository.findUserWithRolesAndPermissionsByDomain(userId, tenantId, resourceDomain)
-            .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + userId));
-        
-        List<String> permissions = getAllPermissionStrings(userId, tenantId, resourceDomain);
-        List<String> roles = getAllRoleNames(userId, tenantId, resourceDomain);
+        // One round trip of flat rows: the username, each role name and each distinct permission string
+        String username = null;
+        List<String> roles = new ArrayList<>();
+        List<String> permissions = new ArrayList<>();
+        for (UserGrantView grant : userRepository.findEffectiveGrantsByUserIdAndDomain(userId, tenantId, resourceDomain)) {
+            switch (grant.getGrantType()) {
+                case UserGrantView.TYPE_USER -> username = grant.getGrantName();
+                case UserGrantView.TYPE_ROLE -> roles.add(grant.getGrantName());
+                default -> permissions.add(grant.getGrantName());
+            }
+        }
+        if (username == null) {
+            throw new UserNotFoundException("User not found with ID: " + userId);
+        }
         
         return UserPermissionsDto.builder()
             .userId(userId)
-            .username(user.getUsername())
+            .username(username)
             .tenantId(tenantId)
             .resourceDomain(resourceDomain)
             .permissions(permissions)
@@ -349,32 +584,64 @@ public class UserServiceImpl implements UserService {
     public void cacheUserPermissions(UUID userId, String tenantId, String resourceDomain) {
         log.info("Caching permissions for user {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
-        UserPermissionsDto permissions = getUserPermissionsWithRoles(userId, tenantId, resourceDomain);
-        cacheService.cacheUserPermissions(userId, tenantId, resourceDomain, permissions);
+        loadPermissionsFromDatabase(userId, tenantId, resourceDomain);
     }
     
     @Override
     @Transactional(readOnly = true)
+    public int preloadUserPermissions(List<UUID> userIds, String tenantId, String resourceDomain) {
+        log.debug("Preloading permissions for {} users for tenant: {} and domain: {}", userIds.size(), tenantId, resourceDomain);
+        
+        List<UserGrants> loaded = loadUserGrants(userIds, tenantId, resourceDomain);
+        return cacheService.preloadUserGrants(loaded, tenantId, resourceDomain,
+            roleNames -> loadRolePermissions(roleNames, tenantId, resourceDomain));
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public UserPermissionsDto getCachedUserPermissions(UUID userId, String tenantId, String resourceDomain) {
         log.debug("Getting cached permissions for user {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
         
-        UserPermissionsDto cachedPermissions = cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain);
-        
-        if (cachedPermissions == null) {
-            log.debug("No cached permissions found, fetching from database");
-            cachedPermissions = getUserPermissionsWithRoles(userId, tenantId, resourceDomain);
-            cacheService.cacheUserPermissions(userId, tenantId, resourceDomain, cachedPermissions);
+        return getCachedEffectivePermissions(userId, tenantId, resourceDomain).toDto();
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public UserPermissionsDto getCachedUserPermissions(UUID userId, long minVersion, String tenantId, String resourceDomain) {
+        log.debug("Getting cached permissions at version {} or later for user {} for tenant: {} and domain: {}",
+            minVersion, userId, tenantId, resourceDomain);
+        
+        EffectivePermissions permissions = getCachedEffectivePermissions(userId, tenantId, resourceDomain);
+        if (permissions.getPermissionsVersion() < minVersion) {
+            // Role permission edits do not touch user entries, and a reload racing a commit can cache older grants
+            log.debug("Cached permissions of user {} are at version {}, reloading", userId, permissions.getPermissionsVersion());
+            permissions = loadAndCachePermissions(userId, tenantId, resourceDomain);
         }
-        
-        return cachedPermissions;
+        return permissions.toDto();
     }
     
     @Override
     public void evictUserPermissionsCache(UUID userId, String tenantId, String resourceDomain) {
         log.info("Evicting permissions cache for user {} for tenant: {} and domain: {}", userId, tenantId, resourceDomain);
+        
+        // Grants changed outside this service are announced through here; clients holding an ETag refetch as well
+        userRepository.incrementPermissionsVersions(List.of(userId), tenantId, resourceDomain);
         cacheService.evictUserPermissionsCache(userId, tenantId, resourceDomain);
     }
     
+    @Override
+    public void evictRolePermissionsCache(String roleName, String tenantId, String resourceDomain) {
+        log.info("Evicting permissions cache for role {} for tenant: {} and domain: {}", roleName, tenantId, resourceDomain);
+        
+        // One row for the role, not one per holder; holders' ETags move with it
+        roleRepository.incrementPermissionsVersion(roleName, tenantId, resourceDomain);
+        cacheService.evictRolePermissionsCache(roleName, tenantId, resourceDomain);
+        
+        // Role changes made outside this service also reach the catalog through here
+        catalogCache.evictLocal();
+        catalogCache.catalogChanged(tenantId, resourceDomain);
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public boolean isUsernameAvailable(String username, String tenantId, String resourceDomain) {
@@ -388,19 +655,74 @@ public class UserServiceImpl implements UserService {
     }
     
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasPermission(UUID userId, String permission, String tenantId, String resourceDomain) {
-        UserPermissionsDto permissions = getCachedUserPermissions(userId, tenantId, resourceDomain);
+        EffectivePermissions permissions = getCachedEffectivePermissions(userId, tenantId, resourceDomain);
         return permissions.hasPermission(permission);
     }
     
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public boolean hasRole(UUID userId, String roleName, String tenantId, String resourceDomain) {
-        UserPermissionsDto permissions = getCachedUserPermissions(userId, tenantId, resourceDomain);
+        EffectivePermissions permissions = getCachedEffectivePermissions(userId, tenantId, resourceDomain);
         return permissions.hasRole(roleName);
     }
     
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public List<PermissionCheckResult> checkPermissions(List<PermissionCheckRequest> checks, String tenantId, String resourceDomain) {
+        log.debug("Checking {} permissions for tenant: {} and domain: {}", checks.size(), tenantId, resourceDomain);
+        
+        Set<UUID> userIds = checks.stream()
+            .map(PermissionCheckRequest::getUserId)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        
+        Map<UUID, EffectivePermissions> resolved = new HashMap<>();
+        Map<UUID, EffectivePermissions> stale = new HashMap<>();
+        cacheService.getEffectivePermissions(userIds, tenantId, resourceDomain).forEach((userId, permissions) -> {
+            switch (refreshPolicy.state(permissions.getFreshness(), tenantId)) {
+                case FRESH -> resolved.put(userId, permissions);
+                case REFRESH_AHEAD -> {
+                    resolved.put(userId, permissions);
+                    refreshInBackground(userId, tenantId, resourceDomain);
+                }
+                case STALE -> stale.put(userId, permissions);
+                case EXPIRED -> log.debug("Cached permissions for user {} are past the staleness bound", userId);
+            }
+        });
+        
+        List<UUID> missingUserIds = userIds.stream()
+            .filter(userId -> !resolved.containsKey(userId))
+            .collect(Collectors.toList());
+        if (!missingUserIds.isEmpty()) {
+            log.debug("Loading permissions for {} uncached users from database", missingUserIds.size());
+            if (stale.keySet().containsAll(missingUserIds)) {
+                // Everything missing has a stale value to fall back on if the database is slow or down
+                resolved.putAll(permissionRefresher.reloadOrServeStale(
+                    tenantId + ":" + resourceDomain + ":" + missingUserIds,
+                    () -> loadAndCacheUsers(missingUserIds, tenantId, resourceDomain),
+                    stale, refreshPolicy.loadTimeoutMillis()));
+            } else {
+                resolved.putAll(loadAndCacheUsers(missingUserIds, tenantId, resourceDomain));
+            }
+        }
+        
+        return checks.stream()
+            .map(check -> {
+                EffectivePermissions permissions = resolved.get(check.getUserId());
+                boolean granted = permissions != null && (check.getPermission() != null
+                    ? permissions.hasPermission(check.getPermission())
+                    : permissions.hasRole(check.getRole()));
+                return PermissionCheckResult.builder()
+                    .userId(check.getUserId())
+                    .permission(check.getPermission())
+                    .role(check.getRole())
+                    .granted(granted)
+                    .build();
+            })
+            .collect(Collectors.toList());
+    }
+    
     @Override
     @Transactional(readOnly = true)
     public User getUserEntity(UUID userId, String tenantId, String resourceDomain) {
@@ -427,4 +749,155 @@ public class UserServiceImpl implements UserService {
             .map(Role::getName)
             .collect(Collectors.toList());
     }
+    
+    // Permission checks work on the compact bitset form; the DTO is only built for API responses.
+    // Entries near expiry are refreshed in the background; entries past their soft expiry are reloaded, but within
+    // the tenant's staleness bound a failed or slow reload serves the stale entry instead of failing the check.
+    private EffectivePermissions getCachedEffectivePermissions(UUID userId, String tenantId, String resourceDomain) {
+        EffectivePermissions permissions = cacheService.getEffectivePermissions(userId, tenantId, resourceDomain);
+        
+        if (permissions == null) {
+            log.debug("No cached permissions found, fetching from database");
+            return loadAndCachePermissions(userId, tenantId, resourceDomain);
+        }
+        
+        return switch (refreshPolicy.state(permissions.getFreshness(), tenantId)) {
+            case FRESH -> permissions;
+            case REFRESH_AHEAD -> {
+                refreshInBackground(userId, tenantId, resourceDomain);
+                yield permissions;
+            }
+            case STALE -> permissionRefresher.reloadOrServeStale(permissionsLoadKey(userId, tenantId, resourceDomain),
+                () -> loadAndCachePermissions(userId, tenantId, resourceDomain), permissions, refreshPolicy.loadTimeoutMillis());
+            case EXPIRED -> {
+                log.debug("Cached permissions for user {} are past the staleness bound, fetching from database", userId);
+                yield loadAndCachePermissions(userId, tenantId, resourceDomain);
+            }
+        };
+    }
+    
+    private void refreshInBackground(UUID userId, String tenantId, String resourceDomain) {
+        permissionRefresher.refreshAsync(permissionsLoadKey(userId, tenantId, resourceDomain),
+            () -> loadAndCachePermissions(userId, tenantId, resourceDomain));
+    }
+    
+    private EffectivePermissions loadAndCachePermissions(UUID userId, String tenantId, String resourceDomain) {
+        return permissionLoads.execute(permissionsLoadKey(userId, tenantId, resourceDomain), () -> {
+            if (!permissionsLoadLockEnabled) {
+                return loadPermissionsFromDatabase(userId, tenantId, resourceDomain);
+            }
+            
+            // Optional cluster-wide lock so that only one node rebuilds a hot entry after invalidation
+            String token = UUID.randomUUID().toString();
+            if (cacheService.tryAcquirePermissionsLoadLock(userId, tenantId, resourceDomain, token, permissionsLoadLockTtlMillis)) {
+                try {
+                    return loadPermissionsFromDatabase(userId, tenantId, resourceDomain);
+                } finally {
+                    cacheService.releasePermissionsLoadLock(userId, tenantId, resourceDomain, token);
+                }
+            }
+            
+            EffectivePermissions loadedElsewhere = awaitPermissionsLoadedElsewhere(userId, tenantId, resourceDomain);
+            if (loadedElsewhere != null) {
+                return loadedElsewhere;
+            }
+            log.debug("Timed out waiting for permissions of user {} to be loaded elsewhere", userId);
+            return loadPermissionsFromDatabase(userId, tenantId, resourceDomain);
+        });
+    }
+    
+    // Miss path: the user's roles and direct grants in one query, plus one query for role sets that are not cached yet
+    private EffectivePermissions loadPermissionsFromDatabase(UUID userId, String tenantId, String resourceDomain) {
+        UserGrants grants = loadUserGrants(List.of(userId), tenantId, resourceDomain).stream()
+            .findFirst()
+            .orElseThrow(() -> new UserNotFoundException("User not found with ID: " + userId));
+        return cacheService.cacheUserGrants(grants, tenantId, resourceDomain,
+            roleNames -> loadRolePermissions(roleNames, tenantId, resourceDomain));
+    }
+    
+    private Map<UUID, EffectivePermissions> loadAndCacheUsers(List<UUID> userIds, String tenantId, String resourceDomain) {
+        List<UserGrants> loaded = loadUserGrants(userIds, tenantId, resourceDomain);
+        return cacheService.cacheUserGrants(loaded, tenantId, resourceDomain,
+            roleNames -> loadRolePermissions(roleNames, tenantId, resourceDomain));
+    }
+    
+    // Polls the cache while another node holds the load lock; bounded so a crashed holder cannot stall callers.
+    // Callers run without a transaction, so no pooled connection is held while waiting.
+    private EffectivePermissions awaitPermissionsLoadedElsewhere(UUID userId, String tenantId, String resourceDomain) {
+        long deadline = System.currentTimeMillis() + permissionsLoadLockWaitMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(permissionsLoadLockPollMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            EffectivePermissions permissions = cacheService.getEffectivePermissions(userId, tenantId, resourceDomain);
+            if (permissions != null && isUsable(permissions, tenantId)) {
+                return permissions;
+            }
+        }
+        return null;
+    }
+    
+    // The entry being reloaded is still there while the lock holder works; only a rewritten one counts
+    private boolean isUsable(EffectivePermissions permissions, String tenantId) {
+        PermissionRefreshPolicy.State state = refreshPolicy.state(permissions.getFreshness(), tenantId);
+        return state == PermissionRefreshPolicy.State.FRESH || state == PermissionRefreshPolicy.State.REFRESH_AHEAD;
+    }
+    
+    private static String permissionsLoadKey(UUID userId, String tenantId, String resourceDomain) {
+        return tenantId + ":" + resourceDomain + ":" + userId;
+    }
+    
+    // Set-based load of roles and direct grants for many users in one query; unknown users are simply absent
+    private List<UserGrants> loadUserGrants(List<UUID> userIds, String tenantId, String resourceDomain) {
+        Map<UUID, String> usernames = new LinkedHashMap<>();
+        Map<UUID, Long> versions = new HashMap<>();
+        Map<UUID, Long> roleVersions = new HashMap<>();
+        Map<UUID, Set<String>> roles = new HashMap<>();
+        Map<UUID, Set<String>> permissions = new HashMap<>();
+        
+        long started = System.currentTimeMillis();
+        for (UserGrantView grant : userRepository.findDirectGrantsByUserIdsAndDomain(userIds, tenantId, resourceDomain)) {
+            switch (grant.getGrantType()) {
+                case UserGrantView.TYPE_USER -> {
+                    usernames.put(grant.getUserId(), grant.getGrantName());
+                    versions.put(grant.getUserId(), grant.getPermissionsVersion());
+                }
+                case UserGrantView.TYPE_ROLE -> {
+                    roles.computeIfAbsent(grant.getUserId(), id -> new LinkedHashSet<>()).add(grant.getGrantName());
+                    roleVersions.merge(grant.getUserId(), grant.getPermissionsVersion(), Long::sum);
+                }
+                default -> permissions.computeIfAbsent(grant.getUserId(), id -> new LinkedHashSet<>()).add(grant.getGrantName());
+            }
+        }
+        long loadMillis = System.currentTimeMillis() - started;
+        
+        return usernames.entrySet().stream()
+            .map(user -> new UserGrants(
+                user.getKey(),
+                user.getValue(),
+                new ArrayList<>(roles.getOrDefault(user.getKey(), Set.of())),
+                new ArrayList<>(permissions.getOrDefault(user.getKey(), Set.of())),
+                versions.get(user.getKey()) + roleVersions.getOrDefault(user.getKey(), 0L),
+                loadMillis))
+            .collect(Collectors.toList());
+    }
+    
+    private Map<String, List<String>> loadRolePermissions(Collection<String> roleNames, String tenantId, String resourceDomain) {
+        log.debug("Loading permission sets for {} roles from database", roleNames.size());
+        return roleRepository.findPermissionsByRoleNamesAndDomain(roleNames, tenantId, resourceDomain).stream()
+            .collect(Collectors.groupingBy(RolePermissionView::getRoleName,
+                Collectors.mapping(RolePermissionView::getPermission, Collectors.toList())));
+    }
+    
+    private int searchLimit(Integer limit) {
+        return limit != null ? Math.max(1, Math.min(limit, maxSearchLimit)) : defaultSearchLimit;
+    }
+    
+    // Deep offsets still rank every match before skipping, so the window is bounded
+    private int searchOffset(Integer offset) {
+        return offset != null ? Math.max(0, Math.min(offset, maxSearchOffset)) : 0;
+    }
 }
@@ -0,0 +1,134 @@
+package service.com.service.userservice.utils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+// Trie over dotted resource segments for wildcard and hierarchical permission grants.
+//   orders:*               any action on "orders"
+//   *:read                 "read" on any resource
+//   billing.*:read         "read" on any resource below "billing" (billing.invoices, billing.invoices.lines, ...)
+//   billing.*.export:run   "*" in the middle of a resource matches exactly one segment
+// A check walks one trie level per resource segment, so it costs the depth of the resource path.
+public final class PermissionMatcher {
+    
+    public static final String WILDCARD = "*";
+    
+    private static final char RESOURCE_ACTION_SEPARATOR = ':';
+    private static final String SEGMENT_SEPARATOR = "\\.";
+    
+    private final Node root = new Node();
+    
+    private PermissionMatcher() {
+    }
+    
+    // Compiles the given grants; returns null when none of them is a pattern so callers can skip matching entirely
+    public static PermissionMatcher compile(Collection<String> grants) {
+        PermissionMatcher matcher = null;
+        if (grants != null) {
+            for (String grant : grants) {
+                if (isPattern(grant) && isValidPattern(grant)) {
+                    if (matcher == null) {
+                        matcher = new PermissionMatcher();
+                    }
+                    matcher.add(grant);
+                }
+            }
+        }
+        return matcher;
+    }
+    
+    public static boolean isPattern(String permission) {
+        return permission != null && permission.indexOf('*') >= 0;
+    }
+    
+    // resource:action, resource made of non-empty dot-separated segments; "*" may only stand for a whole segment or action
+    public static boolean isValidPattern(String permission) {
+        if (permission == null) {
+            return false;
+        }
+        int separator = permission.indexOf(RESOURCE_ACTION_SEPARATOR);
+        if (separator <= 0 || separator != permission.lastIndexOf(RESOURCE_ACTION_SEPARATOR)) {
+            return false;
+        }
+        
+        String action = permission.substring(separator + 1).trim();
+        if (action.isEmpty() || (action.indexOf('*') >= 0 && !WILDCARD.equals(action))) {
+            return false;
+        }
+        
+        for (String segment : permission.substring(0, separator).split(SEGMENT_SEPARATOR, -1)) {
+            String trimmed = segment.trim();
+            if (trimmed.isEmpty() || (trimmed.indexOf('*') >= 0 && !WILDCARD.equals(trimmed))) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public boolean matches(String permission) {
+        if (permission == null) {
+            return false;
+        }
+        int separator = permission.indexOf(RESOURCE_ACTION_SEPARATOR);
+        if (separator <= 0) {
+            return false;
+        }
+        String[] segments = permission.substring(0, separator).split(SEGMENT_SEPARATOR);
+        return matches(root, segments, 0, permission.substring(separator + 1));
+    }
+    
+    private void add(String pattern) {
+        int separator = pattern.indexOf(RESOURCE_ACTION_SEPARATOR);
+        String[] segments = pattern.substring(0, separator).trim().split(SEGMENT_SEPARATOR);
+        String action = pattern.substring(separator + 1).trim();
+        
+        Node node = root;
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i].trim();
+            if (WILDCARD.equals(segment) && i == segments.length - 1) {
+                node.descendantActions.add(action);
+                return;
+            }
+            node = WILDCARD.equals(segment)
+                ? node.anySegment()
+                : node.children.computeIfAbsent(segment, key -> new Node());
+        }
+        node.actions.add(action);
+    }
+    
+    private boolean matches(Node node, String[] segments, int index, String action) {
+        if (index < segments.length && actionMatches(node.descendantActions, action)) {
+            return true;
+        }
+        if (index == segments.length) {
+            return actionMatches(node.actions, action);
+        }
+        
+        Node child = node.children.get(segments[index]);
+        if (child != null && matches(child, segments, index + 1, action)) {
+            return true;
+        }
+        return node.anySegment != null && matches(node.anySegment, segments, index + 1, action);
+    }
+    
+    private static boolean actionMatches(Set<String> actions, String action) {
+        return !actions.isEmpty() && (actions.contains(action) || actions.contains(WILDCARD));
+    }
+    
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final Set<String> actions = new HashSet<>();
+        private final Set<String> descendantActions = new HashSet<>();
+        private Node anySegment;
+        
+        private Node anySegment() {
+            if (anySegment == null) {
+                anySegment = new Node();
+            }
+            return anySegment;
+        }
+    }
+}
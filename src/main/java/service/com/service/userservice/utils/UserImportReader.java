@@ -0,0 +1,237 @@
+package service.com.service.userservice.utils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import service.com.service.userservice.dto.CreateUserRequest;
+import service.com.service.userservice.exception.InvalidImportException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Reads users to import one at a time from an upload: a JSON array, NDJSON (one object per line) or CSV whose header
+// row names the CreateUserRequest fields. A row that cannot be parsed is returned with an error instead of ending the
+// import; only input that cannot be read any further (broken JSON array, unterminated CSV quote) throws.
+public abstract class UserImportReader implements Closeable {
+    
+    public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+    
+    // Row numbers are the 1-based position of the user in the upload
+    public record Row(long number, CreateUserRequest request, String error) {
+    }
+    
+    protected final ObjectMapper objectMapper;
+    protected long rowCount;
+    
+    private UserImportReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+    
+    public static UserImportReader open(MediaType contentType, InputStream input, ObjectMapper objectMapper) throws IOException {
+        if (MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+            return new NdjsonReader(reader(input), objectMapper);
+        }
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            return new CsvReader(reader(input), objectMapper);
+        }
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return new JsonArrayReader(objectMapper.getFactory().createParser(input), objectMapper);
+        }
+        throw new InvalidImportException("Unsupported import content type: " + contentType);
+    }
+    
+    // Next row, or null once the input is exhausted
+    public abstract Row next() throws IOException;
+    
+    protected Row parsed(JsonNode node) {
+        long number = ++rowCount;
+        try {
+            return new Row(number, objectMapper.treeToValue(node, CreateUserRequest.class), null);
+        } catch (JsonProcessingException e) {
+            return new Row(number, null, "Invalid user: " + e.getOriginalMessage());
+        }
+    }
+    
+    private static BufferedReader reader(InputStream input) {
+        return new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+    }
+    
+    private static final class JsonArrayReader extends UserImportReader {
+        
+        private final JsonParser parser;
+        
+        private JsonArrayReader(JsonParser parser, ObjectMapper objectMapper) throws IOException {
+            super(objectMapper);
+            this.parser = parser;
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidImportException("Expected a JSON array of users");
+            }
+        }
+        
+        @Override
+        public Row next() throws IOException {
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == null || token == JsonToken.END_ARRAY) {
+                    return null;
+                }
+                return parsed(parser.readValueAsTree());
+            } catch (JsonProcessingException e) {
+                throw new InvalidImportException("Malformed JSON after row " + rowCount + ": " + e.getOriginalMessage(), e);
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            parser.close();
+        }
+    }
+    
+    private static final class NdjsonReader extends UserImportReader {
+        
+        private final BufferedReader reader;
+        
+        private NdjsonReader(BufferedReader reader, ObjectMapper objectMapper) {
+            super(objectMapper);
+            this.reader = reader;
+        }
+        
+        @Override
+        public Row next() throws IOException {
+            String line;
+            do {
+                line = reader.readLine();
+            } while (line != null && line.isBlank());
+            if (line == null) {
+                return null;
+            }
+            
+            try {
+                return parsed(objectMapper.readTree(line));
+            } catch (JsonProcessingException e) {
+                return new Row(++rowCount, null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+    
+    // RFC 4180: comma separated, fields optionally quoted, "" escapes a quote, quoted fields may span lines
+    private static final class CsvReader extends UserImportReader {
+        
+        private final BufferedReader reader;
+        private final List<String> header;
+        
+        private CsvReader(BufferedReader reader, ObjectMapper objectMapper) throws IOException {
+            super(objectMapper);
+            this.reader = reader;
+            List<String> names = record();
+            if (names == null) {
+                throw new InvalidImportException("CSV upload has no header row");
+            }
+            header = names.stream().map(CsvReader::fieldName).toList();
+        }
+        
+        @Override
+        public Row next() throws IOException {
+            List<String> values;
+            do {
+                values = record();
+            } while (values != null && values.size() == 1 && values.get(0).isEmpty());
+            if (values == null) {
+                return null;
+            }
+            
+            if (values.size() != header.size()) {
+                return new Row(++rowCount, null, "Expected " + header.size() + " fields but found " + values.size());
+            }
+            // Empty cells are left out so that field defaults (isActive = true) apply
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                if (!values.get(i).isEmpty()) {
+                    fields.put(header.get(i), values.get(i));
+                }
+            }
+            return parsed(objectMapper.valueToTree(fields));
+        }
+        
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+        
+        // first_name, First Name and firstName all map to firstName
+        private static String fieldName(String column) {
+            String[] words = column.trim().split("[\\s_-]+");
+            StringBuilder name = new StringBuilder(words[0].isEmpty() ? "" : Character.toLowerCase(words[0].charAt(0)) + words[0].substring(1));
+            for (int i = 1; i < words.length; i++) {
+                if (!words[i].isEmpty()) {
+                    name.append(words[i].substring(0, 1).toUpperCase(Locale.ROOT)).append(words[i].substring(1).toLowerCase(Locale.ROOT));
+                }
+            }
+            return name.toString();
+        }
+        
+        private List<String> record() throws IOException {
+            int c = reader.read();
+            if (c == -1) {
+                return null;
+            }
+            
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new InvalidImportException("Unterminated quoted field after row " + rowCount);
+                    }
+                    if (c == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            value.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        value.append((char) c);
+                    }
+                } else if (c == '"' && value.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString());
+                    value.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    break;
+                } else if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                    break;
+                } else {
+                    value.append((char) c);
+                }
+                c = reader.read();
+            }
+            values.add(value.toString());
+            return values;
+        }
+    }
+}
@@ -75,7 +75,9 @@ public class ValidationUtils {
         if (permission == null || permission.trim().isEmpty()) {
             return false;
         }
-        // Permission format: resource:action
+        // Permission format: resource:action. Wildcard patterns (orders:*, *:read, billing.*:read) fit the same grammar;
+        // PermissionMatcher only expands well-formed ones and matches anything else literally, so stored permissions
+        // that predate patterns (a..b:read) stay valid
         String[] parts = permission.split(":");
         return parts.length == 2 && 
                !parts[0].trim().isEmpty() && 
@@ -0,0 +1,59 @@
+package service.com.service.userservice.utils;
+
+import service.com.service.userservice.exception.VersionMismatchException;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Strong entity tags carrying a row or permissions version ("42"), for users followed by their last login
+// ("42.1700000000000"). If-None-Match compares weakly, as RFC 9110 asks for GET; If-Match takes exactly one strong
+// tag and only its version, since a version is what a conditional update is checked against.
+public final class VersionTag {
+    
+    private VersionTag() {
+    }
+    
+    public static String of(long version) {
+        return "\"" + version + "\"";
+    }
+    
+    // Logins do not bump the row version, so the login time is part of the tag; it is only compared, never parsed
+    public static String of(long version, LocalDateTime lastLoginAt) {
+        if (lastLoginAt == null) {
+            return of(version);
+        }
+        return "\"" + version + "." + lastLoginAt.toInstant(ZoneOffset.UTC).toEpochMilli() + "\"";
+    }
+    
+    // True when any tag of an If-None-Match header (or *) matches the current tag
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // The version an If-Match header expects, or null when it is absent or "*"
+    public static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            String value = tag.substring(1, tag.length() - 1);
+            int loginSeparator = value.indexOf('.');
+            try {
+                return Long.parseLong(loginSeparator >= 0 ? value.substring(0, loginSeparator) : value);
+            } catch (NumberFormatException e) {
+                // Falls through: not a tag this service issued
+            }
+        }
+        throw new VersionMismatchException("If-Match " + ifMatch + " does not match the current version");
+    }
+}
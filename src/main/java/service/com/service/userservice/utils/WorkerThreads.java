@@ -0,0 +1,20 @@
+package service.com.service.userservice.utils;
+
+import java.util.concurrent.ThreadFactory;
+
+// Thread factories for the service's internal executors, named "<name>-1", "<name>-2", ... Executors whose tasks
+// block on Postgres or Redis follow spring.threads.virtual.enabled; CPU-bound ones stay on platform threads.
+public final class WorkerThreads {
+    
+    private WorkerThreads() {
+    }
+    
+    public static ThreadFactory platform(String name) {
+        return Thread.ofPlatform().name(name + "-", 1).daemon(true).factory();
+    }
+    
+    // Virtual threads are always daemon threads
+    public static ThreadFactory blocking(String name, boolean virtualThreads) {
+        return virtualThreads ? Thread.ofVirtual().name(name + "-", 1).factory() : platform(name);
+    }
+}
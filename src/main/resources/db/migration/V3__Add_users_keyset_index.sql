@@ -0,0 +1,2 @@
+-- Keyset pagination and export walk users of a tenant/domain in (created_at, id) order
+CREATE INDEX idx_users_tenant_domain_created_id ON users(tenant_id, resource_domain, created_at, id);
@@ -0,0 +1,7 @@
+-- Trigram index for substring and fuzzy user search (UserSearchRepositoryImpl).
+-- The indexed expression must stay identical to the one used in the search query.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX idx_users_search_trgm ON users USING gin (
+    lower(username || ' ' || email || ' ' || coalesce(first_name, '') || ' ' || coalesce(last_name, '')) gin_trgm_ops
+);
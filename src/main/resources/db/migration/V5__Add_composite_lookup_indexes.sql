@@ -0,0 +1,10 @@
+-- Composite indexes for the (tenant_id, resource_domain, ...) lookups of the repositories (QueryPlanRegressionTest).
+
+-- Active-user counts and id streams per tenant/domain are answered from the index alone
+CREATE INDEX idx_users_tenant_domain_active_id ON users(tenant_id, resource_domain, is_active, id);
+
+-- Tenant-wide role and permission lookups by name or resource/action (the unique keys lead with the domain)
+CREATE INDEX idx_roles_tenant_name ON roles(tenant_id, name);
+CREATE INDEX idx_permissions_tenant_name ON permissions(tenant_id, name);
+CREATE INDEX idx_permissions_tenant_resource_action ON permissions(tenant_id, resource, action);
+
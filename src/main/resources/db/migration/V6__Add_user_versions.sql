@@ -0,0 +1,4 @@
+-- Row version of a user (optimistic locking, ETag of the user resource) and a counter bumped whenever the user's
+-- effective permissions change (ETag of the roles and permissions resources)
+ALTER TABLE users ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE users ADD COLUMN permissions_version BIGINT NOT NULL DEFAULT 0;
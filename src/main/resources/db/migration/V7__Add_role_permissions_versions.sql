@@ -0,0 +1,3 @@
+-- Counter bumped whenever the permissions of a role change; a user's effective permissions version is its own counter
+-- plus those of the roles it holds, so a role edit writes one row instead of one per holder
+ALTER TABLE roles ADD COLUMN permissions_version BIGINT NOT NULL DEFAULT 0;
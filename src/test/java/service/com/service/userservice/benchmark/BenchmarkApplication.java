@@ -0,0 +1,12 @@
+package service.com.service.userservice.benchmark;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+// Persistence-only context for the database benchmarks: entities and repositories, none of the services
+@SpringBootApplication
+@EntityScan("service.com.service.userservice.entity")
+@EnableJpaRepositories("service.com.service.userservice.repository")
+class BenchmarkApplication {
+}
@@ -0,0 +1,209 @@
+package service.com.service.userservice.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import service.com.service.userservice.config.TenantContextInterceptor;
+import service.com.service.userservice.config.WebConfig;
+import service.com.service.userservice.controller.UserController;
+import service.com.service.userservice.dto.BatchPermissionCheckRequest;
+import service.com.service.userservice.dto.PermissionCheckRequest;
+import service.com.service.userservice.dto.PermissionCheckResult;
+import service.com.service.userservice.exception.GlobalExceptionHandler;
+import service.com.service.userservice.rpc.PermissionCheckCodec;
+import service.com.service.userservice.rpc.PermissionCheckFrame;
+import service.com.service.userservice.rpc.PermissionResultFrame;
+import service.com.service.userservice.rpc.PermissionRpcServer;
+import service.com.service.userservice.service.CacheWarmupService;
+import service.com.service.userservice.service.UserImportService;
+import service.com.service.userservice.service.UserService;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Client-observed latency of answering n permission checks over loopback: one REST GET .../permissions/check per
+// check, one REST POST /permissions/check-batch with a JSON body, and one binary frame on a persistent
+// PermissionRpcServer connection. Both servers run in this JVM in front of a stub UserService that grants every
+// check, so the numbers are the transport, binding and serialisation cost alone, without cache or database work.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=service.com.service.userservice.benchmark.PermissionCheckTransportBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 3)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissionCheckTransportBenchmark {
+    
+    private static final String TENANT = "tenant1";
+    private static final String DOMAIN = "domain1";
+    private static final int MAX_FRAME_BYTES = 1048576;
+    
+    @Param({"1", "10", "100"})
+    private int checks;
+    
+    private final PermissionCheckCodec codec = new PermissionCheckCodec();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private URI users;
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private List<PermissionCheckRequest> requests;
+    private long requestId;
+    
+    @Setup
+    public void setUp() throws IOException {
+        context = new SpringApplicationBuilder(TransportApplication.class)
+            .run("--server.port=0",
+                "--app.rpc.permissions.enabled=true",
+                "--app.rpc.permissions.port=0",
+                "--logging.level.root=WARN",
+                "--logging.level.service.com.service.userservice=WARN");
+        users = URI.create("http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort() + "/api/v1/users/");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        
+        socket = new Socket("localhost", context.getBean(PermissionRpcServer.class).getPort());
+        socket.setTcpNoDelay(true);
+        in = new BufferedInputStream(socket.getInputStream());
+        out = new BufferedOutputStream(socket.getOutputStream());
+        
+        requests = new ArrayList<>(checks);
+        for (int i = 0; i < checks; i++) {
+            requests.add(PermissionCheckRequest.builder().userId(UUID.randomUUID()).permission("resource" + i + ":read").build());
+        }
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        socket.close();
+        httpClient.close();
+        context.close();
+    }
+    
+    @Benchmark
+    public int restPerCheck() throws IOException, InterruptedException {
+        int granted = 0;
+        for (PermissionCheckRequest check : requests) {
+            HttpRequest request = HttpRequest.newBuilder(users.resolve(check.getUserId() + "/permissions/check?permission=" + check.getPermission()))
+                .header("X-Tenant-ID", TENANT)
+                .header("X-Domain-ID", DOMAIN)
+                .build();
+            if (Boolean.parseBoolean(httpClient.send(request, HttpResponse.BodyHandlers.ofString()).body())) {
+                granted++;
+            }
+        }
+        return granted;
+    }
+    
+    @Benchmark
+    public int restBatch() throws IOException, InterruptedException {
+        byte[] body = objectMapper.writeValueAsBytes(BatchPermissionCheckRequest.builder().checks(requests).build());
+        HttpRequest request = HttpRequest.newBuilder(users.resolve("permissions/check-batch"))
+            .header("X-Tenant-ID", TENANT)
+            .header("X-Domain-ID", DOMAIN)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+        JsonNode results = objectMapper.readTree(httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()).body()).get("results");
+        int granted = 0;
+        for (JsonNode result : results) {
+            if (result.get("granted").asBoolean()) {
+                granted++;
+            }
+        }
+        return granted;
+    }
+    
+    @Benchmark
+    public int rpc() throws IOException {
+        PermissionCheckCodec.writeFrame(out, codec.encodeRequest(new PermissionCheckFrame(++requestId, TENANT, DOMAIN, requests)));
+        out.flush();
+        PermissionResultFrame result = codec.decodeResponse(PermissionCheckCodec.readFrame(in, MAX_FRAME_BYTES));
+        return result.granted().cardinality();
+    }
+    
+    // The web layer and the RPC server with their real wiring; the services behind them are stubs
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+        WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class, JacksonAutoConfiguration.class,
+        ValidationAutoConfiguration.class})
+    @Import({UserController.class, GlobalExceptionHandler.class, WebConfig.class, TenantContextInterceptor.class,
+        PermissionCheckCodec.class, PermissionRpcServer.class})
+    static class TransportApplication {
+        
+        @Bean
+        UserService userService() {
+            UserService userService = mock(UserService.class);
+            when(userService.hasPermission(any(), anyString(), anyString(), anyString())).thenReturn(true);
+            when(userService.checkPermissions(anyList(), anyString(), anyString())).thenAnswer(invocation -> {
+                List<PermissionCheckRequest> checks = invocation.getArgument(0);
+                return checks.stream()
+                    .map(check -> PermissionCheckResult.builder()
+                        .userId(check.getUserId())
+                        .permission(check.getPermission())
+                        .role(check.getRole())
+                        .granted(true)
+                        .build())
+                    .toList();
+            });
+            return userService;
+        }
+        
+        @Bean
+        CacheWarmupService cacheWarmupService() {
+            return mock(CacheWarmupService.class);
+        }
+        
+        @Bean
+        UserImportService userImportService() {
+            return mock(UserImportService.class);
+        }
+        
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(PermissionCheckTransportBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package service.com.service.userservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import service.com.service.userservice.cache.CompactPermissionsEntry;
+import service.com.service.userservice.cache.EntryFreshness;
+import service.com.service.userservice.cache.PermissionEntryCodec;
+
+import java.util.BitSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// JSON against the binary codec for the same CompactPermissionsEntry, each as a single bytes <-> entry step with
+// its (de)serializer built once, so the comparison is the wire format alone. Encoded sizes are reported as the
+// "bytes" secondary result of the encode benchmarks.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=service.com.service.userservice.benchmark.PermissionEntryCodecBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionEntryCodecBenchmark {
+    
+    @Param({"10", "200", "2000"})
+    private int permissionCount;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter jsonWriter = objectMapper.writerFor(CompactPermissionsEntry.class);
+    private final ObjectReader jsonReader = objectMapper.readerFor(CompactPermissionsEntry.class);
+    private final PermissionEntryCodec codec = new PermissionEntryCodec();
+    
+    private CompactPermissionsEntry entry;
+    private byte[] jsonBytes;
+    private byte[] binaryBytes;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class EncodedSize {
+        public long bytes;
+    }
+    
+    @Setup
+    public void setUp() throws Exception {
+        BitSet ids = new BitSet();
+        ids.set(0, permissionCount);
+        long now = System.currentTimeMillis();
+        entry = new CompactPermissionsEntry(UUID.randomUUID(), "benchmark-user", BitSet.valueOf(new long[] {7L}).toByteArray(),
+            ids.toByteArray(), new EntryFreshness(now, now + 3_600_000L, 15), 3, now);
+        
+        jsonBytes = jsonWriter.writeValueAsBytes(entry);
+        binaryBytes = codec.encode(entry);
+    }
+    
+    @Benchmark
+    public byte[] jsonEncode(EncodedSize size) throws Exception {
+        byte[] bytes = jsonWriter.writeValueAsBytes(entry);
+        size.bytes = bytes.length;
+        return bytes;
+    }
+    
+    @Benchmark
+    public CompactPermissionsEntry jsonDecode() throws Exception {
+        return jsonReader.readValue(jsonBytes);
+    }
+    
+    @Benchmark
+    public byte[] binaryEncode(EncodedSize size) {
+        byte[] bytes = codec.encode(entry);
+        size.bytes = bytes.length;
+        return bytes;
+    }
+    
+    @Benchmark
+    public CompactPermissionsEntry binaryDecode() {
+        return codec.decode(binaryBytes);
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PermissionEntryCodecBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,191 @@
+package service.com.service.userservice.benchmark;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.com.service.userservice.dto.UserPermissionsDto;
+import service.com.service.userservice.entity.Permission;
+import service.com.service.userservice.entity.Role;
+import service.com.service.userservice.entity.User;
+import service.com.service.userservice.repository.PermissionRepository;
+import service.com.service.userservice.repository.UserRepository;
+import service.com.service.userservice.repository.projection.UserGrantView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+// getUserPermissionsWithRoles before (fetch-join entity graph loaded twice plus the permission UNION query) and
+// after (one flat projection query) for users with many roles, on an in-memory H2 database. The setup prints the
+// statements and hydrated entities per call for both paths.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=service.com.service.userservice.benchmark.PermissionResolutionBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PermissionResolutionBenchmark {
+    
+    private static final String TENANT = "tenant1";
+    private static final String DOMAIN = "domain1";
+    private static final int PERMISSION_POOL = 400;
+    private static final int PERMISSIONS_PER_ROLE = 15;
+    private static final int DIRECT_PERMISSIONS = 20;
+    
+    @Param({"10", "50", "100"})
+    private int roleCount;
+    
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private PermissionRepository permissionRepository;
+    private TransactionTemplate readOnlyTransaction;
+    private Statistics statistics;
+    private UUID userId;
+    
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+            .web(WebApplicationType.NONE)
+            // Command-line arguments so that they override application.properties
+            .run("--spring.datasource.url=jdbc:h2:mem:resolution;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.flyway.enabled=false",
+                "--spring.jpa.hibernate.ddl-auto=create-drop",
+                "--spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.properties.hibernate.generate_statistics=true",
+                "--spring.data.redis.repositories.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.service.com.service.userservice=WARN");
+        userRepository = context.getBean(UserRepository.class);
+        permissionRepository = context.getBean(PermissionRepository.class);
+        PlatformTransactionManager transactionManager = context.getBean(PlatformTransactionManager.class);
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        
+        userId = new TransactionTemplate(transactionManager).execute(status -> seed(context.getBean(EntityManager.class)));
+        
+        report("entity graph", this::entityGraph);
+        report("flat projection", this::flatProjection);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+    
+    @Benchmark
+    public UserPermissionsDto entityGraph() {
+        return readOnlyTransaction.execute(status -> {
+            User user = userRepository.findUserWithRolesAndPermissionsByDomain(userId, TENANT, DOMAIN).orElseThrow();
+            List<String> permissions = permissionRepository.findAllPermissionsByUserIdAndDomain(userId, TENANT, DOMAIN).stream()
+                .map(Permission::getFullPermission)
+                .collect(Collectors.toList());
+            List<String> roles = userRepository.findUserWithRolesAndPermissionsByDomain(userId, TENANT, DOMAIN).orElseThrow()
+                .getRoles().stream()
+                .map(Role::getName)
+                .collect(Collectors.toList());
+            return dto(user.getUsername(), roles, permissions);
+        });
+    }
+    
+    @Benchmark
+    public UserPermissionsDto flatProjection() {
+        return readOnlyTransaction.execute(status -> {
+            String username = null;
+            List<String> roles = new ArrayList<>();
+            List<String> permissions = new ArrayList<>();
+            for (UserGrantView grant : userRepository.findEffectiveGrantsByUserIdAndDomain(userId, TENANT, DOMAIN)) {
+                switch (grant.getGrantType()) {
+                    case UserGrantView.TYPE_USER -> username = grant.getGrantName();
+                    case UserGrantView.TYPE_ROLE -> roles.add(grant.getGrantName());
+                    default -> permissions.add(grant.getGrantName());
+                }
+            }
+            return dto(username, roles, permissions);
+        });
+    }
+    
+    private UUID seed(EntityManager entityManager) {
+        Random random = new Random(42);
+        List<Permission> pool = new ArrayList<>();
+        for (int i = 0; i < PERMISSION_POOL; i++) {
+            Permission permission = Permission.builder()
+                .tenantId(TENANT)
+                .resourceDomain(DOMAIN)
+                .name("permission-" + i)
+                .resource("resource" + (i / 4))
+                .action("action" + (i % 4))
+                .build();
+            entityManager.persist(permission);
+            pool.add(permission);
+        }
+        
+        User user = User.builder()
+            .tenantId(TENANT)
+            .resourceDomain(DOMAIN)
+            .username("benchmark-user")
+            .email("benchmark@example.com")
+            .passwordHash("x")
+            .build();
+        for (int i = 0; i < roleCount; i++) {
+            Role role = Role.builder()
+                .tenantId(TENANT)
+                .resourceDomain(DOMAIN)
+                .name("ROLE_" + i)
+                .build();
+            for (int j = 0; j < PERMISSIONS_PER_ROLE; j++) {
+                role.getPermissions().add(pool.get(random.nextInt(PERMISSION_POOL)));
+            }
+            entityManager.persist(role);
+            user.getRoles().add(role);
+        }
+        for (int i = 0; i < DIRECT_PERMISSIONS; i++) {
+            user.getPermissions().add(pool.get(random.nextInt(PERMISSION_POOL)));
+        }
+        entityManager.persist(user);
+        return user.getId();
+    }
+    
+    private void report(String path, Supplier<UserPermissionsDto> resolve) {
+        statistics.clear();
+        UserPermissionsDto result = resolve.get();
+        System.out.printf("%n%d roles, %s: %d statements, %d entities hydrated, %d roles / %d permissions resolved%n",
+            roleCount, path, statistics.getPrepareStatementCount(), statistics.getEntityLoadCount(),
+            result.getRoles().size(), result.getPermissions().size());
+    }
+    
+    private static UserPermissionsDto dto(String username, List<String> roles, List<String> permissions) {
+        return UserPermissionsDto.builder()
+            .username(username)
+            .tenantId(TENANT)
+            .resourceDomain(DOMAIN)
+            .roles(roles)
+            .permissions(permissions)
+            .build();
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(PermissionResolutionBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
@@ -0,0 +1,103 @@
+package service.com.service.userservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import service.com.service.userservice.dto.UserDto;
+import service.com.service.userservice.mapper.DtoMapper;
+import service.com.service.userservice.mapper.DtoMapperImpl;
+import service.com.service.userservice.repository.UserRepository;
+import service.com.service.userservice.repository.projection.UserView;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Latency and allocation of listing a whole tenant/domain as UserDto, on a real Postgres (Testcontainers, so Docker
+// is required). entity is the former read path: managed User entities in a read-only transaction, copied with
+// DtoMapper (DtoMappingBenchmark compares the mappers on their own). projection selects the UserDto columns into
+// UserView records and builds the DTOs directly.
+// The GC profiler reports gc.alloc.rate.norm, the bytes allocated per listing.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=service.com.service.userservice.benchmark.UserReadPathBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserReadPathBenchmark {
+    
+    private static final String TENANT = "tenant1";
+    private static final String DOMAIN = "domain1";
+    
+    @Param({"1000", "10000", "100000"})
+    private int users;
+    
+    private final DtoMapper dtoMapper = new DtoMapperImpl();
+    
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private TransactionTemplate readOnlyTransaction;
+    
+    @Setup
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+            .web(WebApplicationType.NONE)
+            .run("--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.data.redis.repositories.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.service.com.service.userservice=WARN");
+        userRepository = context.getBean(UserRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update(
+            "INSERT INTO users (tenant_id, resource_domain, username, email, password_hash, first_name, last_name) " +
+            "SELECT ?, ?, 'user' || g, 'user' || g || '@example.com', " +
+            "'$2a$10$abcdefghijklmnopqrstuv1234567890ABCDEFGHIJKLMNOPQRSTU', 'First' || g, 'Last' || g " +
+            "FROM generate_series(1, ?) g", TENANT, DOMAIN, users);
+        jdbcTemplate.execute("ANALYZE users");
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+        postgres.stop();
+    }
+    
+    @Benchmark
+    public List<UserDto> entity() {
+        return readOnlyTransaction.execute(status -> userRepository.findByTenantIdAndResourceDomain(TENANT, DOMAIN).stream()
+            .map(dtoMapper::toDto)
+            .toList());
+    }
+    
+    @Benchmark
+    public List<UserDto> projection() {
+        return readOnlyTransaction.execute(status -> userRepository.findViewsByDomain(TENANT, DOMAIN).stream()
+            .map(UserView::toDto)
+            .toList());
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(UserReadPathBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+    }
+}
@@ -0,0 +1,106 @@
+package service.com.service.userservice.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import service.com.service.userservice.entity.User;
+import service.com.service.userservice.repository.UserRepository;
+import service.com.service.userservice.repository.projection.UserView;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// User search latency against table size on a real Postgres (Testcontainers, so Docker is required).
+// substringScan is the former four-column LOWER(...) LIKE '%term%' query, trigramSearch the ranked pg_trgm search
+// served by idx_users_search_trgm; the setup prints the plan of the latter. The trigram numbers should stay roughly
+// flat from 10k to 1M users while the scan grows with the table.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=service.com.service.userservice.benchmark.UserSearchBenchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserSearchBenchmark {
+    
+    private static final String TENANT = "tenant1";
+    private static final String DOMAIN = "domain1";
+    private static final int LIMIT = 20;
+    
+    @Param({"10000", "100000", "1000000"})
+    private int users;
+    
+    // A substring of one username, and a misspelt last name
+    @Param({"user4242", "smiht"})
+    private String searchTerm;
+    
+    private PostgreSQLContainer<?> postgres;
+    private ConfigurableApplicationContext context;
+    private UserRepository userRepository;
+    private TransactionTemplate readOnlyTransaction;
+    
+    @Setup
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+        postgres.start();
+        context = new SpringApplicationBuilder(BenchmarkApplication.class)
+            .web(WebApplicationType.NONE)
+            .run("--spring.datasource.url=" + postgres.getJdbcUrl(),
+                "--spring.datasource.username=" + postgres.getUsername(),
+                "--spring.datasource.password=" + postgres.getPassword(),
+                "--spring.data.redis.repositories.enabled=false",
+                "--logging.level.root=WARN",
+                "--logging.level.service.com.service.userservice=WARN");
+        userRepository = context.getBean(UserRepository.class);
+        readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnlyTransaction.setReadOnly(true);
+        
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update(
+            "INSERT INTO users (tenant_id, resource_domain, username, email, password_hash, first_name, last_name) " +
+            "SELECT ?, ?, 'user' || g, 'user' || g || '@example.com', 'x', " +
+            "(ARRAY['John', 'Jane', 'Alex', 'Maria', 'Wei', 'Olga'])[1 + g % 6], " +
+            "(ARRAY['Smith', 'Johnson', 'Garcia', 'Nguyen', 'Kowalski', 'Ivanova', 'Okafor'])[1 + g % 7] " +
+            "FROM generate_series(1, ?) g", TENANT, DOMAIN, users);
+        jdbcTemplate.execute("ANALYZE users");
+        
+        readOnlyTransaction.executeWithoutResult(status -> {
+            System.out.printf("%n%d users, '%s': %d matches in the first page%n", users, searchTerm, trigramSearch().size());
+        });
+        jdbcTemplate.queryForList("EXPLAIN ANALYZE SELECT id FROM users u WHERE u.tenant_id = ? AND u.resource_domain = ? " +
+                "AND lower(u.username || ' ' || u.email || ' ' || coalesce(u.first_name, '') || ' ' || coalesce(u.last_name, '')) " +
+                "LIKE ? LIMIT 20", String.class, TENANT, DOMAIN, "%" + searchTerm + "%")
+            .forEach(System.out::println);
+    }
+    
+    @TearDown
+    public void tearDown() {
+        context.close();
+        postgres.stop();
+    }
+    
+    @Benchmark
+    public List<User> substringScan() {
+        return readOnlyTransaction.execute(status -> userRepository.searchUsersByDomain(TENANT, DOMAIN, searchTerm));
+    }
+    
+    @Benchmark
+    public List<UserView> trigramSearch() {
+        return readOnlyTransaction.execute(status -> userRepository.searchRankedByDomain(TENANT, DOMAIN, searchTerm, LIMIT, 0));
+    }
+    
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(UserSearchBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
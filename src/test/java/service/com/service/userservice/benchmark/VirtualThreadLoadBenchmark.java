@@ -0,0 +1,165 @@
+package service.com.service.userservice.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import service.com.service.userservice.UserServiceApplication;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+// Closed-loop HTTP load against the whole service at 1k to 10k concurrent connections, once with Tomcat's platform
+// thread pool (200 threads) and once with spring.threads.virtual.enabled; prints throughput, p50/p99/max latency and
+// errors per run. Every client is a virtual thread with one request in flight, alternating a permission check (Redis,
+// Postgres on a miss) and a user read (Postgres). Postgres and Redis run in Testcontainers, so Docker is required;
+// the service and the clients share this JVM, so raise the open file limit first (ulimit -n 65536).
+// Arguments are passed on to both runs, e.g. --spring.datasource.hikari.maximum-pool-size=50.
+// Run with: mvn test-compile exec:java -Dexec.classpathScope=test
+//   -Dexec.mainClass=service.com.service.userservice.benchmark.VirtualThreadLoadBenchmark
+public class VirtualThreadLoadBenchmark {
+    
+    private static final String TENANT = "tenant1";
+    private static final String DOMAIN = "domain1";
+    private static final String USER_ROLE_ID = "550e8400-e29b-41d4-a716-446655440011";
+    private static final int USERS = 10_000;
+    private static final int[] CONNECTIONS = {1_000, 2_500, 5_000, 10_000};
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+    private static final Duration MEASUREMENT = Duration.ofSeconds(30);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    
+    public static void main(String[] args) throws Exception {
+        try (PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+             GenericContainer<?> redis = new GenericContainer<>("redis:7.2").withExposedPorts(6379)) {
+            postgres.start();
+            redis.start();
+            
+            List<String> rows = new ArrayList<>();
+            for (boolean virtualThreads : new boolean[] {false, true}) {
+                // Both modes start from a cold permission cache
+                redis.execInContainer("redis-cli", "FLUSHALL");
+                String[] serviceArgs = Stream.concat(Stream.of(
+                        "--server.port=0",
+                        "--server.tomcat.max-connections=" + 2 * CONNECTIONS[CONNECTIONS.length - 1],
+                        "--server.tomcat.accept-count=" + CONNECTIONS[CONNECTIONS.length - 1],
+                        "--spring.threads.virtual.enabled=" + virtualThreads,
+                        "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "--spring.datasource.username=" + postgres.getUsername(),
+                        "--spring.datasource.password=" + postgres.getPassword(),
+                        "--spring.data.redis.host=" + redis.getHost(),
+                        "--spring.data.redis.port=" + redis.getMappedPort(6379),
+                        "--app.cache.warmup.on-startup=false",
+                        "--logging.level.root=WARN",
+                        "--logging.level.service.com.service.userservice=WARN"),
+                    Arrays.stream(args)).toArray(String[]::new);
+                
+                try (ConfigurableApplicationContext context = new SpringApplicationBuilder(UserServiceApplication.class).run(serviceArgs);
+                     HttpClient client = HttpClient.newBuilder()
+                         .executor(Executors.newVirtualThreadPerTaskExecutor())
+                         .connectTimeout(REQUEST_TIMEOUT)
+                         .build()) {
+                    List<UUID> userIds = seed(context.getBean(JdbcTemplate.class));
+                    int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                    URI users = URI.create("http://localhost:" + port + "/api/v1/users/");
+                    
+                    for (int connections : CONNECTIONS) {
+                        load(client, users, userIds, connections, WARMUP);
+                        Result result = load(client, users, userIds, connections, MEASUREMENT);
+                        rows.add(result.format(virtualThreads ? "virtual" : "platform", connections));
+                        System.out.println(rows.get(rows.size() - 1));
+                    }
+                }
+            }
+            
+            System.out.printf("%n%-9s %11s %10s %9s %9s %9s %8s%n", "threads", "connections", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+            rows.forEach(System.out::println);
+        }
+    }
+    
+    // Active users holding the USER role; inserted by the first run and reused by the second
+    private static List<UUID> seed(JdbcTemplate jdbcTemplate) {
+        Integer seeded = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE username LIKE 'load%'", Integer.class);
+        if (seeded == null || seeded == 0) {
+            jdbcTemplate.update(
+                "INSERT INTO users (tenant_id, resource_domain, username, email, password_hash, first_name, last_name) " +
+                "SELECT ?, ?, 'load' || g, 'load' || g || '@example.com', 'x', 'First' || g, 'Last' || g " +
+                "FROM generate_series(1, ?) g", TENANT, DOMAIN, USERS);
+            jdbcTemplate.update("INSERT INTO user_roles (user_id, role_id, assigned_by) " +
+                "SELECT id, CAST(? AS uuid), 'load' FROM users WHERE username LIKE 'load%'", USER_ROLE_ID);
+            jdbcTemplate.execute("ANALYZE users");
+        }
+        return jdbcTemplate.queryForList("SELECT id FROM users WHERE username LIKE 'load%'", UUID.class);
+    }
+    
+    private static Result load(HttpClient client, URI users, List<UUID> userIds, int connections, Duration duration) {
+        Histogram latencies = new ConcurrentHistogram(REQUEST_TIMEOUT.toNanos(), 3);
+        LongAdder errors = new LongAdder();
+        long deadline = System.nanoTime() + duration.toNanos();
+        
+        // close() waits for every client to pass the deadline
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < connections; i++) {
+                boolean startWithCheck = i % 2 == 0;
+                clients.execute(() -> {
+                    boolean check = startWithCheck;
+                    while (System.nanoTime() < deadline) {
+                        UUID userId = userIds.get(ThreadLocalRandom.current().nextInt(userIds.size()));
+                        HttpRequest request = HttpRequest.newBuilder(users.resolve(check ? userId + "/permissions/check?permission=USER_READ" : userId.toString()))
+                            .header("X-Tenant-ID", TENANT)
+                            .header("X-Domain-ID", DOMAIN)
+                            .timeout(REQUEST_TIMEOUT)
+                            .build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() == 200) {
+                                latencies.recordValue(Math.min(System.nanoTime() - start, latencies.getHighestTrackableValue()));
+                            } else {
+                                errors.increment();
+                            }
+                        } catch (IOException e) {
+                            errors.increment();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        check = !check;
+                    }
+                });
+            }
+        }
+        return new Result(latencies, errors.sum(), duration);
+    }
+    
+    private record Result(Histogram latencies, long errors, Duration duration) {
+        
+        String format(String threads, int connections) {
+            return String.format("%-9s %11d %10.0f %9.1f %9.1f %9.1f %8d", threads, connections,
+                latencies.getTotalCount() / (double) duration.toSeconds(),
+                millis(latencies.getValueAtPercentile(50)), millis(latencies.getValueAtPercentile(99)),
+                millis(latencies.getMaxValue()), errors);
+        }
+        
+        private static double millis(long nanos) {
+            return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+        }
+    }
+}
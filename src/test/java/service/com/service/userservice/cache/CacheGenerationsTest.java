@@ -0,0 +1,95 @@
+package service.com.service.userservice.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheGenerationsTest {
+    
+    @Mock
+    private RedisTemplate<String, String> stringRedisTemplate;
+    
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+    
+    private CacheGenerations cacheGenerations;
+    
+    @BeforeEach
+    void setUp() {
+        cacheGenerations = new CacheGenerations(stringRedisTemplate);
+        ReflectionTestUtils.setField(cacheGenerations, "localTtlSeconds", 5L);
+        ReflectionTestUtils.invokeMethod(cacheGenerations, "init");
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+    
+    @Test
+    void keyPrefix_EmbedsGlobalTenantAndDomainGenerations() {
+        // Given
+        when(valueOperations.multiGet(List.of("gen:perm", "gen:perm:tenant1", "gen:perm:tenant1:domain1")))
+            .thenReturn(Arrays.asList(null, "4", "2"));
+        
+        // When
+        String first = cacheGenerations.keyPrefix(CacheGenerations.Kind.PERMISSIONS, "tenant1", "domain1");
+        String second = cacheGenerations.keyPrefix(CacheGenerations.Kind.PERMISSIONS, "tenant1", "domain1");
+        
+        // Then
+        assertEquals("perm:tenant1:domain1:0.4.2:", first);
+        assertEquals(first, second);
+        verify(valueOperations, times(1)).multiGet(anyList());
+    }
+    
+    @Test
+    void bump_IncrementsScopeCounterAndDropsLocalGenerations() {
+        // Given
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList(null, null, null), Arrays.asList(null, "1", null));
+        cacheGenerations.keyPrefix(CacheGenerations.Kind.PERMISSIONS, "tenant1", "domain1");
+        
+        // When
+        cacheGenerations.bump(CacheGenerations.Kind.PERMISSIONS, "tenant1", null);
+        String prefix = cacheGenerations.keyPrefix(CacheGenerations.Kind.PERMISSIONS, "tenant1", "domain1");
+        
+        // Then
+        verify(valueOperations).increment("gen:perm:tenant1");
+        assertEquals("perm:tenant1:domain1:0.1.0:", prefix);
+    }
+    
+    @Test
+    void isStale_OnlyKeysBehindTheCurrentGeneration() {
+        // Given
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList("1", "3", "0"));
+        
+        // When / Then
+        assertTrue(cacheGenerations.isStale(CacheGenerations.Kind.PERMISSIONS, "perm:tenant1:domain1:1.2.0:user"));
+        assertFalse(cacheGenerations.isStale(CacheGenerations.Kind.PERMISSIONS, "perm:tenant1:domain1:1.3.0:user"));
+        assertFalse(cacheGenerations.isStale(CacheGenerations.Kind.PERMISSIONS, "perm:tenant1:domain1:1.4.0:role:ADMIN"));
+        assertTrue(cacheGenerations.isStale(CacheGenerations.Kind.PERMISSIONS, "perm:tenant1:domain1:550e8400-e29b-41d4-a716-446655440000"));
+    }
+    
+    @Test
+    void keyPrefix_CountersUnreadable_PropagatesInsteadOfFallingBackToGenerationZero() {
+        // Given
+        when(valueOperations.multiGet(anyList()))
+            .thenThrow(new RedisConnectionFailureException("connection refused"))
+            .thenReturn(Arrays.asList("1", "3", "0"));
+        
+        // When / Then
+        assertThrows(RedisConnectionFailureException.class,
+            () -> cacheGenerations.keyPrefix(CacheGenerations.Kind.PERMISSIONS, "tenant1", "domain1"));
+        // The failure is not cached; the next call reads the counters again
+        assertEquals("perm:tenant1:domain1:1.3.0:", cacheGenerations.keyPrefix(CacheGenerations.Kind.PERMISSIONS, "tenant1", "domain1"));
+    }
+}
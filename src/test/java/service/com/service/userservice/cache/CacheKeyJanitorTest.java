@@ -0,0 +1,97 @@
+package service.com.service.userservice.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheKeyJanitorTest {
+    
+    @Mock
+    private RedisTemplate<String, String> stringRedisTemplate;
+    
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+    
+    @Mock
+    private CacheGenerations cacheGenerations;
+    
+    private CacheKeyJanitor janitor;
+    
+    @BeforeEach
+    void setUp() {
+        janitor = new CacheKeyJanitor(stringRedisTemplate, cacheGenerations);
+        ReflectionTestUtils.setField(janitor, "enabled", true);
+        ReflectionTestUtils.setField(janitor, "batchSize", 2);
+        ReflectionTestUtils.setField(janitor, "maxKeysPerRun", 2L);
+        ReflectionTestUtils.setField(janitor, "batchPauseMillis", 0L);
+        ReflectionTestUtils.setField(janitor, "lockTtlMillis", 1000L);
+        lenient().when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void sweep_ResumesFromSavedCursorAndSavesWhereItStopped() {
+        // Given
+        when(valueOperations.get("janitor:cursor:perm")).thenReturn("17");
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), eq("17"), eq("perm:*"), eq("2")))
+            .thenReturn(List.of("42", List.of("perm:t:d:0.0.0:a", "perm:t:d:0.1.0:b")));
+        when(cacheGenerations.isStale(CacheGenerations.Kind.PERMISSIONS, "perm:t:d:0.0.0:a")).thenReturn(true);
+        when(stringRedisTemplate.unlink(List.of("perm:t:d:0.0.0:a"))).thenReturn(1L);
+        
+        // When
+        long removed = janitor.sweep(CacheGenerations.Kind.PERMISSIONS);
+        
+        // Then
+        assertEquals(1, removed);
+        // The per-run cap was reached, so the next run continues from cursor 42 instead of starting over
+        verify(valueOperations).set("janitor:cursor:perm", "42");
+    }
+    
+    @Test
+    @SuppressWarnings("unchecked")
+    void sweep_NothingStale_StillWalksTheWholeCursorAndWrapsAround() {
+        // Given
+        ReflectionTestUtils.setField(janitor, "maxKeysPerRun", 100L);
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString(), anyString()))
+            .thenReturn(List.of("5", List.of("perm:t:d:0.0.0:a")), List.of("0", List.of("perm:t:d:0.0.0:b")));
+        
+        // When
+        long removed = janitor.sweep(CacheGenerations.Kind.PERMISSIONS);
+        
+        // Then
+        assertEquals(0, removed);
+        verify(stringRedisTemplate, never()).unlink(anyList());
+        verify(valueOperations).set("janitor:cursor:perm", "0");
+    }
+    
+    @Test
+    void cleanup_LockHeldByAnotherNode_DoesNotSweep() {
+        // Given
+        when(valueOperations.setIfAbsent(eq("janitor:lock"), anyString(), eq(Duration.ofMillis(1000))))
+            .thenReturn(false);
+        
+        // When
+        janitor.cleanup();
+        
+        // Then
+        verify(valueOperations, never()).get(anyString());
+        verifyNoInteractions(cacheGenerations);
+    }
+}
@@ -0,0 +1,86 @@
+package service.com.service.userservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LocalPermissionCacheTest {
+    
+    private static final String KEY_PREFIX = "perm:tenant1:domain1:0.0.0:";
+    private static final String KEY = KEY_PREFIX + "user1";
+    
+    @Mock
+    private EffectivePermissions permissions;
+    
+    @Mock
+    private PermissionDictionary.Namespace roleNamespace;
+    
+    private LocalPermissionCache cache;
+    
+    @BeforeEach
+    void setUp() {
+        cache = new LocalPermissionCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+        when(permissions.getRoleNamespace()).thenReturn(roleNamespace);
+        when(permissions.getRoleIds()).thenReturn(new BitSet());
+        when(roleNamespace.decode(any())).thenReturn(List.of("ADMIN"));
+    }
+    
+    @Test
+    void get_RoleInvalidated_DropsEntry() {
+        // Given
+        cache.put(KEY, permissions);
+        assertSame(permissions, cache.get(KEY));
+        
+        // When
+        cache.invalidateRole(KEY_PREFIX, "ADMIN");
+        
+        // Then
+        assertNull(cache.get(KEY));
+    }
+    
+    @Test
+    void get_RoleGenerationEvicted_CountsAsChanged() {
+        // Given
+        cache.put(KEY, permissions);
+        
+        // When
+        roleGenerations().invalidateAll();
+        
+        // Then
+        assertNull(cache.get(KEY));
+    }
+    
+    @Test
+    void invalidateByPrefix_PrunesRoleGenerations() {
+        // Given
+        cache.put(KEY, permissions);
+        cache.invalidateRole(KEY_PREFIX, "ADMIN");
+        
+        // When
+        cache.invalidateByPrefix(KEY_PREFIX);
+        
+        // Then
+        assertEquals(0, roleGenerations().asMap().size());
+    }
+    
+    private Cache<?, ?> roleGenerations() {
+        return (Cache<?, ?>) ReflectionTestUtils.getField(cache, "roleGenerations");
+    }
+}
@@ -0,0 +1,103 @@
+package service.com.service.userservice.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionEntryCodecTest {
+    
+    private final PermissionEntryCodec codec = new PermissionEntryCodec();
+    
+    @Test
+    void encode_SmallEntry_RoundTripsUncompressed() {
+        // Given
+        CompactPermissionsEntry entry = entry(bits(0, 3), bits(1, 2, 5, 40));
+        
+        // When
+        byte[] encoded = codec.encode(entry);
+        CompactPermissionsEntry decoded = codec.decode(encoded);
+        
+        // Then
+        assertEquals(PermissionEntryCodec.VERSION, encoded[0]);
+        assertEquals(0, encoded[1]);
+        assertEntryEquals(entry, decoded);
+    }
+    
+    @Test
+    void encode_LargeEntry_RoundTripsCompressed() {
+        // Given
+        BitSet permissions = new BitSet();
+        for (int id = 0; id < 20000; id += 3) {
+            permissions.set(id);
+        }
+        CompactPermissionsEntry entry = entry(bits(1), permissions.toByteArray());
+        
+        // When
+        byte[] encoded = codec.encode(entry);
+        CompactPermissionsEntry decoded = codec.decode(encoded);
+        
+        // Then
+        assertEquals(1, encoded[1]);
+        assertTrue(encoded.length < permissions.toByteArray().length);
+        assertEntryEquals(entry, decoded);
+    }
+    
+    @Test
+    void encode_SparseIds_SmallerThanBitset() {
+        // Given
+        byte[] sparse = bits(5000, 9000);
+        
+        // When
+        byte[] encoded = codec.encode(entry(new byte[0], sparse));
+        
+        // Then
+        assertTrue(encoded.length < sparse.length);
+        assertArrayEquals(sparse, codec.decode(encoded).directPermissionsBitset());
+    }
+    
+    @Test
+    void decode_UnknownVersion_Rejected() {
+        // Given
+        byte[] encoded = codec.encode(entry(bits(1), bits(2)));
+        encoded[0] = 99;
+        
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> codec.decode(encoded));
+    }
+    
+    @Test
+    void decodeIdSet_OtherDictionaryEpoch_Rejected() {
+        // Given
+        byte[] encoded = codec.encodeIdSet(BitSet.valueOf(bits(3, 9)), 5);
+        
+        // When / Then
+        assertEquals(BitSet.valueOf(bits(3, 9)), codec.decodeIdSet(encoded, 5));
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeIdSet(encoded, 6));
+    }
+    
+    private static CompactPermissionsEntry entry(byte[] roles, byte[] permissions) {
+        return new CompactPermissionsEntry(UUID.randomUUID(), "testuser", roles, permissions,
+            new EntryFreshness(1_700_000_000_000L, 1_700_003_600_000L, 12), 42, 1_700_000_000_000L);
+    }
+    
+    private static byte[] bits(int... ids) {
+        BitSet bitSet = new BitSet();
+        for (int id : ids) {
+            bitSet.set(id);
+        }
+        return bitSet.toByteArray();
+    }
+    
+    private static void assertEntryEquals(CompactPermissionsEntry expected, CompactPermissionsEntry actual) {
+        assertEquals(expected.userId(), actual.userId());
+        assertEquals(expected.username(), actual.username());
+        assertArrayEquals(expected.rolesBitset(), actual.rolesBitset());
+        assertArrayEquals(expected.directPermissionsBitset(), actual.directPermissionsBitset());
+        assertEquals(expected.freshness(), actual.freshness());
+        assertEquals(expected.permissionsVersion(), actual.permissionsVersion());
+        assertEquals(expected.dictionaryEpoch(), actual.dictionaryEpoch());
+    }
+}
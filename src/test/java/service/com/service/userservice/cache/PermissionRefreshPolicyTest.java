@@ -0,0 +1,85 @@
+package service.com.service.userservice.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionRefreshPolicyTest {
+    
+    private PermissionRefreshPolicy policy;
+    
+    @BeforeEach
+    void setUp() {
+        policy = new PermissionRefreshPolicy();
+        ReflectionTestUtils.setField(policy, "tenantMaxStaleSeconds", Map.of("strict", 0L));
+    }
+    
+    @Test
+    void stamp_JittersSoftExpiryBelowTtl() {
+        // When
+        EntryFreshness freshness = policy.stamp(10);
+        
+        // Then
+        long ttl = freshness.expiresAt() - freshness.cachedAt();
+        assertTrue(ttl <= 3_600_000 && ttl >= 3_240_000, "ttl " + ttl);
+        assertEquals(10, freshness.computeMillis());
+    }
+    
+    @Test
+    void state_FarFromExpiry_NeverRefreshesEarly() {
+        // Given
+        EntryFreshness freshness = freshness(60_000, 20);
+        
+        // When / Then
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(PermissionRefreshPolicy.State.FRESH, policy.state(freshness, "tenant1"));
+        }
+    }
+    
+    @Test
+    void state_CloseToExpiryRelativeToLoadTime_MostlyRefreshesEarly() {
+        // Given: one load time before expiry, -ln(r) >= 1 for about a third of the draws
+        EntryFreshness freshness = freshness(200, 2_000);
+        
+        // When
+        int early = 0;
+        for (int i = 0; i < 1_000; i++) {
+            if (policy.state(freshness, "tenant1") == PermissionRefreshPolicy.State.REFRESH_AHEAD) {
+                early++;
+            }
+        }
+        
+        // Then
+        assertTrue(early > 800, "early refreshes " + early);
+    }
+    
+    @Test
+    void state_PastSoftExpiry_HonoursTenantStalenessBound() {
+        // Given
+        EntryFreshness freshness = freshness(-10_000, 20);
+        
+        // When / Then
+        assertEquals(PermissionRefreshPolicy.State.STALE, policy.state(freshness, "tenant1"));
+        assertEquals(PermissionRefreshPolicy.State.EXPIRED, policy.state(freshness, "strict"));
+        assertEquals(PermissionRefreshPolicy.State.EXPIRED, policy.state(freshness(-301_000, 20), "tenant1"));
+    }
+    
+    @Test
+    void storeTtlMillis_KeepsEntryForTheStalenessWindow() {
+        // Given
+        EntryFreshness freshness = freshness(60_000, 20);
+        
+        // When / Then
+        assertTrue(policy.storeTtlMillis(freshness, "tenant1") > 350_000);
+        assertTrue(policy.storeTtlMillis(freshness, "strict") <= 60_000);
+    }
+    
+    private static EntryFreshness freshness(long millisToExpiry, long computeMillis) {
+        long now = System.currentTimeMillis();
+        return new EntryFreshness(now - 1_000, now + millisToExpiry, computeMillis);
+    }
+}
@@ -0,0 +1,113 @@
+package service.com.service.userservice.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import service.com.service.userservice.exception.UserNotFoundException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionRefresherTest {
+    
+    private SimpleMeterRegistry meterRegistry;
+    private PermissionRefresher refresher;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        refresher = new PermissionRefresher(meterRegistry);
+        ReflectionTestUtils.setField(refresher, "threads", 2);
+        ReflectionTestUtils.setField(refresher, "queueSize", 10);
+        ReflectionTestUtils.invokeMethod(refresher, "init");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(refresher, "shutdown");
+    }
+    
+    @Test
+    void reloadOrServeStale_LoadSucceeds_ReturnsFreshValue() {
+        // When
+        String result = refresher.reloadOrServeStale("user1", () -> "fresh", "stale", 1_000);
+        
+        // Then
+        assertEquals("fresh", result);
+        assertEquals(0, meterRegistry.counter("permissions.cache.stale.served").count());
+    }
+    
+    @Test
+    void reloadOrServeStale_DatabaseFailure_ServesStale() {
+        // When
+        String result = refresher.reloadOrServeStale("user1", () -> {
+            throw new DataAccessResourceFailureException("connection refused");
+        }, "stale", 1_000);
+        
+        // Then
+        assertEquals("stale", result);
+        assertEquals(1, meterRegistry.counter("permissions.cache.stale.served").count());
+    }
+    
+    @Test
+    void reloadOrServeStale_SlowLoad_ServesStaleWithinTimeout() throws InterruptedException {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        
+        // When
+        long started = System.nanoTime();
+        String result = refresher.reloadOrServeStale("user1", () -> {
+            awaitQuietly(release);
+            return "fresh";
+        }, "stale", 50);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        release.countDown();
+        
+        // Then
+        assertEquals("stale", result);
+        assertTrue(elapsedMillis < 1_000, "waited " + elapsedMillis + " ms");
+    }
+    
+    @Test
+    void reloadOrServeStale_UserGone_Propagates() {
+        // When / Then
+        assertThrows(UserNotFoundException.class, () -> refresher.reloadOrServeStale("user1", () -> {
+            throw new UserNotFoundException("User not found");
+        }, "stale", 1_000));
+    }
+    
+    @Test
+    void refreshAsync_SameKeyInFlight_RunsOnce() throws InterruptedException {
+        // Given
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        
+        // When
+        for (int i = 0; i < 5; i++) {
+            refresher.refreshAsync("user1", () -> {
+                loads.incrementAndGet();
+                awaitQuietly(release);
+                return "fresh";
+            });
+        }
+        release.countDown();
+        
+        // Then
+        Thread.sleep(100);
+        assertEquals(1, loads.get());
+    }
+    
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
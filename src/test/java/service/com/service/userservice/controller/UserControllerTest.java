@@ -0,0 +1,330 @@
+package service.com.service.userservice.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import service.com.service.userservice.dto.UserDto;
+import service.com.service.userservice.dto.UpdateUserRequest;
+import service.com.service.userservice.dto.UserPermissionsDto;
+import service.com.service.userservice.dto.UserPageResponse;
+import service.com.service.userservice.exception.GlobalExceptionHandler;
+import service.com.service.userservice.exception.VersionMismatchException;
+import service.com.service.userservice.repository.projection.UserVersionView;
+import service.com.service.userservice.service.CacheWarmupService;
+import service.com.service.userservice.service.UserImportService;
+import service.com.service.userservice.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserControllerTest {
+    
+    @Mock
+    private UserService userService;
+    
+    @Mock
+    private CacheWarmupService cacheWarmupService;
+    
+    @Mock
+    private UserImportService userImportService;
+    
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    
+    private MockMvc mockMvc;
+    
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(
+                new UserController(userService, cacheWarmupService, userImportService, objectMapper))
+            .setControllerAdvice(new GlobalExceptionHandler())
+            .build();
+    }
+    
+    @Test
+    void getUsers_NdjsonAccept_StreamsOneDocumentPerLine() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<UserDto> consumer = invocation.getArgument(2);
+            consumer.accept(user("alice"));
+            consumer.accept(user("bob"));
+            return 2L;
+        }).when(userService).exportUsers(eq("tenant1"), eq("domain1"), any());
+        
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/users")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        
+        // Then
+        String body = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+            .andReturn().getResponse().getContentAsString();
+        assertUsernames(body.lines().toList(), "alice", "bob");
+        verify(userService, never()).getUsersPage(any(), any(), any(), any());
+    }
+    
+    @Test
+    void getUsers_DefaultAccept_ReturnsJsonArray() throws Exception {
+        // Given
+        when(userService.getUsersPage(null, null, "tenant1", "domain1"))
+            .thenReturn(UserPageResponse.builder().users(List.of(user("alice"))).size(1).build());
+        
+        // When / Then
+        mockMvc.perform(get("/api/v1/users")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isOk())
+            .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+            .andExpect(jsonPath("$[0].username").value("alice"))
+            .andExpect(header().doesNotExist("X-Next-Cursor"))
+            .andExpect(header().doesNotExist(HttpHeaders.LINK));
+        verify(userService, never()).exportUsers(any(), any(), any());
+    }
+    
+    @Test
+    void getUsers_MorePages_AdvertisesNextCursorInHeaders() throws Exception {
+        // Given
+        when(userService.getUsersPage("c1", 1, "tenant1", "domain1"))
+            .thenReturn(UserPageResponse.builder().users(List.of(user("bob"))).size(1).hasMore(true).nextCursor("c2").build());
+        
+        // When / Then
+        mockMvc.perform(get("/api/v1/users?cursor=c1&limit=1")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].username").value("bob"))
+            .andExpect(header().string("X-Next-Cursor", "c2"))
+            .andExpect(header().string(HttpHeaders.LINK, "<http://localhost/api/v1/users?limit=1&cursor=c2>; rel=\"next\""));
+    }
+    
+    @Test
+    void searchUsers_NdjsonAccept_StreamsMatches() throws Exception {
+        // Given
+        doAnswer(invocation -> {
+            Consumer<UserDto> consumer = invocation.getArgument(5);
+            consumer.accept(user("alice"));
+            return 1L;
+        }).when(userService).searchUsers(eq("ali"), eq(10), eq(null), eq("tenant1"), eq("domain1"), any());
+        
+        // When
+        MvcResult result = mockMvc.perform(get("/api/v1/users/search")
+                .param("q", "ali")
+                .param("limit", "10")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        
+        // Then
+        String body = mockMvc.perform(asyncDispatch(result))
+            .andExpect(status().isOk())
+            .andReturn().getResponse().getContentAsString();
+        assertUsernames(body.lines().toList(), "alice");
+        verify(userService, never()).searchUsers(any(), any(), any(), any(), any());
+    }
+    
+    @Test
+    void getUserById_CurrentETag_AnsweredFromVersionAlone() throws Exception {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(userService.getUserVersion(userId, "tenant1", "domain1")).thenReturn(new UserVersionView(3L, null));
+        
+        // When / Then
+        mockMvc.perform(get("/api/v1/users/{userId}", userId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"2\", \"3\"")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isNotModified())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+            .andExpect(content().string(""));
+        verify(userService, never()).getUserById(any(), any(), any());
+    }
+    
+    @Test
+    void getUserById_StaleETag_ReturnsBodyTaggedWithItsVersion() throws Exception {
+        // Given
+        UserDto user = user("alice");
+        user.setVersion(4L);
+        when(userService.getUserVersion(user.getId(), "tenant1", "domain1")).thenReturn(new UserVersionView(4L, null));
+        when(userService.getUserById(user.getId(), "tenant1", "domain1")).thenReturn(user);
+        
+        // When / Then
+        mockMvc.perform(get("/api/v1/users/{userId}", user.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+            .andExpect(jsonPath("$.username").value("alice"));
+    }
+    
+    @Test
+    void getUserById_LoginFlushed_ETagChangesWithoutVersionBump() throws Exception {
+        // Given: the ETag a client got before the login
+        UserDto user = user("alice");
+        user.setVersion(4L);
+        when(userService.getUserById(user.getId(), "tenant1", "domain1")).thenReturn(user);
+        String before = mockMvc.perform(get("/api/v1/users/{userId}", user.getId())
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        
+        // When: the last-login buffer writes the login, leaving the version at 4
+        LocalDateTime loginAt = LocalDateTime.of(2024, 5, 1, 12, 0);
+        user.setLastLoginAt(loginAt);
+        when(userService.getUserVersion(user.getId(), "tenant1", "domain1")).thenReturn(new UserVersionView(4L, loginAt));
+        
+        // Then
+        String after = mockMvc.perform(get("/api/v1/users/{userId}", user.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, before)
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.lastLoginAt").exists())
+            .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertEquals("\"4\"", before);
+        assertNotEquals(before, after);
+        mockMvc.perform(get("/api/v1/users/{userId}", user.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, after)
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isNotModified());
+    }
+    
+    @Test
+    void getUserPermissions_CurrentETag_SkipsPermissionLookup() throws Exception {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(userService.getPermissionsVersion(userId, "tenant1", "domain1")).thenReturn(7L);
+        
+        // When / Then
+        mockMvc.perform(get("/api/v1/users/{userId}/permissions", userId)
+                .header(HttpHeaders.IF_NONE_MATCH, "W/\"7\"")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isNotModified());
+        verify(userService, never()).getCachedUserPermissions(any(), anyLong(), any(), any());
+    }
+    
+    @Test
+    void getUserPermissions_StaleETag_TaggedWithTheVersionOfTheBody() throws Exception {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(userService.getPermissionsVersion(userId, "tenant1", "domain1")).thenReturn(7L);
+        when(userService.getCachedUserPermissions(userId, 7L, "tenant1", "domain1")).thenReturn(UserPermissionsDto.builder()
+            .userId(userId)
+            .roles(List.of("ADMIN"))
+            .permissions(List.of("user:read"))
+            .permissionsVersion(8L)
+            .build());
+        
+        // When / Then
+        mockMvc.perform(get("/api/v1/users/{userId}/permissions", userId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"6\"")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"8\""))
+            .andExpect(jsonPath("$.roles[0]").value("ADMIN"))
+            .andExpect(jsonPath("$.permissionsVersion").doesNotExist());
+    }
+    
+    @Test
+    void getUserRoles_NotTagged() throws Exception {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(userService.getUserRoles(userId, "tenant1", "domain1")).thenReturn(List.of());
+        
+        // When / Then
+        mockMvc.perform(get("/api/v1/users/{userId}/roles", userId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"7\"")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isOk())
+            .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+        verify(userService, never()).getPermissionsVersion(any(), any(), any());
+    }
+    
+    @Test
+    void updateUser_IfMatchMismatch_PreconditionFailed() throws Exception {
+        // Given
+        UUID userId = UUID.randomUUID();
+        when(userService.updateUser(eq(userId), any(UpdateUserRequest.class), eq(2L), eq("tenant1"), eq("domain1")))
+            .thenThrow(new VersionMismatchException("User " + userId + " is at version 3, not 2"));
+        
+        // When / Then
+        mockMvc.perform(put("/api/v1/users/{userId}", userId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\": \"Alice\"}")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isPreconditionFailed());
+    }
+    
+    @Test
+    void updateUser_IfMatchWithLoginTime_ChecksTheVersionOnly() throws Exception {
+        // Given
+        UserDto user = user("alice");
+        user.setVersion(5L);
+        when(userService.updateUser(eq(user.getId()), any(UpdateUserRequest.class), eq(4L), eq("tenant1"), eq("domain1")))
+            .thenReturn(user);
+        
+        // When / Then
+        mockMvc.perform(put("/api/v1/users/{userId}", user.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"firstName\": \"Alice\"}")
+                .header(HttpHeaders.IF_MATCH, "\"4.1714564800000\"")
+                .header("X-Tenant-ID", "tenant1")
+                .header("X-Domain-ID", "domain1"))
+            .andExpect(status().isOk())
+            .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+    }
+    
+    private void assertUsernames(List<String> lines, String... usernames) throws Exception {
+        List<String> actual = new ArrayList<>();
+        for (String line : lines) {
+            actual.add(objectMapper.readTree(line).get("username").asText());
+        }
+        assertEquals(List.of(usernames), actual);
+    }
+    
+    private static UserDto user(String username) {
+        return UserDto.builder()
+            .id(UUID.randomUUID())
+            .tenantId("tenant1")
+            .resourceDomain("domain1")
+            .username(username)
+            .email(username + "@example.com")
+            .build();
+    }
+}
@@ -0,0 +1,150 @@
+package service.com.service.userservice.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.com.service.userservice.utils.TenantContext;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Two in-memory H2 databases stand in for the primary and a replica; each knows its own name
+class ReadReplicaRoutingDataSourceTest {
+    
+    private static final Duration STICKY_WINDOW = Duration.ofMillis(300);
+    
+    private SimpleMeterRegistry meterRegistry;
+    private ReadReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate readWrite;
+    private TransactionTemplate readOnly;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        use(database("primary"), database("replica"));
+        TenantContext.setTenantId("tenant1");
+        TenantContext.setDomainId("domain1");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        TenantContext.clear();
+    }
+    
+    @Test
+    void replicaReadTransaction_RoutesToReplica() {
+        assertEquals("replica", replicaRead(() -> readOnly.execute(status -> node())));
+        assertEquals(1.0, meterRegistry.counter("datasource.routing", "route", "replica").count());
+    }
+    
+    @Test
+    void readOnlyTransactionWithoutReplicaRead_StaysOnPrimary() {
+        assertEquals("primary", readOnly.execute(status -> node()));
+        assertEquals(0.0, meterRegistry.counter("datasource.routing", "route", "replica").count());
+    }
+    
+    @Test
+    void nestedReplicaRead_KeepsOuterScopeAfterReturning() {
+        // When
+        String inner = replicaRead(() -> {
+            replicaRead(() -> "nested");
+            return readOnly.execute(status -> node());
+        });
+        
+        // Then
+        assertEquals("replica", inner);
+        assertEquals("primary", readOnly.execute(status -> node()));
+    }
+    
+    @Test
+    void readWriteTransaction_RoutesToPrimary() {
+        assertEquals("primary", readWrite.execute(status -> node()));
+        assertEquals("primary", node());
+    }
+    
+    @Test
+    void readAfterWrite_StaysOnPrimaryForStickyWindowOfSameTenant() throws InterruptedException {
+        // Given
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("UPDATE node SET writes = writes + 1"));
+        
+        // When / Then
+        assertEquals("primary", replicaRead(() -> readOnly.execute(status -> node())));
+        assertEquals(1.0, meterRegistry.counter("datasource.routing", "route", "sticky").count());
+        
+        TenantContext.setTenantId("tenant2");
+        assertEquals("replica", replicaRead(() -> readOnly.execute(status -> node())));
+        
+        TenantContext.setTenantId("tenant1");
+        Thread.sleep(STICKY_WINDOW.toMillis() + 100);
+        assertEquals("replica", replicaRead(() -> readOnly.execute(status -> node())));
+    }
+    
+    @Test
+    void rolledBackWrite_DoesNotMakeReadsSticky() {
+        readWrite.executeWithoutResult(status -> {
+            jdbcTemplate.update("UPDATE node SET writes = writes + 1");
+            status.setRollbackOnly();
+        });
+        
+        assertEquals("replica", replicaRead(() -> readOnly.execute(status -> node())));
+    }
+    
+    @Test
+    void unavailableReplica_FallsBackToPrimary() throws SQLException {
+        // Given
+        DataSource broken = mock(DataSource.class);
+        when(broken.getConnection()).thenThrow(new SQLException("Connection refused"));
+        use(database("primary"), broken);
+        
+        // When / Then
+        assertEquals("primary", replicaRead(() -> readOnly.execute(status -> node())));
+        assertEquals(1.0, meterRegistry.counter("datasource.routing.fallback").count());
+    }
+    
+    private void use(DataSource primary, DataSource replica) {
+        routing = new ReadReplicaRoutingDataSource(primary, List.of(replica), STICKY_WINDOW, meterRegistry);
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+    
+    // What ReplicaReadAspect does around a @ReplicaRead method
+    private static <T> T replicaRead(Supplier<T> call) {
+        boolean previous = ReadReplicaRoutingDataSource.enterReplicaReads();
+        try {
+            return call.get();
+        } finally {
+            ReadReplicaRoutingDataSource.exitReplicaReads(previous);
+        }
+    }
+    
+    private String node() {
+        return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+    }
+    
+    private static DataSource database(String name) {
+        DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20), writes INT)");
+        jdbc.update("DELETE FROM node");
+        jdbc.update("INSERT INTO node VALUES (?, 0)", name);
+        return dataSource;
+    }
+}
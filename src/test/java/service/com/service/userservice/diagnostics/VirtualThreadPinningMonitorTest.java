@@ -0,0 +1,67 @@
+package service.com.service.userservice.diagnostics;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadPinningMonitorTest {
+    
+    private final Object monitor = new Object();
+    
+    private SimpleMeterRegistry meterRegistry;
+    private VirtualThreadPinningMonitor pinningMonitor;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        pinningMonitor = new VirtualThreadPinningMonitor(meterRegistry);
+        ReflectionTestUtils.setField(pinningMonitor, "thresholdMillis", 10L);
+        ReflectionTestUtils.invokeMethod(pinningMonitor, "init");
+    }
+    
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(pinningMonitor, "shutdown");
+    }
+    
+    @Test
+    void blockingInsideSynchronized_IsReportedWithTheCallingSite() throws InterruptedException {
+        // When
+        Thread.ofVirtual().start(this::sleepHoldingMonitor).join();
+        Thread.ofVirtual().start(this::sleepWithoutMonitor).join();
+        
+        // Then: events reach the stream with its next flush, about once a second
+        Timer pinned = null;
+        for (int attempt = 0; attempt < 100 && pinned == null; attempt++) {
+            Thread.sleep(100);
+            pinned = meterRegistry.find("threads.virtual.pinned").timer();
+        }
+        assertNotNull(pinned);
+        assertEquals(getClass().getName() + ".sleepHoldingMonitor", pinned.getId().getTag("site"));
+        assertEquals(1, pinned.count());
+        assertEquals(1, meterRegistry.find("threads.virtual.pinned").timers().size());
+    }
+    
+    private void sleepHoldingMonitor() {
+        synchronized (monitor) {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void sleepWithoutMonitor() {
+        try {
+            Thread.sleep(50);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
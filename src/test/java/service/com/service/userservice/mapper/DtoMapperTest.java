@@ -0,0 +1,121 @@
+package service.com.service.userservice.mapper;
+
+import org.junit.jupiter.api.Test;
+import service.com.service.userservice.dto.PermissionDto;
+import service.com.service.userservice.dto.RoleDto;
+import service.com.service.userservice.dto.UserDto;
+import service.com.service.userservice.entity.Permission;
+import service.com.service.userservice.entity.Role;
+import service.com.service.userservice.entity.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DtoMapperTest {
+    
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 4, 8, 0);
+    
+    private final DtoMapper dtoMapper = new DtoMapperImpl();
+    
+    @Test
+    void toDto_CopiesEveryUserColumnButNoCredentialsOrAssociations() {
+        // Given
+        Permission permission = permission("users", "read");
+        User user = User.builder()
+            .id(UUID.randomUUID())
+            .tenantId("tenant1")
+            .resourceDomain("domain1")
+            .username("testuser")
+            .email("test@example.com")
+            .passwordHash("hashedpassword")
+            .firstName("Test")
+            .lastName("User")
+            .isActive(false)
+            .isEmailVerified(true)
+            .lastLoginAt(NOW.plusHours(2))
+            .createdAt(NOW)
+            .updatedAt(NOW.plusHours(1))
+            .createdBy("admin")
+            .updatedBy("auditor")
+            .roles(Set.of(role("ADMIN", permission)))
+            .permissions(Set.of(permission))
+            .build();
+        
+        // When
+        UserDto result = dtoMapper.toDto(user);
+        
+        // Then
+        assertEquals(UserDto.builder()
+            .id(user.getId())
+            .tenantId("tenant1")
+            .resourceDomain("domain1")
+            .username("testuser")
+            .email("test@example.com")
+            .firstName("Test")
+            .lastName("User")
+            .isActive(false)
+            .isEmailVerified(true)
+            .lastLoginAt(NOW.plusHours(2))
+            .createdAt(NOW)
+            .updatedAt(NOW.plusHours(1))
+            .createdBy("admin")
+            .updatedBy("auditor")
+            .build(), result);
+    }
+    
+    @Test
+    void toRoleAndPermissionDtos_CopyColumnsInIterationOrder() {
+        // Given
+        Permission read = permission("users", "read");
+        Permission write = permission("users", "write");
+        Role admin = role("ADMIN", read);
+        
+        // When
+        List<RoleDto> roles = dtoMapper.toRoleDtos(List.of(admin));
+        List<PermissionDto> permissions = dtoMapper.toPermissionDtos(List.of(read, write));
+        
+        // Then
+        assertEquals(1, roles.size());
+        assertEquals(admin.getId(), roles.get(0).getId());
+        assertEquals("ADMIN", roles.get(0).getName());
+        assertEquals("Role ADMIN", roles.get(0).getDescription());
+        assertEquals(NOW, roles.get(0).getCreatedAt());
+        assertNull(roles.get(0).getPermissions());
+        
+        assertEquals(List.of("users:read", "users:write"), permissions.stream().map(PermissionDto::getFullPermission).toList());
+        assertEquals(read.getId(), permissions.get(0).getId());
+        assertEquals("tenant1", permissions.get(0).getTenantId());
+        assertEquals("users.read", permissions.get(0).getName());
+        assertTrue(permissions.get(0).getIsActive());
+        assertEquals("admin", permissions.get(0).getCreatedBy());
+    }
+    
+    private static Role role(String name, Permission permission) {
+        return Role.builder()
+            .id(UUID.randomUUID())
+            .tenantId("tenant1")
+            .resourceDomain("domain1")
+            .name(name)
+            .description("Role " + name)
+            .createdAt(NOW)
+            .permissions(Set.of(permission))
+            .build();
+    }
+    
+    private static Permission permission(String resource, String action) {
+        return Permission.builder()
+            .id(UUID.randomUUID())
+            .tenantId("tenant1")
+            .resourceDomain("domain1")
+            .name(resource + "." + action)
+            .resource(resource)
+            .action(action)
+            .createdAt(NOW)
+            .createdBy("admin")
+            .build();
+    }
+}
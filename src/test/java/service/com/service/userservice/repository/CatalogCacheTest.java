@@ -0,0 +1,179 @@
+package service.com.service.userservice.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.com.service.userservice.cache.CatalogCache;
+import service.com.service.userservice.entity.Permission;
+import service.com.service.userservice.entity.Role;
+import service.com.service.userservice.entity.User;
+import service.com.service.userservice.repository.projection.RolePermissionView;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Second-level and query cache behaviour of the role/permission catalog against H2 in PostgreSQL mode
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:catalog-cache;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.flyway.enabled=false"
+})
+@Import(CatalogCacheTest.MetricsConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CatalogCacheTest {
+    
+    private static final String TENANT = "tenant-1";
+    private static final String DOMAIN = "domain-1";
+    
+    @TestConfiguration
+    static class MetricsConfiguration {
+        
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+    
+    @Autowired
+    private RoleRepository roleRepository;
+    
+    @Autowired
+    private PermissionRepository permissionRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private Statistics statistics;
+    private Role role;
+    private Permission read;
+    private Permission write;
+    private User user;
+    
+    @BeforeEach
+    void setUp() {
+        SessionFactory sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        sessionFactory.getCache().evictAll();
+        
+        read = permissionRepository.save(permission("orders", "read"));
+        write = permissionRepository.save(permission("orders", "write"));
+        Role admin = Role.builder().tenantId(TENANT).resourceDomain(DOMAIN).name("admin-" + UUID.randomUUID()).build();
+        admin.getPermissions().add(read);
+        role = roleRepository.save(admin);
+        user = userRepository.save(User.builder().tenantId(TENANT).resourceDomain(DOMAIN)
+            .username("user-" + UUID.randomUUID()).email(UUID.randomUUID() + "@example.com").passwordHash("hash").build());
+        
+        statistics = sessionFactory.getStatistics();
+        statistics.clear();
+    }
+    
+    @Test
+    void repeatedLookupByIdIsServedFromCache() {
+        // Given
+        roleRepository.findByIdAndTenantIdAndResourceDomain(role.getId(), TENANT, DOMAIN);
+        permissionRepository.findByIdAndTenantIdAndResourceDomain(read.getId(), TENANT, DOMAIN);
+        long statements = statistics.getPrepareStatementCount();
+        
+        // When
+        Role cachedRole = roleRepository.findByIdAndTenantIdAndResourceDomain(role.getId(), TENANT, DOMAIN).orElseThrow();
+        Permission cachedPermission = permissionRepository.findByIdAndTenantIdAndResourceDomain(read.getId(), TENANT, DOMAIN).orElseThrow();
+        
+        // Then
+        assertEquals(role.getName(), cachedRole.getName());
+        assertEquals("read", cachedPermission.getAction());
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getQueryRegionStatistics(CatalogCache.QUERY_REGION).getHitCount());
+    }
+    
+    @Test
+    void rolePermissionsAreServedFromCollectionCache() {
+        // Given
+        assertEquals(Set.of("read"), rolePermissionActions());
+        long statements = statistics.getPrepareStatementCount();
+        
+        // When
+        Set<String> actions = rolePermissionActions();
+        
+        // Then
+        assertEquals(Set.of("read"), actions);
+        assertEquals(statements, statistics.getPrepareStatementCount());
+        assertTrue(statistics.getDomainDataRegionStatistics("catalog-role-permissions").getHitCount() > 0);
+    }
+    
+    @Test
+    void bulkRolePermissionWriteInvalidatesCatalogQueries() {
+        // Given
+        assertEquals(List.of("orders:read"), rolePermissionStrings());
+        
+        // When
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            roleRepository.insertRolePermissions(role.getId(), List.of(write.getId()), TENANT, DOMAIN));
+        
+        // Then
+        assertEquals(List.of("orders:read", "orders:write"), rolePermissionStrings());
+        assertEquals(Set.of("read", "write"), rolePermissionActions());
+    }
+    
+    @Test
+    void bulkUserRoleWriteKeepsCatalogCached() {
+        // Given
+        roleRepository.findByIdAndTenantIdAndResourceDomain(role.getId(), TENANT, DOMAIN);
+        
+        // When
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+            userRepository.insertUserRoles(List.of(user.getId()), List.of(role.getId()), TENANT, DOMAIN));
+        long statements = statistics.getPrepareStatementCount();
+        roleRepository.findByIdAndTenantIdAndResourceDomain(role.getId(), TENANT, DOMAIN);
+        
+        // Then
+        assertEquals(statements, statistics.getPrepareStatementCount());
+    }
+    
+    // Loads the role by primary key and touches its permissions; the role itself always comes from the entity region
+    private Set<String> rolePermissionActions() {
+        return new TransactionTemplate(transactionManager).execute(status -> {
+            Role loaded = roleRepository.findById(role.getId()).orElseThrow();
+            return Set.copyOf(loaded.getPermissions().stream().map(Permission::getAction).toList());
+        });
+    }
+    
+    private List<String> rolePermissionStrings() {
+        return roleRepository.findPermissionsByRoleNamesAndDomain(List.of(role.getName()), TENANT, DOMAIN).stream()
+            .map(RolePermissionView::getPermission)
+            .sorted()
+            .toList();
+    }
+    
+    private static Permission permission(String resource, String action) {
+        return Permission.builder().tenantId(TENANT).resourceDomain(DOMAIN)
+            .name(resource + "-" + action + "-" + UUID.randomUUID()).resource(resource).action(action).build();
+    }
+}
@@ -0,0 +1,41 @@
+package service.com.service.userservice.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Root node of a Postgres EXPLAIN (FORMAT JSON) plan
+record QueryPlan(JsonNode root) {
+    
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    
+    static QueryPlan parse(String json) {
+        try {
+            return new QueryPlan(MAPPER.readTree(json).get(0).get("Plan"));
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Unreadable plan: " + json, e);
+        }
+    }
+    
+    double totalCost() {
+        return root.get("Total Cost").asDouble();
+    }
+    
+    // Relations read by a sequential scan anywhere in the plan
+    List<String> sequentialScans() {
+        List<String> relations = new ArrayList<>();
+        collectSequentialScans(root, relations);
+        return relations;
+    }
+    
+    private static void collectSequentialScans(JsonNode node, List<String> relations) {
+        if ("Seq Scan".equals(node.path("Node Type").asText())) {
+            relations.add(node.path("Relation Name").asText());
+        }
+        for (JsonNode child : node.path("Plans")) {
+            collectSequentialScans(child, relations);
+        }
+    }
+}
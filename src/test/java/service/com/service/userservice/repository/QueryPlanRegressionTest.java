@@ -0,0 +1,313 @@
+package service.com.service.userservice.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs every query method of the repositories against a seeded Postgres of realistic size, replays each statement it
+// issues under EXPLAIN and fails on sequential scans or on plan costs above the recorded baseline.
+// Observed costs are written to target/query-plans/observed.properties; copy that file over
+// src/test/resources/query-plans/baseline.properties to accept new or intentionally changed plans.
+// Needs Docker; skipped when it is not available.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanRegressionTest {
+    
+    private static final String TENANT = "plan-tenant-7";
+    private static final String DOMAIN = "plan-domain-1";
+    private static final int TENANTS = 100;
+    private static final int USERS = 200_000;
+    private static final int ROLES_PER_DOMAIN = 20;
+    private static final int PERMISSIONS_PER_DOMAIN = 100;
+    
+    // Relative cost increase over the baseline that still passes
+    private static final double COST_TOLERANCE = Double.parseDouble(System.getProperty("query-plans.cost-tolerance", "0.2"));
+    
+    // Methods that read a whole table by design, with the reason
+    private static final Map<String, String> SEQUENTIAL_SCAN_ALLOWED = Map.of(
+        "UserRepository.findTenantDomainsWithActiveUsers", "DISTINCT over every active user; runs once per cache warm-up"
+    );
+    
+    @Container
+    static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+    
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+    
+    @TestConfiguration
+    static class RecordingConfiguration {
+        
+        @Bean
+        static BeanPostProcessor statementRecorderPostProcessor() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    return bean instanceof DataSource dataSource && !(bean instanceof StatementRecorder)
+                        ? new StatementRecorder(dataSource)
+                        : bean;
+                }
+            };
+        }
+        
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+    
+    @Autowired
+    private ApplicationContext context;
+    
+    @Autowired
+    private DataSource dataSource;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private final Map<String, Double> observedCosts = new TreeMap<>();
+    private Properties baseline;
+    private Samples samples;
+    
+    private record Samples(UUID userId, String username, String email, LocalDateTime createdAt, List<UUID> userIds,
+                           UUID roleId, String roleName, UUID permissionId, String permissionName,
+                           String resource, String action) {
+    }
+    
+    @BeforeAll
+    void seed() throws IOException {
+        jdbcTemplate.update(
+            "INSERT INTO users (tenant_id, resource_domain, username, email, password_hash, first_name, last_name, is_active, created_at) " +
+            "SELECT 'plan-tenant-' || (g % ?), 'plan-domain-' || (g / ? % 2), 'planuser' || g, 'planuser' || g || '@example.com', 'x', " +
+            "'First' || (g % 500), 'Last' || (g % 700), g % 10 <> 0, now() - g * interval '1 second' " +
+            "FROM generate_series(1, ?) g", TENANTS, TENANTS, USERS);
+        jdbcTemplate.update(
+            "INSERT INTO roles (tenant_id, resource_domain, name, description) " +
+            "SELECT 'plan-tenant-' || t, 'plan-domain-' || d, 'ROLE_' || r, 'Role ' || r " +
+            "FROM generate_series(0, ? - 1) t, generate_series(0, 1) d, generate_series(0, ? - 1) r", TENANTS, ROLES_PER_DOMAIN);
+        jdbcTemplate.update(
+            "INSERT INTO permissions (tenant_id, resource_domain, name, resource, action, description) " +
+            "SELECT 'plan-tenant-' || t, 'plan-domain-' || d, 'perm_' || p, 'resource' || (p / 4), " +
+            "(ARRAY['read', 'write', 'delete', 'export'])[1 + p % 4], 'Permission ' || p " +
+            "FROM generate_series(0, ? - 1) t, generate_series(0, 1) d, generate_series(0, ? - 1) p", TENANTS, PERMISSIONS_PER_DOMAIN);
+        jdbcTemplate.update(
+            "INSERT INTO role_permissions (role_id, permission_id) " +
+            "SELECT r.id, p.id FROM roles r CROSS JOIN generate_series(0, 9) i " +
+            "JOIN permissions p ON p.tenant_id = r.tenant_id AND p.resource_domain = r.resource_domain " +
+            "AND p.name = 'perm_' || ((substr(r.name, 6)::int * 5 + i) % ?) " +
+            "WHERE r.tenant_id LIKE 'plan-tenant-%' ON CONFLICT DO NOTHING", PERMISSIONS_PER_DOMAIN);
+        jdbcTemplate.update(
+            "INSERT INTO user_roles (user_id, role_id) " +
+            "SELECT u.id, r.id FROM users u CROSS JOIN generate_series(0, 1) i " +
+            "JOIN roles r ON r.tenant_id = u.tenant_id AND r.resource_domain = u.resource_domain " +
+            "AND r.name = 'ROLE_' || ((substr(u.username, 9)::int + i * 7) % ?) " +
+            "WHERE u.username LIKE 'planuser%' ON CONFLICT DO NOTHING", ROLES_PER_DOMAIN);
+        jdbcTemplate.update(
+            "INSERT INTO user_permissions (user_id, permission_id) " +
+            "SELECT u.id, p.id FROM users u " +
+            "JOIN permissions p ON p.tenant_id = u.tenant_id AND p.resource_domain = u.resource_domain " +
+            "AND p.name = 'perm_' || (substr(u.username, 9)::int % ?) " +
+            "WHERE u.username LIKE 'planuser%'", PERMISSIONS_PER_DOMAIN);
+        jdbcTemplate.execute("ANALYZE");
+        
+        Map<String, Object> user = jdbcTemplate.queryForMap(
+            "SELECT id, username, email, created_at FROM users WHERE tenant_id = ? AND resource_domain = ? " +
+            "ORDER BY created_at, id OFFSET 10 LIMIT 1", TENANT, DOMAIN);
+        Map<String, Object> role = jdbcTemplate.queryForMap(
+            "SELECT id, name FROM roles WHERE tenant_id = ? AND resource_domain = ? ORDER BY name LIMIT 1", TENANT, DOMAIN);
+        Map<String, Object> permission = jdbcTemplate.queryForMap(
+            "SELECT id, name, resource, action FROM permissions WHERE tenant_id = ? AND resource_domain = ? ORDER BY name LIMIT 1",
+            TENANT, DOMAIN);
+        List<UUID> userIds = jdbcTemplate.queryForList(
+            "SELECT id FROM users WHERE tenant_id = ? AND resource_domain = ? LIMIT 100", UUID.class, TENANT, DOMAIN);
+        samples = new Samples((UUID) user.get("id"), (String) user.get("username"), (String) user.get("email"),
+            ((Timestamp) user.get("created_at")).toLocalDateTime(), userIds,
+            (UUID) role.get("id"), (String) role.get("name"),
+            (UUID) permission.get("id"), (String) permission.get("name"),
+            (String) permission.get("resource"), (String) permission.get("action"));
+        
+        baseline = new Properties();
+        try (InputStream in = getClass().getResourceAsStream("/query-plans/baseline.properties")) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        }
+    }
+    
+    @AfterAll
+    void writeObservedCosts() throws IOException {
+        Path output = Path.of("target", "query-plans", "observed.properties");
+        Files.createDirectories(output.getParent());
+        try (Writer writer = Files.newBufferedWriter(output)) {
+            writer.write("# Summed EXPLAIN total cost per repository method; see QueryPlanRegressionTest\n");
+            for (Map.Entry<String, Double> entry : observedCosts.entrySet()) {
+                writer.write(entry.getKey() + "=" + String.format("%.2f", entry.getValue()) + "\n");
+            }
+        }
+    }
+    
+    @TestFactory
+    Stream<DynamicTest> everyRepositoryMethodUsesAnIndex() {
+        return Stream.of(UserRepository.class, RoleRepository.class, PermissionRepository.class)
+            .flatMap(repository -> queryMethods(repository)
+                .map(method -> DynamicTest.dynamicTest(repository.getSimpleName() + "." + method.getName(),
+                    () -> verifyPlan(repository, method))));
+    }
+    
+    // Query methods declared by the repository and its fragments; inherited CRUD methods are primary-key lookups
+    private static Stream<Method> queryMethods(Class<?> repository) {
+        return Arrays.stream(repository.getMethods())
+            .filter(method -> method.getDeclaringClass().getPackageName().equals(repository.getPackageName()))
+            .sorted(Comparator.comparing(Method::getName).thenComparing(Method::getParameterCount));
+    }
+    
+    private void verifyPlan(Class<?> repository, Method method) throws Exception {
+        String key = repository.getSimpleName() + "." + method.getName();
+        Object bean = context.getBean(repository);
+        Object[] args = Arrays.stream(method.getParameters())
+            .map(parameter -> argument(repository, method, parameter))
+            .toArray();
+        
+        StatementRecorder recorder = (StatementRecorder) dataSource;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        List<StatementRecorder.RecordedStatement> statements;
+        recorder.start();
+        try {
+            transaction.executeWithoutResult(status -> {
+                status.setRollbackOnly();
+                try {
+                    if (method.invoke(bean, args) instanceof Stream<?> stream) {
+                        try (stream) {
+                            stream.forEach(row -> { });
+                        }
+                    }
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new IllegalStateException(key + " failed", e);
+                }
+            });
+        } finally {
+            statements = recorder.stop();
+        }
+        
+        double cost = 0;
+        List<String> sequentialScans = new ArrayList<>();
+        for (StatementRecorder.RecordedStatement statement : statements) {
+            QueryPlan plan = explain(recorder, statement);
+            cost += plan.totalCost();
+            sequentialScans.addAll(plan.sequentialScans());
+        }
+        observedCosts.put(key, cost);
+        
+        if (!SEQUENTIAL_SCAN_ALLOWED.containsKey(key)) {
+            assertTrue(sequentialScans.isEmpty(), key + " plans a sequential scan on " + sequentialScans);
+        }
+        String expected = baseline.getProperty(key);
+        if (expected != null) {
+            double limit = Double.parseDouble(expected) * (1 + COST_TOLERANCE);
+            assertTrue(cost <= limit, String.format("%s cost regressed from %s to %.2f (limit %.2f)", key, expected, cost, limit));
+        }
+    }
+    
+    private static QueryPlan explain(StatementRecorder recorder, StatementRecorder.RecordedStatement statement) throws Exception {
+        try (Connection connection = recorder.getTargetDataSource().getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN (FORMAT JSON) " + statement.sql())) {
+            statement.bind(explain);
+            try (ResultSet resultSet = explain.executeQuery()) {
+                resultSet.next();
+                return QueryPlan.parse(resultSet.getString(1));
+            }
+        }
+    }
+    
+    // Realistic values for repository parameters by name; a new parameter name needs a rule here
+    private Object argument(Class<?> repository, Method method, Parameter parameter) {
+        return switch (parameter.getName()) {
+            case "tenantId" -> TENANT;
+            case "resourceDomain" -> DOMAIN;
+            case "id" -> repository == RoleRepository.class ? samples.roleId()
+                : repository == PermissionRepository.class ? samples.permissionId() : samples.userId();
+            case "userId" -> samples.userId();
+            case "userIds" -> samples.userIds();
+            case "username" -> samples.username();
+            case "email" -> samples.email();
+            case "usernames" -> List.of(samples.username());
+            case "emails" -> List.of(samples.email());
+            case "createdAt" -> samples.createdAt();
+            case "name" -> repository == RoleRepository.class ? samples.roleName() : samples.permissionName();
+            case "roleId" -> samples.roleId();
+            case "roleName" -> samples.roleName();
+            case "roleNames" -> List.of(samples.roleName());
+            case "roleIds" -> List.of(samples.roleId());
+            case "permissionIds" -> List.of(samples.permissionId());
+            case "resource" -> samples.resource();
+            case "action" -> samples.action();
+            case "resourcePattern" -> samples.resource() + "%";
+            case "actionPattern" -> "%";
+            case "pattern" -> samples.resource() + ":*";
+            case "searchTerm" -> "planuser12";
+            case "isActive" -> true;
+            case "pageable" -> PageRequest.ofSize(50);
+            case "limit" -> 20;
+            case "offset" -> 0;
+            default -> throw new IllegalStateException(
+                "No sample value for parameter '" + parameter.getName() + "' of " + method);
+        };
+    }
+}
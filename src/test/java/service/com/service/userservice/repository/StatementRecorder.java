@@ -0,0 +1,108 @@
+package service.com.service.userservice.repository;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Wraps the test DataSource and, while recording, keeps every prepared statement that gets executed together with
+// its parameter setter calls, so that the exact statement can be replayed under EXPLAIN
+class StatementRecorder extends DelegatingDataSource {
+    
+    private volatile List<RecordedStatement> recording;
+    
+    StatementRecorder(DataSource target) {
+        super(target);
+    }
+    
+    void start() {
+        recording = new CopyOnWriteArrayList<>();
+    }
+    
+    List<RecordedStatement> stop() {
+        List<RecordedStatement> recorded = recording;
+        recording = null;
+        return recorded != null ? recorded : List.of();
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+    
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                Object result = invoke(connection, method, args);
+                if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+                    return wrap(statement, (String) args[0]);
+                }
+                return result;
+            });
+    }
+    
+    private PreparedStatement wrap(PreparedStatement statement, String sql) {
+        List<Binding> bindings = new ArrayList<>();
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {PreparedStatement.class},
+            (proxy, method, args) -> {
+                String name = method.getName();
+                if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                    bindings.add(new Binding(method, args.clone()));
+                } else if (name.equals("clearParameters")) {
+                    bindings.clear();
+                } else if (name.startsWith("execute") && (args == null || args.length == 0)) {
+                    List<RecordedStatement> recorded = recording;
+                    if (recorded != null) {
+                        recorded.add(new RecordedStatement(sql, List.copyOf(bindings)));
+                    }
+                }
+                return invoke(statement, method, args);
+            });
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+    
+    record RecordedStatement(String sql, List<Binding> bindings) {
+        
+        void bind(PreparedStatement statement) throws SQLException {
+            for (Binding binding : bindings) {
+                binding.apply(statement);
+            }
+        }
+    }
+    
+    record Binding(Method setter, Object[] args) {
+        
+        void apply(PreparedStatement statement) throws SQLException {
+            try {
+                setter.invoke(statement, args);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            } catch (InvocationTargetException e) {
+                if (e.getTargetException() instanceof SQLException sqlException) {
+                    throw sqlException;
+                }
+                throw new IllegalStateException(e.getTargetException());
+            }
+        }
+    }
+}
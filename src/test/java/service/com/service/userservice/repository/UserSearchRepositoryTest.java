@@ -0,0 +1,124 @@
+package service.com.service.userservice.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import service.com.service.userservice.entity.User;
+import service.com.service.userservice.repository.projection.UserView;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Substring search fallback (every database but Postgres) against H2 in PostgreSQL mode
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:user-search;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.flyway.enabled=false"
+})
+@Import(UserSearchRepositoryTest.MetricsConfiguration.class)
+class UserSearchRepositoryTest {
+    
+    private static final String TENANT = "tenant-1";
+    private static final String DOMAIN = "domain-1";
+    
+    @TestConfiguration
+    static class MetricsConfiguration {
+        
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @BeforeEach
+    void setUp() {
+        save(TENANT, "joann", null);
+        save(TENANT, "bob", "Annabel");
+        save(TENANT, "anna", null);
+        save(TENANT, "ann", null);
+        save(TENANT, "carol", null);
+        save("tenant-2", "ann", null);
+    }
+    
+    @Test
+    void searchRankedByDomain_ExactUsernameThenPrefixThenOtherMatches() {
+        // When
+        List<String> usernames = usernames(userRepository.searchRankedByDomain(TENANT, DOMAIN, " ANN ", 10, 0));
+        
+        // Then
+        assertEquals(List.of("ann", "anna", "bob", "joann"), usernames);
+        assertNull(meterRegistry.find("users.search").tag("strategy", "trigram").timer());
+        assertTrue(meterRegistry.get("users.search").tag("strategy", "substring").timer().count() > 0);
+    }
+    
+    @Test
+    void searchRankedByDomain_PagesDoNotOverlapOrSkip() {
+        // When
+        List<String> pages = new ArrayList<>();
+        for (int offset = 0; offset < 4; offset += 3) {
+            List<UserView> page = userRepository.searchRankedByDomain(TENANT, DOMAIN, "ann", 3, offset);
+            assertTrue(page.size() <= 3);
+            pages.addAll(usernames(page));
+        }
+        
+        // Then
+        assertEquals(usernames(userRepository.searchRankedByDomain(TENANT, DOMAIN, "ann", 10, 0)), pages);
+    }
+    
+    @Test
+    void searchRankedByDomain_LikeWildcardsInTheTermMatchLiterally() {
+        // Given
+        save(TENANT, "a_c", null);
+        save(TENANT, "abc", null);
+        save(TENANT, "50%off", null);
+        save(TENANT, "50xoff", null);
+        
+        // When / Then
+        assertEquals(List.of("a_c"), usernames(userRepository.searchRankedByDomain(TENANT, DOMAIN, "a_c", 10, 0)));
+        assertEquals(List.of("50%off"), usernames(userRepository.searchRankedByDomain(TENANT, DOMAIN, "0%o", 10, 0)));
+        assertEquals(List.of(), usernames(userRepository.searchRankedByDomain(TENANT, DOMAIN, "\\", 10, 0)));
+    }
+    
+    @Test
+    void streamRankedByDomain_SameOrderAsList() {
+        // When
+        List<String> streamed;
+        try (Stream<UserView> users = userRepository.streamRankedByDomain(TENANT, DOMAIN, "ann", 10, 1)) {
+            streamed = usernames(users.toList());
+        }
+        
+        // Then
+        assertEquals(List.of("anna", "bob", "joann"), streamed);
+    }
+    
+    private void save(String tenantId, String username, String firstName) {
+        userRepository.save(User.builder().tenantId(tenantId).resourceDomain(DOMAIN)
+            .username(username).email(UUID.randomUUID() + "@example.com").firstName(firstName).passwordHash("hash").build());
+    }
+    
+    private static List<String> usernames(List<UserView> users) {
+        return users.stream().map(UserView::username).toList();
+    }
+}
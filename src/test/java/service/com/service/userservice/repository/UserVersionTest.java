@@ -0,0 +1,141 @@
+package service.com.service.userservice.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import service.com.service.userservice.entity.Role;
+import service.com.service.userservice.entity.User;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Row and permissions versions of users against H2 in PostgreSQL mode
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:user-version;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+    "spring.datasource.driver-class-name=org.h2.Driver",
+    "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+    "spring.jpa.hibernate.ddl-auto=create-drop",
+    "spring.flyway.enabled=false"
+})
+@Import(UserVersionTest.MetricsConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserVersionTest {
+    
+    private static final String TENANT = "tenant-1";
+    private static final String DOMAIN = "domain-1";
+    
+    @TestConfiguration
+    static class MetricsConfiguration {
+        
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private RoleRepository roleRepository;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transaction;
+    private Role role;
+    private User user;
+    
+    @BeforeEach
+    void setUp() {
+        transaction = new TransactionTemplate(transactionManager);
+        role = roleRepository.save(Role.builder().tenantId(TENANT).resourceDomain(DOMAIN).name("role-" + UUID.randomUUID()).build());
+        user = userRepository.save(User.builder().tenantId(TENANT).resourceDomain(DOMAIN)
+            .username("user-" + UUID.randomUUID()).email(UUID.randomUUID() + "@example.com").passwordHash("hash").build());
+    }
+    
+    @Test
+    void columnChangesBumpTheRowVersionButGrantsDoNot() {
+        // When
+        transaction.executeWithoutResult(status -> {
+            User managed = userRepository.findById(user.getId()).orElseThrow();
+            managed.setFirstName("Renamed");
+        });
+        transaction.executeWithoutResult(status -> {
+            User managed = userRepository.findById(user.getId()).orElseThrow();
+            managed.addRole(roleRepository.findById(role.getId()).orElseThrow());
+            userRepository.incrementPermissionsVersions(List.of(user.getId()), TENANT, DOMAIN);
+        });
+        
+        // Then
+        assertEquals(1L, userRepository.findVersionByIdAndDomain(user.getId(), TENANT, DOMAIN).orElseThrow().version());
+        assertEquals(1L, userRepository.findPermissionsVersionByIdAndDomain(user.getId(), TENANT, DOMAIN).orElseThrow());
+        assertTrue(userRepository.findVersionByIdAndDomain(user.getId(), "other-tenant", DOMAIN).isEmpty());
+    }
+    
+    @Test
+    void roleChangeBumpsTheEffectiveVersionOfItsHoldersOnly() {
+        // Given
+        User other = userRepository.save(User.builder().tenantId(TENANT).resourceDomain(DOMAIN)
+            .username("user-" + UUID.randomUUID()).email(UUID.randomUUID() + "@example.com").passwordHash("hash").build());
+        transaction.executeWithoutResult(status -> userRepository.insertUserRoles(List.of(user.getId()), List.of(role.getId()), TENANT, DOMAIN));
+        
+        // When
+        int bumped = transaction.execute(status -> roleRepository.incrementPermissionsVersion(role.getName(), TENANT, DOMAIN));
+        
+        // Then
+        assertEquals(1, bumped);
+        assertEquals(1L, userRepository.findPermissionsVersionByIdAndDomain(user.getId(), TENANT, DOMAIN).orElseThrow());
+        assertEquals(0L, userRepository.findPermissionsVersionByIdAndDomain(other.getId(), TENANT, DOMAIN).orElseThrow());
+    }
+    
+    @Test
+    void roleRemovalStillMovesTheEffectiveVersionForward() {
+        // Given: the role is at 2, so its holder is at 2
+        transaction.executeWithoutResult(status -> {
+            userRepository.insertUserRoles(List.of(user.getId()), List.of(role.getId()), TENANT, DOMAIN);
+            roleRepository.incrementPermissionsVersion(role.getName(), TENANT, DOMAIN);
+            roleRepository.incrementPermissionsVersion(role.getName(), TENANT, DOMAIN);
+        });
+        
+        // When
+        transaction.executeWithoutResult(status -> {
+            userRepository.incrementPermissionsVersionsPastRoles(List.of(user.getId()), List.of(role.getId()), TENANT, DOMAIN);
+            userRepository.deleteUserRoles(List.of(user.getId()), List.of(role.getId()), TENANT, DOMAIN);
+        });
+        
+        // Then
+        assertEquals(3L, userRepository.findPermissionsVersionByIdAndDomain(user.getId(), TENANT, DOMAIN).orElseThrow());
+    }
+    
+    @Test
+    void staleInstanceCannotOverwriteANewerRow() {
+        // Given
+        User stale = userRepository.findById(user.getId()).orElseThrow();
+        transaction.executeWithoutResult(status -> userRepository.findById(user.getId()).orElseThrow().setLastName("First"));
+        
+        // When
+        stale.setLastName("Second");
+        
+        // Then
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> userRepository.save(stale));
+        assertEquals("First", userRepository.findById(user.getId()).orElseThrow().getLastName());
+    }
+}
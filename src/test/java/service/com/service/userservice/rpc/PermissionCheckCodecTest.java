@@ -0,0 +1,141 @@
+package service.com.service.userservice.rpc;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import service.com.service.userservice.dto.PermissionCheckRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionCheckCodecTest {
+    
+    // Ten-byte varint with every payload bit set: decodes to -1
+    private static final byte[] NEGATIVE_VARINT = {
+        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+        (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01
+    };
+    
+    private final PermissionCheckCodec codec = new PermissionCheckCodec();
+    private final UUID userId = UUID.randomUUID();
+    
+    @Test
+    void decodeRequest_RoundTripsPermissionAndRoleChecks() {
+        // Given
+        PermissionCheckFrame frame = new PermissionCheckFrame(300, "tenant1", "domain1", List.of(
+            PermissionCheckRequest.builder().userId(userId).permission("users:read").build(),
+            PermissionCheckRequest.builder().userId(userId).role("ADMIN").build()));
+        
+        // When
+        PermissionCheckFrame decoded = codec.decodeRequest(codec.encodeRequest(frame));
+        
+        // Then
+        assertEquals(300, decoded.requestId());
+        assertEquals("tenant1", decoded.tenantId());
+        assertEquals("domain1", decoded.resourceDomain());
+        assertEquals(userId, decoded.checks().get(0).getUserId());
+        assertEquals("users:read", decoded.checks().get(0).getPermission());
+        assertNull(decoded.checks().get(0).getRole());
+        assertEquals("ADMIN", decoded.checks().get(1).getRole());
+    }
+    
+    @Test
+    void decodeResponse_RoundTripsGrantedBitmapAndFailures() {
+        // Given
+        BitSet granted = new BitSet();
+        granted.set(0);
+        granted.set(8);
+        
+        // When
+        PermissionResultFrame ok = codec.decodeResponse(codec.encodeResponse(PermissionResultFrame.ok(5, 10, granted)));
+        PermissionResultFrame failed = codec.decodeResponse(codec.encodeResponse(
+            PermissionResultFrame.failed(6, PermissionResultFrame.Status.UNAVAILABLE, "database down")));
+        
+        // Then
+        assertEquals(10, ok.count());
+        assertTrue(ok.isGranted(0));
+        assertFalse(ok.isGranted(1));
+        assertTrue(ok.isGranted(8));
+        assertFalse(ok.isGranted(9));
+        assertEquals(PermissionResultFrame.Status.UNAVAILABLE, failed.status());
+        assertEquals("database down", failed.message());
+    }
+    
+    @Test
+    void decodeRequest_NegativeStringLength_Rejected() {
+        // Given: request id 1, then a tenant id whose length decodes to -1
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write(1);
+        payload.writeBytes(NEGATIVE_VARINT);
+        payload.writeBytes(new byte[16]);
+        
+        // When / Then
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> codec.decodeRequest(payload.toByteArray()));
+        assertTrue(e.getMessage().contains("-1"));
+    }
+    
+    @Test
+    void decodeRequest_StringLongerThanPayload_Rejected() {
+        // Given: request id 1, then a tenant id claiming 100 bytes with only 3 left
+        byte[] payload = {1, 100, 'a', 'b', 'c'};
+        
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeRequest(payload));
+    }
+    
+    @Test
+    void decodeRequest_TooManyChecks_Rejected() {
+        // Given
+        ReflectionTestUtils.setField(codec, "maxChecks", 1);
+        PermissionCheckFrame frame = new PermissionCheckFrame(1, "tenant1", "domain1", List.of(
+            PermissionCheckRequest.builder().userId(userId).permission("users:read").build(),
+            PermissionCheckRequest.builder().userId(userId).permission("users:write").build()));
+        byte[] payload = codec.encodeRequest(frame);
+        
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeRequest(payload));
+    }
+    
+    @Test
+    void decodeRequest_TrailingBytes_Rejected() {
+        // Given
+        PermissionCheckFrame frame = new PermissionCheckFrame(1, "tenant1", "domain1", List.of(
+            PermissionCheckRequest.builder().userId(userId).role("ADMIN").build()));
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.writeBytes(codec.encodeRequest(frame));
+        payload.write(0);
+        
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeRequest(payload.toByteArray()));
+    }
+    
+    @Test
+    void decodeResponse_NegativeCount_Rejected() {
+        // Given: request id 1, status OK, then a check count that decodes to -1
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        payload.write(1);
+        payload.write(PermissionResultFrame.Status.OK.code());
+        payload.writeBytes(NEGATIVE_VARINT);
+        
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> codec.decodeResponse(payload.toByteArray()));
+    }
+    
+    @Test
+    void readFrame_RoundTripsAndEnforcesTheLimit() throws IOException {
+        // Given
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PermissionCheckCodec.writeFrame(out, new byte[200]);
+        
+        // When / Then
+        assertEquals(200, PermissionCheckCodec.readFrame(new ByteArrayInputStream(out.toByteArray()), 256).length);
+        assertThrows(IllegalArgumentException.class,
+            () -> PermissionCheckCodec.readFrame(new ByteArrayInputStream(out.toByteArray()), 100));
+        assertNull(PermissionCheckCodec.readFrame(new ByteArrayInputStream(new byte[0]), 256));
+    }
+}
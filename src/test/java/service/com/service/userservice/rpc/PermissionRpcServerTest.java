@@ -0,0 +1,170 @@
+package service.com.service.userservice.rpc;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import service.com.service.userservice.dto.PermissionCheckRequest;
+import service.com.service.userservice.dto.PermissionCheckResult;
+import service.com.service.userservice.service.UserService;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PermissionRpcServerTest {
+    
+    @Mock
+    private UserService userService;
+    
+    private final PermissionCheckCodec codec = new PermissionCheckCodec();
+    private final UUID userId = UUID.randomUUID();
+    
+    private SimpleMeterRegistry meterRegistry;
+    private PermissionRpcServer server;
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    
+    @BeforeEach
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        server = new PermissionRpcServer(userService, codec, meterRegistry);
+        ReflectionTestUtils.setField(server, "port", 0);
+        ReflectionTestUtils.setField(server, "maxFrameBytes", 256);
+        ReflectionTestUtils.invokeMethod(server, "init");
+        
+        socket = new Socket("localhost", server.getPort());
+        socket.setSoTimeout(5_000);
+        in = new BufferedInputStream(socket.getInputStream());
+        out = socket.getOutputStream();
+    }
+    
+    @AfterEach
+    void tearDown() throws IOException {
+        socket.close();
+        ReflectionTestUtils.invokeMethod(server, "shutdown");
+    }
+    
+    @Test
+    void pipelinedFrames_AreAnsweredInOrderOnOneConnection() throws IOException {
+        // Given: users:read and the ADMIN role are granted, nothing else
+        when(userService.checkPermissions(anyList(), anyString(), anyString())).thenAnswer(invocation -> {
+            List<PermissionCheckRequest> checks = invocation.getArgument(0);
+            return checks.stream()
+                .map(check -> PermissionCheckResult.builder()
+                    .userId(check.getUserId())
+                    .permission(check.getPermission())
+                    .role(check.getRole())
+                    .granted("users:read".equals(check.getPermission()) || "ADMIN".equals(check.getRole()))
+                    .build())
+                .toList();
+        });
+        
+        // When
+        send(new PermissionCheckFrame(7, "tenant1", "domain1", List.of(
+            permission("users:read"), role("ADMIN"), permission("users:delete"))));
+        send(new PermissionCheckFrame(300, "tenant2", "domain2", List.of(role("VIEWER"))));
+        PermissionResultFrame first = receive();
+        PermissionResultFrame second = receive();
+        
+        // Then
+        assertEquals(7, first.requestId());
+        assertEquals(PermissionResultFrame.Status.OK, first.status());
+        assertEquals(3, first.count());
+        assertTrue(first.isGranted(0));
+        assertTrue(first.isGranted(1));
+        assertFalse(first.isGranted(2));
+        
+        assertEquals(300, second.requestId());
+        assertEquals(1, second.count());
+        assertFalse(second.isGranted(0));
+        
+        verify(userService).checkPermissions(argThat(checks -> checks.size() == 3), eq("tenant1"), eq("domain1"));
+        verify(userService).checkPermissions(argThat(checks -> checks.size() == 1), eq("tenant2"), eq("domain2"));
+        assertEquals(2, meterRegistry.timer("permissions.rpc.frames", "status", "OK").count());
+        assertEquals(4.0, meterRegistry.summary("permissions.rpc.checks").totalAmount());
+    }
+    
+    @Test
+    void malformedFrame_IsRejectedAndTheConnectionStaysUsable() throws IOException {
+        // Given
+        byte[] valid = codec.encodeRequest(new PermissionCheckFrame(9, "tenant1", "domain1", List.of(permission("users:read"))));
+        byte[] unknownKind = valid.clone();
+        unknownKind[1 + 1 + "tenant1".length() + 1 + "domain1".length() + 1] = 5;
+        when(userService.checkPermissions(anyList(), anyString(), anyString())).thenReturn(List.of(
+            PermissionCheckResult.builder().userId(userId).permission("users:read").granted(true).build()));
+        
+        // When
+        PermissionCheckCodec.writeFrame(out, unknownKind);
+        PermissionResultFrame rejected = receive();
+        send(new PermissionCheckFrame(10, "tenant1", "domain1", List.of(permission("users:read"))));
+        PermissionResultFrame answered = receive();
+        
+        // Then
+        assertEquals(9, rejected.requestId());
+        assertEquals(PermissionResultFrame.Status.INVALID_REQUEST, rejected.status());
+        assertTrue(rejected.message().contains("Unknown kind 5"));
+        assertEquals(10, answered.requestId());
+        assertTrue(answered.isGranted(0));
+        verify(userService, times(1)).checkPermissions(anyList(), anyString(), anyString());
+    }
+    
+    @Test
+    void databaseFailure_IsReportedAsUnavailable() throws IOException {
+        // Given
+        when(userService.checkPermissions(anyList(), anyString(), anyString()))
+            .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        
+        // When
+        send(new PermissionCheckFrame(11, "tenant1", "domain1", List.of(permission("users:read"))));
+        PermissionResultFrame result = receive();
+        
+        // Then
+        assertEquals(11, result.requestId());
+        assertEquals(PermissionResultFrame.Status.UNAVAILABLE, result.status());
+        assertFalse(result.isGranted(0));
+    }
+    
+    @Test
+    void oversizedFrame_IsRejectedAndTheConnectionClosed() throws IOException {
+        // When
+        PermissionCheckCodec.writeFrame(out, new byte[257]);
+        PermissionResultFrame result = receive();
+        
+        // Then
+        assertEquals(PermissionResultFrame.Status.INVALID_REQUEST, result.status());
+        assertNull(PermissionCheckCodec.readFrame(in, 256));
+        verifyNoInteractions(userService);
+    }
+    
+    private PermissionCheckRequest permission(String permission) {
+        return PermissionCheckRequest.builder().userId(userId).permission(permission).build();
+    }
+    
+    private PermissionCheckRequest role(String role) {
+        return PermissionCheckRequest.builder().userId(userId).role(role).build();
+    }
+    
+    private void send(PermissionCheckFrame frame) throws IOException {
+        PermissionCheckCodec.writeFrame(out, codec.encodeRequest(frame));
+    }
+    
+    private PermissionResultFrame receive() throws IOException {
+        return codec.decodeResponse(PermissionCheckCodec.readFrame(in, 256));
+    }
+}
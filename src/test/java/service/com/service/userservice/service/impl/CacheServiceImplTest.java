@@ -0,0 +1,479 @@
+package service.com.service.userservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import service.com.service.userservice.cache.CacheGenerations;
+import service.com.service.userservice.cache.CompactPermissionsEntry;
+import service.com.service.userservice.cache.EffectivePermissions;
+import service.com.service.userservice.cache.LocalPermissionCache;
+import service.com.service.userservice.cache.PermissionCacheInvalidationListener;
+import service.com.service.userservice.cache.PermissionDictionary;
+import service.com.service.userservice.cache.PermissionEntryCodec;
+import service.com.service.userservice.cache.PermissionRefreshPolicy;
+import service.com.service.userservice.cache.UserGrants;
+import service.com.service.userservice.dto.UserPermissionsDto;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheServiceImplTest {
+    
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+    
+    @Mock
+    private RedisTemplate<String, String> stringRedisTemplate;
+    
+    @Mock
+    private RedisTemplate<String, byte[]> binaryRedisTemplate;
+    
+    @Mock
+    private ValueOperations<String, byte[]> valueOperations;
+    
+    @Mock
+    private RedisTemplate<String, String> dictionaryRedisTemplate;
+    
+    @Mock
+    private HashOperations<String, Object, Object> dictionaryHashOperations;
+    
+    @Mock
+    private ValueOperations<String, String> dictionaryValueOperations;
+    
+    private final Map<String, String> redisValues = new HashMap<>();
+    private final Map<String, Map<Object, Object>> redisHashes = new HashMap<>();
+    
+    private LocalPermissionCache localPermissionCache;
+    private PermissionDictionary permissionDictionary;
+    private PermissionEntryCodec codec;
+    private CacheServiceImpl cacheService;
+    
+    private String tenantId;
+    private String resourceDomain;
+    private UUID userId;
+    private UserGrants grants;
+    private Function<Collection<String>, Map<String, List<String>>> roleLoader;
+    
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        
+        localPermissionCache = new LocalPermissionCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(localPermissionCache, "enabled", true);
+        ReflectionTestUtils.setField(localPermissionCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(localPermissionCache, "ttlSeconds", 60L);
+        ReflectionTestUtils.invokeMethod(localPermissionCache, "init");
+        
+        stubDictionaryStore();
+        seedEpoch("domain1");
+        seedEpoch("domain2");
+        permissionDictionary = new PermissionDictionary(dictionaryRedisTemplate);
+        ReflectionTestUtils.invokeMethod(permissionDictionary, "init");
+        
+        codec = new PermissionEntryCodec();
+        
+        CacheGenerations cacheGenerations = new CacheGenerations(dictionaryRedisTemplate);
+        ReflectionTestUtils.setField(cacheGenerations, "localTtlSeconds", 5L);
+        ReflectionTestUtils.invokeMethod(cacheGenerations, "init");
+        
+        cacheService = new CacheServiceImpl(redisTemplate, stringRedisTemplate, objectMapper, localPermissionCache,
+            new PermissionCacheInvalidationListener(localPermissionCache, cacheGenerations, objectMapper), permissionDictionary,
+            binaryRedisTemplate, codec, cacheGenerations, new PermissionRefreshPolicy());
+        
+        tenantId = "tenant1";
+        resourceDomain = "domain1";
+        userId = UUID.randomUUID();
+        grants = new UserGrants(userId, "testuser", List.of("USER"), List.of("user:read"), 5, 0);
+        roleLoader = roleNames -> Map.of("USER", List.of("profile:read"), "EDITOR", List.of("post:write"));
+    }
+    
+    @Test
+    void getCachedUserPermissions_LocalHit_SkipsRedis() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        
+        // When
+        UserPermissionsDto result = cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(Set.of("user:read", "profile:read"), Set.copyOf(result.getPermissions()));
+        assertEquals(List.of("USER"), result.getRoles());
+        verify(valueOperations, never()).get(anyString());
+        assertEquals(1, localPermissionCache.stats().hitCount());
+    }
+    
+    @Test
+    void getCachedUserPermissions_LocalCacheDisabled_IgnoresEntriesCachedBefore() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        ReflectionTestUtils.setField(localPermissionCache, "enabled", false);
+        
+        // When
+        cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain);
+        
+        // Then
+        verify(valueOperations).get(anyString());
+        assertEquals(0, localPermissionCache.stats().hitCount());
+    }
+    
+    @Test
+    void getCachedUserPermissions_RedisHit_PopulatesLocalCache() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        stubRedisEntries(true);
+        
+        // When
+        cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain);
+        UserPermissionsDto result = cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(Set.of("user:read", "profile:read"), Set.copyOf(result.getPermissions()));
+        assertEquals(5L, result.getPermissionsVersion());
+        verify(valueOperations, times(1)).get(anyString());
+        verify(valueOperations, times(1)).multiGet(anyList());
+    }
+    
+    @Test
+    void getCachedUserPermissions_RoleSetNotCached_TreatedAsMiss() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        stubRedisEntries(false);
+        
+        // When
+        UserPermissionsDto result = cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain);
+        
+        // Then
+        assertNull(result);
+        assertEquals(0, localPermissionCache.size());
+    }
+    
+    @Test
+    void getCachedUserPermissions_UndecodableEntry_TreatedAsMiss() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.get(anyString())).thenReturn("\"{\\\"u\\\":\\\"legacy\\\"}\"".getBytes());
+        
+        // When
+        UserPermissionsDto result = cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain);
+        
+        // Then
+        assertNull(result);
+        assertEquals(0, localPermissionCache.size());
+    }
+    
+    @Test
+    void cacheUserGrants_LoadsOnlyUncachedRoleSets() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        List<Collection<String>> requested = new ArrayList<>();
+        Function<Collection<String>, Map<String, List<String>>> recordingLoader = roleNames -> {
+            requested.add(Set.copyOf(roleNames));
+            return roleLoader.apply(roleNames);
+        };
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, recordingLoader);
+        
+        // When
+        UUID otherUserId = UUID.randomUUID();
+        cacheService.cacheUserGrants(new UserGrants(otherUserId, "other", List.of("USER", "EDITOR"), List.of(), 0, 0),
+            tenantId, resourceDomain, recordingLoader);
+        
+        // Then
+        assertEquals(List.of(Set.of("USER"), Set.of("EDITOR")), requested);
+        assertTrue(cacheService.getEffectivePermissions(otherUserId, tenantId, resourceDomain).hasPermission("post:write"));
+    }
+    
+    @Test
+    void evictRolePermissionsCache_DropsRoleSetAndHoldersOnly() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        UUID editorId = UUID.randomUUID();
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        cacheService.cacheUserGrants(new UserGrants(editorId, "editor", List.of("EDITOR"), List.of(), 0, 0), tenantId, resourceDomain, roleLoader);
+        
+        // When
+        cacheService.evictRolePermissionsCache("EDITOR", tenantId, resourceDomain);
+        
+        // Then
+        assertNotNull(localPermissionCache.get("perm:tenant1:domain1:0.0.0:1:" + userId));
+        assertNull(localPermissionCache.get("perm:tenant1:domain1:0.0.0:1:" + editorId));
+        assertEquals(1, localPermissionCache.size());
+        assertNull(localPermissionCache.getRole("perm:tenant1:domain1:0.0.0:1:role:EDITOR"));
+        assertNotNull(localPermissionCache.getRole("perm:tenant1:domain1:0.0.0:1:role:USER"));
+        verify(redisTemplate).delete("perm:tenant1:domain1:0.0.0:1:role:EDITOR");
+        verify(stringRedisTemplate).convertAndSend(eq(PermissionCacheInvalidationListener.CHANNEL), anyString());
+    }
+    
+    @Test
+    void evictUserPermissionsCache_InvalidatesLocalAndPublishes() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        
+        // When
+        cacheService.evictUserPermissionsCache(userId, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(0, localPermissionCache.size());
+        verify(stringRedisTemplate).convertAndSend(eq(PermissionCacheInvalidationListener.CHANNEL), anyString());
+    }
+    
+    @Test
+    void evictUserPermissionsCache_InTransaction_RunsAfterCommit() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // When
+            cacheService.evictUserPermissionsCache(userId, tenantId, resourceDomain);
+            
+            // Then
+            assertEquals(1, localPermissionCache.size());
+            verify(redisTemplate, never()).delete(anyString());
+            
+            // When
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            
+            // Then
+            assertEquals(0, localPermissionCache.size());
+            verify(redisTemplate).delete(anyString());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void evictUserPermissionsCache_ManyUsers_DeletesAndPublishesPerBatch() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        List<UUID> userIds = new ArrayList<>(List.of(userId));
+        for (int i = 0; i < 1500; i++) {
+            userIds.add(UUID.randomUUID());
+        }
+        
+        // When
+        cacheService.evictUserPermissionsCache(userIds, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(0, localPermissionCache.size());
+        verify(redisTemplate, times(2)).delete(anyCollection());
+        verify(stringRedisTemplate, times(2)).convertAndSend(eq(PermissionCacheInvalidationListener.CHANNEL), anyString());
+    }
+    
+    @Test
+    void clearDomainCache_InvalidatesOnlyMatchingDomain() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        UUID otherUserId = UUID.randomUUID();
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        cacheService.cacheUserGrants(new UserGrants(otherUserId, "other", List.of("USER"), List.of(), 0, 0), tenantId, "domain2", roleLoader);
+        
+        // When
+        cacheService.clearDomainCache(tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(1, localPermissionCache.size());
+        assertNull(localPermissionCache.getRole("perm:tenant1:domain1:0.0.0:1:role:USER"));
+        assertNotNull(localPermissionCache.getRole("perm:tenant1:domain2:0.0.0:1:role:USER"));
+    }
+    
+    @Test
+    void preloadUserGrants_WritesRedisWithoutFillingLocalCache() {
+        // When
+        int written = cacheService.preloadUserGrants(List.of(grants), tenantId, resourceDomain, roleLoader);
+        
+        // Then
+        assertEquals(1, written);
+        assertEquals(0, localPermissionCache.size());
+        verify(binaryRedisTemplate, times(2)).executePipelined(any(SessionCallback.class));
+    }
+    
+    @Test
+    void clearDomainCache_BumpsGenerationInsteadOfScanningKeys() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        
+        // When
+        cacheService.clearDomainCache(tenantId, resourceDomain);
+        cacheService.getEffectivePermissions(userId, tenantId, resourceDomain);
+        
+        // Then
+        verify(redisTemplate, never()).keys(anyString());
+        verify(stringRedisTemplate, never()).keys(anyString());
+        verify(valueOperations).get("perm:tenant1:domain1:0.0.1:1:" + userId);
+    }
+    
+    @Test
+    void getEffectivePermissions_ChecksInternedIds() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        
+        // When
+        EffectivePermissions result = cacheService.getEffectivePermissions(userId, tenantId, resourceDomain);
+        
+        // Then
+        assertTrue(result.hasPermission("user:read"));
+        assertTrue(result.hasPermission("profile:read"));
+        assertFalse(result.hasPermission("user:write"));
+        assertTrue(result.hasRole("USER"));
+        assertFalse(result.hasRole("ADMIN"));
+    }
+    
+    // Serves the user entry and, optionally, the USER role set as if another node had written them
+    private void stubRedisEntries(boolean withRoleSet) {
+        Map<String, BitSet> rolePermissions = Map.of("USER",
+            permissionDictionary.namespace(tenantId, resourceDomain, PermissionDictionary.Kind.PERMISSION).encode(List.of("profile:read")));
+        EffectivePermissions compiled = permissionDictionary.compile(grants, tenantId, resourceDomain, rolePermissions,
+            new PermissionRefreshPolicy().stamp(5));
+        when(valueOperations.get(anyString())).thenReturn(codec.encode(CompactPermissionsEntry.of(compiled)));
+        List<byte[]> roleValues = new ArrayList<>();
+        roleValues.add(withRoleSet ? codec.encodeIdSet(rolePermissions.get("USER"), 1) : null);
+        when(valueOperations.multiGet(anyList())).thenReturn(roleValues);
+    }
+    
+    @Test
+    void isJWTBlacklisted_GenerationUnreadable_FailsClosed() {
+        // Given
+        when(dictionaryValueOperations.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("connection refused"));
+        
+        // When / Then
+        assertTrue(cacheService.isJWTBlacklisted("jti-1"));
+        verify(stringRedisTemplate, never()).hasKey(anyString());
+    }
+    
+    @Test
+    void cacheUserGrants_DictionaryLost_StartsNewEpochAndRecompiles() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        redisValues.clear();
+        redisHashes.clear();
+        UUID otherUserId = UUID.randomUUID();
+        
+        // When
+        EffectivePermissions result = cacheService.cacheUserGrants(
+            new UserGrants(otherUserId, "other", List.of("EDITOR"), List.of("user:write"), 0, 0), tenantId, resourceDomain, roleLoader);
+        
+        // Then
+        long epoch = permissionDictionary.epoch(tenantId, resourceDomain);
+        assertTrue(epoch > 1);
+        assertEquals(epoch, result.getRoleNamespace().epoch());
+        assertTrue(result.hasPermission("user:write"));
+        assertTrue(result.hasPermission("post:write"));
+        assertEquals(Long.toString(epoch), redisValues.get("permdict:tenant1:domain1:epoch"));
+        assertNotNull(localPermissionCache.get("perm:tenant1:domain1:0.0.0:" + Long.toString(epoch, 36) + ":" + otherUserId));
+    }
+    
+    @Test
+    void cacheUserGrants_SequenceLost_RetiresEpochInsteadOfReusingIds() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        cacheService.cacheUserGrants(grants, tenantId, resourceDomain, roleLoader);
+        redisValues.remove("permdict:tenant1:domain1:1:permission:seq");
+        
+        // When
+        EffectivePermissions result = cacheService.cacheUserGrants(
+            new UserGrants(UUID.randomUUID(), "other", List.of("USER"), List.of("user:write"), 0, 0), tenantId, resourceDomain, roleLoader);
+        
+        // Then
+        assertNotEquals(1, permissionDictionary.epoch(tenantId, resourceDomain));
+        assertTrue(result.hasPermission("user:write"));
+        assertFalse(result.hasPermission("user:read"));
+        verify(dictionaryRedisTemplate).unlink(argThat((Collection<String> keys) -> keys.contains("permdict:tenant1:domain1:1:permission:ids")));
+    }
+    
+    @Test
+    void getEffectivePermissions_EntryOfAnotherEpoch_TreatedAsMiss() {
+        // Given
+        when(binaryRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        EffectivePermissions compiled = permissionDictionary.compile(grants, tenantId, resourceDomain, Map.of(),
+            new PermissionRefreshPolicy().stamp(5));
+        CompactPermissionsEntry entry = CompactPermissionsEntry.of(compiled);
+        when(valueOperations.get(anyString())).thenReturn(codec.encode(new CompactPermissionsEntry(entry.userId(), entry.username(),
+            entry.rolesBitset(), entry.directPermissionsBitset(), entry.freshness(), entry.permissionsVersion(), 7)));
+        
+        // When / Then
+        assertNull(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain));
+    }
+    
+    // Minimal in-memory stand-in for the Redis keys backing the dictionary and key generations, including
+    // the epoch and allocation scripts
+    private void stubDictionaryStore() {
+        lenient().when(dictionaryRedisTemplate.opsForHash()).thenReturn(dictionaryHashOperations);
+        lenient().when(dictionaryRedisTemplate.opsForValue()).thenReturn(dictionaryValueOperations);
+        lenient().when(dictionaryValueOperations.increment(anyString())).thenAnswer(invocation ->
+            Long.parseLong(redisValues.merge(invocation.getArgument(0), "1", (current, one) -> String.valueOf(Long.parseLong(current) + 1))));
+        lenient().when(dictionaryValueOperations.get(anyString())).thenAnswer(invocation -> redisValues.get(invocation.<String>getArgument(0)));
+        lenient().when(dictionaryValueOperations.multiGet(anyList())).thenAnswer(invocation ->
+            invocation.<List<String>>getArgument(0).stream()
+                .map(redisValues::get)
+                .collect(Collectors.toList()));
+        lenient().when(dictionaryHashOperations.entries(anyString())).thenAnswer(invocation ->
+            new HashMap<>(redisHashes.getOrDefault(invocation.<String>getArgument(0), Map.of())));
+        lenient().when(dictionaryRedisTemplate.execute(any(RedisScript.class), anyList(), anyString())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(1);
+            if (redisValues.putIfAbsent(keys.get(0), invocation.getArgument(2)) == null) {
+                keys.subList(1, keys.size()).forEach(key -> redisValues.put(key, "0"));
+            }
+            return redisValues.get(keys.get(0));
+        });
+        lenient().when(dictionaryRedisTemplate.execute(any(RedisScript.class), anyList(), anyString(), anyString())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(1);
+            String name = invocation.getArgument(3);
+            if (!invocation.getArgument(2).equals(redisValues.get(keys.get(0)))) {
+                return null;
+            }
+            Map<Object, Object> names = redisHashes.computeIfAbsent(keys.get(2), key -> new HashMap<>());
+            if (names.containsKey(name)) {
+                return names.get(name);
+            }
+            if (!redisValues.containsKey(keys.get(1))) {
+                redisValues.remove(keys.get(0));
+                return null;
+            }
+            String id = String.valueOf(Long.parseLong(redisValues.get(keys.get(1))));
+            redisValues.put(keys.get(1), String.valueOf(Long.parseLong(id) + 1));
+            names.put(name, id);
+            redisHashes.computeIfAbsent(keys.get(3), key -> new HashMap<>()).put(id, name);
+            return id;
+        });
+    }
+    
+    // Epoch 1 with empty sequences, so that key prefixes in assertions are predictable
+    private void seedEpoch(String resourceDomain) {
+        redisValues.put("permdict:tenant1:" + resourceDomain + ":epoch", "1");
+        redisValues.put("permdict:tenant1:" + resourceDomain + ":1:role:seq", "0");
+        redisValues.put("permdict:tenant1:" + resourceDomain + ":1:permission:seq", "0");
+    }
+}
@@ -0,0 +1,167 @@
+package service.com.service.userservice.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.data.domain.PageRequest;
+import service.com.service.userservice.dto.CacheWarmupStatus;
+import service.com.service.userservice.repository.UserRepository;
+import service.com.service.userservice.service.CacheService;
+import service.com.service.userservice.service.UserService;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmupServiceImplTest {
+    
+    @Mock
+    private UserRepository userRepository;
+    
+    @Mock
+    private UserService userService;
+    
+    @Mock
+    private CacheService cacheService;
+    
+    private SimpleMeterRegistry meterRegistry;
+    private CacheWarmupServiceImpl warmupService;
+    
+    private String tenantId;
+    private String resourceDomain;
+    
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        warmupService = new CacheWarmupServiceImpl(userRepository, userService, cacheService, meterRegistry);
+        ReflectionTestUtils.setField(warmupService, "batchSize", 4);
+        ReflectionTestUtils.setField(warmupService, "concurrency", 2);
+        ReflectionTestUtils.setField(warmupService, "maxUsersPerSecond", 0);
+        ReflectionTestUtils.invokeMethod(warmupService, "init");
+        
+        tenantId = "tenant1";
+        resourceDomain = "domain1";
+    }
+    
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(warmupService, "shutdown");
+    }
+    
+    @Test
+    void startWarmup_PagesActiveUsersInBatches() throws InterruptedException {
+        // Given
+        List<UUID> userIds = IntStream.range(0, 10).mapToObj(i -> UUID.randomUUID()).toList();
+        when(userRepository.countByTenantIdAndResourceDomainAndIsActive(tenantId, resourceDomain, true)).thenReturn(10L);
+        stubPages(userIds);
+        when(userService.preloadUserPermissions(anyList(), eq(tenantId), eq(resourceDomain)))
+            .thenAnswer(invocation -> invocation.<List<UUID>>getArgument(0).size());
+        
+        // When
+        warmupService.startWarmup(tenantId, resourceDomain);
+        CacheWarmupStatus status = awaitFinished();
+        
+        // Then
+        assertEquals(CacheWarmupStatus.State.COMPLETED, status.getState());
+        assertEquals(10, status.getTotalUsers());
+        assertEquals(10, status.getWarmedUsers());
+        assertEquals(3, status.getCompletedBatches());
+        verify(userService).preloadUserPermissions(userIds.subList(0, 4), tenantId, resourceDomain);
+        verify(userService).preloadUserPermissions(userIds.subList(8, 10), tenantId, resourceDomain);
+        // Each page resumes after the last id of the previous one; the short last page ends the scan
+        verify(userRepository).findActiveUserIdsAfterByDomain(tenantId, resourceDomain, userIds.get(3), PageRequest.ofSize(4));
+        verify(userRepository).findActiveUserIdsAfterByDomain(tenantId, resourceDomain, userIds.get(7), PageRequest.ofSize(4));
+        verify(userRepository, never()).findActiveUserIdsAfterByDomain(tenantId, resourceDomain, userIds.get(9), PageRequest.ofSize(4));
+        verify(userRepository, never()).findByTenantIdAndResourceDomainAndIsActive(any(), any(), any());
+        assertEquals(10, meterRegistry.counter("permissions.warmup.users", "tenant", tenantId).count());
+    }
+    
+    @Test
+    void startWarmup_FailedBatch_CountedAndJobCompletes() throws InterruptedException {
+        // Given
+        List<UUID> userIds = IntStream.range(0, 8).mapToObj(i -> UUID.randomUUID()).toList();
+        when(userRepository.countByTenantIdAndResourceDomainAndIsActive(tenantId, resourceDomain, true)).thenReturn(8L);
+        stubPages(userIds);
+        when(userService.preloadUserPermissions(anyList(), eq(tenantId), eq(resourceDomain)))
+            .thenThrow(new IllegalStateException("redis down"))
+            .thenReturn(4);
+        
+        // When
+        warmupService.startWarmup(tenantId, resourceDomain);
+        CacheWarmupStatus status = awaitFinished();
+        
+        // Then
+        assertEquals(CacheWarmupStatus.State.COMPLETED, status.getState());
+        assertEquals(4, status.getWarmedUsers());
+        assertEquals(1, status.getFailedBatches());
+    }
+    
+    @Test
+    void startWarmup_AlreadyRunning_ReturnsExistingJob() throws InterruptedException {
+        // Given
+        when(userRepository.countByTenantIdAndResourceDomainAndIsActive(tenantId, resourceDomain, true)).thenReturn(0L);
+        when(userRepository.findFirstActiveUserIdsByDomain(eq(tenantId), eq(resourceDomain), any())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return List.of();
+        });
+        
+        // When
+        warmupService.startWarmup(tenantId, resourceDomain);
+        CacheWarmupStatus second = warmupService.startWarmup(tenantId, resourceDomain);
+        awaitFinished();
+        
+        // Then
+        assertNotEquals(CacheWarmupStatus.State.COMPLETED, second.getState());
+        verify(userRepository, times(1)).findFirstActiveUserIdsByDomain(eq(tenantId), eq(resourceDomain), any());
+    }
+    
+    @Test
+    void warmupOnStartup_OnlyWarmsTargetsThisNodeClaims() throws InterruptedException {
+        // Given
+        ReflectionTestUtils.setField(warmupService, "warmupOnStartup", true);
+        ReflectionTestUtils.setField(warmupService, "startupTargets", List.of(tenantId + ":" + resourceDomain, "tenant2:domain2"));
+        ReflectionTestUtils.setField(warmupService, "startupClaimTtlMillis", 1000L);
+        when(cacheService.tryClaimStartupWarmup(tenantId, resourceDomain, 1000L)).thenReturn(true);
+        when(cacheService.tryClaimStartupWarmup("tenant2", "domain2", 1000L)).thenReturn(false);
+        when(userRepository.findFirstActiveUserIdsByDomain(eq(tenantId), eq(resourceDomain), any())).thenReturn(List.of());
+        
+        // When
+        warmupService.warmupOnStartup();
+        awaitFinished();
+        
+        // Then
+        assertNull(warmupService.getWarmupStatus("tenant2", "domain2"));
+        verify(userRepository, never()).findTenantDomainsWithActiveUsers();
+    }
+    
+    private void stubPages(List<UUID> userIds) {
+        PageRequest page = PageRequest.ofSize(4);
+        when(userRepository.findFirstActiveUserIdsByDomain(tenantId, resourceDomain, page)).thenReturn(userIds.subList(0, 4));
+        for (int from = 4; from < userIds.size(); from += 4) {
+            when(userRepository.findActiveUserIdsAfterByDomain(tenantId, resourceDomain, userIds.get(from - 1), page))
+                .thenReturn(userIds.subList(from, Math.min(from + 4, userIds.size())));
+        }
+    }
+    
+    private CacheWarmupStatus awaitFinished() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            CacheWarmupStatus status = warmupService.getWarmupStatus(tenantId, resourceDomain);
+            if (status.getState() == CacheWarmupStatus.State.COMPLETED || status.getState() == CacheWarmupStatus.State.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        fail("Warm-up did not finish");
+        return null;
+    }
+}
@@ -0,0 +1,157 @@
+package service.com.service.userservice.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Flushes go to an in-memory H2 users table in PostgreSQL mode
+class LastLoginBufferTest {
+    
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 3, 4, 8, 0);
+    
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private LastLoginBuffer buffer;
+    
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            "jdbc:h2:mem:last-login;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS users");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY, tenant_id VARCHAR(255), last_login_at TIMESTAMP, " +
+            "version BIGINT NOT NULL DEFAULT 0)");
+        
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = new LastLoginBuffer(jdbcTemplate, meterRegistry);
+        ReflectionTestUtils.setField(buffer, "maxBatchSize", 2);
+        ReflectionTestUtils.setField(buffer, "stripeCount", 4);
+        ReflectionTestUtils.invokeMethod(buffer, "init");
+    }
+    
+    @Test
+    void flush_WritesNewestLoginPerUserInBatchesPerTenant() {
+        // Given
+        UUID alice = user("tenant1", null);
+        UUID bob = user("tenant1", null);
+        UUID carol = user("tenant1", null);
+        UUID dave = user("tenant2", null);
+        buffer.record(alice, "tenant1", NOW.plusMinutes(5));
+        buffer.record(alice, "tenant1", NOW);
+        buffer.record(bob, "tenant1", NOW.plusMinutes(1));
+        buffer.record(carol, "tenant1", NOW.plusMinutes(2));
+        buffer.record(dave, "tenant2", NOW.plusMinutes(3));
+        
+        // When
+        buffer.flush();
+        
+        // Then
+        assertEquals(NOW.plusMinutes(5), lastLogin(alice));
+        assertEquals(NOW.plusMinutes(1), lastLogin(bob));
+        assertEquals(NOW.plusMinutes(2), lastLogin(carol));
+        assertEquals(NOW.plusMinutes(3), lastLogin(dave));
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT version FROM users WHERE id = ?", Long.class, alice));
+        assertEquals(0, buffer.pending());
+        
+        // Three users of tenant1 in batches of two, one of tenant2
+        assertEquals(3, meterRegistry.summary("users.last-login.flush.batch").count());
+        assertEquals(4.0, meterRegistry.summary("users.last-login.flush.batch").totalAmount());
+        assertEquals(1, meterRegistry.timer("users.last-login.flush.lag").count());
+    }
+    
+    @Test
+    void flush_NeverMovesLastLoginBackOrAcrossTenants() {
+        // Given
+        UUID alice = user("tenant1", NOW.plusHours(1));
+        buffer.record(alice, "tenant1", NOW);
+        buffer.record(user("tenant1", null), "tenant2", NOW);
+        
+        // When
+        buffer.flush();
+        
+        // Then
+        assertEquals(NOW.plusHours(1), lastLogin(alice));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users WHERE last_login_at = ?", Integer.class,
+            Timestamp.valueOf(NOW)));
+    }
+    
+    @Test
+    void flush_KeepsEntriesWhenTheUpdateFails() {
+        // Given
+        UUID alice = user("tenant1", null);
+        buffer.record(alice, "tenant1", NOW);
+        jdbcTemplate.execute("ALTER TABLE users RENAME TO users_offline");
+        
+        // When
+        buffer.flush();
+        
+        // Then
+        assertEquals(1, buffer.pending());
+        assertEquals(1.0, meterRegistry.counter("users.last-login.flush.failures").count());
+        
+        // When
+        jdbcTemplate.execute("ALTER TABLE users_offline RENAME TO users");
+        ReflectionTestUtils.invokeMethod(buffer, "shutdown");
+        
+        // Then
+        assertEquals(NOW, lastLogin(alice));
+        assertEquals(0, buffer.pending());
+    }
+    
+    @Test
+    void flush_DropsEntriesAfterMaxAttempts() {
+        // Given
+        ReflectionTestUtils.setField(buffer, "maxAttempts", 2);
+        buffer.record(user("tenant1", null), "tenant1", NOW);
+        jdbcTemplate.execute("ALTER TABLE users RENAME TO users_offline");
+        
+        // When
+        buffer.flush();
+        buffer.flush();
+        
+        // Then
+        assertEquals(0, buffer.pending());
+        assertEquals(2.0, meterRegistry.counter("users.last-login.flush.failures").count());
+        assertEquals(1.0, meterRegistry.counter("users.last-login.dropped", "reason", "retries").count());
+        jdbcTemplate.execute("ALTER TABLE users_offline RENAME TO users");
+    }
+    
+    @Test
+    void record_DropsNewUsersWhenTheBufferIsFull() {
+        // Given
+        ReflectionTestUtils.setField(buffer, "maxPending", 1);
+        UUID alice = user("tenant1", null);
+        buffer.record(alice, "tenant1", NOW);
+        
+        // When
+        buffer.record(user("tenant1", null), "tenant1", NOW);
+        buffer.record(alice, "tenant1", NOW.plusMinutes(1));
+        
+        // Then
+        assertEquals(1, buffer.pending());
+        assertEquals(1.0, meterRegistry.counter("users.last-login.dropped", "reason", "full").count());
+        buffer.flush();
+        assertEquals(NOW.plusMinutes(1), lastLogin(alice));
+    }
+    
+    private UUID user(String tenantId, LocalDateTime lastLoginAt) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, tenant_id, last_login_at) VALUES (?, ?, ?)",
+            id, tenantId, lastLoginAt != null ? Timestamp.valueOf(lastLoginAt) : null);
+        return id;
+    }
+    
+    private LocalDateTime lastLogin(UUID userId) {
+        Timestamp lastLoginAt = jdbcTemplate.queryForObject("SELECT last_login_at FROM users WHERE id = ?", Timestamp.class, userId);
+        return lastLoginAt != null ? lastLoginAt.toLocalDateTime() : null;
+    }
+}
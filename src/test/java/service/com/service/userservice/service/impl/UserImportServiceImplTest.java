@@ -0,0 +1,201 @@
+package service.com.service.userservice.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import service.com.service.userservice.dto.UserImportResult;
+import service.com.service.userservice.repository.UserRepository;
+import service.com.service.userservice.utils.UserImportReader;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+// Inserts go to an in-memory H2 users table; the set-wise existence queries are mocked
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceImplTest {
+    
+    @Mock
+    private UserRepository userRepository;
+    
+    private JdbcTemplate jdbcTemplate;
+    private SimpleMeterRegistry meterRegistry;
+    private UserImportServiceImpl importService;
+    
+    private String tenantId;
+    private String resourceDomain;
+    
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:user-import;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS users");
+        jdbcTemplate.execute("CREATE TABLE users (id UUID PRIMARY KEY, tenant_id VARCHAR(255), resource_domain VARCHAR(255), " +
+            "username VARCHAR(255), email VARCHAR(255), password_hash VARCHAR(255), first_name VARCHAR(255), " +
+            "last_name VARCHAR(255), is_active BOOLEAN, is_email_verified BOOLEAN, created_at TIMESTAMP, " +
+            "updated_at TIMESTAMP, created_by VARCHAR(255), " +
+            "CONSTRAINT uk_users_tenant_username UNIQUE (tenant_id, username), " +
+            "CONSTRAINT uk_users_tenant_email UNIQUE (tenant_id, email))");
+        
+        meterRegistry = new SimpleMeterRegistry();
+        importService = new UserImportServiceImpl(userRepository, jdbcTemplate, new DataSourceTransactionManager(dataSource),
+            new BCryptPasswordEncoder(4), Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), meterRegistry);
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "hashThreads", 2);
+        ReflectionTestUtils.invokeMethod(importService, "init");
+        
+        tenantId = "tenant1";
+        resourceDomain = "domain1";
+        lenient().when(userRepository.findExistingUsernames(anyString(), anyCollection())).thenReturn(List.of());
+        lenient().when(userRepository.findExistingEmails(anyString(), anyCollection())).thenReturn(List.of());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(importService, "shutdown");
+    }
+    
+    @Test
+    void importUsers_InsertsValidRowsInBatchesAndReportsInvalidOnes() {
+        // Given
+        String ndjson = user("alice") + "\n" +
+                        "{\"username\":\"bo\",\"email\":\"not-an-email\",\"password\":\"secret123\"}\n" +
+                        user("carol") + "\n" +
+                        user("alice") + "\n" +
+                        user("dave") + "\n";
+        
+        // When
+        UserImportResult result = importService.importUsers(body(ndjson), MediaType.APPLICATION_NDJSON, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(5, result.getTotalRows());
+        assertEquals(3, result.getImportedRows());
+        assertEquals(2, result.getFailedRows());
+        assertEquals(List.of(2L, 4L), result.getErrors().stream().map(UserImportResult.UserImportError::getRow).toList());
+        assertEquals("email: Email should be valid; username: Username must be between 3 and 50 characters",
+            result.getErrors().get(0).getMessage());
+        // The second alice is in the next chunk; the existence check is mocked, so the unique constraint rejects it
+        assertEquals("Username or email already exists", result.getErrors().get(1).getMessage());
+        
+        Map<String, Object> alice = jdbcTemplate.queryForMap("SELECT * FROM users WHERE username = 'alice'");
+        assertEquals(tenantId, alice.get("TENANT_ID"));
+        assertEquals(resourceDomain, alice.get("RESOURCE_DOMAIN"));
+        assertTrue(new BCryptPasswordEncoder().matches("secret123", (String) alice.get("PASSWORD_HASH")));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+        
+        // Three valid rows in chunks of two: two existence checks per chunk
+        verify(userRepository, times(2)).findExistingUsernames(eq(tenantId), anyCollection());
+        assertEquals(3.0, meterRegistry.counter("users.import.rows", "outcome", "imported").count());
+    }
+    
+    @Test
+    void importUsers_SkipsUsersThatAlreadyExist() {
+        // Given
+        when(userRepository.findExistingUsernames(eq(tenantId), anyCollection())).thenReturn(List.of("alice"));
+        when(userRepository.findExistingEmails(eq(tenantId), anyCollection())).thenReturn(List.of("bob@example.com"));
+        
+        // When
+        UserImportResult result = importService.importUsers(body("[" + user("alice") + "," + user("bob") + "]"),
+            MediaType.APPLICATION_JSON, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(0, result.getImportedRows());
+        assertEquals("Username already exists: alice", result.getErrors().get(0).getMessage());
+        assertEquals("Email already exists: bob@example.com", result.getErrors().get(1).getMessage());
+    }
+    
+    @Test
+    void importUsers_RowsTakenConcurrentlyFallBackToSingleInserts() {
+        // Given a user created after the existence check
+        jdbcTemplate.update("INSERT INTO users (id, tenant_id, resource_domain, username, email, password_hash) " +
+            "VALUES (RANDOM_UUID(), ?, ?, 'bob', 'other@example.com', 'x')", tenantId, resourceDomain);
+        String csv = "username,email,password\n" +
+                     "alice,alice@example.com,secret123\n" +
+                     "bob,bob@example.com,secret123\n";
+        
+        // When
+        UserImportResult result = importService.importUsers(body(csv), UserImportReader.TEXT_CSV, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(1, result.getImportedRows());
+        assertEquals(1, result.getFailedRows());
+        assertEquals("bob", result.getErrors().get(0).getUsername());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class));
+    }
+    
+    @Test
+    void importUsers_DuplicatesWithinAChunkAreReported() {
+        // Given
+        String csv = "username,email,password\n" +
+                     "alice,alice@example.com,secret123\n" +
+                     "alice,other@example.com,secret123\n" +
+                     "bob,bob@example.com,secret123\n" +
+                     "carol,bob@example.com,secret123\n";
+        
+        // When
+        UserImportResult result = importService.importUsers(body(csv), UserImportReader.TEXT_CSV, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(2, result.getImportedRows());
+        assertEquals(List.of(2L, 4L), result.getErrors().stream().map(UserImportResult.UserImportError::getRow).toList());
+        assertEquals("Duplicate username in upload: alice", result.getErrors().get(0).getMessage());
+        assertEquals("Duplicate email in upload: bob@example.com", result.getErrors().get(1).getMessage());
+    }
+    
+    @Test
+    void importUsers_HashingFailuresAreReportedPerRow() {
+        // Given an encoder that fails for one password
+        PasswordEncoder encoder = mock(PasswordEncoder.class);
+        when(encoder.encode(anyString())).thenAnswer(invocation -> {
+            if ("broken123".equals(invocation.getArgument(0))) {
+                throw new IllegalStateException("encoder unavailable");
+            }
+            return "hash";
+        });
+        ReflectionTestUtils.invokeMethod(importService, "shutdown");
+        importService = new UserImportServiceImpl(userRepository, jdbcTemplate, new DataSourceTransactionManager(jdbcTemplate.getDataSource()),
+            encoder, Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), meterRegistry);
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "hashThreads", 2);
+        ReflectionTestUtils.invokeMethod(importService, "init");
+        String csv = "username,email,password\n" +
+                     "alice,alice@example.com,secret123\n" +
+                     "bob,bob@example.com,broken123\n";
+        
+        // When
+        UserImportResult result = importService.importUsers(body(csv), UserImportReader.TEXT_CSV, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(1, result.getImportedRows());
+        assertEquals(1, result.getFailedRows());
+        assertEquals(2L, result.getErrors().get(0).getRow());
+        assertEquals("Could not hash password: encoder unavailable", result.getErrors().get(0).getMessage());
+        assertEquals(List.of("alice"), jdbcTemplate.queryForList("SELECT username FROM users", String.class));
+    }
+    
+    private static String user(String username) {
+        return "{\"username\":\"" + username + "\",\"email\":\"" + username + "@example.com\",\"password\":\"secret123\"}";
+    }
+    
+    private static ByteArrayInputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -5,25 +5,59 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.modelmapper.ModelMapper;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import service.com.service.userservice.cache.CatalogCache;
+import service.com.service.userservice.cache.EffectivePermissions;
+import service.com.service.userservice.cache.EntryFreshness;
+import service.com.service.userservice.cache.PermissionRefreshPolicy;
+import service.com.service.userservice.cache.PermissionRefresher;
+import service.com.service.userservice.cache.UserGrants;
 import service.com.service.userservice.dto.CreateUserRequest;
+import service.com.service.userservice.dto.PermissionCheckRequest;
+import service.com.service.userservice.dto.PermissionCheckResult;
+import service.com.service.userservice.dto.UpdateUserRequest;
 import service.com.service.userservice.dto.UserDto;
+import service.com.service.userservice.dto.UserPageResponse;
 import service.com.service.userservice.dto.UserPermissionsDto;
+import service.com.service.userservice.entity.Role;
 import service.com.service.userservice.entity.User;
 import service.com.service.userservice.exception.UserAlreadyExistsException;
 import service.com.service.userservice.exception.UserNotFoundException;
+import service.com.service.userservice.exception.VersionMismatchException;
+import service.com.service.userservice.mapper.DtoMapper;
+import service.com.service.userservice.mapper.DtoMapperImpl;
 import service.com.service.userservice.repository.UserRepository;
 import service.com.service.userservice.repository.RoleRepository;
 import service.com.service.userservice.repository.PermissionRepository;
+import service.com.service.userservice.repository.projection.RolePermissionView;
+import service.com.service.userservice.repository.projection.UserGrantView;
+import service.com.service.userservice.repository.projection.UserView;
 import service.com.service.userservice.service.CacheService;
+import service.com.service.userservice.utils.UserCursor;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -42,11 +76,23 @@ class UserServiceImplTest {
     private CacheService cacheService;
     
     @Mock
-    private ModelMapper modelMapper;
+    private CatalogCache catalogCache;
+    
+    @Mock
+    private LastLoginBuffer lastLoginBuffer;
+    
+    @Spy
+    private DtoMapper dtoMapper = new DtoMapperImpl();
     
     @Mock
     private PasswordEncoder passwordEncoder;
     
+    @Spy
+    private PermissionRefreshPolicy refreshPolicy = new PermissionRefreshPolicy();
+    
+    @Mock
+    private PermissionRefresher permissionRefresher;
+    
     @InjectMocks
     private UserServiceImpl userService;
     
@@ -107,7 +153,6 @@ class UserServiceImplTest {
             createUserRequest.getEmail(), tenantId, resourceDomain)).thenReturn(false);
         when(passwordEncoder.encode(createUserRequest.getPassword())).thenReturn("hashedpassword");
         when(userRepository.save(any(User.class))).thenReturn(user);
-        when(modelMapper.map(user, UserDto.class)).thenReturn(userDto);
         
         // When
         UserDto result = userService.createUser(createUserRequest, tenantId, resourceDomain);
@@ -148,26 +193,37 @@ class UserServiceImplTest {
         verify(userRepository, never()).save(any(User.class));
     }
     
+    @Test
+    void updateUser_StaleExpectedVersion_ThrowsWithoutWriting() {
+        // Given
+        user.setVersion(3L);
+        when(userRepository.findByIdAndTenantIdAndResourceDomain(userId, tenantId, resourceDomain)).thenReturn(Optional.of(user));
+        
+        // When & Then
+        assertThrows(VersionMismatchException.class, () ->
+            userService.updateUser(userId, UpdateUserRequest.builder().firstName("Renamed").build(), 2L, tenantId, resourceDomain));
+        assertEquals("Test", user.getFirstName());
+        verify(userRepository, never()).saveAndFlush(any(User.class));
+    }
+    
     @Test
     void getUserById_Success() {
         // Given
-        when(userRepository.findByIdAndTenantIdAndResourceDomain(userId, tenantId, resourceDomain))
-            .thenReturn(Optional.of(user));
-        when(modelMapper.map(user, UserDto.class)).thenReturn(userDto);
+        when(userRepository.findViewByIdAndDomain(userId, tenantId, resourceDomain))
+            .thenReturn(Optional.of(view(user)));
         
         // When
         UserDto result = userService.getUserById(userId, tenantId, resourceDomain);
         
         // Then
-        assertNotNull(result);
-        assertEquals(userDto.getId(), result.getId());
-        assertEquals(userDto.getUsername(), result.getUsername());
+        assertEquals(userDto, result);
+        verify(dtoMapper, never()).toDto(any(User.class));
     }
     
     @Test
     void getUserById_NotFound_ThrowsException() {
         // Given
-        when(userRepository.findByIdAndTenantIdAndResourceDomain(userId, tenantId, resourceDomain))
+        when(userRepository.findViewByIdAndDomain(userId, tenantId, resourceDomain))
             .thenReturn(Optional.empty());
         
         // When & Then
@@ -178,16 +234,14 @@ class UserServiceImplTest {
     @Test
     void getUserByUsername_Success() {
         // Given
-        when(userRepository.findByUsernameAndTenantIdAndResourceDomain(
-            user.getUsername(), tenantId, resourceDomain)).thenReturn(Optional.of(user));
-        when(modelMapper.map(user, UserDto.class)).thenReturn(userDto);
+        when(userRepository.findViewByUsernameAndDomain(
+            user.getUsername(), tenantId, resourceDomain)).thenReturn(Optional.of(view(user)));
         
         // When
         UserDto result = userService.getUserByUsername(user.getUsername(), tenantId, resourceDomain);
         
         // Then
-        assertNotNull(result);
-        assertEquals(userDto.getUsername(), result.getUsername());
+        assertEquals(userDto, result);
     }
     
     @Test
@@ -238,60 +292,335 @@ class UserServiceImplTest {
     @Test
     void cacheUserPermissions_Success() {
         // Given
-        UserPermissionsDto permissions = UserPermissionsDto.builder()
-            .userId(userId)
-            .username(user.getUsername())
-            .tenantId(tenantId)
-            .resourceDomain(resourceDomain)
-            .build();
-        
-        when(userRepository.findUserWithRolesAndPermissionsByDomain(userId, tenantId, resourceDomain))
-            .thenReturn(Optional.of(user));
+        when(userRepository.findDirectGrantsByUserIdsAndDomain(List.of(userId), tenantId, resourceDomain))
+            .thenReturn(List.of(grant(userId, UserGrantView.TYPE_USER, user.getUsername())));
+        EffectivePermissions compiled = compiledPermissions();
+        when(cacheService.cacheUserGrants(any(UserGrants.class), eq(tenantId), eq(resourceDomain), any()))
+            .thenReturn(compiled);
         
         // When
         userService.cacheUserPermissions(userId, tenantId, resourceDomain);
         
         // Then
-        verify(cacheService).cacheUserPermissions(eq(userId), eq(tenantId), eq(resourceDomain), any(UserPermissionsDto.class));
+        verify(cacheService).cacheUserGrants(any(UserGrants.class), eq(tenantId), eq(resourceDomain), any());
     }
     
     @Test
     void getCachedUserPermissions_CacheHit() {
         // Given
-        UserPermissionsDto cachedPermissions = UserPermissionsDto.builder()
-            .userId(userId)
-            .username(user.getUsername())
-            .tenantId(tenantId)
-            .resourceDomain(resourceDomain)
-            .build();
-        
-        when(cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain))
-            .thenReturn(cachedPermissions);
+        EffectivePermissions cached = compiledPermissions();
+        when(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain))
+            .thenReturn(cached);
         
         // When
         UserPermissionsDto result = userService.getCachedUserPermissions(userId, tenantId, resourceDomain);
         
         // Then
         assertNotNull(result);
-        assertEquals(cachedPermissions.getUserId(), result.getUserId());
-        verify(cacheService).getCachedUserPermissions(userId, tenantId, resourceDomain);
+        assertEquals(userId, result.getUserId());
+        verify(cacheService).getEffectivePermissions(userId, tenantId, resourceDomain);
+        verifyNoInteractions(userRepository, permissionRefresher);
+    }
+    
+    @Test
+    void getCachedUserPermissions_EntryAtMinVersion_ServedFromCache() {
+        // Given
+        EffectivePermissions cached = compiledPermissions();
+        when(cached.getPermissionsVersion()).thenReturn(3L);
+        when(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain)).thenReturn(cached);
+        
+        // When
+        userService.getCachedUserPermissions(userId, 3, tenantId, resourceDomain);
+        
+        // Then
+        verify(cached).toDto();
+        verifyNoInteractions(userRepository);
+    }
+    
+    @Test
+    void getCachedUserPermissions_EntryOlderThanMinVersion_Reloads() {
+        // Given
+        EffectivePermissions cached = compiledPermissions();
+        EffectivePermissions loaded = compiledPermissions();
+        when(cached.getPermissionsVersion()).thenReturn(2L);
+        when(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain)).thenReturn(cached);
+        when(userRepository.findDirectGrantsByUserIdsAndDomain(List.of(userId), tenantId, resourceDomain))
+            .thenReturn(List.of(grant(userId, UserGrantView.TYPE_USER, user.getUsername())));
+        when(cacheService.cacheUserGrants(any(UserGrants.class), eq(tenantId), eq(resourceDomain), any())).thenReturn(loaded);
+        
+        // When
+        userService.getCachedUserPermissions(userId, 3, tenantId, resourceDomain);
+        
+        // Then
+        verify(loaded).toDto();
+        verify(cached, never()).toDto();
+    }
+    
+    @Test
+    void hasPermission_NearExpiry_ServesCachedAndRefreshesInBackground() {
+        // Given
+        EffectivePermissions cached = compiledPermissions();
+        EntryFreshness nearExpiry = freshness(50);
+        when(cached.getFreshness()).thenReturn(nearExpiry);
+        when(cached.hasPermission("user:read")).thenReturn(true);
+        when(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain)).thenReturn(cached);
+        doReturn(PermissionRefreshPolicy.State.REFRESH_AHEAD).when(refreshPolicy).state(nearExpiry, tenantId);
+        
+        // When
+        boolean result = userService.hasPermission(userId, "user:read", tenantId, resourceDomain);
+        
+        // Then
+        assertTrue(result);
+        verify(permissionRefresher).refreshAsync(eq(tenantId + ":" + resourceDomain + ":" + userId), any());
+        verifyNoInteractions(userRepository);
+    }
+    
+    @Test
+    void hasPermission_PastSoftExpiry_ReloadsWithStaleFallback() {
+        // Given
+        EffectivePermissions stale = compiledPermissions();
+        when(stale.getFreshness()).thenReturn(freshness(-1_000));
+        when(stale.hasPermission("user:read")).thenReturn(true);
+        when(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain)).thenReturn(stale);
+        when(permissionRefresher.reloadOrServeStale(anyString(), any(), eq(stale), anyLong())).thenReturn(stale);
+        
+        // When
+        boolean result = userService.hasPermission(userId, "user:read", tenantId, resourceDomain);
+        
+        // Then
+        assertTrue(result);
+        verify(permissionRefresher).reloadOrServeStale(eq(tenantId + ":" + resourceDomain + ":" + userId), any(), eq(stale), eq(1000L));
+    }
+    
+    @Test
+    void hasPermission_PastStalenessBound_ReloadsSynchronously() {
+        // Given
+        EffectivePermissions expired = compiledPermissions();
+        EffectivePermissions loaded = compiledPermissions();
+        when(expired.getFreshness()).thenReturn(freshness(-3_600_000));
+        when(loaded.hasPermission("user:read")).thenReturn(false);
+        when(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain)).thenReturn(expired);
+        when(userRepository.findDirectGrantsByUserIdsAndDomain(List.of(userId), tenantId, resourceDomain))
+            .thenReturn(List.of(grant(userId, UserGrantView.TYPE_USER, user.getUsername())));
+        when(cacheService.cacheUserGrants(any(UserGrants.class), eq(tenantId), eq(resourceDomain), any()))
+            .thenReturn(loaded);
+        
+        // When
+        boolean result = userService.hasPermission(userId, "user:read", tenantId, resourceDomain);
+        
+        // Then
+        assertFalse(result);
+        verify(expired, never()).hasPermission(anyString());
+        verifyNoInteractions(permissionRefresher);
     }
     
     @Test
     void getCachedUserPermissions_CacheMiss() {
         // Given
-        when(cacheService.getCachedUserPermissions(userId, tenantId, resourceDomain))
+        when(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain))
             .thenReturn(null);
-        when(userRepository.findUserWithRolesAndPermissionsByDomain(userId, tenantId, resourceDomain))
-            .thenReturn(Optional.of(user));
+        when(userRepository.findDirectGrantsByUserIdsAndDomain(List.of(userId), tenantId, resourceDomain))
+            .thenReturn(List.of(
+                grant(userId, UserGrantView.TYPE_USER, user.getUsername()),
+                grant(userId, UserGrantView.TYPE_ROLE, "USER", 2L)));
+        EffectivePermissions compiled = compiledPermissions();
+        when(cacheService.cacheUserGrants(any(UserGrants.class), eq(tenantId), eq(resourceDomain), any()))
+            .thenReturn(compiled);
         
         // When
         UserPermissionsDto result = userService.getCachedUserPermissions(userId, tenantId, resourceDomain);
         
         // Then
         assertNotNull(result);
-        verify(cacheService).getCachedUserPermissions(userId, tenantId, resourceDomain);
-        verify(cacheService).cacheUserPermissions(eq(userId), eq(tenantId), eq(resourceDomain), any(UserPermissionsDto.class));
+        verify(cacheService).getEffectivePermissions(userId, tenantId, resourceDomain);
+        verify(cacheService).cacheUserGrants(
+            argThat((UserGrants grants) -> grants.userId().equals(userId) && grants.roles().equals(List.of("USER"))
+                && grants.directPermissions().isEmpty() && grants.permissionsVersion() == 5),
+            eq(tenantId), eq(resourceDomain), any());
+    }
+    
+    @Test
+    void getCachedUserPermissions_CacheMiss_LoadsOnlyUncachedRoleSets() {
+        // Given
+        when(cacheService.getEffectivePermissions(userId, tenantId, resourceDomain))
+            .thenReturn(null);
+        when(userRepository.findDirectGrantsByUserIdsAndDomain(List.of(userId), tenantId, resourceDomain))
+            .thenReturn(List.of(grant(userId, UserGrantView.TYPE_USER, user.getUsername())));
+        when(roleRepository.findPermissionsByRoleNamesAndDomain(List.of("EDITOR"), tenantId, resourceDomain))
+            .thenReturn(List.of(rolePermission("EDITOR", "post:write"), rolePermission("EDITOR", "post:read")));
+        EffectivePermissions compiled = compiledPermissions();
+        when(cacheService.cacheUserGrants(any(UserGrants.class), eq(tenantId), eq(resourceDomain), any()))
+            .thenAnswer(invocation -> {
+                // The cache asks only for the role sets it does not hold
+                Function<Collection<String>, Map<String, List<String>>> roleLoader = invocation.getArgument(3);
+                assertEquals(Map.of("EDITOR", List.of("post:write", "post:read")), roleLoader.apply(List.of("EDITOR")));
+                return compiled;
+            });
+        
+        // When
+        userService.getCachedUserPermissions(userId, tenantId, resourceDomain);
+        
+        // Then
+        verify(roleRepository).findPermissionsByRoleNamesAndDomain(List.of("EDITOR"), tenantId, resourceDomain);
+        verify(permissionRepository, never()).findAllPermissionsByUserIdAndDomain(any(), any(), any());
+    }
+    
+    @Test
+    void getUsersPage_MoreRowsThanLimit_ReturnsCursorToLastUser() {
+        // Given
+        List<UserView> users = List.of(view(listedUser(1)), view(listedUser(2)), view(listedUser(3)));
+        when(userRepository.findFirstPageByDomain(tenantId, resourceDomain, PageRequest.ofSize(3))).thenReturn(users);
+        
+        // When
+        UserPageResponse result = userService.getUsersPage(null, 2, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(2, result.getSize());
+        assertEquals(2, result.getUsers().size());
+        assertTrue(result.isHasMore());
+        assertEquals(new UserCursor(users.get(1).createdAt(), users.get(1).id()), UserCursor.decode(result.getNextCursor()));
+    }
+    
+    @Test
+    void getUsersPage_WithCursor_SeeksPastKeyAndCapsLimit() {
+        // Given
+        User previous = listedUser(1);
+        String cursor = new UserCursor(previous.getCreatedAt(), previous.getId()).encode();
+        when(userRepository.findPageAfterByDomain(tenantId, resourceDomain, previous.getCreatedAt(), previous.getId(),
+            PageRequest.ofSize(501))).thenReturn(List.of(view(listedUser(2))));
+        
+        // When
+        UserPageResponse result = userService.getUsersPage(cursor, 10_000, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(1, result.getSize());
+        assertFalse(result.isHasMore());
+        assertNull(result.getNextCursor());
+        verify(userRepository, never()).findFirstPageByDomain(any(), any(), any());
+    }
+    
+    @Test
+    void exportUsers_HandsOverEveryRowInOrder() {
+        // Given
+        List<UserView> users = List.of(view(listedUser(1)), view(listedUser(2)));
+        when(userRepository.streamByDomain(tenantId, resourceDomain)).thenReturn(users.stream());
+        List<UserDto> exported = new ArrayList<>();
+        
+        // When
+        long count = userService.exportUsers(tenantId, resourceDomain, exported::add);
+        
+        // Then
+        assertEquals(2, count);
+        assertEquals(List.of("user1", "user2"), exported.stream().map(UserDto::getUsername).toList());
+    }
+    
+    @Test
+    void searchUsers_CapsLimitAndOffset() {
+        // Given
+        when(userRepository.searchRankedByDomain(tenantId, resourceDomain, "test", 100, 1000)).thenReturn(List.of(view(user)));
+        
+        // When
+        List<UserDto> result = userService.searchUsers("test", 5_000, 50_000, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(List.of(userDto), result);
+    }
+    
+    @Test
+    void searchUsers_Streaming_CapsWindowAndClosesCursor() {
+        // Given
+        AtomicBoolean closed = new AtomicBoolean();
+        when(userRepository.streamRankedByDomain(tenantId, resourceDomain, "test", 100, 0))
+            .thenReturn(Stream.of(view(user)).onClose(() -> closed.set(true)));
+        List<UserDto> streamed = new ArrayList<>();
+        
+        // When
+        long count = userService.searchUsers("test", 5_000, null, tenantId, resourceDomain, streamed::add);
+        
+        // Then
+        assertEquals(1, count);
+        assertEquals(List.of(userDto), streamed);
+        assertTrue(closed.get());
+    }
+    
+    @Test
+    void searchUsers_BlankTerm_SkipsQuery() {
+        // When
+        List<UserDto> result = userService.searchUsers("  ", null, null, tenantId, resourceDomain);
+        
+        // Then
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(userRepository);
+    }
+    
+    @Test
+    void getUserPermissionsWithRoles_ResolvesFromFlatRowsInOneQuery() {
+        // Given
+        when(userRepository.findEffectiveGrantsByUserIdAndDomain(userId, tenantId, resourceDomain))
+            .thenReturn(List.of(
+                grant(userId, UserGrantView.TYPE_USER, user.getUsername()),
+                grant(userId, UserGrantView.TYPE_ROLE, "ADMIN"),
+                grant(userId, UserGrantView.TYPE_ROLE, "EDITOR"),
+                grant(userId, UserGrantView.TYPE_PERMISSION, "user:read"),
+                grant(userId, UserGrantView.TYPE_PERMISSION, "post:write")));
+        
+        // When
+        UserPermissionsDto result = userService.getUserPermissionsWithRoles(userId, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(user.getUsername(), result.getUsername());
+        assertEquals(List.of("ADMIN", "EDITOR"), result.getRoles());
+        assertEquals(List.of("user:read", "post:write"), result.getPermissions());
+        verify(userRepository, never()).findUserWithRolesAndPermissionsByDomain(any(), any(), any());
+        verifyNoInteractions(permissionRepository);
+    }
+    
+    @Test
+    void getUserPermissionsWithRoles_UnknownUser_ThrowsException() {
+        // Given
+        when(userRepository.findEffectiveGrantsByUserIdAndDomain(userId, tenantId, resourceDomain))
+            .thenReturn(List.of());
+        
+        // When & Then
+        assertThrows(UserNotFoundException.class,
+            () -> userService.getUserPermissionsWithRoles(userId, tenantId, resourceDomain));
+    }
+    
+    @Test
+    void assignRoles_InsertsAllPairsInOneStatementAndEvictsUsersOnce() {
+        // Given
+        List<UUID> userIds = List.of(userId, UUID.randomUUID(), UUID.randomUUID());
+        List<UUID> roleIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(userRepository.insertUserRoles(userIds, roleIds, tenantId, resourceDomain)).thenReturn(5);
+        
+        // When
+        int assigned = userService.assignRoles(userIds, roleIds, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(5, assigned);
+        verify(cacheService).evictUserPermissionsCache(userIds, tenantId, resourceDomain);
+        verify(cacheService, never()).evictUserPermissionsCache(any(UUID.class), anyString(), anyString());
+        verify(userRepository, never()).findByIdAndTenantIdAndResourceDomain(any(), any(), any());
+    }
+    
+    @Test
+    void removeRolePermissions_DeletesAndEvictsRolePermissionSet() {
+        // Given
+        UUID roleId = UUID.randomUUID();
+        List<UUID> permissionIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        Role role = Role.builder().id(roleId).name("EDITOR").tenantId(tenantId).resourceDomain(resourceDomain).build();
+        when(roleRepository.findByIdAndTenantIdAndResourceDomain(roleId, tenantId, resourceDomain)).thenReturn(Optional.of(role));
+        when(roleRepository.deleteRolePermissions(roleId, permissionIds, tenantId, resourceDomain)).thenReturn(2);
+        
+        // When
+        int removed = userService.removeRolePermissions(roleId, permissionIds, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(2, removed);
+        verify(roleRepository).incrementPermissionsVersion("EDITOR", tenantId, resourceDomain);
+        verify(userRepository, never()).incrementPermissionsVersions(any(), any(), any());
+        verify(cacheService).evictRolePermissionsCache("EDITOR", tenantId, resourceDomain);
+        verify(catalogCache).catalogChanged(tenantId, resourceDomain);
     }
     
     @Test
@@ -345,4 +674,160 @@ class UserServiceImplTest {
         // Then
         assertFalse(result);
     }
+    
+    @Test
+    void checkPermissions_ResolvesCachedAndLoadsMissingUsersInOneQuery() {
+        // Given
+        UUID uncachedUserId = UUID.randomUUID();
+        UUID unknownUserId = UUID.randomUUID();
+        EffectivePermissions cached = mock(EffectivePermissions.class);
+        when(cached.hasPermission("user:read")).thenReturn(true);
+        
+        when(cacheService.getEffectivePermissions(anyCollection(), eq(tenantId), eq(resourceDomain)))
+            .thenReturn(Map.of(userId, cached));
+        when(userRepository.findDirectGrantsByUserIdsAndDomain(List.of(uncachedUserId, unknownUserId), tenantId, resourceDomain))
+            .thenReturn(List.of(
+                grant(uncachedUserId, UserGrantView.TYPE_USER, "loaded"),
+                grant(uncachedUserId, UserGrantView.TYPE_ROLE, "ADMIN")));
+        List<UserGrants> written = new ArrayList<>();
+        when(cacheService.cacheUserGrants(anyCollection(), eq(tenantId), eq(resourceDomain), any()))
+            .thenAnswer(invocation -> {
+                // Compiles whatever the service hands over, so the result follows the repository rows
+                Collection<UserGrants> grants = invocation.getArgument(0);
+                written.addAll(grants);
+                Map<UUID, EffectivePermissions> compiled = new HashMap<>();
+                for (UserGrants userGrants : grants) {
+                    EffectivePermissions permissions = mock(EffectivePermissions.class);
+                    lenient().when(permissions.hasRole(anyString())).thenAnswer(role -> userGrants.roles().contains(role.<String>getArgument(0)));
+                    compiled.put(userGrants.userId(), permissions);
+                }
+                return compiled;
+            });
+        
+        List<PermissionCheckRequest> checks = List.of(
+            PermissionCheckRequest.builder().userId(userId).permission("user:read").build(),
+            PermissionCheckRequest.builder().userId(uncachedUserId).role("ADMIN").build(),
+            PermissionCheckRequest.builder().userId(uncachedUserId).role("EDITOR").build(),
+            PermissionCheckRequest.builder().userId(unknownUserId).permission("user:read").build()
+        );
+        
+        // When
+        List<PermissionCheckResult> results = userService.checkPermissions(checks, tenantId, resourceDomain);
+        
+        // Then
+        assertEquals(List.of(true, true, false, false), results.stream().map(PermissionCheckResult::isGranted).toList());
+        // Only the user the database knows is cached; the unknown one is neither cached nor granted
+        assertEquals(1, written.size());
+        assertEquals(uncachedUserId, written.get(0).userId());
+        assertEquals("loaded", written.get(0).username());
+        assertEquals(List.of("ADMIN"), written.get(0).roles());
+        assertEquals(List.of(), written.get(0).directPermissions());
+        verify(userRepository, times(1)).findDirectGrantsByUserIdsAndDomain(anyCollection(), eq(tenantId), eq(resourceDomain));
+        verifyNoInteractions(permissionRefresher);
+    }
+    
+    @Test
+    void checkPermissions_StaleEntriesAndDatabaseDown_ServesStaleAnswers() {
+        // Given
+        EffectivePermissions stale = mock(EffectivePermissions.class);
+        when(stale.getFreshness()).thenReturn(freshness(-1_000));
+        when(stale.hasPermission("user:read")).thenReturn(true);
+        when(cacheService.getEffectivePermissions(anyCollection(), eq(tenantId), eq(resourceDomain)))
+            .thenReturn(Map.of(userId, stale));
+        when(userRepository.findDirectGrantsByUserIdsAndDomain(List.of(userId), tenantId, resourceDomain))
+            .thenThrow(new QueryTimeoutException("database unavailable"));
+        // Runs the service's own loader and falls back the way the refresher does when it fails
+        when(permissionRefresher.reloadOrServeStale(anyString(), any(), any(), anyLong())).thenAnswer(invocation -> {
+            try {
+                return invocation.<Supplier<Map<UUID, EffectivePermissions>>>getArgument(1).get();
+            } catch (RuntimeException e) {
+                return invocation.getArgument(2);
+            }
+        });
+        
+        // When
+        List<PermissionCheckResult> results = userService.checkPermissions(
+            List.of(PermissionCheckRequest.builder().userId(userId).permission("user:read").build()), tenantId, resourceDomain);
+        
+        // Then
+        assertTrue(results.get(0).isGranted());
+        verify(userRepository).findDirectGrantsByUserIdsAndDomain(List.of(userId), tenantId, resourceDomain);
+        verify(permissionRefresher).reloadOrServeStale(anyString(), any(), eq(Map.of(userId, stale)), anyLong());
+        verify(cacheService, never()).cacheUserGrants(anyCollection(), any(), any(), any());
+    }
+    
+    private EffectivePermissions compiledPermissions() {
+        EffectivePermissions compiled = mock(EffectivePermissions.class);
+        lenient().when(compiled.toDto()).thenReturn(UserPermissionsDto.builder()
+            .userId(userId)
+            .username(user.getUsername())
+            .tenantId(tenantId)
+            .resourceDomain(resourceDomain)
+            .build());
+        return compiled;
+    }
+    
+    // Soft expiry relative to now; negative values are already past it
+    private static EntryFreshness freshness(long millisToExpiry) {
+        long now = System.currentTimeMillis();
+        return new EntryFreshness(now - 3_600_000, now + millisToExpiry, 20);
+    }
+    
+    private User listedUser(int minute) {
+        return User.builder()
+            .id(UUID.randomUUID())
+            .tenantId(tenantId)
+            .resourceDomain(resourceDomain)
+            .username("user" + minute)
+            .createdAt(LocalDateTime.of(2024, 1, 1, 0, minute))
+            .build();
+    }
+    
+    private static UserView view(User user) {
+        return new UserView(user.getId(), user.getTenantId(), user.getResourceDomain(), user.getUsername(), user.getEmail(),
+            user.getFirstName(), user.getLastName(), user.getIsActive(), user.getIsEmailVerified(), user.getLastLoginAt(),
+            user.getCreatedAt(), user.getUpdatedAt(), user.getCreatedBy(), user.getUpdatedBy(), user.getVersion());
+    }
+    
+    private static UserGrantView grant(UUID userId, String grantType, String grantName) {
+        return grant(userId, grantType, grantName, 3L);
+    }
+    
+    private static UserGrantView grant(UUID userId, String grantType, String grantName, long permissionsVersion) {
+        return new UserGrantView() {
+            @Override
+            public UUID getUserId() {
+                return userId;
+            }
+            
+            @Override
+            public String getGrantType() {
+                return grantType;
+            }
+            
+            @Override
+            public String getGrantName() {
+                return grantName;
+            }
+            
+            @Override
+            public Long getPermissionsVersion() {
+                return permissionsVersion;
+            }
+        };
+    }
+    
+    private static RolePermissionView rolePermission(String roleName, String permission) {
+        return new RolePermissionView() {
+            @Override
+            public String getRoleName() {
+                return roleName;
+            }
+            
+            @Override
+            public String getPermission() {
+                return permission;
+            }
+        };
+    }
 }
@@ -0,0 +1,59 @@
+package service.com.service.userservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PermissionMatcherTest {
+    
+    @Test
+    void compile_NoPatterns_ReturnsNull() {
+        assertNull(PermissionMatcher.compile(List.of("user:read", "billing.invoices:read")));
+        assertNull(PermissionMatcher.compile(null));
+    }
+    
+    @Test
+    void matches_ActionWildcard() {
+        PermissionMatcher matcher = PermissionMatcher.compile(List.of("orders:*"));
+        
+        assertTrue(matcher.matches("orders:read"));
+        assertTrue(matcher.matches("orders:delete"));
+        assertFalse(matcher.matches("orders.items:read"));
+        assertFalse(matcher.matches("invoices:read"));
+    }
+    
+    @Test
+    void matches_ResourceWildcard() {
+        PermissionMatcher matcher = PermissionMatcher.compile(List.of("*:read"));
+        
+        assertTrue(matcher.matches("orders:read"));
+        assertTrue(matcher.matches("billing.invoices:read"));
+        assertFalse(matcher.matches("orders:write"));
+    }
+    
+    @Test
+    void matches_HierarchicalWildcard() {
+        PermissionMatcher matcher = PermissionMatcher.compile(List.of("billing.*:read", "reports.*.export:run"));
+        
+        assertTrue(matcher.matches("billing.invoices:read"));
+        assertTrue(matcher.matches("billing.invoices.lines:read"));
+        assertFalse(matcher.matches("billing:read"));
+        assertFalse(matcher.matches("billing.invoices:write"));
+        assertTrue(matcher.matches("reports.sales.export:run"));
+        assertFalse(matcher.matches("reports.sales.q1.export:run"));
+    }
+    
+    @Test
+    void isValidPattern() {
+        assertTrue(PermissionMatcher.isValidPattern("user:read"));
+        assertTrue(PermissionMatcher.isValidPattern("billing.invoices:read"));
+        assertTrue(PermissionMatcher.isValidPattern("billing.*:*"));
+        assertFalse(PermissionMatcher.isValidPattern("billing..invoices:read"));
+        assertFalse(PermissionMatcher.isValidPattern("bill*:read"));
+        assertFalse(PermissionMatcher.isValidPattern("user:read:extra"));
+        assertFalse(PermissionMatcher.isValidPattern("user"));
+        assertFalse(PermissionMatcher.isValidPattern(":read"));
+    }
+}
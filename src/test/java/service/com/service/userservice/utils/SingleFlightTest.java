@@ -0,0 +1,103 @@
+package service.com.service.userservice.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+    
+    @Test
+    void execute_ConcurrentCallsForSameKey_RunLoaderOnce() throws Exception {
+        // Given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        
+        // When
+        List<Future<String>> results = new ArrayList<>();
+        results.add(executor.submit(() -> singleFlight.execute("user", () -> {
+            loads.incrementAndGet();
+            loaderStarted.countDown();
+            await(release);
+            return "loaded";
+        })));
+        assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 7; i++) {
+            results.add(executor.submit(() -> singleFlight.execute("user", () -> {
+                loads.incrementAndGet();
+                return "duplicate";
+            })));
+        }
+        // Give the followers time to join the in-flight call before the leader finishes
+        Thread.sleep(200);
+        release.countDown();
+        
+        // Then
+        for (Future<String> result : results) {
+            assertEquals("loaded", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(0, singleFlight.inFlightCount());
+        executor.shutdown();
+    }
+    
+    @Test
+    void execute_LoaderFails_PropagatesAndAllowsRetry() {
+        // Given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> singleFlight.execute("user", () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertEquals("loaded", singleFlight.execute("user", () -> "loaded"));
+    }
+    
+    @Test
+    void execute_LoaderThrowsError_ReleasesFollowers() throws Exception {
+        // Given
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        CountDownLatch loaderStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        
+        // When
+        Future<String> leader = executor.submit(() -> singleFlight.execute("user", () -> {
+            loaderStarted.countDown();
+            await(release);
+            throw new OutOfMemoryError("simulated");
+        }));
+        assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+        Future<String> follower = executor.submit(() -> singleFlight.execute("user", () -> "duplicate"));
+        Thread.sleep(200);
+        release.countDown();
+        
+        // Then
+        ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(OutOfMemoryError.class, leaderFailure.getCause());
+        ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(OutOfMemoryError.class, followerFailure.getCause());
+        assertEquals(0, singleFlight.inFlightCount());
+        executor.shutdown();
+    }
+    
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package service.com.service.userservice.utils;
+
+import org.junit.jupiter.api.Test;
+import service.com.service.userservice.exception.InvalidCursorException;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCursorTest {
+    
+    @Test
+    void decode_RoundTripsEncodedCursor() {
+        // Given
+        UserCursor cursor = new UserCursor(LocalDateTime.of(2024, 3, 15, 10, 30, 45, 123_456_000), UUID.randomUUID());
+        
+        // When
+        String token = cursor.encode();
+        
+        // Then
+        assertEquals(cursor, UserCursor.decode(token));
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+    
+    @Test
+    void decode_MalformedToken_ThrowsInvalidCursor() {
+        String truncated = new UserCursor(LocalDateTime.now(), UUID.randomUUID()).encode().substring(4);
+        
+        assertThrows(InvalidCursorException.class, () -> UserCursor.decode("not a cursor!"));
+        assertThrows(InvalidCursorException.class, () -> UserCursor.decode(truncated));
+    }
+}
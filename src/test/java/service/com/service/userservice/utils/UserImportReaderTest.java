@@ -0,0 +1,81 @@
+package service.com.service.userservice.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import service.com.service.userservice.exception.InvalidImportException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserImportReaderTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    
+    @Test
+    void jsonArray_ReadsEachObjectAsRow() throws IOException {
+        List<UserImportReader.Row> rows = read(MediaType.APPLICATION_JSON,
+            "[{\"username\":\"alice\",\"email\":\"alice@example.com\"},{\"username\":\"bob\",\"isActive\":\"maybe\"}]");
+        
+        assertEquals(2, rows.size());
+        assertEquals("alice", rows.get(0).request().getUsername());
+        assertEquals(2, rows.get(1).number());
+        assertNull(rows.get(1).request());
+        assertNotNull(rows.get(1).error());
+    }
+    
+    @Test
+    void jsonArray_NotAnArray_Throws() {
+        assertThrows(InvalidImportException.class, () -> read(MediaType.APPLICATION_JSON, "{\"username\":\"alice\"}"));
+    }
+    
+    @Test
+    void ndjson_MalformedLineBecomesRowError() throws IOException {
+        List<UserImportReader.Row> rows = read(MediaType.APPLICATION_NDJSON,
+            "{\"username\":\"alice\"}\n\n{\"username\":\n{\"username\":\"carol\"}\n");
+        
+        assertEquals(3, rows.size());
+        assertEquals("alice", rows.get(0).request().getUsername());
+        assertTrue(rows.get(1).error().startsWith("Malformed JSON"));
+        assertEquals("carol", rows.get(2).request().getUsername());
+        assertEquals(3, rows.get(2).number());
+    }
+    
+    @Test
+    void csv_MapsHeaderNamesAndHandlesQuoting() throws IOException {
+        // Given
+        String csv = "username,email,password,first_name,Last Name,is_active\r\n" +
+                     "alice,alice@example.com,secret123,\"Alice, Jr.\",\"O\"\"Neil\",false\r\n" +
+                     "bob,bob@example.com,secret123,\"Multi\nline\",,\n" +
+                     "carol,carol@example.com\n";
+        
+        // When
+        List<UserImportReader.Row> rows = read(UserImportReader.TEXT_CSV, csv);
+        
+        // Then
+        assertEquals(3, rows.size());
+        assertEquals("Alice, Jr.", rows.get(0).request().getFirstName());
+        assertEquals("O\"Neil", rows.get(0).request().getLastName());
+        assertFalse(rows.get(0).request().getIsActive());
+        assertEquals("Multi\nline", rows.get(1).request().getFirstName());
+        assertNull(rows.get(1).request().getLastName());
+        assertTrue(rows.get(1).request().getIsActive());
+        assertEquals("Expected 6 fields but found 2", rows.get(2).error());
+    }
+    
+    private List<UserImportReader.Row> read(MediaType contentType, String body) throws IOException {
+        List<UserImportReader.Row> rows = new ArrayList<>();
+        try (UserImportReader reader = UserImportReader.open(contentType,
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), objectMapper)) {
+            for (UserImportReader.Row row = reader.next(); row != null; row = reader.next()) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}